@@ -0,0 +1,49 @@
+package main;
+
+import org.lwjgl.system.MemoryUtil;
+
+import java.nio.ByteBuffer;
+
+// Contenido de un recurso leído con Assets. Si viene sin comprimir de un archivo .pak,
+// data() es una vista sobre el archivo mapeado (sin copia); si no, es memoria nativa
+// propia que close() libera. En ambos casos no se debe usar data() tras close().
+public final class Asset implements AutoCloseable {
+
+    private final String path;
+    private ByteBuffer data;
+    private final boolean owned;
+
+    Asset(String path, ByteBuffer data, boolean owned) {
+        this.path = path;
+        this.data = data;
+        this.owned = owned;
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    public ByteBuffer data() {
+        if (data == null) {
+            throw new IllegalStateException("Asset ya cerrado: " + path);
+        }
+        return data;
+    }
+
+    public int size() {
+        return data().remaining();
+    }
+
+    // true si data() es una vista del archivo mapeado (no se ha copiado nada)
+    public boolean isMapped() {
+        return !owned;
+    }
+
+    @Override
+    public void close() {
+        if (data != null && owned) {
+            MemoryUtil.memFree(data);
+        }
+        data = null;
+    }
+}
@@ -0,0 +1,178 @@
+package main;
+
+import org.lwjgl.system.MemoryUtil;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+import static org.lwjgl.util.lz4.LZ4.LZ4_decompress_safe;
+
+// Archivo de recursos empaquetado (ver AssetPacker), abierto con FileChannel.map.
+// Formato (little endian):
+//   cabecera  : magic "LSPK", versión, número de entradas, tamaño de la tabla de nombres
+//   índice    : ENTRY_BYTES por entrada, ordenado por ruta (String.compareTo)
+//   nombres   : rutas UTF-8 concatenadas
+//   datos     : cada entrada alineada a DATA_ALIGNMENT, cruda o comprimida con LZ4
+// Las entradas crudas se devuelven como vistas del mapeo; las comprimidas se
+// descomprimen directamente a memoria nativa.
+public final class AssetArchive implements AutoCloseable {
+
+    static final int MAGIC = 0x4B50534C; // "LSPK"
+    static final int VERSION = 1;
+    static final int HEADER_BYTES = 16;
+    // offset de datos (8), tamaño guardado (4), tamaño original (4), offset y longitud del nombre (8), flags (4), libre (4)
+    static final int ENTRY_BYTES = 32;
+    static final int DATA_ALIGNMENT = 16;
+    static final int FLAG_LZ4 = 1;
+
+    private final Path file;
+    private final FileChannel channel;
+    private final MappedByteBuffer mapped;
+    private final String[] names;
+    private final long[] offsets;
+    private final int[] storedSizes;
+    private final int[] originalSizes;
+    private final int[] flags;
+
+    private long mappedReads;
+    private long decompressedReads;
+    private long decompressedBytes;
+
+    private AssetArchive(Path file, FileChannel channel, MappedByteBuffer mapped) throws IOException {
+        this.file = file;
+        this.channel = channel;
+        this.mapped = mapped;
+        mapped.order(ByteOrder.LITTLE_ENDIAN);
+
+        if (mapped.capacity() < HEADER_BYTES || mapped.getInt(0) != MAGIC) {
+            throw new IOException("No es un archivo de recursos: " + file);
+        }
+        if (mapped.getInt(4) != VERSION) {
+            throw new IOException("Versión de archivo no soportada (" + mapped.getInt(4) + "): " + file);
+        }
+        int count = mapped.getInt(8);
+        int namesBytes = mapped.getInt(12);
+        int namesStart = HEADER_BYTES + count * ENTRY_BYTES;
+        if (count < 0 || namesStart + (long) namesBytes > mapped.capacity()) {
+            throw new IOException("Índice corrupto: " + file);
+        }
+
+        names = new String[count];
+        offsets = new long[count];
+        storedSizes = new int[count];
+        originalSizes = new int[count];
+        flags = new int[count];
+        byte[] nameBytes = new byte[namesBytes];
+        mapped.get(namesStart, nameBytes);
+        for (int i = 0; i < count; i++) {
+            int base = HEADER_BYTES + i * ENTRY_BYTES;
+            offsets[i] = mapped.getLong(base);
+            storedSizes[i] = mapped.getInt(base + 8);
+            originalSizes[i] = mapped.getInt(base + 12);
+            int nameOffset = mapped.getInt(base + 16);
+            int nameLength = mapped.getInt(base + 20);
+            flags[i] = mapped.getInt(base + 24);
+            names[i] = new String(nameBytes, nameOffset, nameLength, StandardCharsets.UTF_8);
+            if (offsets[i] + storedSizes[i] > mapped.capacity() || (i > 0 && names[i - 1].compareTo(names[i]) >= 0)) {
+                throw new IOException("Índice corrupto en " + names[i] + ": " + file);
+            }
+        }
+    }
+
+    public static AssetArchive open(Path file) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Archivo de recursos mayor de 2 GB: " + file);
+            }
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return new AssetArchive(file, channel, mapped);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    // Búsqueda binaria en el índice ordenado; -1 si no está
+    private int find(String path) {
+        int index = Arrays.binarySearch(names, path);
+        return index >= 0 ? index : -1;
+    }
+
+    public boolean contains(String path) {
+        return find(path) >= 0;
+    }
+
+    // null si la ruta no está en el archivo
+    public Asset read(String path) throws IOException {
+        int index = find(path);
+        if (index < 0) {
+            return null;
+        }
+        int offset = (int) offsets[index];
+        ByteBuffer stored = mapped.slice(offset, storedSizes[index]);
+        if ((flags[index] & FLAG_LZ4) == 0) {
+            mappedReads++;
+            return new Asset(path, stored, false);
+        }
+
+        ByteBuffer data = MemoryUtil.memAlloc(originalSizes[index]);
+        int written = LZ4_decompress_safe(stored, data);
+        if (written != originalSizes[index]) {
+            MemoryUtil.memFree(data);
+            throw new IOException("LZ4 corrupto en " + path + " (" + written + " de " + originalSizes[index] + " bytes)");
+        }
+        decompressedReads++;
+        decompressedBytes += written;
+        return new Asset(path, data, true);
+    }
+
+    public int getEntryCount() {
+        return names.length;
+    }
+
+    public String getEntryName(int index) {
+        return names[index];
+    }
+
+    public int getOriginalSize(int index) {
+        return originalSizes[index];
+    }
+
+    public int getStoredSize(int index) {
+        return storedSizes[index];
+    }
+
+    public boolean isCompressed(int index) {
+        return (flags[index] & FLAG_LZ4) != 0;
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    public long getMappedReads() {
+        return mappedReads;
+    }
+
+    public long getDecompressedReads() {
+        return decompressedReads;
+    }
+
+    public long getDecompressedBytes() {
+        return decompressedBytes;
+    }
+
+    // Las vistas sin comprimir dejan de ser válidas cuando el mapeo se libera
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
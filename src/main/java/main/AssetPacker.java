@@ -0,0 +1,163 @@
+package main;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.lwjgl.util.lz4.LZ4.LZ4_compressBound;
+import static org.lwjgl.util.lz4.LZ4HC.LZ4HC_CLEVEL_MAX;
+import static org.lwjgl.util.lz4.LZ4HC.LZ4_compress_HC;
+
+// Empaqueta una carpeta de recursos en un archivo AssetArchive (.pak).
+// Cada entrada se comprime con LZ4 HC y solo se guarda comprimida si ahorra al menos
+// un MIN_SAVING; PNG/JPG/KTX2 suelen quedarse crudos y se leen sin copia.
+// mvn exec:java -Dexec.mainClass=main.AssetPacker [-Dexec.args="origen destino [--store]"]
+// --store guarda todo sin comprimir (no necesita la librería nativa de LZ4).
+public class AssetPacker {
+
+    private static final String DEFAULT_SOURCE = "src/main/resources";
+    private static final float MIN_SAVING = 0.10f;
+
+    private static final class Entry {
+        final String name;
+        final byte[] nameBytes;
+        final Path file;
+        ByteBuffer stored;
+        int originalSize;
+        int flags;
+        long offset;
+
+        Entry(String name, Path file) {
+            this.name = name;
+            this.nameBytes = name.getBytes(StandardCharsets.UTF_8);
+            this.file = file;
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        Path source = Paths.get(DEFAULT_SOURCE);
+        Path target = Paths.get(Assets.DEFAULT_ARCHIVE);
+        boolean store = false;
+        List<Path> positional = new ArrayList<>();
+        for (String arg : args) {
+            if (arg.equals("--store")) {
+                store = true;
+            } else {
+                positional.add(Paths.get(arg));
+            }
+        }
+        if (positional.size() > 0) {
+            source = positional.get(0);
+        }
+        if (positional.size() > 1) {
+            target = positional.get(1);
+        }
+
+        long t0 = System.nanoTime();
+        List<Entry> entries = pack(source, target, store);
+        long original = 0;
+        long stored = 0;
+        int compressed = 0;
+        for (Entry entry : entries) {
+            original += entry.originalSize;
+            stored += entry.stored.remaining();
+            compressed += (entry.flags & AssetArchive.FLAG_LZ4) != 0 ? 1 : 0;
+        }
+        System.out.printf("%s: %d entradas (%d comprimidas), %d KB -> %d KB de datos, %d KB en disco, %.0f ms%n",
+                target, entries.size(), compressed, original / 1024, stored / 1024,
+                Files.size(target) / 1024, (System.nanoTime() - t0) / 1e6);
+    }
+
+    // Escribe el archivo. Al ser una herramienta offline usa buffers directos normales (los
+    // libera el GC), así --store funciona sin ninguna librería nativa
+    private static List<Entry> pack(Path source, Path target, boolean store) throws IOException {
+        List<Entry> entries = new ArrayList<>();
+        try (Stream<Path> files = Files.walk(source)) {
+            files.filter(Files::isRegularFile).forEach(file ->
+                    entries.add(new Entry(source.relativize(file).toString().replace('\\', '/'), file)));
+        }
+        // Mismo orden que la búsqueda binaria de AssetArchive
+        entries.sort(Comparator.comparing(entry -> entry.name));
+
+        int namesBytes = 0;
+        for (Entry entry : entries) {
+            byte[] bytes = Files.readAllBytes(entry.file);
+            entry.originalSize = bytes.length;
+            entry.stored = store ? raw(bytes) : compress(bytes, entry);
+            namesBytes += entry.nameBytes.length;
+        }
+
+        long cursor = align(AssetArchive.HEADER_BYTES + (long) entries.size() * AssetArchive.ENTRY_BYTES + namesBytes);
+        for (Entry entry : entries) {
+            entry.offset = cursor;
+            cursor = align(cursor + entry.stored.remaining());
+        }
+
+        ByteBuffer header = ByteBuffer.allocate(AssetArchive.HEADER_BYTES + entries.size() * AssetArchive.ENTRY_BYTES
+                + namesBytes).order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(AssetArchive.MAGIC).putInt(AssetArchive.VERSION).putInt(entries.size()).putInt(namesBytes);
+        int nameOffset = 0;
+        for (Entry entry : entries) {
+            header.putLong(entry.offset)
+                    .putInt(entry.stored.remaining())
+                    .putInt(entry.originalSize)
+                    .putInt(nameOffset)
+                    .putInt(entry.nameBytes.length)
+                    .putInt(entry.flags)
+                    .putInt(0);
+            nameOffset += entry.nameBytes.length;
+        }
+        for (Entry entry : entries) {
+            header.put(entry.nameBytes);
+        }
+        header.flip();
+
+        try (FileChannel out = FileChannel.open(target, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            writeFully(out, header, 0);
+            for (Entry entry : entries) {
+                writeFully(out, entry.stored.duplicate(), entry.offset);
+            }
+        }
+        return entries;
+    }
+
+    private static ByteBuffer raw(byte[] bytes) {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(bytes.length);
+        buffer.put(bytes).flip();
+        return buffer;
+    }
+
+    private static ByteBuffer compress(byte[] bytes, Entry entry) {
+        ByteBuffer input = raw(bytes);
+        ByteBuffer output = ByteBuffer.allocateDirect(Math.max(1, LZ4_compressBound(bytes.length)));
+        int size = LZ4_compress_HC(input, output, LZ4HC_CLEVEL_MAX);
+        if (size > 0 && size <= bytes.length * (1f - MIN_SAVING)) {
+            output.limit(size);
+            entry.flags |= AssetArchive.FLAG_LZ4;
+            return output;
+        }
+        return input;
+    }
+
+    private static long align(long value) {
+        int a = AssetArchive.DATA_ALIGNMENT;
+        return (value + a - 1) / a * a;
+    }
+
+    private static void writeFully(FileChannel out, ByteBuffer data, long position) throws IOException {
+        while (data.hasRemaining()) {
+            position += out.write(data, position);
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package main;
+
+import org.lwjgl.system.MemoryUtil;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+// Punto único de lectura de recursos. Si hay un archivo montado (por defecto
+// assets.pak en el directorio de trabajo, generado con AssetPacker) se busca ahí primero;
+// si no, en el classpath y por último en el sistema de archivos.
+// Seguro desde cualquier hilo (el contador de lecturas del archivo es solo orientativo).
+public final class Assets {
+
+    public static final String DEFAULT_ARCHIVE = "assets.pak";
+
+    private static volatile AssetArchive archive;
+    private static volatile boolean defaultChecked;
+
+    private Assets() {
+    }
+
+    // Monta un archivo explícitamente (sustituye al anterior)
+    public static synchronized void mount(Path file) throws IOException {
+        AssetArchive previous = archive;
+        archive = AssetArchive.open(file);
+        defaultChecked = true;
+        if (previous != null) {
+            previous.close();
+        }
+    }
+
+    public static synchronized void unmount() throws IOException {
+        if (archive != null) {
+            archive.close();
+            archive = null;
+        }
+    }
+
+    public static AssetArchive getArchive() {
+        if (!defaultChecked) {
+            mountDefault();
+        }
+        return archive;
+    }
+
+    private static synchronized void mountDefault() {
+        if (defaultChecked) {
+            return;
+        }
+        defaultChecked = true;
+        Path file = Paths.get(DEFAULT_ARCHIVE);
+        if (Files.isRegularFile(file)) {
+            try {
+                archive = AssetArchive.open(file);
+            } catch (IOException e) {
+                System.err.println("No se pudo abrir " + file + ", se usa el classpath: " + e.getMessage());
+            }
+        }
+    }
+
+    public static boolean exists(String path) {
+        AssetArchive pak = getArchive();
+        if (pak != null && pak.contains(path)) {
+            return true;
+        }
+        return Assets.class.getClassLoader().getResource(path) != null || Files.isRegularFile(Paths.get(path));
+    }
+
+    public static Asset read(String path) throws IOException {
+        AssetArchive pak = getArchive();
+        if (pak != null) {
+            Asset asset = pak.read(path);
+            if (asset != null) {
+                return asset;
+            }
+        }
+
+        InputStream stream = Assets.class.getClassLoader().getResourceAsStream(path);
+        if (stream != null) {
+            // readAllBytes lee hasta el final (available() solo es una estimación)
+            byte[] bytes;
+            try (InputStream source = stream) {
+                bytes = source.readAllBytes();
+            }
+            return copy(path, bytes);
+        }
+
+        Path file = Paths.get(path);
+        if (Files.isRegularFile(file)) {
+            return copy(path, Files.readAllBytes(file));
+        }
+        throw new IOException("Recurso no encontrado: " + path);
+    }
+
+    // Recurso de texto en UTF-8 (p. ej. el código de un shader)
+    public static String readText(String path) throws IOException {
+        try (Asset asset = read(path)) {
+            return StandardCharsets.UTF_8.decode(asset.data().duplicate()).toString();
+        }
+    }
+
+    private static Asset copy(String path, byte[] bytes) {
+        ByteBuffer data = MemoryUtil.memAlloc(bytes.length);
+        data.put(bytes).flip();
+        return new Asset(path, data, true);
+    }
+}
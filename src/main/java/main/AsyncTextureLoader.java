@@ -0,0 +1,291 @@
+package main;
+
+import org.lwjgl.opengl.GL;
+import org.lwjgl.stb.STBImage;
+import org.lwjgl.system.MemoryStack;
+import org.lwjgl.system.MemoryUtil;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.util.ArrayDeque;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.lwjgl.opengl.GL11.*;
+import static org.lwjgl.opengl.GL15.*;
+import static org.lwjgl.opengl.GL21.GL_PIXEL_UNPACK_BUFFER;
+import static org.lwjgl.opengl.GL30.*;
+
+// Carga de texturas sin parones en el hilo de render:
+//   - load() crea el id con un placeholder de 1x1 y lanza la lectura + stbi en un pool de hilos.
+//   - update() (una vez por frame, hilo de OpenGL) copia las imágenes decodificadas a un
+//     pool de PBOs hasta agotar un presupuesto de bytes, y en el frame siguiente hace
+//     glTexImage2D desde el PBO (la transferencia a la GPU no bloquea la CPU) y los mipmaps.
+public class AsyncTextureLoader {
+
+    public static final int DEFAULT_PBO_COUNT = 4;
+    // Gris medio opaco: se nota menos que un color de depuración mientras carga
+    private static final int PLACEHOLDER_RGBA = 0xFF808080;
+
+    private final ExecutorService workers;
+    private final ConcurrentLinkedQueue<Decoded> decoded = new ConcurrentLinkedQueue<>();
+    private final Pbo[] pbos;
+    // PBOs llenados en el frame anterior, pendientes de glTexImage2D
+    private final ArrayDeque<Pbo> filled = new ArrayDeque<>();
+
+    // Formato al que se transcodifican los KTX2 Basis (según el contexto que creó el loader)
+    private final int transcodeFormat;
+
+    private int pending;
+    private long texturesUploaded;
+    private long bytesUploaded;
+    private long lastFrameBytes;
+    private long lastUpdateNanos;
+    private long peakUpdateNanos;
+
+    // Imagen decodificada en un hilo de fondo: pixels (memoria de stbi) o ktx, o un error
+    private static final class Decoded {
+        final TextureHandle handle;
+        final ByteBuffer pixels;
+        final KtxImage ktx;
+        final int width;
+        final int height;
+        final String error;
+
+        Decoded(TextureHandle handle, ByteBuffer pixels, KtxImage ktx, int width, int height, String error) {
+            this.handle = handle;
+            this.pixels = pixels;
+            this.ktx = ktx;
+            this.width = width;
+            this.height = height;
+            this.error = error;
+        }
+
+        long sizeBytes() {
+            return ktx != null ? ktx.getSizeBytes() : (long) width * height * 4;
+        }
+    }
+
+    private static final class Pbo {
+        final int id = glGenBuffers();
+        long capacity;
+        TextureHandle handle;
+        // Solo metadatos (niveles y formato): sus datos ya se copiaron al PBO
+        KtxImage ktx;
+        int width;
+        int height;
+    }
+
+    public AsyncTextureLoader() {
+        this(Math.max(1, Runtime.getRuntime().availableProcessors() / 2), DEFAULT_PBO_COUNT);
+    }
+
+    public AsyncTextureLoader(int threads, int pboCount) {
+        this.transcodeFormat = KtxImage.chooseTranscodeFormat(GL.getCapabilities());
+        AtomicInteger counter = new AtomicInteger();
+        this.workers = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "texture-decode-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.pbos = new Pbo[pboCount];
+        for (int i = 0; i < pboCount; i++) {
+            pbos[i] = new Pbo();
+        }
+    }
+
+    // Hilo de OpenGL. Devuelve enseguida; el id ya se puede usar para dibujar
+    public TextureHandle load(String resourcePath) {
+        return load(resourcePath, TextureSampler.REPEAT_MIPMAPPED);
+    }
+
+    public TextureHandle load(String resourcePath, TextureSampler sampler) {
+        int textureID = glGenTextures();
+        GLState.bindTexture(GL_TEXTURE_2D, textureID);
+        sampler.apply();
+        try (MemoryStack stack = MemoryStack.stackPush()) {
+            glTexImage2D(GL_TEXTURE_2D, 0, GL_RGBA8, 1, 1, 0, GL_RGBA, GL_UNSIGNED_BYTE,
+                    stack.ints(PLACEHOLDER_RGBA));
+        }
+        GLState.bindTexture(GL_TEXTURE_2D, 0);
+
+        TextureHandle handle = new TextureHandle(resourcePath, sampler, textureID);
+        pending++;
+        workers.submit(() -> decode(handle));
+        return handle;
+    }
+
+    // Hilo de fondo. Si hay un .ktx2 de la imagen se transcodifica ese en lugar de usar stbi
+    private void decode(TextureHandle handle) {
+        String ktxPath = TextureLoader.resolveKtx2(handle.getPath());
+        String path = ktxPath != null ? ktxPath : handle.getPath();
+        try (Asset file = Assets.read(path)) {
+            if (ktxPath != null) {
+                KtxImage ktx = KtxImage.decode(file.data(), transcodeFormat, ktxPath);
+                decoded.add(new Decoded(handle, null, ktx, ktx.getWidth(), ktx.getHeight(), null));
+            } else {
+                decoded.add(decodeImage(handle, file.data()));
+            }
+        } catch (IOException | RuntimeException e) {
+            decoded.add(new Decoded(handle, null, null, 0, 0, "No se pudo cargar el recurso: " + e.getMessage()));
+        }
+    }
+
+    private static Decoded decodeImage(TextureHandle handle, ByteBuffer file) {
+        try (MemoryStack stack = MemoryStack.stackPush()) {
+            IntBuffer width = stack.mallocInt(1);
+            IntBuffer height = stack.mallocInt(1);
+            IntBuffer channels = stack.mallocInt(1);
+            ByteBuffer pixels = STBImage.stbi_load_from_memory(file, width, height, channels, 4);
+            if (pixels == null) {
+                return new Decoded(handle, null, null, 0, 0,
+                        "No se pudo decodificar: " + STBImage.stbi_failure_reason());
+            }
+            return new Decoded(handle, pixels, null, width.get(0), height.get(0), null);
+        }
+    }
+
+    // Hilo de OpenGL, una vez por frame. byteBudget limita los bytes copiados a PBOs en
+    // este frame; siempre se admite al menos una imagen para que las grandes avancen.
+    public void update(long byteBudget) {
+        long start = System.nanoTime();
+
+        // 1. Texturas copiadas en el frame anterior: el driver ya tuvo un frame para la DMA
+        while (!filled.isEmpty()) {
+            Pbo pbo = filled.poll();
+            GLState.bindBuffer(GL_PIXEL_UNPACK_BUFFER, pbo.id);
+            GLState.bindTexture(GL_TEXTURE_2D, pbo.handle.getTextureID());
+            boolean mipmaps = pbo.handle.getSampler().usesMipmaps();
+            long size;
+            if (pbo.ktx != null) {
+                // Cadena de mipmaps ya hecha (y comprimida) desde el archivo
+                pbo.ktx.upload(0L, mipmaps);
+                size = pbo.ktx.getSizeBytes();
+            } else {
+                glTexImage2D(GL_TEXTURE_2D, 0, GL_RGBA8, pbo.width, pbo.height, 0, GL_RGBA, GL_UNSIGNED_BYTE, 0L);
+                if (mipmaps) {
+                    glGenerateMipmap(GL_TEXTURE_2D);
+                }
+                size = (long) pbo.width * pbo.height * 4;
+                size += mipmaps ? size / 3 : 0;
+            }
+            pbo.handle.ready(pbo.width, pbo.height, size);
+            pbo.handle = null;
+            pbo.ktx = null;
+            texturesUploaded++;
+            pending--;
+        }
+
+        // 2. Copiar imágenes decodificadas a PBOs libres dentro del presupuesto
+        long frameBytes = 0;
+        for (Pbo pbo : pbos) {
+            Decoded image = decoded.peek();
+            if (image == null) {
+                break;
+            }
+            if (image.error != null) {
+                decoded.poll();
+                image.handle.fail(image.error);
+                System.err.println("Textura " + image.handle.getPath() + ": " + image.error);
+                pending--;
+                continue;
+            }
+            long size = image.sizeBytes();
+            if (frameBytes > 0 && frameBytes + size > byteBudget) {
+                break;
+            }
+            decoded.poll();
+            fill(pbo, image, size);
+            frameBytes += size;
+        }
+        GLState.bindBuffer(GL_PIXEL_UNPACK_BUFFER, 0);
+        GLState.bindTexture(GL_TEXTURE_2D, 0);
+
+        lastFrameBytes = frameBytes;
+        bytesUploaded += frameBytes;
+        lastUpdateNanos = System.nanoTime() - start;
+        peakUpdateNanos = Math.max(peakUpdateNanos, lastUpdateNanos);
+    }
+
+    private void fill(Pbo pbo, Decoded image, long size) {
+        GLState.bindBuffer(GL_PIXEL_UNPACK_BUFFER, pbo.id);
+        // Orphaning: memoria nueva para no esperar a que la GPU termine de leer la anterior
+        if (size > pbo.capacity) {
+            pbo.capacity = size;
+        }
+        glBufferData(GL_PIXEL_UNPACK_BUFFER, pbo.capacity, GL_STREAM_DRAW);
+        ByteBuffer mapped = glMapBufferRange(GL_PIXEL_UNPACK_BUFFER, 0, size,
+                GL_MAP_WRITE_BIT | GL_MAP_INVALIDATE_BUFFER_BIT);
+        ByteBuffer source = image.ktx != null ? image.ktx.getData() : image.pixels;
+        if (mapped != null) {
+            MemoryUtil.memCopy(MemoryUtil.memAddress(source), MemoryUtil.memAddress(mapped), size);
+            glUnmapBuffer(GL_PIXEL_UNPACK_BUFFER);
+        } else {
+            glBufferSubData(GL_PIXEL_UNPACK_BUFFER, 0, source);
+        }
+        free(image);
+
+        pbo.handle = image.handle;
+        pbo.ktx = image.ktx;
+        pbo.width = image.width;
+        pbo.height = image.height;
+        filled.add(pbo);
+    }
+
+    private static void free(Decoded image) {
+        if (image.pixels != null) {
+            STBImage.stbi_image_free(image.pixels);
+        }
+        if (image.ktx != null) {
+            image.ktx.free();
+        }
+    }
+
+    // Texturas pedidas que aún no están listas (decodificando, en cola o en un PBO)
+    public int getPendingCount() {
+        return pending;
+    }
+
+    public long getTexturesUploaded() {
+        return texturesUploaded;
+    }
+
+    public long getBytesUploaded() {
+        return bytesUploaded;
+    }
+
+    public long getLastFrameBytes() {
+        return lastFrameBytes;
+    }
+
+    // Coste de update() en el hilo de render: último frame y máximo visto
+    public long getLastUpdateNanos() {
+        return lastUpdateNanos;
+    }
+
+    public long getPeakUpdateNanos() {
+        return peakUpdateNanos;
+    }
+
+    // Las texturas son del llamador (glDeleteTextures), igual que con TextureLoader
+    public void cleanup() {
+        workers.shutdownNow();
+        try {
+            workers.awaitTermination(1, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        Decoded image;
+        while ((image = decoded.poll()) != null) {
+            free(image);
+        }
+        filled.clear();
+        for (Pbo pbo : pbos) {
+            GLState.deleteBuffer(pbo.id);
+        }
+    }
+}
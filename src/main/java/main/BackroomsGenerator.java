@@ -0,0 +1,70 @@
+package main;
+
+import java.util.List;
+
+// Generador de paredes estilo backrooms sobre una rejilla de celdas. Cada arista de
+// celda decide si lleva pared con un hash de (semilla, celda, arista), así el resultado
+// no depende del orden ni del hilo que genere cada chunk.
+public class BackroomsGenerator implements ChunkGenerator {
+
+    public static final float CELL_SIZE = 4.0f;
+    public static final float WALL_HEIGHT = 3.0f;
+    // Altura del suelo: la cámara está en y = 0
+    public static final float FLOOR_Y = -1.0f;
+
+    private static final float YAW_ALONG_Z = (float) (Math.PI / 2);
+
+    private final long seed;
+    private final float wallChance;
+
+    public BackroomsGenerator(long seed) {
+        this(seed, 0.35f);
+    }
+
+    public BackroomsGenerator(long seed, float wallChance) {
+        this.seed = seed;
+        this.wallChance = wallChance;
+    }
+
+    @Override
+    public void generate(int chunkX, int chunkZ, float chunkSize, List<WallSegment> out) {
+        int cells = Math.max(1, Math.round(chunkSize / CELL_SIZE));
+        int baseX = chunkX * cells;
+        int baseZ = chunkZ * cells;
+        float centerY = FLOOR_Y + WALL_HEIGHT / 2f;
+
+        // Cada celda es dueña de su arista sur (a lo largo de X) y oeste (a lo largo de Z),
+        // así ninguna arista se genera dos veces entre chunks vecinos
+        for (int j = 0; j < cells; j++) {
+            for (int i = 0; i < cells; i++) {
+                int gx = baseX + i;
+                int gz = baseZ + j;
+                if (chance(gx, gz, 0) < wallChance) {
+                    out.add(new WallSegment((gx + 0.5f) * CELL_SIZE, centerY, gz * CELL_SIZE,
+                            CELL_SIZE, WALL_HEIGHT, 0f));
+                }
+                if (chance(gx, gz, 1) < wallChance) {
+                    out.add(new WallSegment(gx * CELL_SIZE, centerY, (gz + 0.5f) * CELL_SIZE,
+                            CELL_SIZE, WALL_HEIGHT, YAW_ALONG_Z));
+                }
+            }
+        }
+    }
+
+    // Valor en [0, 1) determinista para una arista de celda
+    protected float chance(int x, int z, int salt) {
+        long h = mix(seed ^ (x * 0x9E3779B97F4A7C15L) ^ (z * 0xC2B2AE3D27D4EB4FL) ^ (salt * 0x165667B19E3779F9L));
+        return (h >>> 40) * 0x1.0p-24f;
+    }
+
+    // Finalizador de SplitMix64
+    protected static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+}
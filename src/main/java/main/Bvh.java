@@ -0,0 +1,591 @@
+package main;
+
+import org.joml.FrustumIntersection;
+
+import java.util.List;
+
+// Jerarquía de volúmenes envolventes dinámica sobre AABBs (árbol binario balanceado por
+// rotaciones, inserción por coste de superficie). Solo CPU: no toca OpenGL.
+//
+// Las hojas guardan una AABB "gorda" (margen alrededor de la real): mientras el objeto
+// se mueva dentro de ella move() no cambia el árbol, así refrescar una transformación
+// suele ser O(1). Los nodos viven en arrays paralelos y se reciclan con una lista libre.
+public class Bvh<T> {
+
+    public static final int NULL = -1;
+    private static final float DEFAULT_MARGIN = 0.1f;
+
+    private float[] minX, minY, minZ, maxX, maxY, maxZ;
+    private int[] parent;   // En nodos libres: siguiente de la lista libre
+    private int[] child1;
+    private int[] child2;
+    private int[] height;   // 0 en hojas, -1 en nodos libres
+    private Object[] data;
+
+    private int root = NULL;
+    private int freeList = NULL;
+    private int nodeCount;
+    private int leafCount;
+    private final float margin;
+
+    // Pila de recorrido reutilizada por las consultas
+    private int[] stack = new int[64];
+
+    private float lastHitDistance;
+    private long reinserts;
+    private long moves;
+
+    public Bvh() {
+        this(256, DEFAULT_MARGIN);
+    }
+
+    public Bvh(int initialCapacity, float margin) {
+        this.margin = margin;
+        allocate(Math.max(initialCapacity, 2));
+    }
+
+    private void allocate(int capacity) {
+        int old = parent == null ? 0 : parent.length;
+        minX = grow(minX, capacity);
+        minY = grow(minY, capacity);
+        minZ = grow(minZ, capacity);
+        maxX = grow(maxX, capacity);
+        maxY = grow(maxY, capacity);
+        maxZ = grow(maxZ, capacity);
+        parent = grow(parent, capacity);
+        child1 = grow(child1, capacity);
+        child2 = grow(child2, capacity);
+        height = grow(height, capacity);
+        Object[] grownData = new Object[capacity];
+        if (data != null) {
+            System.arraycopy(data, 0, grownData, 0, data.length);
+        }
+        data = grownData;
+
+        // Los nodos nuevos se encadenan en la lista libre
+        for (int i = old; i < capacity - 1; i++) {
+            parent[i] = i + 1;
+            height[i] = -1;
+        }
+        parent[capacity - 1] = freeList;
+        height[capacity - 1] = -1;
+        freeList = old;
+    }
+
+    private static float[] grow(float[] array, int capacity) {
+        float[] grown = new float[capacity];
+        if (array != null) {
+            System.arraycopy(array, 0, grown, 0, array.length);
+        }
+        return grown;
+    }
+
+    private static int[] grow(int[] array, int capacity) {
+        int[] grown = new int[capacity];
+        if (array != null) {
+            System.arraycopy(array, 0, grown, 0, array.length);
+        }
+        return grown;
+    }
+
+    private int allocateNode() {
+        if (freeList == NULL) {
+            allocate(parent.length * 2);
+        }
+        int node = freeList;
+        freeList = parent[node];
+        parent[node] = NULL;
+        child1[node] = NULL;
+        child2[node] = NULL;
+        height[node] = 0;
+        data[node] = null;
+        nodeCount++;
+        return node;
+    }
+
+    private void freeNode(int node) {
+        parent[node] = freeList;
+        height[node] = -1;
+        data[node] = null;
+        freeList = node;
+        nodeCount--;
+    }
+
+    // Inserta un objeto con su AABB real; devuelve el id (proxy) para move/remove
+    public int insert(float x0, float y0, float z0, float x1, float y1, float z1, T object) {
+        int leaf = allocateNode();
+        setFat(leaf, x0, y0, z0, x1, y1, z1);
+        data[leaf] = object;
+        insertLeaf(leaf);
+        leafCount++;
+        return leaf;
+    }
+
+    public void remove(int proxy) {
+        checkLeaf(proxy);
+        removeLeaf(proxy);
+        freeNode(proxy);
+        leafCount--;
+    }
+
+    // Actualiza la AABB de un objeto. Si sigue dentro de su AABB gorda no hace nada y
+    // devuelve false; si no, reinserta la hoja y devuelve true.
+    public boolean move(int proxy, float x0, float y0, float z0, float x1, float y1, float z1) {
+        checkLeaf(proxy);
+        moves++;
+        if (minX[proxy] <= x0 && minY[proxy] <= y0 && minZ[proxy] <= z0
+                && maxX[proxy] >= x1 && maxY[proxy] >= y1 && maxZ[proxy] >= z1) {
+            return false;
+        }
+        removeLeaf(proxy);
+        setFat(proxy, x0, y0, z0, x1, y1, z1);
+        insertLeaf(proxy);
+        reinserts++;
+        return true;
+    }
+
+    @SuppressWarnings("unchecked")
+    public T getData(int proxy) {
+        return (T) data[proxy];
+    }
+
+    private void checkLeaf(int proxy) {
+        if (proxy < 0 || proxy >= parent.length || height[proxy] != 0) {
+            throw new IllegalArgumentException("Proxy de BVH no válido: " + proxy);
+        }
+    }
+
+    private void setFat(int node, float x0, float y0, float z0, float x1, float y1, float z1) {
+        minX[node] = x0 - margin;
+        minY[node] = y0 - margin;
+        minZ[node] = z0 - margin;
+        maxX[node] = x1 + margin;
+        maxY[node] = y1 + margin;
+        maxZ[node] = z1 + margin;
+    }
+
+    private static float area(float x0, float y0, float z0, float x1, float y1, float z1) {
+        float dx = x1 - x0;
+        float dy = y1 - y0;
+        float dz = z1 - z0;
+        return 2f * (dx * dy + dy * dz + dz * dx);
+    }
+
+    private float area(int node) {
+        return area(minX[node], minY[node], minZ[node], maxX[node], maxY[node], maxZ[node]);
+    }
+
+    // Superficie de la unión de los nodos a y b
+    private float unionArea(int a, int b) {
+        return area(Math.min(minX[a], minX[b]), Math.min(minY[a], minY[b]), Math.min(minZ[a], minZ[b]),
+                Math.max(maxX[a], maxX[b]), Math.max(maxY[a], maxY[b]), Math.max(maxZ[a], maxZ[b]));
+    }
+
+    // node = unión de sus dos hijos, altura incluida
+    private void refitNode(int node) {
+        int a = child1[node];
+        int b = child2[node];
+        minX[node] = Math.min(minX[a], minX[b]);
+        minY[node] = Math.min(minY[a], minY[b]);
+        minZ[node] = Math.min(minZ[a], minZ[b]);
+        maxX[node] = Math.max(maxX[a], maxX[b]);
+        maxY[node] = Math.max(maxY[a], maxY[b]);
+        maxZ[node] = Math.max(maxZ[a], maxZ[b]);
+        height[node] = 1 + Math.max(height[a], height[b]);
+    }
+
+    private boolean isLeaf(int node) {
+        return child1[node] == NULL;
+    }
+
+    private void insertLeaf(int leaf) {
+        if (root == NULL) {
+            root = leaf;
+            parent[leaf] = NULL;
+            return;
+        }
+
+        // Buscar el mejor hermano bajando por el hijo que menos superficie añade
+        int index = root;
+        while (!isLeaf(index)) {
+            int c1 = child1[index];
+            int c2 = child2[index];
+
+            float area = area(index);
+            float combinedArea = unionArea(index, leaf);
+            // Coste de crear un padre nuevo para este nodo y la hoja
+            float cost = 2f * combinedArea;
+            // Coste mínimo de bajar la hoja por debajo de este nodo
+            float inheritanceCost = 2f * (combinedArea - area);
+
+            float cost1 = unionArea(c1, leaf) + inheritanceCost;
+            if (!isLeaf(c1)) {
+                cost1 -= area(c1);
+            }
+            float cost2 = unionArea(c2, leaf) + inheritanceCost;
+            if (!isLeaf(c2)) {
+                cost2 -= area(c2);
+            }
+
+            if (cost < cost1 && cost < cost2) {
+                break;
+            }
+            index = cost1 < cost2 ? c1 : c2;
+        }
+        int sibling = index;
+
+        // Nuevo padre para el hermano y la hoja
+        int oldParent = parent[sibling];
+        int newParent = allocateNode();
+        parent[newParent] = oldParent;
+        child1[newParent] = sibling;
+        child2[newParent] = leaf;
+        parent[sibling] = newParent;
+        parent[leaf] = newParent;
+        refitNode(newParent);
+
+        if (oldParent != NULL) {
+            if (child1[oldParent] == sibling) {
+                child1[oldParent] = newParent;
+            } else {
+                child2[oldParent] = newParent;
+            }
+        } else {
+            root = newParent;
+        }
+
+        // Subir corrigiendo alturas y AABBs
+        fixUpwards(parent[leaf]);
+    }
+
+    private void removeLeaf(int leaf) {
+        if (leaf == root) {
+            root = NULL;
+            return;
+        }
+
+        int p = parent[leaf];
+        int grandParent = parent[p];
+        int sibling = child1[p] == leaf ? child2[p] : child1[p];
+
+        if (grandParent != NULL) {
+            // El hermano ocupa el lugar del padre
+            if (child1[grandParent] == p) {
+                child1[grandParent] = sibling;
+            } else {
+                child2[grandParent] = sibling;
+            }
+            parent[sibling] = grandParent;
+            freeNode(p);
+            fixUpwards(grandParent);
+        } else {
+            root = sibling;
+            parent[sibling] = NULL;
+            freeNode(p);
+        }
+        parent[leaf] = NULL;
+    }
+
+    private void fixUpwards(int index) {
+        while (index != NULL) {
+            index = balance(index);
+            refitNode(index);
+            index = parent[index];
+        }
+    }
+
+    // Rotación si los hijos de a difieren en más de un nivel; devuelve la nueva raíz del subárbol
+    private int balance(int a) {
+        if (isLeaf(a) || height[a] < 2) {
+            return a;
+        }
+        int b = child1[a];
+        int c = child2[a];
+        int balance = height[c] - height[b];
+
+        if (balance > 1) {
+            return rotate(a, c, b, false);
+        }
+        if (balance < -1) {
+            return rotate(a, b, c, true);
+        }
+        return a;
+    }
+
+    // Sube "up" (hijo alto de a) un nivel; "other" es el otro hijo de a.
+    // upIsChild1 indica en qué lado de a estaba "up".
+    private int rotate(int a, int up, int other, boolean upIsChild1) {
+        int f = child1[up];
+        int g = child2[up];
+
+        // up pasa a ser padre de a
+        child1[up] = a;
+        parent[up] = parent[a];
+        parent[a] = up;
+
+        if (parent[up] != NULL) {
+            if (child1[parent[up]] == a) {
+                child1[parent[up]] = up;
+            } else {
+                child2[parent[up]] = up;
+            }
+        } else {
+            root = up;
+        }
+
+        // El nieto más alto se queda bajo up; el otro baja a a
+        int keep = height[f] > height[g] ? f : g;
+        int give = keep == f ? g : f;
+        child2[up] = keep;
+        if (upIsChild1) {
+            child1[a] = give;
+        } else {
+            child2[a] = give;
+        }
+        parent[give] = a;
+        refitNode(a);
+        refitNode(up);
+        return up;
+    }
+
+    // Añade a out los objetos cuya AABB gorda toca el frustum; devuelve cuántos añadió
+    @SuppressWarnings("unchecked")
+    public int queryFrustum(FrustumIntersection frustum, List<T> out) {
+        if (root == NULL) {
+            return 0;
+        }
+        int added = 0;
+        int top = push(0, root);
+        while (top > 0) {
+            int node = stack[--top];
+            int result = frustum.intersectAab(minX[node], minY[node], minZ[node],
+                    maxX[node], maxY[node], maxZ[node]);
+            if (result == FrustumIntersection.INSIDE) {
+                // Subárbol entero dentro: sin más pruebas de planos
+                added += collectLeaves(node, out, top);
+            } else if (result == FrustumIntersection.INTERSECT) {
+                if (isLeaf(node)) {
+                    out.add((T) data[node]);
+                    added++;
+                } else {
+                    top = push(top, child1[node]);
+                    top = push(top, child2[node]);
+                }
+            }
+        }
+        return added;
+    }
+
+    // Añade todas las hojas bajo node usando la pila por encima de base
+    @SuppressWarnings("unchecked")
+    private int collectLeaves(int node, List<T> out, int base) {
+        int added = 0;
+        int top = push(base, node);
+        while (top > base) {
+            int n = stack[--top];
+            if (isLeaf(n)) {
+                out.add((T) data[n]);
+                added++;
+            } else {
+                top = push(top, child1[n]);
+                top = push(top, child2[n]);
+            }
+        }
+        return added;
+    }
+
+    // Añade a out los objetos cuya AABB gorda se solapa con la caja dada
+    @SuppressWarnings("unchecked")
+    public int queryAabb(float x0, float y0, float z0, float x1, float y1, float z1, List<T> out) {
+        if (root == NULL) {
+            return 0;
+        }
+        int added = 0;
+        int top = push(0, root);
+        while (top > 0) {
+            int node = stack[--top];
+            if (maxX[node] < x0 || minX[node] > x1 || maxY[node] < y0 || minY[node] > y1
+                    || maxZ[node] < z0 || minZ[node] > z1) {
+                continue;
+            }
+            if (isLeaf(node)) {
+                out.add((T) data[node]);
+                added++;
+            } else {
+                top = push(top, child1[node]);
+                top = push(top, child2[node]);
+            }
+        }
+        return added;
+    }
+
+    // Rayo desde (ox, oy, oz) en la dirección (dx, dy, dz), sin normalizar: la distancia se
+    // mide en múltiplos de la dirección. Devuelve el proxy de la AABB más cercana o NULL;
+    // la distancia queda en getLastHitDistance().
+    public int raycast(float ox, float oy, float oz, float dx, float dy, float dz, float maxDistance) {
+        lastHitDistance = Float.POSITIVE_INFINITY;
+        if (root == NULL) {
+            return NULL;
+        }
+        float invX = 1f / dx;
+        float invY = 1f / dy;
+        float invZ = 1f / dz;
+
+        int best = NULL;
+        float bestT = maxDistance;
+        int top = push(0, root);
+        while (top > 0) {
+            int node = stack[--top];
+            float t = slab(node, ox, oy, oz, invX, invY, invZ, bestT);
+            if (t < 0f) {
+                continue;
+            }
+            if (isLeaf(node)) {
+                best = node;
+                bestT = t;
+            } else {
+                // Primero el hijo más cercano (se apila el último) para podar antes
+                int a = child1[node];
+                int b = child2[node];
+                float ta = slab(a, ox, oy, oz, invX, invY, invZ, bestT);
+                float tb = slab(b, ox, oy, oz, invX, invY, invZ, bestT);
+                if (ta >= 0f && tb >= 0f) {
+                    if (ta < tb) {
+                        top = push(top, b);
+                        top = push(top, a);
+                    } else {
+                        top = push(top, a);
+                        top = push(top, b);
+                    }
+                } else if (ta >= 0f) {
+                    top = push(top, a);
+                } else if (tb >= 0f) {
+                    top = push(top, b);
+                }
+            }
+        }
+        if (best != NULL) {
+            lastHitDistance = bestT;
+        }
+        return best;
+    }
+
+    // Segmento de (x0, y0, z0) a (x1, y1, z1); getLastHitDistance() queda en [0, 1]
+    public int segmentCast(float x0, float y0, float z0, float x1, float y1, float z1) {
+        return raycast(x0, y0, z0, x1 - x0, y1 - y0, z1 - z0, 1f);
+    }
+
+    // Distancia de entrada del rayo en la AABB del nodo, o -1 si no la toca antes de maxT
+    private float slab(int node, float ox, float oy, float oz, float invX, float invY, float invZ, float maxT) {
+        float tx0 = (minX[node] - ox) * invX;
+        float tx1 = (maxX[node] - ox) * invX;
+        float tmin = Math.min(tx0, tx1);
+        float tmax = Math.max(tx0, tx1);
+        float ty0 = (minY[node] - oy) * invY;
+        float ty1 = (maxY[node] - oy) * invY;
+        tmin = Math.max(tmin, Math.min(ty0, ty1));
+        tmax = Math.min(tmax, Math.max(ty0, ty1));
+        float tz0 = (minZ[node] - oz) * invZ;
+        float tz1 = (maxZ[node] - oz) * invZ;
+        tmin = Math.max(tmin, Math.min(tz0, tz1));
+        tmax = Math.min(tmax, Math.max(tz0, tz1));
+
+        // Los NaN (origen en el borde con dirección 0 en ese eje) hacen que falle la comparación
+        if (!(tmax >= Math.max(tmin, 0f)) || tmin > maxT) {
+            return -1f;
+        }
+        return Math.max(tmin, 0f);
+    }
+
+    private int push(int top, int node) {
+        if (top == stack.length) {
+            int[] grown = new int[stack.length * 2];
+            System.arraycopy(stack, 0, grown, 0, top);
+            stack = grown;
+        }
+        stack[top] = node;
+        return top + 1;
+    }
+
+    public float getLastHitDistance() {
+        return lastHitDistance;
+    }
+
+    public int getLeafCount() {
+        return leafCount;
+    }
+
+    public int getNodeCount() {
+        return nodeCount;
+    }
+
+    public int getHeight() {
+        return root == NULL ? 0 : height[root];
+    }
+
+    public float getMargin() {
+        return margin;
+    }
+
+    // Llamadas a move() y cuántas tuvieron que reinsertar la hoja
+    public long getMoves() {
+        return moves;
+    }
+
+    public long getReinserts() {
+        return reinserts;
+    }
+
+    public void resetStats() {
+        moves = 0;
+        reinserts = 0;
+    }
+
+    // Comprueba padres, alturas, contención de AABBs y recuentos; lanza IllegalStateException si algo falla
+    public void validate() {
+        if (root == NULL) {
+            if (leafCount != 0) {
+                throw new IllegalStateException("Árbol vacío con " + leafCount + " hojas");
+            }
+            return;
+        }
+        if (parent[root] != NULL) {
+            throw new IllegalStateException("La raíz tiene padre");
+        }
+        int leaves = 0;
+        int nodes = 0;
+        int top = push(0, root);
+        while (top > 0) {
+            int node = stack[--top];
+            nodes++;
+            if (isLeaf(node)) {
+                leaves++;
+                if (height[node] != 0) {
+                    throw new IllegalStateException("Hoja " + node + " con altura " + height[node]);
+                }
+                continue;
+            }
+            int a = child1[node];
+            int b = child2[node];
+            if (parent[a] != node || parent[b] != node) {
+                throw new IllegalStateException("Padre incorrecto bajo el nodo " + node);
+            }
+            if (height[node] != 1 + Math.max(height[a], height[b])) {
+                throw new IllegalStateException("Altura incorrecta en el nodo " + node);
+            }
+            if (!contains(node, a) || !contains(node, b)) {
+                throw new IllegalStateException("La AABB del nodo " + node + " no contiene a sus hijos");
+            }
+            top = push(top, a);
+            top = push(top, b);
+        }
+        if (leaves != leafCount || nodes != nodeCount) {
+            throw new IllegalStateException("Recuento incorrecto: " + leaves + " hojas, " + nodes + " nodos");
+        }
+    }
+
+    private boolean contains(int outer, int inner) {
+        return minX[outer] <= minX[inner] && minY[outer] <= minY[inner] && minZ[outer] <= minZ[inner]
+                && maxX[outer] >= maxX[inner] && maxY[outer] >= maxY[inner] && maxZ[outer] >= maxZ[inner];
+    }
+}
@@ -0,0 +1,205 @@
+package main;
+
+import org.joml.FrustumIntersection;
+import org.joml.Matrix4f;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+// Benchmark y comprobación del BVH solo en CPU (no abre ventana ni contexto OpenGL).
+// Con 100k objetos mide construcción, consultas de frustum, rayos y refit, y compara
+// cada resultado con la fuerza bruta. Sale con código 1 si algo no coincide.
+// mvn exec:java -Dexec.mainClass=main.BvhBenchmark
+public class BvhBenchmark {
+
+    private static final int OBJECTS = 100_000;
+    private static final float WORLD = 1000f;
+    private static final int FRUSTUM_QUERIES = 200;
+    private static final int RAYS = 20_000;
+    private static final int REFIT_ROUNDS = 20;
+    private static final long SEED = 42L;
+
+    public static void main(String[] args) {
+        Random random = new Random(SEED);
+        float[] boxes = new float[OBJECTS * 6];
+        for (int i = 0; i < OBJECTS; i++) {
+            randomBox(random, boxes, i);
+        }
+
+        // Construcción por inserciones sucesivas
+        Bvh<Integer> bvh = new Bvh<>(OBJECTS * 2, 0.1f);
+        int[] proxies = new int[OBJECTS];
+        long t0 = System.nanoTime();
+        for (int i = 0; i < OBJECTS; i++) {
+            int o = i * 6;
+            proxies[i] = bvh.insert(boxes[o], boxes[o + 1], boxes[o + 2], boxes[o + 3], boxes[o + 4], boxes[o + 5], i);
+        }
+        long buildNanos = System.nanoTime() - t0;
+        bvh.validate();
+        System.out.printf("construcción: %d objetos en %.1f ms (altura %d)%n",
+                OBJECTS, buildNanos / 1e6, bvh.getHeight());
+
+        boolean ok = true;
+        ok &= benchFrustum(bvh, boxes, random);
+        ok &= benchRays(bvh, boxes, random);
+        ok &= benchRefit(bvh, boxes, proxies, random);
+
+        System.out.println(ok ? "OK" : "FALLO: el BVH no coincide con la fuerza bruta");
+        if (!ok) {
+            System.exit(1);
+        }
+    }
+
+    private static void randomBox(Random random, float[] boxes, int i) {
+        float x = random.nextFloat() * WORLD;
+        float y = random.nextFloat() * 10f;
+        float z = random.nextFloat() * WORLD;
+        float sx = 0.1f + random.nextFloat() * 5f;
+        float sy = 0.1f + random.nextFloat() * 3f;
+        float sz = 0.1f + random.nextFloat() * 5f;
+        int o = i * 6;
+        boxes[o] = x;
+        boxes[o + 1] = y;
+        boxes[o + 2] = z;
+        boxes[o + 3] = x + sx;
+        boxes[o + 4] = y + sy;
+        boxes[o + 5] = z + sz;
+    }
+
+    private static boolean benchFrustum(Bvh<Integer> bvh, float[] boxes, Random random) {
+        Matrix4f viewProjection = new Matrix4f();
+        FrustumIntersection frustum = new FrustumIntersection();
+        List<Integer> result = new ArrayList<>();
+        boolean ok = true;
+        long nanos = 0;
+        long found = 0;
+        float margin = bvh.getMargin();
+
+        for (int q = 0; q < FRUSTUM_QUERIES; q++) {
+            float ex = random.nextFloat() * WORLD;
+            float ez = random.nextFloat() * WORLD;
+            float yaw = random.nextFloat() * (float) (Math.PI * 2);
+            viewProjection.setPerspective((float) Math.toRadians(60), 16f / 9f, 0.1f, 150f)
+                    .lookAt(ex, 5f, ez, ex + (float) Math.cos(yaw), 5f, ez + (float) Math.sin(yaw), 0f, 1f, 0f);
+            frustum.set(viewProjection);
+
+            result.clear();
+            long t0 = System.nanoTime();
+            int count = bvh.queryFrustum(frustum, result);
+            nanos += System.nanoTime() - t0;
+            found += count;
+
+            // El BVH usa AABBs gordas: debe devolver todo lo que toca la AABB real
+            // y nada que no toque la AABB gorda
+            boolean[] returned = new boolean[boxes.length / 6];
+            for (int id : result) {
+                returned[id] = true;
+            }
+            for (int i = 0; i < returned.length; i++) {
+                int o = i * 6;
+                boolean exact = frustum.testAab(boxes[o], boxes[o + 1], boxes[o + 2],
+                        boxes[o + 3], boxes[o + 4], boxes[o + 5]);
+                boolean fat = frustum.testAab(boxes[o] - margin, boxes[o + 1] - margin, boxes[o + 2] - margin,
+                        boxes[o + 3] + margin, boxes[o + 4] + margin, boxes[o + 5] + margin);
+                if ((exact && !returned[i]) || (returned[i] && !fat)) {
+                    ok = false;
+                }
+            }
+        }
+        System.out.printf("frustum: %.3f ms por consulta, %.0f objetos de media%n",
+                nanos / 1e6 / FRUSTUM_QUERIES, (double) found / FRUSTUM_QUERIES);
+        return ok;
+    }
+
+    private static boolean benchRays(Bvh<Integer> bvh, float[] boxes, Random random) {
+        boolean ok = true;
+        long nanos = 0;
+        int hits = 0;
+        float margin = bvh.getMargin();
+        for (int r = 0; r < RAYS; r++) {
+            float ox = random.nextFloat() * WORLD;
+            float oz = random.nextFloat() * WORLD;
+            float dx = random.nextFloat() * 2f - 1f;
+            float dy = random.nextFloat() * 0.2f - 0.1f;
+            float dz = random.nextFloat() * 2f - 1f;
+            float maxDistance = 200f;
+
+            long t0 = System.nanoTime();
+            int proxy = bvh.raycast(ox, 5f, oz, dx, dy, dz, maxDistance);
+            nanos += System.nanoTime() - t0;
+
+            // Solo se comprueba una muestra contra la fuerza bruta: es O(n) por rayo
+            if (r % 100 == 0) {
+                float expected = bruteForceRay(boxes, margin, ox, 5f, oz, dx, dy, dz, maxDistance);
+                float got = proxy == Bvh.NULL ? Float.POSITIVE_INFINITY : bvh.getLastHitDistance();
+                if (Math.abs(expected - got) > 1e-3f && !(Float.isInfinite(expected) && Float.isInfinite(got))) {
+                    ok = false;
+                }
+            }
+            if (proxy != Bvh.NULL) {
+                hits++;
+            }
+        }
+        System.out.printf("rayos: %.2f us por rayo, %d de %d impactan%n", nanos / 1e3 / RAYS, hits, RAYS);
+        return ok;
+    }
+
+    // Distancia más cercana contra las AABBs gordas (lo mismo que ve el BVH)
+    private static float bruteForceRay(float[] boxes, float margin, float ox, float oy, float oz,
+                                       float dx, float dy, float dz, float maxDistance) {
+        float best = Float.POSITIVE_INFINITY;
+        for (int o = 0; o < boxes.length; o += 6) {
+            float tmin = 0f;
+            float tmax = maxDistance;
+            float[] origin = {ox, oy, oz};
+            float[] dir = {dx, dy, dz};
+            boolean miss = false;
+            for (int axis = 0; axis < 3 && !miss; axis++) {
+                float inv = 1f / dir[axis];
+                float t0 = (boxes[o + axis] - margin - origin[axis]) * inv;
+                float t1 = (boxes[o + 3 + axis] + margin - origin[axis]) * inv;
+                tmin = Math.max(tmin, Math.min(t0, t1));
+                tmax = Math.min(tmax, Math.max(t0, t1));
+                miss = tmax < tmin;
+            }
+            if (!miss && tmin < best) {
+                best = tmin;
+            }
+        }
+        return best;
+    }
+
+    private static boolean benchRefit(Bvh<Integer> bvh, float[] boxes, int[] proxies, Random random) {
+        // 10% de los objetos se mueve cada ronda: pasos pequeños (dentro del margen) y grandes
+        int moving = OBJECTS / 10;
+        for (float step : new float[]{0.02f, 2f}) {
+            bvh.resetStats();
+            long nanos = 0;
+            for (int round = 0; round < REFIT_ROUNDS; round++) {
+                long t0 = System.nanoTime();
+                for (int k = 0; k < moving; k++) {
+                    int i = random.nextInt(OBJECTS);
+                    int o = i * 6;
+                    float dx = (random.nextFloat() * 2f - 1f) * step;
+                    float dz = (random.nextFloat() * 2f - 1f) * step;
+                    boxes[o] += dx;
+                    boxes[o + 2] += dz;
+                    boxes[o + 3] += dx;
+                    boxes[o + 5] += dz;
+                    bvh.move(proxies[i], boxes[o], boxes[o + 1], boxes[o + 2], boxes[o + 3], boxes[o + 4], boxes[o + 5]);
+                }
+                nanos += System.nanoTime() - t0;
+            }
+            System.out.printf("refit (paso %.2f): %.2f ms por ronda de %d movimientos, %.1f%% reinsertados%n",
+                    step, nanos / 1e6 / REFIT_ROUNDS, moving, 100.0 * bvh.getReinserts() / bvh.getMoves());
+        }
+        try {
+            bvh.validate();
+            return true;
+        } catch (IllegalStateException e) {
+            System.out.println(e.getMessage());
+            return false;
+        }
+    }
+}
@@ -11,6 +11,10 @@ public class Camera {
     private float yaw;
     private float speed;
     private final float turnSpeed;
+    private float fov = (float) Math.toRadians(45.0f);
+    private float nearPlane = 0.1f;
+    private float farPlane = 100.0f;
+    private final Vector3f target = new Vector3f();
 
     public Camera() {
         position = new Vector3f(0.0f, 0.0f, 3.0f);  // Mantenemos Y fijo
@@ -22,7 +26,31 @@ public class Camera {
     }
 
     public Matrix4f getViewMatrix() {
-        return new Matrix4f().lookAt(position, new Vector3f(position).add(front), up);
+        return getViewMatrix(new Matrix4f());
+    }
+
+    // Variante sin asignaciones: escribe en dest
+    public Matrix4f getViewMatrix(Matrix4f dest) {
+        position.add(front, target);
+        return dest.setLookAt(position, target, up);
+    }
+
+    public Matrix4f getProjectionMatrix(float aspect, Matrix4f dest) {
+        return dest.setPerspective(fov, aspect, nearPlane, farPlane);
+    }
+
+    public void setPerspective(float fovRadians, float nearPlane, float farPlane) {
+        this.fov = fovRadians;
+        this.nearPlane = nearPlane;
+        this.farPlane = farPlane;
+    }
+
+    public float getFov() {
+        return fov;
+    }
+
+    public float getFarPlane() {
+        return farPlane;
     }
 
     public void setSpeed(float speed_) {
@@ -30,11 +58,11 @@ public class Camera {
     }
 
     public void moveForward() {
-        position.add(new Vector3f(front).mul(speed));
+        position.fma(speed, front);
     }
 
     public void moveBackward() {
-        position.sub(new Vector3f(front).mul(speed));
+        position.fma(-speed, front);
     }
     
     public void moveLeft() {
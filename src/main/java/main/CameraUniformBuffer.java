@@ -0,0 +1,114 @@
+package main;
+
+import org.joml.Matrix4f;
+import org.joml.Vector3f;
+import org.lwjgl.system.MemoryUtil;
+
+import java.nio.ByteBuffer;
+
+import static org.lwjgl.opengl.GL31.*;
+
+public class CameraUniformBuffer {
+
+    // Punto de enlace fijo que comparten todos los shaders
+    public static final int BINDING = 0;
+    public static final String BLOCK_NAME = "CameraBlock";
+
+    // Declaración GLSL del bloque (layout std140), para shaders escritos en Java
+    public static final String GLSL_BLOCK = """
+            layout(std140) uniform CameraBlock {
+                mat4 view;
+                mat4 projection;
+                mat4 viewProjection;
+                mat4 screenProjection;
+                vec4 cameraPosition;
+                vec4 screenSize;
+                float time;
+            };
+            """;
+
+    // Offsets std140 en bytes
+    private static final int VIEW_OFFSET = 0;
+    private static final int PROJECTION_OFFSET = 64;
+    private static final int VIEW_PROJECTION_OFFSET = 128;
+    private static final int SCREEN_PROJECTION_OFFSET = 192;
+    private static final int CAMERA_POSITION_OFFSET = 256;
+    private static final int SCREEN_SIZE_OFFSET = 272;
+    private static final int TIME_OFFSET = 288;
+    private static final int SIZE = 304;
+
+    private final int ubo;
+    private final ByteBuffer data;
+
+    private final Matrix4f view = new Matrix4f();
+    private final Matrix4f projection = new Matrix4f();
+    private final Matrix4f viewProjection = new Matrix4f();
+    private final Matrix4f screenProjection = new Matrix4f();
+
+    public CameraUniformBuffer() {
+        data = MemoryUtil.memCalloc(SIZE);
+
+        ubo = glGenBuffers();
+        GLState.bindBuffer(GL_UNIFORM_BUFFER, ubo);
+        glBufferData(GL_UNIFORM_BUFFER, SIZE, GL_DYNAMIC_DRAW);
+        GLState.bindBuffer(GL_UNIFORM_BUFFER, 0);
+
+        GLState.bindBufferBase(GL_UNIFORM_BUFFER, BINDING, ubo);
+    }
+
+    // Enlaza el bloque CameraBlock del programa (si lo declara) al punto fijo
+    public static void bindBlock(int program) {
+        int index = glGetUniformBlockIndex(program, BLOCK_NAME);
+        if (index != GL_INVALID_INDEX) {
+            glUniformBlockBinding(program, index, BINDING);
+        }
+    }
+
+    // Se llama una vez por frame, antes de dibujar nada
+    public void update(Camera camera, int width, int height, float time) {
+        width = Math.max(width, 1);
+        height = Math.max(height, 1);
+
+        camera.getViewMatrix(view);
+        camera.getProjectionMatrix((float) width / height, projection);
+        projection.mul(view, viewProjection);
+        screenProjection.setOrtho(0, width, height, 0, -1, 1);
+
+        Vector3f position = camera.getPosition();
+
+        view.get(VIEW_OFFSET, data);
+        projection.get(PROJECTION_OFFSET, data);
+        viewProjection.get(VIEW_PROJECTION_OFFSET, data);
+        screenProjection.get(SCREEN_PROJECTION_OFFSET, data);
+        data.putFloat(CAMERA_POSITION_OFFSET, position.x);
+        data.putFloat(CAMERA_POSITION_OFFSET + 4, position.y);
+        data.putFloat(CAMERA_POSITION_OFFSET + 8, position.z);
+        data.putFloat(CAMERA_POSITION_OFFSET + 12, 1.0f);
+        data.putFloat(SCREEN_SIZE_OFFSET, width);
+        data.putFloat(SCREEN_SIZE_OFFSET + 4, height);
+        data.putFloat(SCREEN_SIZE_OFFSET + 8, 1.0f / width);
+        data.putFloat(SCREEN_SIZE_OFFSET + 12, 1.0f / height);
+        data.putFloat(TIME_OFFSET, time);
+
+        GLState.bindBuffer(GL_UNIFORM_BUFFER, ubo);
+        glBufferSubData(GL_UNIFORM_BUFFER, 0, data);
+        GLState.bindBuffer(GL_UNIFORM_BUFFER, 0);
+    }
+
+    public Matrix4f getView() {
+        return view;
+    }
+
+    public Matrix4f getProjection() {
+        return projection;
+    }
+
+    public Matrix4f getViewProjection() {
+        return viewProjection;
+    }
+
+    public void cleanup() {
+        GLState.deleteBuffer(ubo);
+        MemoryUtil.memFree(data);
+    }
+}
@@ -0,0 +1,168 @@
+package main;
+
+import java.util.Locale;
+
+// Texto mutable respaldado por un char[] para el HUD: escribe enteros y floats sin
+// crear String ni Formatter. Se reutiliza cada frame con clear() y se pasa tal cual
+// a TextRender o TextLabel, que aceptan CharSequence.
+public final class CharFormatter implements CharSequence {
+
+    private static final long[] POW10 = {
+            1L, 10L, 100L, 1_000L, 10_000L, 100_000L, 1_000_000L, 10_000_000L, 100_000_000L, 1_000_000_000L
+    };
+    private static final int MAX_DECIMALS = POW10.length - 1;
+    // Hasta aquí (valor * 10^decimals) el redondeo sin reservas coincide con String.format:
+    // dos decimales distintos de decimals + 1 cifras no pueden caer en el mismo double
+    private static final double EXACT_LIMIT = 1e14;
+
+    private char[] chars;
+    private int length;
+
+    public CharFormatter() {
+        this(64);
+    }
+
+    public CharFormatter(int capacity) {
+        chars = new char[Math.max(capacity, 1)];
+    }
+
+    public CharFormatter clear() {
+        length = 0;
+        return this;
+    }
+
+    public CharFormatter append(char c) {
+        ensureCapacity(1);
+        chars[length++] = c;
+        return this;
+    }
+
+    public CharFormatter append(CharSequence text) {
+        int n = text.length();
+        ensureCapacity(n);
+        for (int i = 0; i < n; i++) {
+            chars[length++] = text.charAt(i);
+        }
+        return this;
+    }
+
+    public CharFormatter append(int value) {
+        return append((long) value);
+    }
+
+    public CharFormatter append(long value) {
+        if (value == Long.MIN_VALUE) {
+            // -value no cabe en un long
+            return append("-9223372036854775808");
+        }
+        if (value < 0) {
+            append('-');
+            value = -value;
+        }
+        appendDigits(value, 1);
+        return this;
+    }
+
+    // Equivale a String.format(Locale.ROOT, "%.<decimals>f", value): redondeo hacia arriba
+    // en los empates del valor decimal (1.005 da "1.01"), no del producto binario.
+    // Un float se formatea por su valor double, como hace String.format (1.005f da "1.00").
+    // No escribe "-0.00": si el valor redondeado es cero se omite el signo.
+    // CharFormatterBenchmark lo compara con String.format.
+    public CharFormatter append(float value, int decimals) {
+        return append((double) value, decimals);
+    }
+
+    public CharFormatter append(double value, int decimals) {
+        if (Double.isNaN(value)) {
+            return append("NaN");
+        }
+        if (Double.isInfinite(value)) {
+            return append(value > 0 ? "Infinity" : "-Infinity");
+        }
+        decimals = Math.min(Math.max(decimals, 0), MAX_DECIMALS);
+        long scale = POW10[decimals];
+        double abs = Math.abs(value);
+        double product = abs * scale;
+        if (product >= EXACT_LIMIT) {
+            // Más cifras de las que tiene el double: String.format rellena las de su
+            // representación más corta. No es un valor de HUD; aquí sí se reserva memoria.
+            return append(String.format(Locale.ROOT, "%." + decimals + "f", value));
+        }
+        // value * 10^decimals está entre scaled y scaled + 1; half es el double más cercano
+        // al punto medio decimal. Si value es ese double, el valor es un empate y sube.
+        long scaled = (long) Math.floor(product);
+        double half = (2 * scaled + 1) / (2.0 * scale);
+        if (abs >= half) {
+            scaled++;
+        }
+        if (value < 0 && scaled != 0) {
+            append('-');
+        }
+        appendDigits(scaled / scale, 1);
+        if (decimals > 0) {
+            append('.');
+            appendDigits(scaled % scale, decimals);
+        }
+        return this;
+    }
+
+    // Escribe value (>= 0) con al menos minDigits cifras, rellenando con ceros
+    private void appendDigits(long value, int minDigits) {
+        int digits = 1;
+        for (long v = value / 10; v != 0; v /= 10) {
+            digits++;
+        }
+        digits = Math.max(digits, minDigits);
+        ensureCapacity(digits);
+        for (int i = length + digits - 1; i >= length; i--) {
+            chars[i] = (char) ('0' + value % 10);
+            value /= 10;
+        }
+        length += digits;
+    }
+
+    private void ensureCapacity(int extra) {
+        if (length + extra > chars.length) {
+            char[] grown = new char[Math.max(chars.length * 2, length + extra)];
+            System.arraycopy(chars, 0, grown, 0, length);
+            chars = grown;
+        }
+    }
+
+    // Compara el contenido sin crear un String
+    public boolean contentEquals(CharSequence other) {
+        if (other.length() != length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (chars[i] != other.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public int length() {
+        return length;
+    }
+
+    @Override
+    public char charAt(int index) {
+        if (index < 0 || index >= length) {
+            throw new IndexOutOfBoundsException("index " + index + ", length " + length);
+        }
+        return chars[index];
+    }
+
+    // Estos dos sí crean objetos; no usarlos en el bucle de render
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        return new String(chars, start, end - start);
+    }
+
+    @Override
+    public String toString() {
+        return new String(chars, 0, length);
+    }
+}
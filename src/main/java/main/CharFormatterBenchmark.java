@@ -0,0 +1,119 @@
+package main;
+
+import java.lang.management.ManagementFactory;
+import java.math.BigDecimal;
+import java.util.Locale;
+import java.util.SplittableRandom;
+
+// Comprueba CharFormatter.append(double, decimals) contra String.format(Locale.ROOT, "%.nf")
+// en un barrido de empates decimales (x.xx5), sus vecinos y valores aleatorios, en double
+// y en float, y mide el coste por número y la memoria reservada. Sale con código 1 si algo
+// no coincide o si append reserva memoria.
+// mvn exec:java -Dexec.mainClass=main.CharFormatterBenchmark
+public class CharFormatterBenchmark {
+
+    private static final int MAX_DECIMALS = 6;
+    private static final int TIES_PER_DECIMALS = 20_000;
+    private static final int RANDOM_VALUES = 200_000;
+    private static final int TIMED_VALUES = 1_000_000;
+    private static final int MAX_REPORTED = 10;
+
+    private static final CharFormatter formatter = new CharFormatter();
+    private static int checked;
+    private static int mismatches;
+
+    public static void main(String[] args) {
+        // Empates exactos en decimal (k + 0.5) / 10^d y los doubles de al lado
+        for (int decimals = 0; decimals <= MAX_DECIMALS; decimals++) {
+            for (int k = 0; k < TIES_PER_DECIMALS; k++) {
+                double tie = BigDecimal.valueOf(k * 10L + 5, decimals + 1).doubleValue();
+                check(tie, decimals);
+                check(-tie, decimals);
+                check(Math.nextUp(tie), decimals);
+                check(Math.nextDown(tie), decimals);
+                check((double) (float) tie, decimals);
+            }
+        }
+        SplittableRandom random = new SplittableRandom(7);
+        for (int i = 0; i < RANDOM_VALUES; i++) {
+            double value = (random.nextDouble() - 0.5) * Math.pow(10, random.nextInt(-3, 9));
+            check(value, random.nextInt(MAX_DECIMALS + 1));
+        }
+        double[] special = {0.0, -0.0, 0.0004, -0.0004, 0.5, 1.5, 2.5, 1.005, 2.675, 0.125, 1e13 + 0.5,
+                Double.MIN_VALUE, Double.NaN, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY};
+        for (double value : special) {
+            for (int decimals = 0; decimals <= MAX_DECIMALS; decimals++) {
+                check(value, decimals);
+            }
+        }
+        System.out.printf("%d valores comprobados, %d diferencias con String.format%n", checked, mismatches);
+
+        long[] bytes = new long[1];
+        double appendNs = timeAppend(bytes);
+        double formatNs = timeFormat();
+        System.out.printf("append: %.1f ns/número, %d bytes; String.format: %.1f ns/número%n",
+                appendNs, bytes[0], formatNs);
+
+        boolean ok = mismatches == 0 && bytes[0] == 0;
+        System.out.println(ok ? "OK" : "FALLO");
+        if (!ok) {
+            System.exit(1);
+        }
+    }
+
+    private static void check(double value, int decimals) {
+        checked++;
+        String expected = String.format(Locale.ROOT, "%." + decimals + "f", value);
+        if (expected.matches("-[0.]+")) {
+            // CharFormatter no escribe "-0.00"
+            expected = expected.substring(1);
+        }
+        String actual = formatter.clear().append(value, decimals).toString();
+        if (!expected.equals(actual)) {
+            if (mismatches < MAX_REPORTED) {
+                System.out.printf("  %s con %d decimales: String.format \"%s\", CharFormatter \"%s\"%n",
+                        Double.isFinite(value) ? new BigDecimal(value).toPlainString() : Double.toString(value),
+                        decimals, expected, actual);
+            }
+            mismatches++;
+        }
+    }
+
+    private static double timeAppend(long[] allocatedBytes) {
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long thread = Thread.currentThread().threadId();
+        int sink = 0;
+        for (int i = 0; i < TIMED_VALUES; i++) {
+            sink += formatter.clear().append(i * 0.001, 2).length();
+        }
+        // Lo que reserva la propia medida, para descontarlo
+        long baseline = threads.getThreadAllocatedBytes(thread);
+        long allocated = threads.getThreadAllocatedBytes(thread);
+        baseline = allocated - baseline;
+        long start = System.nanoTime();
+        for (int i = 0; i < TIMED_VALUES; i++) {
+            sink += formatter.clear().append(i * 0.001, 2).length();
+        }
+        long nanos = System.nanoTime() - start;
+        allocatedBytes[0] = threads.getThreadAllocatedBytes(thread) - allocated - baseline;
+        if (sink == 42) {
+            System.out.println();
+        }
+        return (double) nanos / TIMED_VALUES;
+    }
+
+    private static double timeFormat() {
+        int sink = 0;
+        int count = TIMED_VALUES / 10;
+        long start = System.nanoTime();
+        for (int i = 0; i < count; i++) {
+            sink += String.format(Locale.ROOT, "%.2f", i * 0.001).length();
+        }
+        long nanos = System.nanoTime() - start;
+        if (sink == 42) {
+            System.out.println();
+        }
+        return (double) nanos / count;
+    }
+}
@@ -0,0 +1,11 @@
+package main;
+
+import java.util.List;
+
+// Genera las paredes de un chunk. Se llama desde hilos de fondo: no puede tocar OpenGL
+// y debe ser determinista (mismo chunk -> mismas paredes) sin depender del orden.
+@FunctionalInterface
+public interface ChunkGenerator {
+
+    void generate(int chunkX, int chunkZ, float chunkSize, List<WallSegment> out);
+}
@@ -0,0 +1,292 @@
+package main;
+
+import org.joml.Vector3f;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Streaming del mundo por chunks alrededor de la cámara. Los chunks dentro del radio se
+// generan en hilos de fondo (ChunkGenerator, sin OpenGL); el hilo de render convierte sus
+// segmentos en Wall, los añade al WallBatch y al BVH con un presupuesto de tiempo por
+// frame, y descarga los que quedan fuera del radio de descarga.
+public class ChunkManager {
+
+    private final float chunkSize;
+    private final int loadRadius;
+    // Un chunk se descarga al pasar de este radio (histéresis para no cargar/descargar en el borde)
+    private final int unloadRadius;
+    private final ChunkGenerator generator;
+    private final WallBatch wallBatch;
+    private final Bvh<Wall> spatialIndex;
+    private final int textureID;
+    // Papeles pintados de las paredes generadas; vacío: todas con textureID
+    private final List<Material> wallMaterials = new ArrayList<>();
+
+    private final ExecutorService workers;
+    private final Map<Long, Chunk> chunks = new HashMap<>();
+    // Chunks generados pendientes de subir, en orden de llegada
+    private final ConcurrentLinkedQueue<Chunk> ready = new ConcurrentLinkedQueue<>();
+    private final List<Chunk> scratch = new ArrayList<>();
+
+    private int centerX = Integer.MIN_VALUE;
+    private int centerZ = Integer.MIN_VALUE;
+
+    // Métricas
+    private long evictedTotal;
+    private long residentTotal;
+    private long wallsUploaded;
+    private long lastUpdateNanos;
+    private long peakUpdateNanos;
+
+    private static final class Chunk {
+        final int x;
+        final int z;
+        final List<WallSegment> segments = new ArrayList<>();
+        final List<Wall> walls = new ArrayList<>();
+        // Siguiente segmento a subir: un chunk grande puede repartirse en varios frames
+        int uploadIndex;
+        volatile ChunkState state = ChunkState.QUEUED;
+        Future<?> task;
+
+        Chunk(int x, int z) {
+            this.x = x;
+            this.z = z;
+        }
+    }
+
+    public ChunkManager(float chunkSize, int loadRadius, ChunkGenerator generator,
+                        WallBatch wallBatch, Bvh<Wall> spatialIndex, int textureID) {
+        this(chunkSize, loadRadius, loadRadius + 1, generator, wallBatch, spatialIndex, textureID,
+                Math.max(1, Runtime.getRuntime().availableProcessors() - 1));
+    }
+
+    public ChunkManager(float chunkSize, int loadRadius, int unloadRadius, ChunkGenerator generator,
+                        WallBatch wallBatch, Bvh<Wall> spatialIndex, int textureID, int threads) {
+        if (unloadRadius < loadRadius) {
+            throw new IllegalArgumentException("unloadRadius debe ser >= loadRadius");
+        }
+        this.chunkSize = chunkSize;
+        this.loadRadius = loadRadius;
+        this.unloadRadius = unloadRadius;
+        this.generator = generator;
+        this.wallBatch = wallBatch;
+        this.spatialIndex = spatialIndex;
+        this.textureID = textureID;
+
+        AtomicInteger counter = new AtomicInteger();
+        this.workers = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "chunk-worker-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            thread.setPriority(Thread.NORM_PRIORITY - 1);
+            return thread;
+        });
+    }
+
+    // Cada pared toma uno de estos materiales según su posición (estable entre cargas).
+    // Afecta a las paredes que se suban a partir de ahora.
+    public void setWallMaterials(List<Material> materials) {
+        wallMaterials.clear();
+        wallMaterials.addAll(materials);
+    }
+
+    private static long key(int x, int z) {
+        return ((long) x << 32) | (z & 0xFFFFFFFFL);
+    }
+
+    // Llamar una vez por frame desde el hilo de render. budgetNanos limita el tiempo
+    // dedicado a subir paredes y descargar chunks en este frame.
+    public void update(Vector3f cameraPosition, long budgetNanos) {
+        long start = System.nanoTime();
+        long deadline = start + budgetNanos;
+
+        int cx = (int) Math.floor(cameraPosition.x / chunkSize);
+        int cz = (int) Math.floor(cameraPosition.z / chunkSize);
+        if (cx != centerX || cz != centerZ) {
+            centerX = cx;
+            centerZ = cz;
+            requestChunks();
+            unloadFarChunks();
+        }
+        uploadReady(deadline);
+
+        lastUpdateNanos = System.nanoTime() - start;
+        peakUpdateNanos = Math.max(peakUpdateNanos, lastUpdateNanos);
+    }
+
+    // Pide los chunks que faltan dentro del radio, del más cercano al más lejano
+    private void requestChunks() {
+        scratch.clear();
+        for (int dz = -loadRadius; dz <= loadRadius; dz++) {
+            for (int dx = -loadRadius; dx <= loadRadius; dx++) {
+                if (dx * dx + dz * dz > loadRadius * loadRadius) {
+                    continue;
+                }
+                long key = key(centerX + dx, centerZ + dz);
+                if (!chunks.containsKey(key)) {
+                    Chunk chunk = new Chunk(centerX + dx, centerZ + dz);
+                    chunks.put(key, chunk);
+                    scratch.add(chunk);
+                }
+            }
+        }
+        scratch.sort((a, b) -> Integer.compare(distance2(a), distance2(b)));
+        for (Chunk chunk : scratch) {
+            chunk.task = workers.submit(() -> build(chunk));
+        }
+        scratch.clear();
+    }
+
+    private int distance2(Chunk chunk) {
+        int dx = chunk.x - centerX;
+        int dz = chunk.z - centerZ;
+        return dx * dx + dz * dz;
+    }
+
+    // Hilo de fondo
+    private void build(Chunk chunk) {
+        synchronized (chunk) {
+            if (chunk.state != ChunkState.QUEUED) {
+                return;
+            }
+            chunk.state = ChunkState.BUILDING;
+        }
+        generator.generate(chunk.x, chunk.z, chunkSize, chunk.segments);
+        synchronized (chunk) {
+            if (chunk.state != ChunkState.BUILDING) {
+                // Descargado mientras se generaba: evict() no tocó la lista, se vacía aquí
+                chunk.segments.clear();
+                return;
+            }
+            chunk.state = ChunkState.READY;
+        }
+        ready.add(chunk);
+    }
+
+    private void unloadFarChunks() {
+        int limit = unloadRadius * unloadRadius;
+        Iterator<Chunk> it = chunks.values().iterator();
+        while (it.hasNext()) {
+            Chunk chunk = it.next();
+            if (distance2(chunk) <= limit) {
+                continue;
+            }
+            it.remove();
+            evict(chunk);
+        }
+    }
+
+    private void evict(Chunk chunk) {
+        ChunkState previous;
+        synchronized (chunk) {
+            previous = chunk.state;
+            chunk.state = ChunkState.EVICTED;
+        }
+        if (previous == ChunkState.QUEUED && chunk.task != null) {
+            chunk.task.cancel(false);
+        }
+        // READY: puede seguir en la cola; uploadReady lo ignora por su estado
+        for (Wall wall : chunk.walls) {
+            wall.cleanup();
+        }
+        chunk.walls.clear();
+        if (previous != ChunkState.BUILDING) {
+            // En BUILDING un worker sigue llenando la lista; build() la vacía al terminar
+            chunk.segments.clear();
+        }
+        evictedTotal++;
+    }
+
+    // Sube paredes de los chunks listos hasta agotar el presupuesto del frame
+    private void uploadReady(long deadline) {
+        Chunk chunk;
+        while ((chunk = ready.peek()) != null) {
+            if (chunk.state != ChunkState.READY) {
+                ready.poll();
+                continue;
+            }
+            List<WallSegment> segments = chunk.segments;
+            while (chunk.uploadIndex < segments.size()) {
+                if (System.nanoTime() >= deadline) {
+                    return;
+                }
+                WallSegment segment = segments.get(chunk.uploadIndex++);
+                Wall wall = segment.toWall(textureID);
+                if (!wallMaterials.isEmpty()) {
+                    // Bits altos del hash mezclado: los bajos de floats "redondos" son ceros
+                    int mixed = segment.hashCode() * 0x9E3779B9;
+                    wall.setMaterial(wallMaterials.get((mixed >>> 16) % wallMaterials.size()));
+                }
+                wallBatch.add(wall);
+                wall.setSpatialIndex(spatialIndex);
+                chunk.walls.add(wall);
+                wallsUploaded++;
+            }
+            ready.poll();
+            chunk.state = ChunkState.RESIDENT;
+            residentTotal++;
+            if (System.nanoTime() >= deadline) {
+                return;
+            }
+        }
+    }
+
+    // Número de chunks actualmente en un estado (EVICTED siempre es 0: ver getEvictedTotal)
+    public int getChunkCount(ChunkState state) {
+        int count = 0;
+        for (Chunk chunk : chunks.values()) {
+            if (chunk.state == state) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    public long getEvictedTotal() {
+        return evictedTotal;
+    }
+
+    public long getResidentTotal() {
+        return residentTotal;
+    }
+
+    public long getWallsUploaded() {
+        return wallsUploaded;
+    }
+
+    // Tiempo de update() en el último frame y el máximo visto (coste de streaming en el hilo de render)
+    public long getLastUpdateNanos() {
+        return lastUpdateNanos;
+    }
+
+    public long getPeakUpdateNanos() {
+        return peakUpdateNanos;
+    }
+
+    public void resetPeak() {
+        peakUpdateNanos = 0;
+    }
+
+    // Para los hilos y libera todas las paredes; llamar desde el hilo de render
+    public void cleanup() {
+        workers.shutdownNow();
+        try {
+            workers.awaitTermination(1, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        for (Chunk chunk : chunks.values()) {
+            evict(chunk);
+        }
+        chunks.clear();
+        ready.clear();
+    }
+}
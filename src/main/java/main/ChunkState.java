@@ -0,0 +1,15 @@
+package main;
+
+// Ciclo de vida de un chunk del mundo (ver ChunkManager)
+public enum ChunkState {
+    // Pedido al pool de generación, todavía sin empezar
+    QUEUED,
+    // Un hilo de fondo lo está generando
+    BUILDING,
+    // Generado; esperando a que el hilo de render suba sus paredes
+    READY,
+    // Sus paredes están en GPU y en el BVH
+    RESIDENT,
+    // Descargado por salir del radio (o cancelado antes de terminar)
+    EVICTED
+}
@@ -0,0 +1,275 @@
+package main;
+
+import java.util.Arrays;
+
+import static org.lwjgl.opengl.GL11.*;
+import static org.lwjgl.opengl.GL13.*;
+import static org.lwjgl.opengl.GL15.*;
+import static org.lwjgl.opengl.GL20.glDeleteProgram;
+import static org.lwjgl.opengl.GL20.glUseProgram;
+import static org.lwjgl.opengl.GL21.GL_PIXEL_UNPACK_BUFFER;
+import static org.lwjgl.opengl.GL30.*;
+import static org.lwjgl.opengl.GL31.*;
+import static org.lwjgl.opengl.GL40.GL_DRAW_INDIRECT_BUFFER;
+
+// Copia en CPU del estado de OpenGL que más se toca (programa, VAO, buffers, texturas por
+// unidad, blend, profundidad y viewport). Todo el código de render pasa por aquí en vez
+// de llamar a GL directamente: si el valor pedido ya es el actual, la llamada no se hace.
+// Cuenta llamadas hechas y evitadas por frame (endFrame lo cierra; lo llama Window.loop).
+// Solo desde el hilo de OpenGL. Si algo toca el estado por fuera, invalidate().
+public final class GLState {
+
+    // Valor desconocido: la siguiente llamada se hace siempre
+    private static final int UNKNOWN = -1;
+
+    private static final int MAX_TEXTURE_UNITS = 16;
+    private static final int[] TEXTURE_TARGETS = {GL_TEXTURE_2D, GL_TEXTURE_2D_ARRAY};
+    private static final int[] BUFFER_TARGETS = {
+        GL_ARRAY_BUFFER, GL_ELEMENT_ARRAY_BUFFER, GL_UNIFORM_BUFFER, GL_PIXEL_UNPACK_BUFFER,
+        GL_COPY_READ_BUFFER, GL_COPY_WRITE_BUFFER, GL_DRAW_INDIRECT_BUFFER
+    };
+    private static final int ELEMENT_SLOT = 1;
+    private static final int[] CAPABILITIES = {GL_BLEND, GL_DEPTH_TEST, GL_CULL_FACE, GL_SCISSOR_TEST, GL_MULTISAMPLE};
+
+    private static int program = UNKNOWN;
+    private static int vertexArray = UNKNOWN;
+    private static int activeUnit = UNKNOWN;
+    private static final int[] buffers = new int[BUFFER_TARGETS.length];
+    private static final int[] textures = new int[MAX_TEXTURE_UNITS * TEXTURE_TARGETS.length];
+    private static final int[] capabilities = new int[CAPABILITIES.length];
+    private static int blendSrc = UNKNOWN;
+    private static int blendDst = UNKNOWN;
+    private static int depthMask = UNKNOWN;
+    private static final int[] viewport = new int[4];
+
+    private static long issued;
+    private static long elided;
+    private static long lastIssued;
+    private static long lastElided;
+
+    static {
+        invalidate();
+    }
+
+    private GLState() {
+    }
+
+    // Olvida todo: las siguientes llamadas se hacen aunque coincidan
+    public static void invalidate() {
+        program = UNKNOWN;
+        vertexArray = UNKNOWN;
+        activeUnit = UNKNOWN;
+        Arrays.fill(buffers, UNKNOWN);
+        Arrays.fill(textures, UNKNOWN);
+        Arrays.fill(capabilities, UNKNOWN);
+        blendSrc = UNKNOWN;
+        blendDst = UNKNOWN;
+        depthMask = UNKNOWN;
+        Arrays.fill(viewport, UNKNOWN);
+    }
+
+    public static void useProgram(int id) {
+        if (program == id) {
+            elided++;
+            return;
+        }
+        glUseProgram(id);
+        program = id;
+        issued++;
+    }
+
+    // El GL_ELEMENT_ARRAY_BUFFER es parte del VAO: al cambiar de VAO deja de saberse
+    public static void bindVertexArray(int id) {
+        if (vertexArray == id) {
+            elided++;
+            return;
+        }
+        glBindVertexArray(id);
+        vertexArray = id;
+        buffers[ELEMENT_SLOT] = UNKNOWN;
+        issued++;
+    }
+
+    public static void bindBuffer(int target, int id) {
+        int slot = indexOf(BUFFER_TARGETS, target);
+        if (slot >= 0 && buffers[slot] == id) {
+            elided++;
+            return;
+        }
+        glBindBuffer(target, id);
+        if (slot >= 0) {
+            buffers[slot] = id;
+        }
+        issued++;
+    }
+
+    // También cambia el enlace genérico del target (como glBindBuffer)
+    public static void bindBufferBase(int target, int index, int id) {
+        glBindBufferBase(target, index, id);
+        int slot = indexOf(BUFFER_TARGETS, target);
+        if (slot >= 0) {
+            buffers[slot] = id;
+        }
+        issued++;
+    }
+
+    // unit: GL_TEXTURE0 + n
+    public static void activeTexture(int unit) {
+        if (activeUnit == unit) {
+            elided++;
+            return;
+        }
+        glActiveTexture(unit);
+        activeUnit = unit;
+        issued++;
+    }
+
+    // Sobre la unidad activa (activeTexture)
+    public static void bindTexture(int target, int id) {
+        int slot = textureSlot(target);
+        if (slot >= 0 && textures[slot] == id) {
+            elided++;
+            return;
+        }
+        glBindTexture(target, id);
+        if (slot >= 0) {
+            textures[slot] = id;
+        }
+        issued++;
+    }
+
+    public static void enable(int capability) {
+        setCapability(capability, true);
+    }
+
+    public static void disable(int capability) {
+        setCapability(capability, false);
+    }
+
+    private static void setCapability(int capability, boolean enabled) {
+        int slot = indexOf(CAPABILITIES, capability);
+        int value = enabled ? 1 : 0;
+        if (slot >= 0 && capabilities[slot] == value) {
+            elided++;
+            return;
+        }
+        if (enabled) {
+            glEnable(capability);
+        } else {
+            glDisable(capability);
+        }
+        if (slot >= 0) {
+            capabilities[slot] = value;
+        }
+        issued++;
+    }
+
+    public static void blendFunc(int src, int dst) {
+        if (blendSrc == src && blendDst == dst) {
+            elided++;
+            return;
+        }
+        glBlendFunc(src, dst);
+        blendSrc = src;
+        blendDst = dst;
+        issued++;
+    }
+
+    public static void depthMask(boolean enabled) {
+        int value = enabled ? 1 : 0;
+        if (depthMask == value) {
+            elided++;
+            return;
+        }
+        glDepthMask(enabled);
+        depthMask = value;
+        issued++;
+    }
+
+    public static void viewport(int x, int y, int width, int height) {
+        if (viewport[0] == x && viewport[1] == y && viewport[2] == width && viewport[3] == height) {
+            elided++;
+            return;
+        }
+        glViewport(x, y, width, height);
+        viewport[0] = x;
+        viewport[1] = y;
+        viewport[2] = width;
+        viewport[3] = height;
+        issued++;
+    }
+
+    // Borrar un objeto lo desenlaza en GL; su nombre puede reutilizarse después, así que
+    // la copia también debe olvidarlo
+    public static void deleteTexture(int id) {
+        glDeleteTextures(id);
+        for (int i = 0; i < textures.length; i++) {
+            if (textures[i] == id) {
+                textures[i] = 0;
+            }
+        }
+    }
+
+    public static void deleteBuffer(int id) {
+        glDeleteBuffers(id);
+        for (int i = 0; i < buffers.length; i++) {
+            if (buffers[i] == id) {
+                buffers[i] = 0;
+            }
+        }
+        // Puede haber estado enlazado como índices de otro VAO
+        buffers[ELEMENT_SLOT] = UNKNOWN;
+    }
+
+    public static void deleteVertexArray(int id) {
+        glDeleteVertexArrays(id);
+        if (vertexArray == id) {
+            vertexArray = 0;
+            buffers[ELEMENT_SLOT] = UNKNOWN;
+        }
+    }
+
+    // El programa en uso no se borra hasta que deja de estarlo: mejor no suponer nada
+    public static void deleteProgram(int id) {
+        glDeleteProgram(id);
+        if (program == id) {
+            program = UNKNOWN;
+        }
+    }
+
+    private static int textureSlot(int target) {
+        int index = indexOf(TEXTURE_TARGETS, target);
+        int unit = activeUnit - GL_TEXTURE0;
+        if (index < 0 || unit < 0 || unit >= MAX_TEXTURE_UNITS) {
+            return -1;
+        }
+        return unit * TEXTURE_TARGETS.length + index;
+    }
+
+    private static int indexOf(int[] values, int value) {
+        for (int i = 0; i < values.length; i++) {
+            if (values[i] == value) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    // Cierra las cuentas del frame
+    public static void endFrame() {
+        lastIssued = issued;
+        lastElided = elided;
+        issued = 0;
+        elided = 0;
+    }
+
+    // Llamadas hechas en el último frame cerrado
+    public static long getIssued() {
+        return lastIssued;
+    }
+
+    // Llamadas evitadas en el último frame cerrado
+    public static long getElided() {
+        return lastElided;
+    }
+}
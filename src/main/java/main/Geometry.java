@@ -0,0 +1,122 @@
+package main;
+
+import static org.lwjgl.opengl.GL11.*;
+import static org.lwjgl.opengl.GL30.*;
+import static org.lwjgl.opengl.GL31.glDrawElementsInstanced;
+
+// VAO/VBO/EBO compartidos entre todos los objetos con la misma malla.
+// Se obtiene con GeometryRegistry.acquire y cada usuario llama a release() una vez;
+// los buffers se borran cuando se libera la última referencia.
+public class Geometry {
+
+    final GeometryRegistry.Key key;
+    final float[] vertices;
+    final int[] indices;
+
+    private final int vao;
+    private final int vbo;
+    private final int ebo;
+    private final int vertexCount;
+    private final int indexCount;
+    // GL_UNSIGNED_INT, o GL_UNSIGNED_SHORT en las mallas optimizadas con MeshPipeline
+    private final int indexType;
+    private final long sizeBytes;
+    private int refCount;
+
+    Geometry(GeometryRegistry.Key key, float[] vertices, int[] indices,
+             int vao, int vbo, int ebo, int vertexCount, long sizeBytes) {
+        this(key, vertices, indices, vao, vbo, ebo, vertexCount, indices != null ? indices.length : 0,
+                GL_UNSIGNED_INT, sizeBytes);
+    }
+
+    Geometry(GeometryRegistry.Key key, float[] vertices, int[] indices,
+             int vao, int vbo, int ebo, int vertexCount, int indexCount, int indexType, long sizeBytes) {
+        this.key = key;
+        this.vertices = vertices;
+        this.indices = indices;
+        this.vao = vao;
+        this.vbo = vbo;
+        this.ebo = ebo;
+        this.vertexCount = vertexCount;
+        this.indexCount = indexCount;
+        this.indexType = indexType;
+        this.sizeBytes = sizeBytes;
+    }
+
+    // Dibuja con glDrawElements si tiene índices, si no con glDrawArrays
+    public void draw() {
+        GLState.bindVertexArray(vao);
+        if (ebo != 0) {
+            glDrawElements(GL_TRIANGLES, indexCount, indexType, 0);
+        } else {
+            glDrawArrays(GL_TRIANGLES, 0, vertexCount);
+        }
+    }
+
+    // Dibuja count índices desde firstIndex (p. ej. un LOD de MeshData)
+    public void drawRange(int firstIndex, int count) {
+        GLState.bindVertexArray(vao);
+        glDrawElements(GL_TRIANGLES, count, indexType, (long) firstIndex * indexSize());
+    }
+
+    // Con el VAO ya enlazado por quien llama (p. ej. el de instancias de ModelBatch)
+    public void drawRangeInstanced(int firstIndex, int count, int instances) {
+        glDrawElementsInstanced(GL_TRIANGLES, count, indexType, (long) firstIndex * indexSize(), instances);
+    }
+
+    private int indexSize() {
+        return indexType == GL_UNSIGNED_SHORT ? Short.BYTES : Integer.BYTES;
+    }
+
+    public void release() {
+        GeometryRegistry.release(this);
+    }
+
+    int retain() {
+        return ++refCount;
+    }
+
+    int drop() {
+        return --refCount;
+    }
+
+    void delete() {
+        GLState.deleteVertexArray(vao);
+        GLState.deleteBuffer(vbo);
+        if (ebo != 0) {
+            GLState.deleteBuffer(ebo);
+        }
+    }
+
+    public int getVao() {
+        return vao;
+    }
+
+    public int getVbo() {
+        return vbo;
+    }
+
+    public int getEbo() {
+        return ebo;
+    }
+
+    public int getVertexCount() {
+        return vertexCount;
+    }
+
+    public int getIndexCount() {
+        return indexCount;
+    }
+
+    public int getIndexType() {
+        return indexType;
+    }
+
+    public long getSizeBytes() {
+        return sizeBytes;
+    }
+
+    public int getRefCount() {
+        return refCount;
+    }
+}
@@ -0,0 +1,207 @@
+package main;
+
+import org.lwjgl.system.MemoryUtil;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.lwjgl.opengl.GL15.*;
+import static org.lwjgl.opengl.GL30.glGenVertexArrays;
+import static org.lwjgl.util.xxhash.XXHash.XXH3_64bits;
+
+// Registro de geometría compartida: la clave es el formato de vértice más un hash
+// (xxh3) de los vértices e índices. Objetos con la misma malla reciben el mismo
+// Geometry con un contador de referencias, así la memoria de GPU y el tiempo de subida
+// crecen con las formas distintas y no con el número de objetos.
+// Los arrays registrados no se deben modificar después (se usan para confirmar aciertos).
+public final class GeometryRegistry {
+
+    private static final Map<Key, Geometry> entries = new HashMap<>();
+
+    private static long hits;
+    private static long misses;
+    private static long bytesUploaded;
+    private static long bytesResident;
+
+    private GeometryRegistry() {
+    }
+
+    static final class Key {
+        final VertexLayout layout;
+        final long hash;
+        final int vertexLength;
+        final int indexLength;
+
+        Key(VertexLayout layout, long hash, int vertexLength, int indexLength) {
+            this.layout = layout;
+            this.hash = hash;
+            this.vertexLength = vertexLength;
+            this.indexLength = indexLength;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key other)) {
+                return false;
+            }
+            return hash == other.hash && vertexLength == other.vertexLength
+                    && indexLength == other.indexLength && layout.equals(other.layout);
+        }
+
+        @Override
+        public int hashCode() {
+            return Long.hashCode(hash) * 31 + layout.hashCode();
+        }
+    }
+
+    // índices puede ser null para mallas sin EBO (glDrawArrays)
+    public static Geometry acquire(VertexLayout layout, float[] vertices, int[] indices) {
+        int indexLength = indices != null ? indices.length : -1;
+        long vertexBytes = (long) vertices.length * Float.BYTES;
+        long indexBytes = indices != null ? (long) indices.length * Integer.BYTES : 0;
+
+        // Vértices e índices juntos en memoria nativa: se hashean y, si hace falta, se suben desde aquí
+        ByteBuffer data = MemoryUtil.memAlloc((int) (vertexBytes + indexBytes));
+        try {
+            data.asFloatBuffer().put(vertices);
+            if (indices != null) {
+                data.position((int) vertexBytes);
+                data.asIntBuffer().put(indices);
+                data.position(0);
+            }
+            Key key = new Key(layout, XXH3_64bits(data), vertices.length, indexLength);
+
+            Geometry geometry = entries.get(key);
+            if (geometry != null && Arrays.equals(geometry.vertices, vertices)
+                    && Arrays.equals(geometry.indices, indices)) {
+                hits++;
+                geometry.retain();
+                return geometry;
+            }
+            misses++;
+
+            Geometry created = upload(geometry == null ? key : null, layout, vertices, indices,
+                    data, vertexBytes, indexBytes);
+            if (geometry == null) {
+                // Con colisión de hash la malla nueva funciona igual, solo que no se comparte
+                entries.put(key, created);
+            }
+            created.retain();
+            return created;
+        } finally {
+            MemoryUtil.memFree(data);
+        }
+    }
+
+    private static Geometry upload(Key key, VertexLayout layout, float[] vertices, int[] indices,
+                                   ByteBuffer data, long vertexBytes, long indexBytes) {
+        int vao = glGenVertexArrays();
+        int vbo = glGenBuffers();
+        int ebo = 0;
+
+        GLState.bindVertexArray(vao);
+        GLState.bindBuffer(GL_ARRAY_BUFFER, vbo);
+        nglBufferData(GL_ARRAY_BUFFER, vertexBytes, MemoryUtil.memAddress(data), GL_STATIC_DRAW);
+        if (indices != null) {
+            ebo = glGenBuffers();
+            GLState.bindBuffer(GL_ELEMENT_ARRAY_BUFFER, ebo);
+            nglBufferData(GL_ELEMENT_ARRAY_BUFFER, indexBytes, MemoryUtil.memAddress(data) + vertexBytes,
+                    GL_STATIC_DRAW);
+        }
+        layout.apply();
+        GLState.bindVertexArray(0);
+        GLState.bindBuffer(GL_ARRAY_BUFFER, 0);
+
+        long size = vertexBytes + indexBytes;
+        bytesUploaded += size;
+        bytesResident += size;
+        int vertexCount = (int) (vertexBytes / layout.getStride());
+        return new Geometry(key, vertices, indices, vao, vbo, ebo, vertexCount, size);
+    }
+
+    // Geometría sin compartir subida directamente desde memoria nativa (p. ej. Import3D):
+    // no hay arrays Java que comparar, así que no entra en el registro pero sí en las
+    // estadísticas. indices (enteros sin signo de 32 bits) puede ser null.
+    public static Geometry create(VertexLayout layout, ByteBuffer vertices, ByteBuffer indices) {
+        return create(layout, vertices, indices, GL_UNSIGNED_INT);
+    }
+
+    // indexType: GL_UNSIGNED_INT o GL_UNSIGNED_SHORT
+    public static Geometry create(VertexLayout layout, ByteBuffer vertices, ByteBuffer indices, int indexType) {
+        int indexSize = indexType == GL_UNSIGNED_SHORT ? Short.BYTES : Integer.BYTES;
+        return create(layout, vertices, indices, indexType, indices != null ? indices.remaining() / indexSize : 0);
+    }
+
+    // drawCount: índices que dibuja draw(); el resto del buffer (p. ej. los LOD de MeshData)
+    // se dibuja con drawRange
+    static Geometry create(VertexLayout layout, ByteBuffer vertices, ByteBuffer indices, int indexType, int drawCount) {
+        int vao = glGenVertexArrays();
+        int vbo = glGenBuffers();
+        int ebo = 0;
+
+        GLState.bindVertexArray(vao);
+        GLState.bindBuffer(GL_ARRAY_BUFFER, vbo);
+        glBufferData(GL_ARRAY_BUFFER, vertices, GL_STATIC_DRAW);
+        if (indices != null) {
+            ebo = glGenBuffers();
+            GLState.bindBuffer(GL_ELEMENT_ARRAY_BUFFER, ebo);
+            glBufferData(GL_ELEMENT_ARRAY_BUFFER, indices, GL_STATIC_DRAW);
+        }
+        layout.apply();
+        GLState.bindVertexArray(0);
+        GLState.bindBuffer(GL_ARRAY_BUFFER, 0);
+
+        long size = vertices.remaining() + (indices != null ? indices.remaining() : 0);
+        bytesUploaded += size;
+        bytesResident += size;
+        misses++;
+        int vertexCount = vertices.remaining() / layout.getStride();
+        Geometry geometry = new Geometry(null, null, null, vao, vbo, ebo, vertexCount, drawCount, indexType, size);
+        geometry.retain();
+        return geometry;
+    }
+
+    static void release(Geometry geometry) {
+        int remaining = geometry.drop();
+        if (remaining > 0) {
+            return;
+        }
+        if (remaining < 0) {
+            throw new IllegalStateException("Geometry liberada más veces de las adquiridas");
+        }
+        if (geometry.key != null && entries.get(geometry.key) == geometry) {
+            entries.remove(geometry.key);
+        }
+        bytesResident -= geometry.getSizeBytes();
+        geometry.delete();
+    }
+
+    // Número de mallas distintas en GPU (compartidas)
+    public static int getUniqueCount() {
+        return entries.size();
+    }
+
+    public static long getHits() {
+        return hits;
+    }
+
+    public static long getMisses() {
+        return misses;
+    }
+
+    public static long getBytesUploaded() {
+        return bytesUploaded;
+    }
+
+    public static long getBytesResident() {
+        return bytesResident;
+    }
+
+    public static void resetStats() {
+        hits = 0;
+        misses = 0;
+        bytesUploaded = 0;
+    }
+}
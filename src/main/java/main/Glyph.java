@@ -0,0 +1,42 @@
+package main;
+
+// Métricas de un glifo y su ubicación actual en el atlas (page = -1 si no está residente)
+public class Glyph {
+
+    public final int codepoint;
+    public final float advance;
+
+    // Caja del bitmap relativa al lápiz sobre la línea base, en píxeles
+    public final int offsetX;
+    public final int offsetY;
+    public final int width;
+    public final int height;
+    // Margen alrededor del contorno incluido en la caja (campo de distancia MSDF)
+    public final int padding;
+
+    public int page = -1;
+    public float u0, v0, u1, v1;
+
+    public Glyph(int codepoint, float advance, int offsetX, int offsetY, int width, int height) {
+        this(codepoint, advance, offsetX, offsetY, width, height, 0);
+    }
+
+    public Glyph(int codepoint, float advance, int offsetX, int offsetY, int width, int height, int padding) {
+        this.codepoint = codepoint;
+        this.advance = advance;
+        this.offsetX = offsetX;
+        this.offsetY = offsetY;
+        this.width = width;
+        this.height = height;
+        this.padding = padding;
+    }
+
+    // Espacios y similares no tienen bitmap, solo avanzan el lápiz
+    public boolean isEmpty() {
+        return width == 0 || height == 0;
+    }
+
+    public boolean isResident() {
+        return page >= 0;
+    }
+}
@@ -0,0 +1,197 @@
+package main;
+
+import org.lwjgl.system.MemoryUtil;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.lwjgl.opengl.GL30.*;
+
+// Atlas de glifos en un GL_TEXTURE_2D_ARRAY de páginas fijas. Los glifos se empaquetan
+// con un skyline por página y, cuando no queda sitio, se vacía la página menos usada.
+public class GlyphAtlas {
+
+    private static final int PADDING = 1;
+
+    private final int pageSize;
+    private final int pageCount;
+    private final int channels;
+    private final int format;
+    private final int textureID;
+
+    private final SkylinePacker[] packers;
+    private final List<List<Glyph>> residents = new ArrayList<>();
+    private final long[] pageStamps;
+
+    // Sello del lote que se está acumulando; las páginas con este sello tienen glifos pendientes
+    private long stamp = 1;
+    private Runnable beforePendingEviction;
+    private ByteBuffer clearBuffer;
+    private final int[] packed = new int[2];
+
+    private long evictions;
+    private long uploads;
+    private long generation;
+
+    public GlyphAtlas(int pageSize, int pageCount) {
+        this(pageSize, pageCount, 1);
+    }
+
+    // channels = 1 para cobertura (R8), 3 para campos de distancia multicanal (RGB8)
+    public GlyphAtlas(int pageSize, int pageCount, int channels) {
+        this.pageSize = pageSize;
+        this.pageCount = pageCount;
+        this.channels = channels;
+        this.format = channels == 3 ? GL_RGB : GL_RED;
+        this.packers = new SkylinePacker[pageCount];
+        this.pageStamps = new long[pageCount];
+        for (int i = 0; i < pageCount; i++) {
+            packers[i] = new SkylinePacker(pageSize, pageSize, PADDING);
+            residents.add(new ArrayList<>());
+        }
+
+        textureID = glGenTextures();
+        GLState.bindTexture(GL_TEXTURE_2D_ARRAY, textureID);
+        glTexImage3D(GL_TEXTURE_2D_ARRAY, 0, channels == 3 ? GL_RGB8 : GL_R8, pageSize, pageSize, pageCount, 0,
+                format, GL_UNSIGNED_BYTE, (ByteBuffer) null);
+        glTexParameteri(GL_TEXTURE_2D_ARRAY, GL_TEXTURE_MIN_FILTER, GL_LINEAR);
+        glTexParameteri(GL_TEXTURE_2D_ARRAY, GL_TEXTURE_MAG_FILTER, GL_LINEAR);
+        glTexParameteri(GL_TEXTURE_2D_ARRAY, GL_TEXTURE_WRAP_S, GL_CLAMP_TO_EDGE);
+        glTexParameteri(GL_TEXTURE_2D_ARRAY, GL_TEXTURE_WRAP_T, GL_CLAMP_TO_EDGE);
+        GLState.bindTexture(GL_TEXTURE_2D_ARRAY, 0);
+
+        // Las páginas empiezan vacías
+        for (int i = 0; i < pageCount; i++) {
+            clearPage(i);
+        }
+    }
+
+    // Se llama antes de vaciar una página con glifos del lote pendiente (normalmente un flush)
+    public void setBeforePendingEviction(Runnable callback) {
+        this.beforePendingEviction = callback;
+    }
+
+    // Sube el bitmap del glifo a alguna página y rellena sus coordenadas de textura
+    public void place(Glyph glyph, ByteBuffer bitmap) {
+        // Antes de vaciar nada: en una página vacía cabe todo lo que no pase de su tamaño
+        if (glyph.width + PADDING > pageSize || glyph.height + PADDING > pageSize) {
+            throw new IllegalArgumentException("Glifo demasiado grande para el atlas: U+"
+                    + Integer.toHexString(glyph.codepoint));
+        }
+        int page = findPage(glyph.width, glyph.height);
+        if (page < 0) {
+            page = evictLeastRecentlyUsed();
+            packers[page].pack(glyph.width, glyph.height, packed);
+        }
+
+        int x = packed[0];
+        int y = packed[1];
+        GLState.bindTexture(GL_TEXTURE_2D_ARRAY, textureID);
+        glPixelStorei(GL_UNPACK_ALIGNMENT, 1);
+        glTexSubImage3D(GL_TEXTURE_2D_ARRAY, 0, x, y, page, glyph.width, glyph.height, 1,
+                format, GL_UNSIGNED_BYTE, bitmap);
+        glPixelStorei(GL_UNPACK_ALIGNMENT, 4);
+        GLState.bindTexture(GL_TEXTURE_2D_ARRAY, 0);
+        uploads++;
+
+        glyph.page = page;
+        glyph.u0 = (float) x / pageSize;
+        glyph.v0 = (float) y / pageSize;
+        glyph.u1 = (float) (x + glyph.width) / pageSize;
+        glyph.v1 = (float) (y + glyph.height) / pageSize;
+        residents.get(page).add(glyph);
+    }
+
+    private int findPage(int w, int h) {
+        for (int i = 0; i < pageCount; i++) {
+            if (packers[i].pack(w, h, packed)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private int evictLeastRecentlyUsed() {
+        int victim = 0;
+        for (int i = 1; i < pageCount; i++) {
+            if (pageStamps[i] < pageStamps[victim]) {
+                victim = i;
+            }
+        }
+        if (pageStamps[victim] == stamp && beforePendingEviction != null) {
+            // Todas las páginas tienen glifos pendientes: dibujar antes de pisarlas
+            beforePendingEviction.run();
+        }
+
+        for (Glyph glyph : residents.get(victim)) {
+            glyph.page = -1;
+        }
+        residents.get(victim).clear();
+        packers[victim].reset();
+        clearPage(victim);
+        pageStamps[victim] = 0;
+        evictions++;
+        generation++;
+        return victim;
+    }
+
+    private void clearPage(int page) {
+        if (clearBuffer == null) {
+            clearBuffer = MemoryUtil.memCalloc(pageSize * pageSize * channels);
+        }
+        GLState.bindTexture(GL_TEXTURE_2D_ARRAY, textureID);
+        glPixelStorei(GL_UNPACK_ALIGNMENT, 1);
+        glTexSubImage3D(GL_TEXTURE_2D_ARRAY, 0, 0, 0, page, pageSize, pageSize, 1,
+                format, GL_UNSIGNED_BYTE, clearBuffer);
+        glPixelStorei(GL_UNPACK_ALIGNMENT, 4);
+        GLState.bindTexture(GL_TEXTURE_2D_ARRAY, 0);
+    }
+
+    // Marca la página como usada por el lote actual
+    public void touch(int page) {
+        pageStamps[page] = stamp;
+    }
+
+    // Se llama tras dibujar un lote
+    public void nextBatch() {
+        stamp++;
+    }
+
+    public int getTextureID() {
+        return textureID;
+    }
+
+    public int getPageSize() {
+        return pageSize;
+    }
+
+    public int getPageCount() {
+        return pageCount;
+    }
+
+    public int getChannels() {
+        return channels;
+    }
+
+    public long getEvictions() {
+        return evictions;
+    }
+
+    public long getUploads() {
+        return uploads;
+    }
+
+    // Cambia cada vez que se vacía una página (para invalidar quads retenidos)
+    public long getGeneration() {
+        return generation;
+    }
+
+    public void cleanup() {
+        GLState.deleteTexture(textureID);
+        if (clearBuffer != null) {
+            MemoryUtil.memFree(clearBuffer);
+            clearBuffer = null;
+        }
+    }
+}
@@ -1,17 +1,364 @@
 package main;
 
+import org.joml.Matrix4f;
+import org.lwjgl.BufferUtils;
+import org.lwjgl.PointerBuffer;
 import org.lwjgl.assimp.*;
+import org.lwjgl.stb.STBImage;
+import org.lwjgl.system.MemoryStack;
 import org.lwjgl.system.MemoryUtil;
 
-import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
 import java.nio.IntBuffer;
 import java.util.ArrayList;
 import java.util.List;
-import org.lwjgl.PointerBuffer;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.lwjgl.assimp.Assimp.*;
-import org.lwjgl.openvr.Texture;
 
-public class Import3D {
-   
-}
\ No newline at end of file
+// Importador de modelos (GLB/glTF y lo que soporte Assimp). Todo el trabajo (lectura
+// del recurso, Assimp, copia a buffers nativos y decodificación de texturas embebidas)
+// ocurre en el hilo que llama a load(); loadAsync() lo hace en un pool de fondo.
+// Los vértices se escriben intercalados (VertexLayout.POS3_NORMAL3_UV2) directamente
+// desde la memoria de Assimp a memoria nativa, sin arrays Java intermedios, y por
+// defecto se compactan con MeshPipeline; el hilo de OpenGL solo tiene que llamar a
+// Model.upload().
+public final class Import3D {
+
+    private static final VertexLayout LAYOUT = VertexLayout.POS3_NORMAL3_UV2;
+    private static final int FLOATS_PER_VERTEX = 8;
+
+    static final int FLAGS = aiProcess_Triangulate
+            | aiProcess_JoinIdenticalVertices
+            | aiProcess_GenSmoothNormals
+            | aiProcess_SortByPType
+            | aiProcess_ValidateDataStructure;
+
+    private static final ExecutorService WORKERS;
+
+    static {
+        AtomicInteger counter = new AtomicInteger();
+        WORKERS = Executors.newFixedThreadPool(Math.max(1, Runtime.getRuntime().availableProcessors() / 2), runnable -> {
+            Thread thread = new Thread(runnable, "model-import-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    private Import3D() {
+    }
+
+    public static CompletableFuture<Model> loadAsync(String path) {
+        return loadAsync(path, true);
+    }
+
+    public static CompletableFuture<Model> loadAsync(String path, boolean optimize) {
+        return loadAsync(path, optimize, MeshPipeline.DEFAULT_LOD_ERRORS);
+    }
+
+    public static CompletableFuture<Model> loadAsync(String path, boolean optimize, float[] lodErrors) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return load(path, optimize, lodErrors);
+            } catch (IOException e) {
+                throw new CompletionException(e);
+            }
+        }, WORKERS);
+    }
+
+    public static Model load(String path) throws IOException {
+        return load(path, true);
+    }
+
+    public static Model load(String path, boolean optimize) throws IOException {
+        return load(path, optimize, MeshPipeline.DEFAULT_LOD_ERRORS);
+    }
+
+    // Cualquier hilo. Con optimize las mallas pasan por MeshPipeline (orden de caché,
+    // overdraw y vertex fetch, cadena de LOD con los errores de lodErrors y formato
+    // compacto). El resultado se guarda en MeshCache
+    public static Model load(String path, boolean optimize, float[] lodErrors) throws IOException {
+        try (Asset asset = Assets.read(path)) {
+            // Si el mismo archivo ya se importó con los mismos ajustes, se lee de MeshCache
+            long key = MeshCache.key(asset.data(), FLAGS, optimize, optimize ? lodErrors : new float[0]);
+            Model cached = MeshCache.load(path, key);
+            if (cached != null) {
+                return cached;
+            }
+            Model model = importScene(path, asset.data(), optimize, lodErrors);
+            MeshCache.store(key, model);
+            return model;
+        }
+    }
+
+    // Importación completa con Assimp, sin pasar por la caché
+    static Model importScene(String path, ByteBuffer data, boolean optimize, float[] lodErrors) throws IOException {
+        AIScene scene = aiImportFileFromMemory(data, FLAGS, extension(path));
+        if (scene == null || scene.mRootNode() == null) {
+            throw new IOException("Assimp no pudo importar " + path + ": " + aiGetErrorString());
+        }
+
+        List<MeshData> meshes = new ArrayList<>();
+        List<Model.EmbeddedTexture> textures = new ArrayList<>();
+        try {
+            textures = readTextures(scene, path);
+            List<Material> materials = readMaterials(scene, directory(path));
+            // Índice de malla de Assimp -> índice en Model (se saltan las que no son triángulos)
+            int[] remap = new int[scene.mNumMeshes()];
+            PointerBuffer aiMeshes = scene.mMeshes();
+            for (int i = 0; i < remap.length; i++) {
+                MeshData mesh = readMesh(AIMesh.create(aiMeshes.get(i)));
+                if (mesh != null && optimize) {
+                    mesh = optimizeOrFree(mesh, lodErrors);
+                }
+                remap[i] = mesh != null ? meshes.size() : -1;
+                if (mesh != null) {
+                    meshes.add(mesh);
+                }
+            }
+            ModelNode root = readNode(scene.mRootNode(), null, remap);
+            return new Model(path, meshes, materials, textures, root);
+        } catch (RuntimeException e) {
+            for (MeshData mesh : meshes) {
+                mesh.free();
+            }
+            for (Model.EmbeddedTexture texture : textures) {
+                texture.free();
+            }
+            throw e;
+        } finally {
+            aiReleaseImport(scene);
+        }
+    }
+
+    private static MeshData readMesh(AIMesh mesh) {
+        if ((mesh.mPrimitiveTypes() & aiPrimitiveType_TRIANGLE) == 0 || mesh.mNumVertices() == 0) {
+            return null;
+        }
+        int vertexCount = mesh.mNumVertices();
+        long positions = mesh.mVertices().address();
+        AIVector3D.Buffer normalBuffer = mesh.mNormals();
+        AIVector3D.Buffer uvBuffer = mesh.mTextureCoords(0);
+        long normals = normalBuffer != null ? normalBuffer.address() : 0L;
+        long uvs = uvBuffer != null ? uvBuffer.address() : 0L;
+
+        ByteBuffer vertices = MemoryUtil.memAlloc(vertexCount * LAYOUT.getStride());
+        long dst = MemoryUtil.memAddress(vertices);
+        float[] bounds = {Float.MAX_VALUE, Float.MAX_VALUE, Float.MAX_VALUE,
+                -Float.MAX_VALUE, -Float.MAX_VALUE, -Float.MAX_VALUE};
+        for (int v = 0; v < vertexCount; v++) {
+            long src = (long) v * AIVector3D.SIZEOF;
+            long out = dst + (long) v * FLOATS_PER_VERTEX * Float.BYTES;
+            for (int c = 0; c < 3; c++) {
+                float p = MemoryUtil.memGetFloat(positions + src + c * Float.BYTES);
+                MemoryUtil.memPutFloat(out + c * Float.BYTES, p);
+                bounds[c] = Math.min(bounds[c], p);
+                bounds[c + 3] = Math.max(bounds[c + 3], p);
+            }
+            for (int c = 0; c < 3; c++) {
+                float n = normals != 0 ? MemoryUtil.memGetFloat(normals + src + c * Float.BYTES) : (c == 1 ? 1f : 0f);
+                MemoryUtil.memPutFloat(out + (3 + c) * Float.BYTES, n);
+            }
+            for (int c = 0; c < 2; c++) {
+                float t = uvs != 0 ? MemoryUtil.memGetFloat(uvs + src + c * Float.BYTES) : 0f;
+                MemoryUtil.memPutFloat(out + (6 + c) * Float.BYTES, t);
+            }
+        }
+
+        // Con SortByPType la malla solo tiene triángulos, pero se descarta cualquier cara degenerada
+        int faceCount = mesh.mNumFaces();
+        ByteBuffer indices = MemoryUtil.memAlloc(faceCount * 3 * Integer.BYTES);
+        AIFace.Buffer faces = mesh.mFaces();
+        long faceBase = faces.address();
+        for (int f = 0; f < faceCount; f++) {
+            long face = faceBase + (long) f * AIFace.SIZEOF;
+            if (AIFace.nmNumIndices(face) != 3) {
+                continue;
+            }
+            long faceIndices = MemoryUtil.memGetAddress(face + AIFace.MINDICES);
+            indices.putInt(MemoryUtil.memGetInt(faceIndices));
+            indices.putInt(MemoryUtil.memGetInt(faceIndices + Integer.BYTES));
+            indices.putInt(MemoryUtil.memGetInt(faceIndices + 2L * Integer.BYTES));
+        }
+        indices.flip();
+
+        return new MeshData(mesh.mName().dataString(), LAYOUT, mesh.mMaterialIndex(), vertices, indices, bounds);
+    }
+
+    private static MeshData optimizeOrFree(MeshData mesh, float[] lodErrors) {
+        try {
+            return MeshPipeline.optimize(mesh, lodErrors);
+        } catch (RuntimeException e) {
+            mesh.free();
+            throw e;
+        }
+    }
+
+    private static List<Material> readMaterials(AIScene scene, String directory) {
+        List<Material> materials = new ArrayList<>(scene.mNumMaterials());
+        PointerBuffer aiMaterials = scene.mMaterials();
+        try (MemoryStack stack = MemoryStack.stackPush()) {
+            AIString string = AIString.malloc(stack);
+            AIColor4D color = AIColor4D.malloc(stack);
+            FloatBuffer value = stack.mallocFloat(1);
+            IntBuffer max = stack.mallocInt(1);
+
+            for (int i = 0; i < scene.mNumMaterials(); i++) {
+                AIMaterial material = AIMaterial.create(aiMaterials.get(i));
+
+                String name = aiGetMaterialString(material, AI_MATKEY_NAME, aiTextureType_NONE, 0, string) == aiReturn_SUCCESS
+                        ? string.dataString() : "material" + i;
+
+                float[] baseColor = {1f, 1f, 1f, 1f};
+                if (aiGetMaterialColor(material, AI_MATKEY_BASE_COLOR, aiTextureType_NONE, 0, color) == aiReturn_SUCCESS
+                        || aiGetMaterialColor(material, AI_MATKEY_COLOR_DIFFUSE, aiTextureType_NONE, 0, color) == aiReturn_SUCCESS) {
+                    baseColor = new float[]{color.r(), color.g(), color.b(), color.a()};
+                }
+
+                float metallic = readFloat(material, AI_MATKEY_METALLIC_FACTOR, value, max, 0f);
+                float roughness = readFloat(material, AI_MATKEY_ROUGHNESS_FACTOR, value, max, 1f);
+
+                String texturePath = null;
+                int embedded = -1;
+                if (aiGetMaterialTexture(material, aiTextureType_BASE_COLOR, 0, string,
+                        (IntBuffer) null, null, null, null, null, null) == aiReturn_SUCCESS
+                        || aiGetMaterialTexture(material, aiTextureType_DIFFUSE, 0, string,
+                        (IntBuffer) null, null, null, null, null, null) == aiReturn_SUCCESS) {
+                    String reference = string.dataString();
+                    embedded = embeddedIndex(scene, reference);
+                    if (embedded < 0) {
+                        texturePath = directory + reference.replace('\\', '/');
+                    }
+                }
+                materials.add(new Material(name, baseColor, metallic, roughness, texturePath, embedded));
+            }
+        }
+        return materials;
+    }
+
+    private static float readFloat(AIMaterial material, String key, FloatBuffer value, IntBuffer max, float fallback) {
+        max.put(0, 1);
+        if (aiGetMaterialFloatArray(material, key, aiTextureType_NONE, 0, value, max) == aiReturn_SUCCESS) {
+            return value.get(0);
+        }
+        return fallback;
+    }
+
+    // "*N" en glTF/GLB; algunos formatos referencian la textura embebida por nombre
+    private static int embeddedIndex(AIScene scene, String reference) {
+        if (reference.startsWith("*")) {
+            try {
+                return Integer.parseInt(reference.substring(1));
+            } catch (NumberFormatException e) {
+                return -1;
+            }
+        }
+        AITexture texture = aiGetEmbeddedTexture(scene, reference);
+        if (texture == null) {
+            return -1;
+        }
+        PointerBuffer textures = scene.mTextures();
+        for (int i = 0; i < scene.mNumTextures(); i++) {
+            if (textures.get(i) == texture.address()) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    // Las texturas comprimidas (PNG/JPG dentro del GLB) se decodifican aquí, fuera del hilo de OpenGL
+    private static List<Model.EmbeddedTexture> readTextures(AIScene scene, String path) {
+        List<Model.EmbeddedTexture> textures = new ArrayList<>(scene.mNumTextures());
+        PointerBuffer aiTextures = scene.mTextures();
+        IntBuffer width = BufferUtils.createIntBuffer(1);
+        IntBuffer height = BufferUtils.createIntBuffer(1);
+        IntBuffer channels = BufferUtils.createIntBuffer(1);
+        try {
+            for (int i = 0; i < scene.mNumTextures(); i++) {
+                textures.add(readTexture(AITexture.create(aiTextures.get(i)), i, path, width, height, channels));
+            }
+        } catch (RuntimeException e) {
+            for (Model.EmbeddedTexture texture : textures) {
+                texture.free();
+            }
+            throw e;
+        }
+        return textures;
+    }
+
+    private static Model.EmbeddedTexture readTexture(AITexture texture, int i, String path,
+                                                     IntBuffer width, IntBuffer height, IntBuffer channels) {
+        ByteBuffer pixels;
+        if (texture.mHeight() == 0) {
+            pixels = STBImage.stbi_load_from_memory(texture.pcDataCompressed(), width, height, channels, 4);
+            if (pixels == null) {
+                throw new RuntimeException("No se pudo decodificar la textura embebida " + i + " de " + path
+                        + ": " + STBImage.stbi_failure_reason());
+            }
+        } else {
+            // Texels sin comprimir (BGRA); se reordenan a RGBA en memoria del mismo asignador que stb
+            width.put(0, texture.mWidth());
+            height.put(0, texture.mHeight());
+            int count = texture.mWidth() * texture.mHeight();
+            pixels = MemoryUtil.memAlloc(count * 4);
+            long texels = texture.pcData().address();
+            for (int t = 0; t < count; t++) {
+                long texel = texels + (long) t * AITexel.SIZEOF;
+                pixels.put(MemoryUtil.memGetByte(texel + AITexel.R));
+                pixels.put(MemoryUtil.memGetByte(texel + AITexel.G));
+                pixels.put(MemoryUtil.memGetByte(texel + AITexel.B));
+                pixels.put(MemoryUtil.memGetByte(texel + AITexel.A));
+            }
+            pixels.flip();
+        }
+        return new Model.EmbeddedTexture(pixels, width.get(0), height.get(0));
+    }
+
+    private static ModelNode readNode(AINode node, ModelNode parent, int[] remap) {
+        AIMatrix4x4 m = node.mTransformation();
+        // Assimp guarda las matrices por filas; JOML las recibe por columnas
+        Matrix4f transform = new Matrix4f(
+                m.a1(), m.b1(), m.c1(), m.d1(),
+                m.a2(), m.b2(), m.c2(), m.d2(),
+                m.a3(), m.b3(), m.c3(), m.d3(),
+                m.a4(), m.b4(), m.c4(), m.d4());
+
+        IntBuffer aiMeshes = node.mMeshes();
+        int count = 0;
+        int[] meshes = new int[node.mNumMeshes()];
+        for (int i = 0; i < meshes.length; i++) {
+            int index = remap[aiMeshes.get(i)];
+            if (index >= 0) {
+                meshes[count++] = index;
+            }
+        }
+        if (count < meshes.length) {
+            int[] trimmed = new int[count];
+            System.arraycopy(meshes, 0, trimmed, 0, count);
+            meshes = trimmed;
+        }
+
+        ModelNode result = new ModelNode(node.mName().dataString(), transform, meshes, parent);
+        PointerBuffer children = node.mChildren();
+        for (int i = 0; i < node.mNumChildren(); i++) {
+            readNode(AINode.create(children.get(i)), result, remap);
+        }
+        return result;
+    }
+
+    private static String extension(String path) {
+        int dot = path.lastIndexOf('.');
+        return dot >= 0 ? path.substring(dot + 1) : "";
+    }
+
+    private static String directory(String path) {
+        int slash = path.lastIndexOf('/');
+        return slash >= 0 ? path.substring(0, slash + 1) : "";
+    }
+}
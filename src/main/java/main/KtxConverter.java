@@ -0,0 +1,183 @@
+package main;
+
+import org.lwjgl.PointerBuffer;
+import org.lwjgl.stb.STBImage;
+import org.lwjgl.system.MemoryStack;
+import org.lwjgl.system.MemoryUtil;
+import org.lwjgl.util.ktx.ktxBasisParams;
+import org.lwjgl.util.ktx.ktxTexture;
+import org.lwjgl.util.ktx.ktxTexture2;
+import org.lwjgl.util.ktx.ktxTextureCreateInfo;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.lwjgl.util.ktx.KTX.*;
+
+// Conversor offline PNG/JPG -> KTX2 (Basis Universal ETC1S) con la cadena de mipmaps
+// completa. TextureLoader y AsyncTextureLoader usan el .ktx2 en lugar de la imagen
+// original si existe junto a ella, así en ejecución no hay stbi ni glGenerateMipmap.
+// Solo reconvierte las imágenes más nuevas que su .ktx2 (caché por fecha de modificación).
+// mvn exec:java -Dexec.mainClass=main.KtxConverter [-Dexec.args="carpeta [--uastc] [--force]"]
+public class KtxConverter {
+
+    private static final String DEFAULT_DIR = "src/main/resources/textures";
+    private static final int VK_FORMAT_R8G8B8A8_UNORM = 37;
+    // Calidad ETC1S (1-255): más alta = más fiel y archivo más grande
+    private static final int ETC1S_QUALITY = 128;
+
+    public static void main(String[] args) throws IOException {
+        Path dir = Paths.get(DEFAULT_DIR);
+        boolean uastc = false;
+        boolean force = false;
+        for (String arg : args) {
+            switch (arg) {
+                case "--uastc" -> uastc = true;
+                case "--force" -> force = true;
+                default -> dir = Paths.get(arg);
+            }
+        }
+
+        List<Path> sources = new ArrayList<>();
+        try (Stream<Path> files = Files.walk(dir)) {
+            files.filter(KtxConverter::isImage).sorted().forEach(sources::add);
+        }
+
+        int converted = 0;
+        int skipped = 0;
+        for (Path source : sources) {
+            Path target = ktxPathFor(source);
+            if (!force && Files.exists(target)
+                    && Files.getLastModifiedTime(target).compareTo(Files.getLastModifiedTime(source)) >= 0) {
+                skipped++;
+                continue;
+            }
+            long t0 = System.nanoTime();
+            convert(source, target, uastc);
+            System.out.printf("%s -> %s (%d KB -> %d KB, %.0f ms)%n", source, target.getFileName(),
+                    Files.size(source) / 1024, Files.size(target) / 1024, (System.nanoTime() - t0) / 1e6);
+            converted++;
+        }
+        System.out.printf("%d convertidas, %d al día%n", converted, skipped);
+    }
+
+    private static boolean isImage(Path path) {
+        String name = path.getFileName().toString().toLowerCase();
+        return name.endsWith(".png") || name.endsWith(".jpg") || name.endsWith(".jpeg");
+    }
+
+    // Misma ruta con extensión .ktx2. Si hay .png y .jpg con el mismo nombre gana el último
+    // convertido; TextureLoader.resolveKtx2 busca exactamente esta ruta.
+    static Path ktxPathFor(Path source) {
+        String name = source.getFileName().toString();
+        return source.resolveSibling(name.substring(0, name.lastIndexOf('.')) + ".ktx2");
+    }
+
+    public static void convert(Path source, Path target, boolean uastc) throws IOException {
+        ByteBuffer file = MemoryUtil.memAlloc((int) Files.size(source));
+        try (MemoryStack stack = MemoryStack.stackPush()) {
+            file.put(Files.readAllBytes(source)).flip();
+            IntBuffer w = stack.mallocInt(1);
+            IntBuffer h = stack.mallocInt(1);
+            IntBuffer channels = stack.mallocInt(1);
+            ByteBuffer pixels = STBImage.stbi_load_from_memory(file, w, h, channels, 4);
+            if (pixels == null) {
+                throw new IOException("No se pudo decodificar " + source + ": " + STBImage.stbi_failure_reason());
+            }
+            int width = w.get(0);
+            int height = h.get(0);
+            int levels = 32 - Integer.numberOfLeadingZeros(Math.max(width, height));
+
+            ktxTextureCreateInfo info = ktxTextureCreateInfo.calloc(stack)
+                    .vkFormat(VK_FORMAT_R8G8B8A8_UNORM)
+                    .baseWidth(width)
+                    .baseHeight(height)
+                    .baseDepth(1)
+                    .numDimensions(2)
+                    .numLevels(levels)
+                    .numLayers(1)
+                    .numFaces(1)
+                    .isArray(false)
+                    .generateMipmaps(false);
+            PointerBuffer out = stack.mallocPointer(1);
+            check(ktxTexture2_Create(info, KTX_TEXTURE_CREATE_ALLOC_STORAGE, out), source);
+            ktxTexture2 texture2 = ktxTexture2.create(out.get(0));
+            ktxTexture texture = ktxTexture.create(out.get(0));
+            try {
+                // Nivel 0 = imagen original; cada nivel siguiente es la media 2x2 del anterior
+                ByteBuffer level = pixels;
+                int lw = width;
+                int lh = height;
+                for (int i = 0; i < levels; i++) {
+                    check(ktxTexture_SetImageFromMemory(texture, i, 0, 0, level), source);
+                    if (i + 1 < levels) {
+                        ByteBuffer next = downsample(level, lw, lh);
+                        if (level != pixels) {
+                            MemoryUtil.memFree(level);
+                        }
+                        level = next;
+                        lw = Math.max(1, lw >> 1);
+                        lh = Math.max(1, lh >> 1);
+                    }
+                }
+                if (level != pixels) {
+                    MemoryUtil.memFree(level);
+                }
+
+                ktxBasisParams params = ktxBasisParams.calloc(stack)
+                        .structSize(ktxBasisParams.SIZEOF)
+                        .uastc(uastc)
+                        .threadCount(Runtime.getRuntime().availableProcessors())
+                        .compressionLevel(KTX_ETC1S_DEFAULT_COMPRESSION_LEVEL)
+                        .qualityLevel(ETC1S_QUALITY);
+                check(ktxTexture2_CompressBasisEx(texture2, params), source);
+                if (uastc) {
+                    // UASTC no lleva supercompresión propia: zstd reduce el archivo
+                    check(ktxTexture2_DeflateZstd(texture2, 18), source);
+                }
+                check(ktxWriteToNamedFile(texture, target.toString()), source);
+            } finally {
+                ktxTexture_Destroy(texture);
+                STBImage.stbi_image_free(pixels);
+            }
+        } finally {
+            MemoryUtil.memFree(file);
+        }
+    }
+
+    // Reduce a la mitad (mínimo 1) promediando bloques de 2x2; bordes impares se repiten
+    private static ByteBuffer downsample(ByteBuffer src, int width, int height) {
+        int nw = Math.max(1, width >> 1);
+        int nh = Math.max(1, height >> 1);
+        ByteBuffer dst = MemoryUtil.memAlloc(nw * nh * 4);
+        for (int y = 0; y < nh; y++) {
+            int y0 = Math.min(y * 2, height - 1);
+            int y1 = Math.min(y * 2 + 1, height - 1);
+            for (int x = 0; x < nw; x++) {
+                int x0 = Math.min(x * 2, width - 1);
+                int x1 = Math.min(x * 2 + 1, width - 1);
+                for (int c = 0; c < 4; c++) {
+                    int sum = (src.get((y0 * width + x0) * 4 + c) & 0xFF)
+                            + (src.get((y0 * width + x1) * 4 + c) & 0xFF)
+                            + (src.get((y1 * width + x0) * 4 + c) & 0xFF)
+                            + (src.get((y1 * width + x1) * 4 + c) & 0xFF);
+                    dst.put((y * nw + x) * 4 + c, (byte) ((sum + 2) >> 2));
+                }
+            }
+        }
+        return dst;
+    }
+
+    private static void check(int result, Path source) throws IOException {
+        if (result != KTX_SUCCESS) {
+            throw new IOException("Error KTX (" + ktxErrorString(result) + ") convirtiendo " + source);
+        }
+    }
+}
@@ -0,0 +1,222 @@
+package main;
+
+import org.lwjgl.PointerBuffer;
+import org.lwjgl.opengl.GLCapabilities;
+import org.lwjgl.system.MemoryStack;
+import org.lwjgl.system.MemoryUtil;
+import org.lwjgl.util.ktx.ktxTexture;
+import org.lwjgl.util.ktx.ktxTexture2;
+
+import java.nio.ByteBuffer;
+
+import static org.lwjgl.opengl.EXTTextureCompressionS3TC.GL_COMPRESSED_RGBA_S3TC_DXT5_EXT;
+import static org.lwjgl.opengl.GL11.*;
+import static org.lwjgl.opengl.GL12.GL_TEXTURE_MAX_LEVEL;
+import static org.lwjgl.opengl.GL12.nglTexSubImage3D;
+import static org.lwjgl.opengl.GL13.nglCompressedTexImage2D;
+import static org.lwjgl.opengl.GL13.nglCompressedTexSubImage3D;
+import static org.lwjgl.opengl.GL30.GL_TEXTURE_2D_ARRAY;
+import static org.lwjgl.opengl.GL30.glGenerateMipmap;
+import static org.lwjgl.opengl.GL42.GL_COMPRESSED_RGBA_BPTC_UNORM;
+import static org.lwjgl.opengl.GL43.GL_COMPRESSED_RGBA8_ETC2_EAC;
+import static org.lwjgl.util.ktx.KTX.*;
+
+// Textura KTX2 ya lista para subir: si el archivo es Basis Universal se transcodifica al
+// formato comprimido por bloques que soporte el driver (BC7 > BC3 > ETC2 > RGBA8) y se
+// copian todos los niveles de mipmap del archivo a un único buffer nativo.
+// decode() no usa OpenGL (se puede llamar desde un hilo de fondo); upload() sí.
+public final class KtxImage {
+
+    // VK_FORMAT_R8G8B8A8_UNORM / _SRGB: los únicos formatos sin Basis que se aceptan
+    private static final int VK_FORMAT_R8G8B8A8_UNORM = 37;
+    private static final int VK_FORMAT_R8G8B8A8_SRGB = 43;
+
+    private final int width;
+    private final int height;
+    private final int glInternalFormat;
+    private final boolean compressed;
+    private final int levels;
+    private final long[] offsets;
+    private final long[] sizes;
+    private final long sizeBytes;
+    // Niveles concatenados (memAlloc): liberar con free()
+    private ByteBuffer data;
+
+    private KtxImage(int width, int height, int glInternalFormat, boolean compressed,
+                     long[] offsets, long[] sizes, ByteBuffer data) {
+        this.width = width;
+        this.height = height;
+        this.glInternalFormat = glInternalFormat;
+        this.compressed = compressed;
+        this.levels = offsets.length;
+        this.offsets = offsets;
+        this.sizes = sizes;
+        this.sizeBytes = data.remaining();
+        this.data = data;
+    }
+
+    // Formato de transcodificación según las extensiones del contexto (hilo de OpenGL)
+    public static int chooseTranscodeFormat(GLCapabilities caps) {
+        if (caps.GL_ARB_texture_compression_bptc) {
+            return KTX_TTF_BC7_RGBA;
+        }
+        if (caps.GL_EXT_texture_compression_s3tc) {
+            return KTX_TTF_BC3_RGBA;
+        }
+        if (caps.OpenGL43 || caps.GL_ARB_ES3_compatibility) {
+            return KTX_TTF_ETC2_RGBA;
+        }
+        return KTX_TTF_RGBA32;
+    }
+
+    private static int glFormatFor(int transcodeFormat) {
+        return switch (transcodeFormat) {
+            case KTX_TTF_BC7_RGBA -> GL_COMPRESSED_RGBA_BPTC_UNORM;
+            case KTX_TTF_BC3_RGBA -> GL_COMPRESSED_RGBA_S3TC_DXT5_EXT;
+            case KTX_TTF_ETC2_RGBA -> GL_COMPRESSED_RGBA8_ETC2_EAC;
+            default -> GL_RGBA8;
+        };
+    }
+
+    // file: contenido completo del .ktx2
+    public static KtxImage decode(ByteBuffer file, int transcodeFormat, String name) {
+        try (MemoryStack stack = MemoryStack.stackPush()) {
+            PointerBuffer out = stack.mallocPointer(1);
+            check(ktxTexture2_CreateFromMemory(file, KTX_TEXTURE_CREATE_LOAD_IMAGE_DATA_BIT, out), name);
+            ktxTexture2 texture2 = ktxTexture2.create(out.get(0));
+            ktxTexture texture = ktxTexture.create(out.get(0));
+            try {
+                int glFormat;
+                boolean compressed;
+                if (ktxTexture2_NeedsTranscoding(texture2)) {
+                    check(ktxTexture2_TranscodeBasis(texture2, transcodeFormat, 0), name);
+                    glFormat = glFormatFor(transcodeFormat);
+                    compressed = transcodeFormat != KTX_TTF_RGBA32;
+                } else if (texture2.vkFormat() == VK_FORMAT_R8G8B8A8_UNORM
+                        || texture2.vkFormat() == VK_FORMAT_R8G8B8A8_SRGB) {
+                    glFormat = GL_RGBA8;
+                    compressed = false;
+                } else {
+                    throw new RuntimeException("Formato KTX2 no soportado (vkFormat " + texture2.vkFormat() + "): " + name);
+                }
+
+                int levels = texture2.numLevels();
+                long[] offsets = new long[levels];
+                long[] sizes = new long[levels];
+                long total = 0;
+                PointerBuffer offset = stack.mallocPointer(1);
+                for (int level = 0; level < levels; level++) {
+                    check(ktxTexture_GetImageOffset(texture, level, 0, 0, offset), name);
+                    offsets[level] = offset.get(0);
+                    sizes[level] = ktxTexture_GetImageSize(texture, level);
+                    total += sizes[level];
+                }
+
+                // Copia compacta: nivel 0 primero, sin depender del orden interno de KTX2
+                ByteBuffer data = MemoryUtil.memAlloc((int) total);
+                long source = MemoryUtil.memAddress(texture2.pData());
+                long cursor = 0;
+                for (int level = 0; level < levels; level++) {
+                    MemoryUtil.memCopy(source + offsets[level], MemoryUtil.memAddress(data) + cursor, sizes[level]);
+                    offsets[level] = cursor;
+                    cursor += sizes[level];
+                }
+                return new KtxImage(texture2.baseWidth(), texture2.baseHeight(), glFormat, compressed,
+                        offsets, sizes, data);
+            } finally {
+                ktxTexture_Destroy(texture);
+            }
+        }
+    }
+
+    private static void check(int result, String name) {
+        if (result != KTX_SUCCESS) {
+            throw new RuntimeException("Error KTX (" + ktxErrorString(result) + "): " + name);
+        }
+    }
+
+    // Sube todos los niveles a la textura ligada en GL_TEXTURE_2D. Con un
+    // GL_PIXEL_UNPACK_BUFFER ligado que contiene getData(), base es el desplazamiento
+    // dentro del PBO; sin PBO, base es memAddress(getData()).
+    public void upload(long base, boolean mipmaps) {
+        for (int level = 0; level < levels; level++) {
+            int w = Math.max(1, width >> level);
+            int h = Math.max(1, height >> level);
+            long address = base + offsets[level];
+            if (compressed) {
+                nglCompressedTexImage2D(GL_TEXTURE_2D, level, glInternalFormat, w, h, 0, (int) sizes[level], address);
+            } else {
+                nglTexImage2D(GL_TEXTURE_2D, level, glInternalFormat, w, h, 0, GL_RGBA, GL_UNSIGNED_BYTE, address);
+            }
+        }
+        if (mipmaps && levels == 1 && !compressed) {
+            // Archivo sin cadena de mipmaps: se generan como con PNG
+            glGenerateMipmap(GL_TEXTURE_2D);
+        } else {
+            // Limitar al número de niveles presentes para que la textura esté completa
+            glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_MAX_LEVEL, mipmaps ? levels - 1 : 0);
+        }
+    }
+
+    public void upload(boolean mipmaps) {
+        upload(MemoryUtil.memAddress(data), mipmaps);
+    }
+
+    // Sube todos los niveles como la capa layer de la textura ligada en
+    // GL_TEXTURE_2D_ARRAY, ya reservada con el mismo formato, tamaño y niveles
+    public void uploadLayer(int layer) {
+        long base = MemoryUtil.memAddress(data);
+        for (int level = 0; level < levels; level++) {
+            int w = Math.max(1, width >> level);
+            int h = Math.max(1, height >> level);
+            long address = base + offsets[level];
+            if (compressed) {
+                nglCompressedTexSubImage3D(GL_TEXTURE_2D_ARRAY, level, 0, 0, layer, w, h, 1,
+                        glInternalFormat, (int) sizes[level], address);
+            } else {
+                nglTexSubImage3D(GL_TEXTURE_2D_ARRAY, level, 0, 0, layer, w, h, 1, GL_RGBA, GL_UNSIGNED_BYTE, address);
+            }
+        }
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public int getGlInternalFormat() {
+        return glInternalFormat;
+    }
+
+    public int getLevels() {
+        return levels;
+    }
+
+    // Bytes de un nivel de mipmap
+    public int getLevelSize(int level) {
+        return (int) sizes[level];
+    }
+
+    public boolean isCompressed() {
+        return compressed;
+    }
+
+    public ByteBuffer getData() {
+        return data;
+    }
+
+    // Bytes en VRAM: exactamente los niveles subidos (sigue siendo válido tras free())
+    public long getSizeBytes() {
+        return sizeBytes;
+    }
+
+    public void free() {
+        if (data != null) {
+            MemoryUtil.memFree(data);
+            data = null;
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package main;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+// Benchmark del generador de niveles solo en CPU (no abre ventana ni contexto OpenGL).
+// Mide el tiempo de generación por tamaño de mapa y número de hilos y comprueba que el
+// resultado es idéntico bit a bit con cualquier número de hilos. Sale con código 1 si no.
+// mvn exec:java -Dexec.mainClass=main.LevelBenchmark
+public class LevelBenchmark {
+
+    private static final int[] SIZES = {256, 1024, 2048, 4096};
+    private static final long SEED = 1337L;
+    private static final int WARMUP_RUNS = 2;
+    private static final int MEASURED_RUNS = 3;
+
+    public static void main(String[] args) {
+        int cores = Runtime.getRuntime().availableProcessors();
+        int[] threads = threadCounts(cores);
+        LevelGenerator generator = new LevelGenerator(SEED);
+
+        System.out.printf("%d núcleos, regiones de %d celdas%n", cores, generator.getRegionSize());
+        System.out.printf("%10s  %7s  %10s  %10s  %8s  %16s%n",
+                "celdas", "hilos", "ms", "speedup", "paredes", "hash");
+
+        boolean ok = true;
+        for (int size : SIZES) {
+            long expectedHash = 0;
+            double baseMillis = 0;
+            for (int i = 0; i < threads.length; i++) {
+                ForkJoinPool pool = new ForkJoinPool(threads[i]);
+                try {
+                    for (int w = 0; w < WARMUP_RUNS; w++) {
+                        generator.generate(size, size, pool);
+                    }
+                    List<WallSegment> walls = null;
+                    long nanos = 0;
+                    for (int r = 0; r < MEASURED_RUNS; r++) {
+                        long t0 = System.nanoTime();
+                        walls = generator.generate(size, size, pool);
+                        nanos += System.nanoTime() - t0;
+                    }
+                    double millis = nanos / 1e6 / MEASURED_RUNS;
+                    long hash = hash(walls);
+                    if (i == 0) {
+                        expectedHash = hash;
+                        baseMillis = millis;
+                    } else if (hash != expectedHash) {
+                        ok = false;
+                    }
+                    System.out.printf("%10s  %7d  %10.2f  %9.2fx  %8d  %016x%n",
+                            size + "x" + size, threads[i], millis, baseMillis / millis, walls.size(), hash);
+                } finally {
+                    pool.shutdown();
+                }
+            }
+        }
+
+        System.out.println(ok ? "OK" : "FALLO: el resultado depende del número de hilos");
+        if (!ok) {
+            System.exit(1);
+        }
+    }
+
+    // 1, 2, 4, ... hasta max(8, núcleos): con menos núcleos que hilos no hay speedup,
+    // pero sigue sirviendo para comprobar que el resultado no cambia
+    private static int[] threadCounts(int cores) {
+        int limit = Math.max(8, cores);
+        int n = 0;
+        for (int t = 1; t <= limit; t *= 2) {
+            n++;
+        }
+        int[] counts = new int[n];
+        for (int i = 0, t = 1; i < n; i++, t *= 2) {
+            counts[i] = t;
+        }
+        return counts;
+    }
+
+    // Hash de los bits de todas las paredes en orden: cualquier diferencia lo cambia
+    private static long hash(List<WallSegment> walls) {
+        long h = 0x9E3779B97F4A7C15L;
+        for (WallSegment wall : walls) {
+            h = BackroomsGenerator.mix(h ^ Float.floatToRawIntBits(wall.x));
+            h = BackroomsGenerator.mix(h ^ Float.floatToRawIntBits(wall.y));
+            h = BackroomsGenerator.mix(h ^ Float.floatToRawIntBits(wall.z));
+            h = BackroomsGenerator.mix(h ^ Float.floatToRawIntBits(wall.width));
+            h = BackroomsGenerator.mix(h ^ Float.floatToRawIntBits(wall.height));
+            h = BackroomsGenerator.mix(h ^ Float.floatToRawIntBits(wall.yaw));
+        }
+        return h;
+    }
+}
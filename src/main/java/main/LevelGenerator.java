@@ -0,0 +1,248 @@
+package main;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+// Generador de niveles de habitaciones y pasillos (backrooms) para un mapa finito de
+// width x depth celdas. El mapa se divide en regiones cuadradas que se procesan en
+// paralelo con fork-join en dos fases:
+//   1. Excavar: cada región coloca sus habitaciones y pasillos con su propio generador
+//      aleatorio (semilla derivada de la semilla global y de la región) y solo escribe
+//      sus celdas. Las puertas entre regiones vecinas salen de un hash de la arista
+//      compartida, así ambas regiones las calculan igual sin comunicarse.
+//   2. Paredes: cada región emite una pared por cada arista entre celda abierta y
+//      cerrada que le pertenece (sur y oeste de cada celda, como BackroomsGenerator).
+// Las paredes de cada región se concatenan en orden de región, por lo que el resultado
+// es idéntico bit a bit con cualquier número de hilos.
+public class LevelGenerator {
+
+    public static final int DEFAULT_REGION_SIZE = 32;
+
+    private static final float YAW_ALONG_Z = (float) (Math.PI / 2);
+
+    private final long seed;
+    private final int regionSize;
+
+    public LevelGenerator(long seed) {
+        this(seed, DEFAULT_REGION_SIZE);
+    }
+
+    public LevelGenerator(long seed, int regionSize) {
+        if (regionSize < 12) {
+            throw new IllegalArgumentException("regionSize debe ser >= 12");
+        }
+        this.seed = seed;
+        this.regionSize = regionSize;
+    }
+
+    // Genera con el pool común de fork-join
+    public List<WallSegment> generate(int width, int depth) {
+        return generate(width, depth, ForkJoinPool.commonPool());
+    }
+
+    public List<WallSegment> generate(int width, int depth, ForkJoinPool pool) {
+        if (width <= 0 || depth <= 0) {
+            throw new IllegalArgumentException("Tamaño de mapa inválido: " + width + "x" + depth);
+        }
+        Grid grid = new Grid(width, depth);
+        pool.invoke(new RegionTask(grid, 0, grid.regionCount, true));
+        pool.invoke(new RegionTask(grid, 0, grid.regionCount, false));
+
+        int total = 0;
+        for (List<WallSegment> walls : grid.walls) {
+            total += walls.size();
+        }
+        List<WallSegment> out = new ArrayList<>(total);
+        for (List<WallSegment> walls : grid.walls) {
+            out.addAll(walls);
+        }
+        return out;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public int getRegionSize() {
+        return regionSize;
+    }
+
+    // Estado de una generación: rejilla de celdas abiertas y paredes por región
+    private final class Grid {
+        final int width;
+        final int depth;
+        final int regionsX;
+        final int regionsZ;
+        final int regionCount;
+        // 1 = celda abierta (suelo). Cada región escribe solo sus celdas en la fase 1
+        final byte[] open;
+        final List<List<WallSegment>> walls;
+
+        Grid(int width, int depth) {
+            this.width = width;
+            this.depth = depth;
+            this.regionsX = (width + regionSize - 1) / regionSize;
+            this.regionsZ = (depth + regionSize - 1) / regionSize;
+            this.regionCount = regionsX * regionsZ;
+            this.open = new byte[width * depth];
+            this.walls = new ArrayList<>(regionCount);
+            for (int i = 0; i < regionCount; i++) {
+                walls.add(null);
+            }
+        }
+
+        boolean isOpen(int x, int z) {
+            return x >= 0 && z >= 0 && x < width && z < depth && open[z * width + x] != 0;
+        }
+    }
+
+    // Divide el rango de regiones por la mitad hasta quedarse con una
+    private final class RegionTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        // Las tareas nunca se serializan; solo viven dentro del ForkJoinPool
+        private final transient Grid grid;
+        private final int from;
+        private final int to;
+        private final boolean carve;
+
+        RegionTask(Grid grid, int from, int to, boolean carve) {
+            this.grid = grid;
+            this.from = from;
+            this.to = to;
+            this.carve = carve;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from == 1) {
+                int rx = from % grid.regionsX;
+                int rz = from / grid.regionsX;
+                if (carve) {
+                    carveRegion(grid, rx, rz);
+                } else {
+                    grid.walls.set(from, emitWalls(grid, rx, rz));
+                }
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new RegionTask(grid, from, mid, carve), new RegionTask(grid, mid, to, carve));
+        }
+    }
+
+    // ---- Fase 1: habitaciones y pasillos ----
+
+    private void carveRegion(Grid grid, int rx, int rz) {
+        int x0 = rx * regionSize;
+        int z0 = rz * regionSize;
+        int x1 = Math.min(x0 + regionSize, grid.width);
+        int z1 = Math.min(z0 + regionSize, grid.depth);
+        int w = x1 - x0;
+        int d = z1 - z0;
+        SplittableRandom random = new SplittableRandom(BackroomsGenerator.mix(seed
+                ^ (rx * 0x9E3779B97F4A7C15L) ^ (rz * 0xC2B2AE3D27D4EB4FL)));
+
+        // Habitaciones: rectángulos con un margen de una celda al borde de la región
+        int rooms = 2 + random.nextInt(4);
+        int[] centers = new int[rooms * 2];
+        for (int r = 0; r < rooms; r++) {
+            int rw = Math.min(3 + random.nextInt(8), Math.max(1, w - 2));
+            int rd = Math.min(3 + random.nextInt(8), Math.max(1, d - 2));
+            int px = x0 + 1 + random.nextInt(Math.max(1, w - rw - 1));
+            int pz = z0 + 1 + random.nextInt(Math.max(1, d - rd - 1));
+            fill(grid, px, pz, px + rw, pz + rd, x0, z0, x1, z1);
+            centers[r * 2] = px + rw / 2;
+            centers[r * 2 + 1] = pz + rd / 2;
+        }
+
+        // Pasillos entre habitaciones consecutivas
+        for (int r = 1; r < rooms; r++) {
+            corridor(grid, random, centers[r * 2 - 2], centers[r * 2 - 1], centers[r * 2], centers[r * 2 + 1],
+                    x0, z0, x1, z1);
+        }
+
+        // Puertas hacia las cuatro regiones vecinas (si existen), unidas a la primera habitación
+        int cx = centers[0];
+        int cz = centers[1];
+        if (rx > 0) {
+            corridor(grid, random, cx, cz, x0, z0 + door(rx - 1, rz, 0, d), x0, z0, x1, z1);
+        }
+        if (rx < grid.regionsX - 1) {
+            corridor(grid, random, cx, cz, x1 - 1, z0 + door(rx, rz, 0, d), x0, z0, x1, z1);
+        }
+        if (rz > 0) {
+            corridor(grid, random, cx, cz, x0 + door(rx, rz - 1, 1, w), z0, x0, z0, x1, z1);
+        }
+        if (rz < grid.regionsZ - 1) {
+            corridor(grid, random, cx, cz, x0 + door(rx, rz, 1, w), z1 - 1, x0, z0, x1, z1);
+        }
+    }
+
+    // Posición de la puerta en la arista este (axis 0) o norte (axis 1) de la región (rx, rz).
+    // length es el lado de la región vecina que comparte la arista; las dos regiones lo ven igual
+    private int door(int rx, int rz, int axis, int length) {
+        long h = BackroomsGenerator.mix(seed ^ (rx * 0xD6E8FEB86659FD93L) ^ (rz * 0xA0761D6478BD642FL) ^ (axis + 1L));
+        return 1 + (int) Long.remainderUnsigned(h, Math.max(1, length - 2));
+    }
+
+    // Pasillo en L de (ax, az) a (bx, bz), recortado a la región
+    private static void corridor(Grid grid, SplittableRandom random, int ax, int az, int bx, int bz,
+                                 int x0, int z0, int x1, int z1) {
+        int thickness = 1 + random.nextInt(2);
+        if (random.nextBoolean()) {
+            fill(grid, Math.min(ax, bx), az, Math.max(ax, bx) + 1, az + thickness, x0, z0, x1, z1);
+            fill(grid, bx, Math.min(az, bz), bx + thickness, Math.max(az, bz) + 1, x0, z0, x1, z1);
+        } else {
+            fill(grid, ax, Math.min(az, bz), ax + thickness, Math.max(az, bz) + 1, x0, z0, x1, z1);
+            fill(grid, Math.min(ax, bx), bz, Math.max(ax, bx) + 1, bz + thickness, x0, z0, x1, z1);
+        }
+    }
+
+    // Abre el rectángulo [ax, bx) x [az, bz) sin salirse de la región [x0, x1) x [z0, z1)
+    private static void fill(Grid grid, int ax, int az, int bx, int bz, int x0, int z0, int x1, int z1) {
+        int fromX = Math.max(ax, x0);
+        int toX = Math.min(bx, x1);
+        int fromZ = Math.max(az, z0);
+        int toZ = Math.min(bz, z1);
+        for (int z = fromZ; z < toZ; z++) {
+            int row = z * grid.width;
+            for (int x = fromX; x < toX; x++) {
+                grid.open[row + x] = 1;
+            }
+        }
+    }
+
+    // ---- Fase 2: paredes ----
+
+    private List<WallSegment> emitWalls(Grid grid, int rx, int rz) {
+        int x0 = rx * regionSize;
+        int z0 = rz * regionSize;
+        int x1 = Math.min(x0 + regionSize, grid.width);
+        int z1 = Math.min(z0 + regionSize, grid.depth);
+        // Las regiones del borde norte/este también emiten la arista exterior del mapa
+        int zEnd = z1 == grid.depth ? z1 + 1 : z1;
+        int xEnd = x1 == grid.width ? x1 + 1 : x1;
+        float cell = BackroomsGenerator.CELL_SIZE;
+        float height = BackroomsGenerator.WALL_HEIGHT;
+        float centerY = BackroomsGenerator.FLOOR_Y + height / 2f;
+
+        List<WallSegment> walls = new ArrayList<>();
+        for (int z = z0; z < zEnd; z++) {
+            for (int x = x0; x < xEnd; x++) {
+                boolean here = grid.isOpen(x, z);
+                // Arista sur: entre (x, z - 1) y (x, z)
+                if (x < x1 && here != grid.isOpen(x, z - 1)) {
+                    walls.add(new WallSegment((x + 0.5f) * cell, centerY, z * cell, cell, height, 0f));
+                }
+                // Arista oeste: entre (x - 1, z) y (x, z)
+                if (z < z1 && here != grid.isOpen(x - 1, z)) {
+                    walls.add(new WallSegment(x * cell, centerY, (z + 0.5f) * cell, cell, height, YAW_ALONG_Z));
+                }
+            }
+        }
+        return walls;
+    }
+}
@@ -0,0 +1,82 @@
+package main;
+
+// Elige el LOD de una malla según el error geométrico proyectado en pantalla: el LOD más
+// simple cuyo error, a la distancia de la instancia, no supera thresholdPixels píxeles.
+// La histéresis evita el parpadeo en el límite: para pasar a un LOD más simple su error
+// debe quedar un margen por debajo del umbral, y para volver a uno más detallado el
+// actual debe superarlo con el mismo margen.
+public class LodSelector {
+
+    public static final float DEFAULT_THRESHOLD_PIXELS = 1.0f;
+    public static final float DEFAULT_HYSTERESIS = 0.25f;
+    // Evita dividir por cero con la cámara dentro del objeto (siempre LOD 0)
+    private static final float MIN_DISTANCE = 1e-3f;
+
+    private float thresholdPixels = DEFAULT_THRESHOLD_PIXELS;
+    private float hysteresis = DEFAULT_HYSTERESIS;
+    // Píxeles que ocupa una unidad de mundo a distancia 1
+    private float pixelsPerUnit = 1f;
+
+    // Una vez por frame (o al cambiar el FOV o la ventana)
+    public void setView(float fovY, int screenHeight) {
+        pixelsPerUnit = screenHeight / (2f * (float) Math.tan(fovY * 0.5f));
+    }
+
+    public void setThresholdPixels(float thresholdPixels) {
+        this.thresholdPixels = thresholdPixels;
+    }
+
+    public float getThresholdPixels() {
+        return thresholdPixels;
+    }
+
+    // 0 desactiva la histéresis
+    public void setHysteresis(float hysteresis) {
+        this.hysteresis = hysteresis;
+    }
+
+    public float getHysteresis() {
+        return hysteresis;
+    }
+
+    // Error en píxeles de un error en unidades de mundo visto a distance
+    public float projectedError(float worldError, float distance) {
+        return worldError * pixelsPerUnit / Math.max(distance, MIN_DISTANCE);
+    }
+
+    // scale: escala de la instancia (los errores de MeshData están en unidades del modelo);
+    // current: LOD del frame anterior, o -1 si no había
+    public int select(MeshData mesh, float scale, float distance, int current) {
+        int count = mesh.getLodCount();
+        if (count == 1) {
+            return 0;
+        }
+        float pixelsPerError = scale * pixelsPerUnit / Math.max(distance, MIN_DISTANCE);
+
+        // LOD más simple por debajo del umbral (los errores crecen con el índice)
+        int desired = 0;
+        for (int lod = 1; lod < count; lod++) {
+            if (mesh.getLodError(lod) * pixelsPerError <= thresholdPixels) {
+                desired = lod;
+            }
+        }
+        if (current < 0 || current >= count || desired == current) {
+            return desired;
+        }
+
+        if (desired > current) {
+            // Más simple solo si queda holgadamente por debajo del umbral
+            float limit = thresholdPixels * (1f - hysteresis);
+            while (desired > current && mesh.getLodError(desired) * pixelsPerError > limit) {
+                desired--;
+            }
+            return desired;
+        }
+
+        // Más detallado solo si el actual se pasa del umbral con margen
+        if (mesh.getLodError(current) * pixelsPerError <= thresholdPixels * (1f + hysteresis)) {
+            return current;
+        }
+        return desired;
+    }
+}
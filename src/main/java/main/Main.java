@@ -1,10 +1,15 @@
 package main;
 
+import org.joml.FrustumIntersection;
 import org.joml.Matrix4f;
 import org.joml.Vector3f;
 import static org.lwjgl.glfw.GLFW.*;
 import org.lwjgl.opengl.GL11;
-import org.lwjgl.system.MemoryStack;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 import static org.lwjgl.opengl.GL30.*;
 
@@ -12,28 +17,74 @@ public class Main {
 
     private static Camera camera;
     private static Shader wallShader;
+    private static CameraUniformBuffer cameraUniforms;
     private static Wall wall, wall2;
+    private static WallBatch wallBatch;
+    // Todo lo que se dibuja en el frame pasa por aquí, ordenado por clave
+    private static final RenderQueue renderQueue = new RenderQueue();
+    // Índice espacial de la escena: culling por frustum y picking
+    private static final Bvh<Wall> sceneIndex = new Bvh<>();
+    private static final FrustumIntersection frustum = new FrustumIntersection();
+    // Niveles generados por chunks alrededor de la cámara
+    private static ChunkManager chunkManager;
+    private static final long STREAMING_BUDGET_NANOS = 2_000_000L;
+    // Texturas decodificadas en segundo plano y subidas por PBO (hasta 4 MB por frame)
+    private static AsyncTextureLoader textureLoader;
+    private static final long TEXTURE_BUDGET_BYTES = 4L * 1024 * 1024;
+    // Caché de texturas por ruta con desalojo LRU por encima de 256 MB de VRAM
+    private static TextureManager textureManager;
+    private static final long VRAM_BUDGET_BYTES = 256L * 1024 * 1024;
+    // Papeles pintados de los chunks: capas de un mismo array, un bind para todos
+    private static TextureArrayPool wallpapers;
+
+    // Modelo importado en segundo plano; se sube y se instancia cuando termina
+    private static CompletableFuture<Model> wallModelLoad;
+    private static Model wallModel;
+    private static ModelBatch modelBatch;
+    // Con GL 4.3 las instancias del modelo van por multi-draw indirect en vez de ModelBatch
+    private static StaticMeshBatch staticModels;
+    private static final LodSelector lodSelector = new LodSelector();
+    private static final int MODEL_INSTANCES = 64;
     private static float rotationAngleX = 0;
     private static float rotationAngleY = 0;
     private static float rotationAngleZ = 0;
     private static Vector3f cameraPosition = new Vector3f();
+    // Texto del HUD reutilizado cada frame (sin String.format)
+    private static final CharFormatter axisInfo = new CharFormatter();
+    private static final CharFormatter chunkInfo = new CharFormatter();
+    private static final CharFormatter lodInfo = new CharFormatter();
+    private static final CharFormatter bindInfo = new CharFormatter();
+    private static final CharFormatter indirectInfo = new CharFormatter();
+    private static final CharFormatter glStateInfo = new CharFormatter();
 
     public static void main(String[] args) {
         Window window = new Window(800, 600, "Main");
         window.init();
         camera = new Camera();
+        cameraUniforms = new CameraUniformBuffer();
 
-        TextRender textRenderer = new TextRender("fonts/Roboto-Bold.ttf", 28);
+        TextRender textRenderer = new TextRender("fonts/Roboto-Bold.ttf", 48, true);
         textRenderer.setProjection(window.getWidth(), window.getHeight());
+        // Todo el texto del frame se dibuja en un único flush al final
+        textRenderer.setBatching(true);
+
+        // El título no cambia: se maqueta una vez y sus quads se quedan en la GPU
+        TextLabel titulo = textRenderer.createLabel("Luminal Scape")
+                .setSize(40)
+                .setOutline(2f, 0f, 0f, 0f);
 
-        Button boton = new Button(0.01f, 0.08f, 150, 50, "Presionar", textRenderer);
+        // Fondos de la UI: un solo draw instanciado por frame
+        UiBatch uiBatch = new UiBatch();
+        Button boton = new Button(0.01f, 0.08f, 150, 50, "Presionar", textRenderer, uiBatch);
         boton.updatePosition(window.getWidth(), window.getHeight());
         
-        // Crear shader para la pared
-        wallShader = new Shader("shaders/wall_vertex.glsl", "shaders/wall_fragment.glsl");
+        // Crear shader para las paredes (camino instanciado, ver WallBatch)
+        wallShader = new Shader("shaders/wall_instanced_vertex.glsl", "shaders/wall_instanced_fragment.glsl");
 
         // Cargar textura y crear pared
-        int wallTexture = TextureLoader.loadTexture("textures/backWall.png");
+        textureLoader = new AsyncTextureLoader();
+        textureManager = new TextureManager(textureLoader, VRAM_BUDGET_BYTES);
+        int wallTexture = textureManager.acquire("textures/backWall.png").getTextureID();
         wall = new Wall(10.0f, 5.0f, wallTexture, false);
         wall2 = new Wall(10.0f, 5.0f, wallTexture, false);
 
@@ -42,8 +93,24 @@ public class Main {
         
         // Rotación inicial de la segunda pared (90 grados en X)
         wall2.setRotation((float)Math.toRadians(90), 1.0f, 0.0f, 0.0f);
+
+        // Todas las paredes con la misma textura se dibujan en un solo draw
+        wallBatch = new WallBatch();
+        wallBatch.setTextureManager(textureManager);
+        wallBatch.add(wall);
+        wallBatch.add(wall2);
+        wall.setSpatialIndex(sceneIndex);
+        wall2.setSpatialIndex(sceneIndex);
+
+        chunkManager = new ChunkManager(16f, 3, new BackroomsGenerator(1337L),
+                wallBatch, sceneIndex, wallTexture);
+        wallpapers = new TextureArrayPool();
+        wallpapers.setTextureManager(textureManager);
+        chunkManager.setWallMaterials(createWallpapers());
+
+        wallModelLoad = Import3D.loadAsync("models/backrooms-wall.glb");
         
-        GL11.glEnable(GL11.GL_DEPTH_TEST);
+        GLState.enable(GL11.GL_DEPTH_TEST);
 
         window.setOnResizeCallback((w, h) -> {
             textRenderer.setProjection(w, h);
@@ -109,58 +176,170 @@ public class Main {
                 wall.setRotation(0, 0, 0, 0);
             }
 
-            // Configurar transformaciones para la pared
-            try (MemoryStack stack = MemoryStack.stackPush()) {
-                Matrix4f projection = new Matrix4f()
-                        .perspective(
-                                (float) Math.toRadians(45.0f),
-                                (float) window.getWidth() / window.getHeight(),
-                                0.1f,
-                                100.0f
-                        );
+            // Datos de cámara compartidos por todos los shaders (una subida por frame)
+            cameraUniforms.update(camera, window.getWidth(), window.getHeight(), (float) window.getTime());
 
-                Matrix4f view = camera.getViewMatrix();
+            // Subir las texturas ya decodificadas
+            textureLoader.update(TEXTURE_BUDGET_BYTES);
+            textureManager.update();
 
-                // Dibujar paredes
-                wallShader.use();
-                wallShader.setMat4("projection", projection);
-                wallShader.setMat4("view", view);
-                wall.render(wallShader);
-                wall2.render(wallShader);
-            }
+            // Cargar/descargar chunks alrededor de la cámara (subidas limitadas a ~2 ms)
+            chunkManager.update(camera.getPosition(), STREAMING_BUDGET_NANOS);
+
+            // Solo las paredes dentro del frustum de la cámara
+            frustum.set(cameraUniforms.getViewProjection());
+            wallBatch.cull(sceneIndex, frustum);
+            wallBatch.submit(renderQueue, wallShader, camera.getPosition(), camera.getFarPlane());
 
-            // Deshabilitar profundidad para elementos 2D
-            GL11.glDisable(GL11.GL_DEPTH_TEST);
+            // Instancias del modelo importado, con LOD según su tamaño en pantalla
+            if (wallModelLoad != null && wallModelLoad.isDone()) {
+                createModelBatch();
+            }
+            lodSelector.setView(camera.getFov(), window.getHeight());
+            if (staticModels != null) {
+                staticModels.submit(renderQueue, wallShader, camera.getPosition(), lodSelector, frustum, camera.getFarPlane());
+            }
+            if (modelBatch != null) {
+                modelBatch.submit(renderQueue, wallShader, camera.getPosition(), lodSelector, camera.getFarPlane());
+            }
 
             // Obtener posición de la cámara
               cameraPosition.set(camera.getPosition());
 
             // Renderizar información de ejes
-            String axisInfo = String.format(
-                "Posición: X:%.2f Y:%.2f Z:%.2f",
-                Math.toDegrees(rotationAngleX),
-                Math.toDegrees(rotationAngleY),
-                Math.toDegrees(rotationAngleZ),
-                cameraPosition.x,
-                cameraPosition.y,
-                cameraPosition.z
-            );
+            axisInfo.clear()
+                .append("Posición: X:").append(Math.toDegrees(rotationAngleX), 2)
+                .append(" Y:").append(Math.toDegrees(rotationAngleY), 2)
+                .append(" Z:").append(Math.toDegrees(rotationAngleZ), 2);
             
        
             // Renderizar textos
-            textRenderer.rendererRelativo("Luminal Scape", 0.01f, 0.95f, 0.1f, 1f, 1f);
-            textRenderer.rendererRelativo(axisInfo, 0.01f, 0.85f, 0.05f, 1f, 1f);
+            titulo.setPosition(0.01f * window.getWidth(), 0.95f * window.getHeight());
+            titulo.submit(renderQueue, 0);
+            textRenderer.setSize(20);
+            textRenderer.rendererRelativo(axisInfo, 0.01f, 0.85f, 1f, 1f, 1f);
+            chunkInfo.clear()
+                .append("Chunks: cola ").append(chunkManager.getChunkCount(ChunkState.QUEUED))
+                .append(" gen ").append(chunkManager.getChunkCount(ChunkState.BUILDING))
+                .append(" res ").append(chunkManager.getChunkCount(ChunkState.RESIDENT))
+                .append(" desc ").append(chunkManager.getEvictedTotal())
+                .append(" pico ").append(chunkManager.getPeakUpdateNanos() / 1e6, 2).append(" ms");
+            textRenderer.rendererRelativo(chunkInfo, 0.01f, 0.80f, 1f, 1f, 1f);
+            if (modelBatch != null) {
+                lodInfo.clear().append("LOD tris:");
+                for (int lod = 0; lod < modelBatch.getLodBandCount(); lod++) {
+                    lodInfo.append(" ").append(lod).append(":").append(modelBatch.getTriangles(lod));
+                }
+                lodInfo.append(" de ").append(modelBatch.getFullDetailTriangles());
+                textRenderer.rendererRelativo(lodInfo, 0.01f, 0.75f, 1f, 1f, 1f);
+            }
+            if (staticModels != null) {
+                indirectInfo.clear()
+                    .append("MDI: ").append(staticModels.getVisibleObjects())
+                    .append("/").append(staticModels.getObjectCount()).append(" objetos en ")
+                    .append(staticModels.getDrawCalls()).append(" llamadas, ")
+                    .append(staticModels.getCommandsPatched()).append(" comandos parcheados, tris ")
+                    .append(staticModels.getTriangles(0));
+                for (int lod = 1; lod < staticModels.getLodBandCount(); lod++) {
+                    indirectInfo.append("/").append(staticModels.getTriangles(lod));
+                }
+                textRenderer.rendererRelativo(indirectInfo, 0.01f, 0.75f, 1f, 1f, 1f);
+            }
+            bindInfo.clear()
+                .append("Binds de textura: ").append(wallBatch.getTextureBinds())
+                .append(" (ahorrados ").append(wallBatch.getTextureBindsSaved()).append(")");
+            textRenderer.rendererRelativo(bindInfo, 0.01f, 0.70f, 1f, 1f, 1f);
+            // Los binds son del flush del frame anterior (la cola se vacía al final)
+            wallBatch.resetStats();
+            glStateInfo.clear()
+                .append("Estado GL: ").append(GLState.getIssued())
+                .append(" llamadas, ").append(GLState.getElided()).append(" evitadas");
+            textRenderer.rendererRelativo(glStateInfo, 0.01f, 0.65f, 1f, 1f, 1f);
             
-            boton.draw(window.getWidth(), window.getHeight());
+            textRenderer.setSize(28);
+            boton.draw();
+            // Fondos de la interfaz y después el texto, sobre la escena
+            uiBatch.submit(renderQueue, 1);
+            textRenderer.submit(renderQueue, 2);
 
-            // Restaurar prueba de profundidad
-            GL11.glEnable(GL11.GL_DEPTH_TEST);
+            // Escena (opacos de delante a atrás por shader y material) y overlay
+            renderQueue.flush();
         });
 
         // Limpieza de recursos
+        if (modelBatch != null) {
+            modelBatch.cleanup();
+        }
+        if (staticModels != null) {
+            staticModels.cleanup();
+        }
+        if (wallModel != null) {
+            wallModel.cleanup();
+        }
         wall.cleanup();
         wall2.cleanup();
+        chunkManager.cleanup();
+        textureLoader.cleanup();
+        textureManager.cleanup();
+        wallBatch.cleanup();
+        wallpapers.cleanup();
         wallShader.cleanup();
+        titulo.cleanup();
+        uiBatch.cleanup();
+        textRenderer.cleanup();
+        cameraUniforms.cleanup();
         window.cleanup();
     }
-}
\ No newline at end of file
+
+    // Variantes de papel pintado: dos imágenes del mismo tamaño (dos capas del mismo
+    // array) con distintos tintes
+    private static List<Material> createWallpapers() {
+        TextureArrayPool.Layer png = wallpapers.add("textures/backWall.png");
+        TextureArrayPool.Layer jpg = wallpapers.add("textures/backWall.jpg");
+        wallpapers.flush();
+
+        List<Material> materials = new ArrayList<>();
+        materials.add(wallpaper("papel", png, 1.0f, 1.0f, 1.0f));
+        materials.add(wallpaper("papel-gastado", jpg, 1.0f, 1.0f, 1.0f));
+        materials.add(wallpaper("papel-ocre", png, 1.0f, 0.9f, 0.7f));
+        materials.add(wallpaper("papel-verdoso", jpg, 0.85f, 1.0f, 0.8f));
+        return materials;
+    }
+
+    private static Material wallpaper(String name, TextureArrayPool.Layer layer, float r, float g, float b) {
+        Material material = new Material(name, new float[]{r, g, b, 1.0f});
+        material.setTextureLayer(layer);
+        material.setLightingEnabled(false);
+        return material;
+    }
+
+    // Sube el modelo ya importado y lo coloca en una fila a lo largo del pasillo inicial.
+    // Son estáticas: con GL 4.3 van a un StaticMeshBatch, si no al ModelBatch instanciado.
+    private static void createModelBatch() {
+        try {
+            wallModel = wallModelLoad.join();
+            wallModel.upload();
+            boolean indirect = StaticMeshBatch.isSupported();
+            if (indirect) {
+                staticModels = new StaticMeshBatch();
+            } else {
+                modelBatch = new ModelBatch(wallModel);
+            }
+            Matrix4f transform = new Matrix4f();
+            for (int i = 0; i < MODEL_INSTANCES; i++) {
+                transform.translation(8f, BackroomsGenerator.FLOOR_Y, -i * BackroomsGenerator.CELL_SIZE);
+                if (indirect) {
+                    staticModels.add(wallModel, transform);
+                } else {
+                    modelBatch.add(transform);
+                }
+            }
+            if (indirect) {
+                staticModels.build();
+            }
+        } catch (CompletionException e) {
+            System.err.println("No se pudo importar el modelo: " + e.getCause().getMessage());
+        }
+        wallModelLoad = null;
+    }
+}
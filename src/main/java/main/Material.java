@@ -1,7 +1,108 @@
 package main;
 
-import org.lwjgl.openvr.Texture;
-
+// Material de superficie: shader, parámetros (color base, metal/rugosidad, iluminación)
+// y textura de color. Los importados (Import3D) traen la textura como archivo
+// (texturePath, relativa al modelo) o embebida en el GLB (embeddedTexture, índice en
+// Model), y textureID se asigna al subir. Los creados a mano usan una capa de un
+// TextureArrayPool: WallBatch agrupa por (shader, array), así que paredes con distinto
+// material pero el mismo array se dibujan juntas con un solo bind.
 public class Material {
-   
-}
\ No newline at end of file
+
+    private final String name;
+    private final float[] baseColor;
+    private final float metallic;
+    private final float roughness;
+    private final String texturePath;
+    private final int embeddedTexture;
+    private int textureID;
+    private TextureArrayPool.Layer textureLayer;
+    // null: el shader con el que se llama a WallBatch.render
+    private Shader shader;
+    // Nadie sube todavía lightPos/lightColor a los shaders wall_*: iluminado saldría negro
+    private boolean lighting;
+
+    // Material sin textura (se le puede asignar una capa con setTextureLayer)
+    public Material(String name, float[] baseColor) {
+        this(name, baseColor, 0f, 1f, null, -1);
+    }
+
+    public Material(String name, float[] baseColor, float metallic, float roughness,
+                    String texturePath, int embeddedTexture) {
+        this.name = name;
+        this.baseColor = baseColor;
+        this.metallic = metallic;
+        this.roughness = roughness;
+        this.texturePath = texturePath;
+        this.embeddedTexture = embeddedTexture;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    // RGBA lineal
+    public float[] getBaseColor() {
+        return baseColor;
+    }
+
+    public float getMetallic() {
+        return metallic;
+    }
+
+    public float getRoughness() {
+        return roughness;
+    }
+
+    // null si no tiene textura o si es embebida
+    public String getTexturePath() {
+        return texturePath;
+    }
+
+    // -1 si la textura no es embebida
+    public int getEmbeddedTexture() {
+        return embeddedTexture;
+    }
+
+    public boolean hasTexture() {
+        return texturePath != null || embeddedTexture >= 0;
+    }
+
+    public int getTextureID() {
+        return textureID;
+    }
+
+    void setTextureID(int textureID) {
+        this.textureID = textureID;
+    }
+
+    // Con capa, el color base tiñe la textura del array
+    public void setTextureLayer(TextureArrayPool.Layer textureLayer) {
+        this.textureLayer = textureLayer;
+    }
+
+    public TextureArrayPool.Layer getTextureLayer() {
+        return textureLayer;
+    }
+
+    public boolean hasTextureLayer() {
+        return textureLayer != null;
+    }
+
+    // Debe aceptar el formato de instancia de WallBatch (como wall_instanced_*.glsl); sus
+    // uniforms propios los configura quien lo crea
+    public void setShader(Shader shader) {
+        this.shader = shader;
+    }
+
+    public Shader getShader() {
+        return shader;
+    }
+
+    public void setLightingEnabled(boolean lighting) {
+        this.lighting = lighting;
+    }
+
+    public boolean isLightingEnabled() {
+        return lighting;
+    }
+}
@@ -2,55 +2,41 @@ package main;
 
 import org.joml.Matrix4f;
 import org.joml.Vector3f;
-import org.lwjgl.BufferUtils;
-
-import java.nio.FloatBuffer;
-import java.nio.IntBuffer;
+import org.lwjgl.system.MemoryStack;
 
 import static org.lwjgl.opengl.GL30.*;
 
 public class Mesh {
-    private int vao, vbo, ebo;
-    private int vertexCount;
+    // Malla compartida con otros Mesh de los mismos datos
+    private Geometry geometry;
     private int textureID = 0;
     private int shaderProgram;
+    private int locProj, locModel, locTex;
 
     private Matrix4f modelMatrix = new Matrix4f().identity();
 
     public Mesh(float[] vertices, int[] indices, int shaderProgram) {
         this.shaderProgram = shaderProgram;
-        vertexCount = indices.length;
-
-        vao = glGenVertexArrays();
-        vbo = glGenBuffers();
-        ebo = glGenBuffers();
-
-        glBindVertexArray(vao);
-
-        FloatBuffer vertexBuffer = BufferUtils.createFloatBuffer(vertices.length);
-        vertexBuffer.put(vertices).flip();
 
-        glBindBuffer(GL_ARRAY_BUFFER, vbo);
-        glBufferData(GL_ARRAY_BUFFER, vertexBuffer, GL_STATIC_DRAW);
+        // La vista/proyección llega por CameraBlock; "proj" solo en shaders antiguos
+        locProj = glGetUniformLocation(shaderProgram, "proj");
+        locModel = glGetUniformLocation(shaderProgram, "model");
+        locTex = glGetUniformLocation(shaderProgram, "tex");
 
-        IntBuffer indexBuffer = BufferUtils.createIntBuffer(indices.length);
-        indexBuffer.put(indices).flip();
-
-        glBindBuffer(GL_ELEMENT_ARRAY_BUFFER, ebo);
-        glBufferData(GL_ELEMENT_ARRAY_BUFFER, indexBuffer, GL_STATIC_DRAW);
-
-        int stride = 5 * Float.BYTES; // 3 pos + 2 uv
-
-        // Posición (x, y, z)
-        glVertexAttribPointer(0, 3, GL_FLOAT, false, stride, 0);
-        glEnableVertexAttribArray(0);
+        // 3 pos + 2 uv
+        geometry = GeometryRegistry.acquire(VertexLayout.POS3_UV2, vertices, indices);
+    }
 
-        // UV (s, t)
-        glVertexAttribPointer(1, 2, GL_FLOAT, false, stride, 3 * Float.BYTES);
-        glEnableVertexAttribArray(1);
+    // Malla ya en memoria nativa, normalmente compacta (MeshPipeline.build); no se comparte
+    // en el registro y los buffers nativos se liberan tras subirla
+    public Mesh(MeshData data, int shaderProgram) {
+        this.shaderProgram = shaderProgram;
+        locProj = glGetUniformLocation(shaderProgram, "proj");
+        locModel = glGetUniformLocation(shaderProgram, "model");
+        locTex = glGetUniformLocation(shaderProgram, "tex");
 
-        glBindBuffer(GL_ARRAY_BUFFER, 0);
-        glBindVertexArray(0);
+        geometry = data.upload();
+        data.free();
     }
 
     Mesh(float[] vertices, int i) {
@@ -83,33 +69,36 @@ public class Mesh {
         modelMatrix.identity();
     }
 
-    public void render(Matrix4f projection) {
-        glUseProgram(shaderProgram);
-        glBindVertexArray(vao);
+    // Para shaders que leen la cámara desde CameraBlock
+    public void render() {
+        render(null);
+    }
 
-        int locProj = glGetUniformLocation(shaderProgram, "proj");
-        int locModel = glGetUniformLocation(shaderProgram, "model");
+    public void render(Matrix4f projection) {
+        GLState.useProgram(shaderProgram);
 
-        glUniformMatrix4fv(locProj, false, projection.get(new float[16]));
-        glUniformMatrix4fv(locModel, false, modelMatrix.get(new float[16]));
+        try (MemoryStack stack = MemoryStack.stackPush()) {
+            if (projection != null && locProj != -1) {
+                glUniformMatrix4fv(locProj, false, projection.get(stack.mallocFloat(16)));
+            }
+            glUniformMatrix4fv(locModel, false, modelMatrix.get(stack.mallocFloat(16)));
+        }
 
         if (textureID != 0) {
-            glActiveTexture(GL_TEXTURE0);
-            glBindTexture(GL_TEXTURE_2D, textureID);
-            glUniform1i(glGetUniformLocation(shaderProgram, "tex"), 0);
+            GLState.activeTexture(GL_TEXTURE0);
+            GLState.bindTexture(GL_TEXTURE_2D, textureID);
+            glUniform1i(locTex, 0);
         }
 
-        glDrawElements(GL_TRIANGLES, vertexCount, GL_UNSIGNED_INT, 0);
-
-        glBindVertexArray(0);
-        glUseProgram(0);
+        geometry.draw();
     }
 
 
 
     public void cleanup() {
-        glDeleteBuffers(vbo);
-        glDeleteBuffers(ebo);
-        glDeleteVertexArrays(vao);
+        if (geometry != null) {
+            geometry.release();
+            geometry = null;
+        }
     }
 }
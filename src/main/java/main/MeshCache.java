@@ -0,0 +1,448 @@
+package main;
+
+import org.joml.Matrix4f;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.lwjgl.util.xxhash.XXHash.XXH3_64bits_withSeed;
+
+// Caché binaria de modelos ya procesados por Import3D (tras MeshPipeline), para no pasar
+// por Assimp en cada arranque. La clave es xxh3 del archivo original con los ajustes de
+// importación como semilla; el archivo se llama <clave>.lsmc dentro de getDirectory().
+// Formato (little endian; los blobs se copian tal cual de memoria nativa):
+//   cabecera : magic "LSMC", versión, clave, tamaño de los metadatos, nº de mallas,
+//              materiales y texturas
+//   metadatos: por malla nombre, material, tipo de índice, VertexLayout, AABB, rangos y
+//              errores de sus LOD y la posición de sus blobs; materiales; tamaño y posición de cada textura
+//              embebida (RGBA8 ya decodificado); jerarquía de nodos en preorden
+//   datos    : blobs de vértices, índices y píxeles alineados a DATA_ALIGNMENT
+// Al leer se mapea el archivo y las mallas y texturas son vistas del mapeo, así que
+// Model.upload() las envía a la GPU sin copiarlas.
+public final class MeshCache {
+
+    static final int MAGIC = 0x434D534C; // "LSMC"
+    // Subir al cambiar el formato o cualquier paso de Import3D/MeshPipeline que altere el resultado
+    static final int VERSION = 2;
+    static final int HEADER_BYTES = 32;
+    static final int DATA_ALIGNMENT = 16;
+    public static final String DEFAULT_DIRECTORY = "cache/models";
+    private static final String EXTENSION = ".lsmc";
+
+    private static volatile Path directory = Paths.get(DEFAULT_DIRECTORY);
+
+    private static long hits;
+    private static long misses;
+    private static long writes;
+
+    private MeshCache() {
+    }
+
+    // null desactiva la caché
+    public static void setDirectory(Path dir) {
+        directory = dir;
+    }
+
+    public static Path getDirectory() {
+        return directory;
+    }
+
+    public static long key(ByteBuffer source, int importFlags, boolean optimize, float[] lodErrors) {
+        long settings = ((long) VERSION << 40) ^ ((long) importFlags << 1) ^ (optimize ? 1L : 0L);
+        for (float error : lodErrors) {
+            settings = BackroomsGenerator.mix(settings ^ Float.floatToRawIntBits(error));
+        }
+        return XXH3_64bits_withSeed(source.duplicate(), settings);
+    }
+
+    static Path fileFor(Path dir, long key) {
+        return dir.resolve(String.format("%016x", key) + EXTENSION);
+    }
+
+    // null si no está en la caché, si está desactivada o si el archivo no es válido
+    public static Model load(String sourcePath, long key) {
+        Path dir = directory;
+        if (dir == null) {
+            return null;
+        }
+        Path file = fileFor(dir, key);
+        if (!Files.isRegularFile(file)) {
+            recordMiss();
+            return null;
+        }
+        try {
+            Model model = read(file, sourcePath, key);
+            recordHit();
+            return model;
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Caché de modelo inválida, se reimporta " + sourcePath + ": " + e.getMessage());
+            recordMiss();
+            return null;
+        }
+    }
+
+    // Hay que llamarlo antes de Model.upload(), que libera los buffers nativos.
+    // Un fallo al escribir solo se avisa: la caché es opcional
+    public static void store(long key, Model model) {
+        Path dir = directory;
+        if (dir == null) {
+            return;
+        }
+        Path temp = null;
+        try {
+            Files.createDirectories(dir);
+            temp = Files.createTempFile(dir, "model", ".tmp");
+            write(temp, key, model);
+            Files.move(temp, fileFor(dir, key), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            recordWrite();
+        } catch (IOException | RuntimeException e) {
+            System.err.println("No se pudo guardar la caché de " + model.getPath() + ": " + e.getMessage());
+            if (temp != null) {
+                try {
+                    Files.deleteIfExists(temp);
+                } catch (IOException ignored) {
+                    // El temporal se queda; no afecta a las lecturas
+                }
+            }
+        }
+    }
+
+    // ---- escritura ----
+
+    private static void write(Path file, long key, Model model) throws IOException {
+        List<ByteBuffer> blobs = new ArrayList<>();
+        long[] cursor = {0L};
+        MetaWriter meta = new MetaWriter();
+
+        List<MeshData> meshes = model.getMeshes();
+        for (MeshData mesh : meshes) {
+            if (mesh.getVertices() == null) {
+                throw new IllegalStateException("La malla ya se subió y no tiene datos en CPU: " + mesh.getName());
+            }
+            meta.putString(mesh.getName());
+            meta.putInt(mesh.getMaterialIndex());
+            meta.putInt(mesh.getIndexType());
+            putLayout(meta, mesh.getLayout());
+            for (float b : mesh.getBounds()) {
+                meta.putFloat(b);
+            }
+            meta.putInt(mesh.getLodCount());
+            for (int lod = 0; lod < mesh.getLodCount(); lod++) {
+                meta.putInt(mesh.getLodFirstIndex(lod));
+                meta.putInt(mesh.getLodIndexCount(lod));
+                meta.putFloat(mesh.getLodError(lod));
+            }
+            putBlob(meta, blobs, cursor, mesh.getVertices());
+            putBlob(meta, blobs, cursor, mesh.getIndices());
+        }
+
+        List<Material> materials = model.getMaterials();
+        for (Material material : materials) {
+            meta.putString(material.getName());
+            for (float c : material.getBaseColor()) {
+                meta.putFloat(c);
+            }
+            meta.putFloat(material.getMetallic());
+            meta.putFloat(material.getRoughness());
+            meta.putString(material.getTexturePath());
+            meta.putInt(material.getEmbeddedTexture());
+        }
+
+        List<Model.EmbeddedTexture> textures = model.getEmbeddedTextures();
+        for (Model.EmbeddedTexture texture : textures) {
+            if (texture.pixels == null) {
+                throw new IllegalStateException("La textura embebida ya se subió: " + model.getPath());
+            }
+            meta.putInt(texture.width);
+            meta.putInt(texture.height);
+            putBlob(meta, blobs, cursor, texture.pixels);
+        }
+
+        putNode(meta, model.getRoot());
+
+        ByteBuffer metaBytes = meta.finish();
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(MAGIC).putInt(VERSION).putLong(key).putInt(metaBytes.remaining())
+                .putInt(meshes.size()).putInt(materials.size()).putInt(textures.size()).flip();
+
+        long dataStart = align(HEADER_BYTES + metaBytes.remaining());
+        try (FileChannel out = FileChannel.open(file, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            writeFully(out, header, 0);
+            writeFully(out, metaBytes, HEADER_BYTES);
+            long position = dataStart;
+            for (ByteBuffer blob : blobs) {
+                writeFully(out, blob, position);
+                position = align(position + blob.capacity());
+            }
+        }
+    }
+
+    // Los blobs se guardan con su offset relativo al inicio de la sección de datos
+    private static void putBlob(MetaWriter meta, List<ByteBuffer> blobs, long[] cursor, ByteBuffer data) {
+        ByteBuffer blob = data.slice();
+        meta.putLong(cursor[0]);
+        meta.putInt(blob.remaining());
+        blobs.add(blob);
+        cursor[0] = align(cursor[0] + blob.remaining());
+    }
+
+    private static void putLayout(MetaWriter meta, VertexLayout layout) {
+        meta.putInt(layout.getStride());
+        meta.putInt(layout.getAttributeCount());
+        for (int i = 0; i < layout.getAttributeCount(); i++) {
+            VertexLayout.Attribute attribute = layout.getAttribute(i);
+            meta.putInt(attribute.location);
+            meta.putInt(attribute.size);
+            meta.putInt(attribute.type);
+            meta.putInt(attribute.normalized ? 1 : 0);
+            meta.putInt(attribute.offset);
+        }
+    }
+
+    private static void putNode(MetaWriter meta, ModelNode node) {
+        meta.putString(node.getName());
+        float[] m = new float[16];
+        node.getLocalTransform().get(m);
+        for (float value : m) {
+            meta.putFloat(value);
+        }
+        int[] meshes = node.getMeshes();
+        meta.putInt(meshes.length);
+        for (int mesh : meshes) {
+            meta.putInt(mesh);
+        }
+        meta.putInt(node.getChildren().size());
+        for (ModelNode child : node.getChildren()) {
+            putNode(meta, child);
+        }
+    }
+
+    private static void writeFully(FileChannel out, ByteBuffer data, long position) throws IOException {
+        while (data.hasRemaining()) {
+            position += out.write(data, position);
+        }
+    }
+
+    private static long align(long value) {
+        return (value + DATA_ALIGNMENT - 1) & -DATA_ALIGNMENT;
+    }
+
+    // ---- lectura ----
+
+    private static Model read(Path file, String sourcePath, long key) throws IOException {
+        MappedByteBuffer mapped;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Caché mayor de 2 GB");
+            }
+            // El mapeo sigue siendo válido tras cerrar el canal
+            mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        mapped.order(ByteOrder.LITTLE_ENDIAN);
+
+        if (mapped.capacity() < HEADER_BYTES || mapped.getInt(0) != MAGIC) {
+            throw new IOException("no es una caché de modelo");
+        }
+        if (mapped.getInt(4) != VERSION || mapped.getLong(8) != key) {
+            throw new IOException("versión o clave distintas");
+        }
+        int metaBytes = mapped.getInt(16);
+        int meshCount = mapped.getInt(20);
+        int materialCount = mapped.getInt(24);
+        int textureCount = mapped.getInt(28);
+        if (metaBytes < 0 || HEADER_BYTES + (long) metaBytes > mapped.capacity()) {
+            throw new IOException("metadatos corruptos");
+        }
+        long dataStart = align(HEADER_BYTES + metaBytes);
+        ByteBuffer meta = mapped.slice(HEADER_BYTES, metaBytes).order(ByteOrder.LITTLE_ENDIAN);
+
+        List<MeshData> meshes = new ArrayList<>(meshCount);
+        for (int i = 0; i < meshCount; i++) {
+            String name = getString(meta);
+            int materialIndex = meta.getInt();
+            int indexType = meta.getInt();
+            VertexLayout layout = getLayout(meta);
+            float[] bounds = new float[6];
+            for (int b = 0; b < 6; b++) {
+                bounds[b] = meta.getFloat();
+            }
+            int lodCount = meta.getInt();
+            if (lodCount < 1) {
+                throw new IOException("malla sin LOD: " + name);
+            }
+            int[] lodFirst = new int[lodCount];
+            int[] lodIndices = new int[lodCount];
+            float[] lodError = new float[lodCount];
+            for (int lod = 0; lod < lodCount; lod++) {
+                lodFirst[lod] = meta.getInt();
+                lodIndices[lod] = meta.getInt();
+                lodError[lod] = meta.getFloat();
+            }
+            ByteBuffer vertices = getBlob(meta, mapped, dataStart);
+            ByteBuffer indices = getBlob(meta, mapped, dataStart);
+            MeshData mesh = new MeshData(name, layout, materialIndex, vertices, indices, indexType, bounds, false);
+            for (int lod = 0; lod < lodCount; lod++) {
+                if (lodFirst[lod] < 0 || lodIndices[lod] < 0 || lodFirst[lod] + lodIndices[lod] > mesh.getIndexCount()) {
+                    throw new IOException("LOD fuera del buffer de índices: " + name);
+                }
+            }
+            mesh.setLods(lodFirst, lodIndices, lodError);
+            meshes.add(mesh);
+        }
+
+        List<Material> materials = new ArrayList<>(materialCount);
+        for (int i = 0; i < materialCount; i++) {
+            String name = getString(meta);
+            float[] baseColor = {meta.getFloat(), meta.getFloat(), meta.getFloat(), meta.getFloat()};
+            float metallic = meta.getFloat();
+            float roughness = meta.getFloat();
+            String texturePath = getString(meta);
+            int embedded = meta.getInt();
+            materials.add(new Material(name, baseColor, metallic, roughness, texturePath, embedded));
+        }
+
+        List<Model.EmbeddedTexture> textures = new ArrayList<>(textureCount);
+        for (int i = 0; i < textureCount; i++) {
+            int width = meta.getInt();
+            int height = meta.getInt();
+            textures.add(new Model.EmbeddedTexture(getBlob(meta, mapped, dataStart), width, height, false));
+        }
+
+        ModelNode root = getNode(meta, null, meshCount);
+        return new Model(sourcePath, meshes, materials, textures, root);
+    }
+
+    private static ByteBuffer getBlob(ByteBuffer meta, MappedByteBuffer mapped, long dataStart) throws IOException {
+        long offset = dataStart + meta.getLong();
+        int length = meta.getInt();
+        if (offset < dataStart || length < 0 || offset + length > mapped.capacity()) {
+            throw new IOException("blob fuera del archivo");
+        }
+        // Los blobs se escribieron en el orden nativo de la memoria de origen
+        return mapped.slice((int) offset, length).order(ByteOrder.nativeOrder());
+    }
+
+    private static VertexLayout getLayout(ByteBuffer meta) {
+        int stride = meta.getInt();
+        VertexLayout.Attribute[] attributes = new VertexLayout.Attribute[meta.getInt()];
+        for (int i = 0; i < attributes.length; i++) {
+            attributes[i] = new VertexLayout.Attribute(meta.getInt(), meta.getInt(), meta.getInt(),
+                    meta.getInt() != 0, meta.getInt());
+        }
+        return new VertexLayout(stride, attributes);
+    }
+
+    private static ModelNode getNode(ByteBuffer meta, ModelNode parent, int meshCount) throws IOException {
+        String name = getString(meta);
+        float[] m = new float[16];
+        for (int i = 0; i < 16; i++) {
+            m[i] = meta.getFloat();
+        }
+        int[] meshes = new int[meta.getInt()];
+        for (int i = 0; i < meshes.length; i++) {
+            meshes[i] = meta.getInt();
+            if (meshes[i] < 0 || meshes[i] >= meshCount) {
+                throw new IOException("índice de malla fuera de rango en el nodo " + name);
+            }
+        }
+        ModelNode node = new ModelNode(name, new Matrix4f().set(m), meshes, parent);
+        int children = meta.getInt();
+        for (int i = 0; i < children; i++) {
+            getNode(meta, node, meshCount);
+        }
+        return node;
+    }
+
+    // Longitud -1 para null
+    private static String getString(ByteBuffer meta) {
+        int length = meta.getInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        meta.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    // Buffer de metadatos que crece según hace falta
+    private static final class MetaWriter {
+        private ByteBuffer buffer = ByteBuffer.allocate(4096).order(ByteOrder.LITTLE_ENDIAN);
+
+        private void ensure(int bytes) {
+            if (buffer.remaining() < bytes) {
+                ByteBuffer bigger = ByteBuffer.allocate(Math.max(buffer.capacity() * 2, buffer.position() + bytes))
+                        .order(ByteOrder.LITTLE_ENDIAN);
+                buffer.flip();
+                bigger.put(buffer);
+                buffer = bigger;
+            }
+        }
+
+        void putInt(int value) {
+            ensure(Integer.BYTES);
+            buffer.putInt(value);
+        }
+
+        void putLong(long value) {
+            ensure(Long.BYTES);
+            buffer.putLong(value);
+        }
+
+        void putFloat(float value) {
+            ensure(Float.BYTES);
+            buffer.putFloat(value);
+        }
+
+        void putString(String value) {
+            if (value == null) {
+                putInt(-1);
+                return;
+            }
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            putInt(bytes.length);
+            ensure(bytes.length);
+            buffer.put(bytes);
+        }
+
+        ByteBuffer finish() {
+            return buffer.flip();
+        }
+    }
+
+    // ---- estadísticas ----
+
+    private static synchronized void recordHit() {
+        hits++;
+    }
+
+    private static synchronized void recordMiss() {
+        misses++;
+    }
+
+    private static synchronized void recordWrite() {
+        writes++;
+    }
+
+    public static synchronized long getHits() {
+        return hits;
+    }
+
+    public static synchronized long getMisses() {
+        return misses;
+    }
+
+    public static synchronized long getWrites() {
+        return writes;
+    }
+}
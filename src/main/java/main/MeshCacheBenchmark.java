@@ -0,0 +1,138 @@
+package main;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+// Benchmark de arranque de Import3D sin OpenGL: importación en frío con Assimp (caché
+// desactivada) frente a la lectura desde MeshCache, ambas incluyendo leer y hashear el
+// recurso. Comprueba que el modelo cacheado es idéntico byte a byte. Sale con código 1 si no.
+// mvn exec:java -Dexec.mainClass=main.MeshCacheBenchmark [-Dexec.args="models/otro.glb"]
+public class MeshCacheBenchmark {
+
+    private static final String DEFAULT_MODEL = "models/backrooms-wall.glb";
+    private static final int WARMUP_RUNS = 2;
+    private static final int MEASURED_RUNS = 10;
+
+    public static void main(String[] args) throws IOException {
+        String path = args.length > 0 ? args[0] : DEFAULT_MODEL;
+        Path cacheDir = Files.createTempDirectory("meshcache-bench");
+        try {
+            // Primera importación: la que hace un arranque sin caché y la escribe
+            MeshCache.setDirectory(cacheDir);
+            long t0 = System.nanoTime();
+            Model first = Import3D.load(path);
+            double firstMillis = (System.nanoTime() - t0) / 1e6;
+            first.cleanup();
+            long cacheBytes;
+            try (Stream<Path> files = Files.list(cacheDir)) {
+                cacheBytes = files.mapToLong(MeshCacheBenchmark::size).sum();
+            }
+
+            MeshCache.setDirectory(null);
+            double coldMillis = measure(path);
+            MeshCache.setDirectory(cacheDir);
+            double cachedMillis = measure(path);
+
+            MeshCache.setDirectory(null);
+            Model cold = Import3D.load(path);
+            MeshCache.setDirectory(cacheDir);
+            Model cached = Import3D.load(path);
+            boolean ok = MeshCache.getHits() > 0 && same(cold, cached);
+
+            System.out.printf("%s: %d mallas, caché de %d KB%n", path, cold.getMeshes().size(), cacheBytes / 1024);
+            System.out.printf("primera carga (importa y escribe): %8.2f ms%n", firstMillis);
+            System.out.printf("Assimp en frío:                    %8.2f ms%n", coldMillis);
+            System.out.printf("desde MeshCache:                   %8.2f ms  (%.1fx)%n", cachedMillis, coldMillis / cachedMillis);
+            cold.cleanup();
+            cached.cleanup();
+
+            System.out.println(ok ? "OK" : "FALLO: el modelo cacheado no coincide con la importación");
+            if (!ok) {
+                System.exit(1);
+            }
+        } finally {
+            MeshCache.setDirectory(Path.of(MeshCache.DEFAULT_DIRECTORY));
+            try (Stream<Path> files = Files.walk(cacheDir)) {
+                files.sorted(Comparator.reverseOrder()).forEach(MeshCacheBenchmark::delete);
+            }
+        }
+    }
+
+    // Media en ms de MEASURED_RUNS cargas tras WARMUP_RUNS de calentamiento
+    private static double measure(String path) throws IOException {
+        for (int w = 0; w < WARMUP_RUNS; w++) {
+            Import3D.load(path).cleanup();
+        }
+        long nanos = 0;
+        for (int r = 0; r < MEASURED_RUNS; r++) {
+            long t0 = System.nanoTime();
+            Model model = Import3D.load(path);
+            nanos += System.nanoTime() - t0;
+            model.cleanup();
+        }
+        return nanos / 1e6 / MEASURED_RUNS;
+    }
+
+    private static boolean same(Model a, Model b) {
+        List<MeshData> meshesA = a.getMeshes();
+        List<MeshData> meshesB = b.getMeshes();
+        if (meshesA.size() != meshesB.size() || a.getMaterials().size() != b.getMaterials().size()
+                || a.getEmbeddedTextures().size() != b.getEmbeddedTextures().size()
+                || countNodes(a.getRoot()) != countNodes(b.getRoot())) {
+            return false;
+        }
+        for (int i = 0; i < meshesA.size(); i++) {
+            MeshData ma = meshesA.get(i);
+            MeshData mb = meshesB.get(i);
+            if (!ma.getLayout().equals(mb.getLayout()) || ma.getIndexType() != mb.getIndexType()
+                    || !ma.getVertices().equals(mb.getVertices()) || !ma.getIndices().equals(mb.getIndices())
+                    || ma.getMaterialIndex() != mb.getMaterialIndex() || ma.getLodCount() != mb.getLodCount()
+                    || !Arrays.equals(ma.getBounds(), mb.getBounds())) {
+                return false;
+            }
+            // La esfera de StaticMeshBatch y ModelBatch sale del AABB: con él coinciden también
+            for (int lod = 0; lod < ma.getLodCount(); lod++) {
+                if (ma.getLodFirstIndex(lod) != mb.getLodFirstIndex(lod)
+                        || ma.getLodIndexCount(lod) != mb.getLodIndexCount(lod)
+                        || Float.floatToIntBits(ma.getLodError(lod)) != Float.floatToIntBits(mb.getLodError(lod))) {
+                    return false;
+                }
+            }
+        }
+        for (int i = 0; i < a.getEmbeddedTextures().size(); i++) {
+            if (!a.getEmbeddedTextures().get(i).pixels.equals(b.getEmbeddedTextures().get(i).pixels)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int countNodes(ModelNode node) {
+        int count = 1;
+        for (ModelNode child : node.getChildren()) {
+            count += countNodes(child);
+        }
+        return count;
+    }
+
+    private static long size(Path file) {
+        try {
+            return Files.size(file);
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    private static void delete(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException ignored) {
+            // Directorio temporal: si queda algo lo limpia el sistema
+        }
+    }
+}
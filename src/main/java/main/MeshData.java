@@ -0,0 +1,138 @@
+package main;
+
+import org.lwjgl.system.MemoryUtil;
+
+import java.nio.ByteBuffer;
+
+import static org.lwjgl.opengl.GL11.GL_UNSIGNED_INT;
+import static org.lwjgl.opengl.GL11.GL_UNSIGNED_SHORT;
+
+// Malla importada en memoria nativa, con vértices intercalados (VertexLayout) e índices
+// de 32 bits (o de 16 tras MeshPipeline). Se rellena en un hilo de fondo y upload() la
+// sube sin copias intermedias.
+// Los buffers son de memAlloc: free() después de subir (Model.upload lo hace). Las
+// mallas leídas de MeshCache son vistas del archivo mapeado y free() solo las suelta.
+public class MeshData {
+
+    private final String name;
+    private final VertexLayout layout;
+    private final int materialIndex;
+    private ByteBuffer vertices;
+    private ByteBuffer indices;
+    private final int indexType;
+    // false si los buffers no son de memAlloc (vistas de un archivo mapeado)
+    private final boolean owned;
+    private final int vertexCount;
+    private final int indexCount;
+    // AABB local: minX, minY, minZ, maxX, maxY, maxZ
+    private final float[] bounds;
+    // Cadena de LOD (MeshPipeline): rangos del buffer de índices, del más detallado al más
+    // simple, y su error geométrico en unidades del modelo. Sin LOD hay un único rango
+    private int[] lodFirstIndex;
+    private int[] lodIndexCount;
+    private float[] lodError;
+
+    MeshData(String name, VertexLayout layout, int materialIndex, ByteBuffer vertices, ByteBuffer indices,
+             float[] bounds) {
+        this(name, layout, materialIndex, vertices, indices, GL_UNSIGNED_INT, bounds, true);
+    }
+
+    MeshData(String name, VertexLayout layout, int materialIndex, ByteBuffer vertices, ByteBuffer indices,
+             int indexType, float[] bounds, boolean owned) {
+        this.name = name;
+        this.layout = layout;
+        this.materialIndex = materialIndex;
+        this.vertices = vertices;
+        this.indices = indices;
+        this.indexType = indexType;
+        this.owned = owned;
+        this.vertexCount = vertices.remaining() / layout.getStride();
+        this.indexCount = indices.remaining() / (indexType == GL_UNSIGNED_SHORT ? Short.BYTES : Integer.BYTES);
+        this.bounds = bounds;
+        setLods(new int[]{0}, new int[]{indexCount}, new float[]{0f});
+    }
+
+    void setLods(int[] firstIndex, int[] indexCount, float[] error) {
+        this.lodFirstIndex = firstIndex;
+        this.lodIndexCount = indexCount;
+        this.lodError = error;
+    }
+
+    // Hilo de OpenGL. Geometry.draw() dibuja el LOD 0; el resto con drawRange
+    public Geometry upload() {
+        if (vertices == null) {
+            throw new IllegalStateException("MeshData ya liberada: " + name);
+        }
+        return GeometryRegistry.create(layout, vertices, indices, indexType, lodIndexCount[0]);
+    }
+
+    public void free() {
+        if (vertices != null) {
+            if (owned) {
+                MemoryUtil.memFree(vertices);
+                MemoryUtil.memFree(indices);
+            }
+            vertices = null;
+            indices = null;
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public VertexLayout getLayout() {
+        return layout;
+    }
+
+    public int getMaterialIndex() {
+        return materialIndex;
+    }
+
+    // Vértices intercalados según getLayout(); null tras free()
+    public ByteBuffer getVertices() {
+        return vertices;
+    }
+
+    public ByteBuffer getIndices() {
+        return indices;
+    }
+
+    // GL_UNSIGNED_INT o GL_UNSIGNED_SHORT
+    public int getIndexType() {
+        return indexType;
+    }
+
+    public long getSizeBytes() {
+        return vertices != null ? (long) vertices.remaining() + indices.remaining() : 0L;
+    }
+
+    public int getVertexCount() {
+        return vertexCount;
+    }
+
+    // Total del buffer, con todos los LOD
+    public int getIndexCount() {
+        return indexCount;
+    }
+
+    public float[] getBounds() {
+        return bounds;
+    }
+
+    public int getLodCount() {
+        return lodFirstIndex.length;
+    }
+
+    public int getLodFirstIndex(int lod) {
+        return lodFirstIndex[lod];
+    }
+
+    public int getLodIndexCount(int lod) {
+        return lodIndexCount[lod];
+    }
+
+    public float getLodError(int lod) {
+        return lodError[lod];
+    }
+}
@@ -0,0 +1,287 @@
+package main;
+
+import org.lwjgl.system.MemoryUtil;
+
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.util.Arrays;
+
+import static org.lwjgl.opengl.GL11.GL_UNSIGNED_INT;
+import static org.lwjgl.opengl.GL11.GL_UNSIGNED_SHORT;
+import static org.lwjgl.util.meshoptimizer.MeshOptimizer.*;
+
+// Optimización de mallas al importar (meshoptimizer) y cuantización a formatos compactos.
+// Orden de los pasos:
+//   1. caché de vértices: reordena triángulos para reutilizar vértices transformados
+//   2. overdraw: reordena bloques de triángulos para dibujar primero los del frente
+//   3. LOD (opcional): simplifica el LOD 0 una vez por umbral de error y añade cada
+//      resultado, también ordenado para la caché, detrás en el mismo buffer de índices
+//   4. vertex fetch: reordena los vértices en el orden en que se usan y quita los sobrantes
+//   5. cuantización: normales 10_10_10_2, UV en half float, posiciones en half float si la
+//      malla es pequeña, e índices de 16 bits si hay como mucho 65536 vértices
+// Acepta POS3_NORMAL3_UV2 (Import3D) y POS3_UV2 (Mesh). Cualquier hilo.
+public final class MeshPipeline {
+
+    // Empeoramiento de caché aceptado a cambio de menos overdraw (valor recomendado por meshoptimizer)
+    static final float OVERDRAW_THRESHOLD = 1.05f;
+    // Por debajo de este tamaño (en unidades, en cualquier eje) las posiciones caben en half
+    // float con error de milímetros; por encima se dejan en float
+    static final float HALF_POSITION_LIMIT = 8f;
+    static final int MAX_SHORT_VERTICES = 1 << 16;
+    // Errores objetivo de la cadena de LOD, relativos al tamaño de la malla (1% ~ invisible
+    // a media distancia). Import3D los usa por defecto
+    public static final float[] DEFAULT_LOD_ERRORS = {0.01f, 0.03f, 0.08f};
+    // Un LOD que no quita al menos este porcentaje de índices respecto al anterior se descarta
+    static final float MIN_LOD_REDUCTION = 0.1f;
+
+    private static long bytesIn;
+    private static long bytesOut;
+    private static int meshesOptimized;
+
+    private MeshPipeline() {
+    }
+
+    // Copia los arrays de un Mesh a memoria nativa y la optimiza
+    public static MeshData build(String name, VertexLayout layout, float[] vertices, int[] indices) {
+        ByteBuffer vertexData = MemoryUtil.memAlloc(vertices.length * Float.BYTES);
+        ByteBuffer indexData = MemoryUtil.memAlloc(indices.length * Integer.BYTES);
+        vertexData.asFloatBuffer().put(vertices);
+        indexData.asIntBuffer().put(indices);
+        float[] bounds = computeBounds(vertices, layout.getStride() / Float.BYTES);
+        return optimize(new MeshData(name, layout, -1, vertexData, indexData, bounds));
+    }
+
+    // Sin LOD: los Mesh de la interfaz y objetos pequeños no los necesitan
+    public static MeshData optimize(MeshData mesh) {
+        return optimize(mesh, new float[0]);
+    }
+
+    // Devuelve una MeshData nueva en formato compacto, con un LOD por cada error de
+    // lodErrors (de menor a mayor) que reduzca la malla, y libera la original
+    public static MeshData optimize(MeshData mesh, float[] lodErrors) {
+        VertexLayout source = mesh.getLayout();
+        boolean hasNormals;
+        if (source.equals(VertexLayout.POS3_NORMAL3_UV2)) {
+            hasNormals = true;
+        } else if (source.equals(VertexLayout.POS3_UV2)) {
+            hasNormals = false;
+        } else {
+            throw new IllegalArgumentException("Formato no soportado por MeshPipeline: " + mesh.getName());
+        }
+        if (mesh.getIndexType() != GL_UNSIGNED_INT) {
+            throw new IllegalArgumentException("La malla ya está optimizada: " + mesh.getName());
+        }
+
+        int stride = source.getStride();
+        int vertexCount = mesh.getVertexCount();
+        int indexCount = mesh.getIndexCount();
+        ByteBuffer vertices = mesh.getVertices();
+        IntBuffer indices = MemoryUtil.memIntBuffer(MemoryUtil.memAddress(mesh.getIndices()), indexCount);
+        FloatBuffer positions = MemoryUtil.memFloatBuffer(MemoryUtil.memAddress(vertices), vertexCount * stride / Float.BYTES);
+        long before = mesh.getSizeBytes();
+
+        IntBuffer reordered = MemoryUtil.memAllocInt(indexCount);
+        ByteBuffer fetched = MemoryUtil.memAlloc(vertexCount * stride);
+        ByteBuffer packedVertices = null;
+        ByteBuffer packedIndices = null;
+        Lods lods = null;
+        try {
+            meshopt_optimizeVertexCache(reordered, indices, vertexCount);
+            meshopt_optimizeOverdraw(indices, reordered, positions, vertexCount, stride, OVERDRAW_THRESHOLD);
+
+            lods = buildLods(indices, positions, vertexCount, stride, lodErrors);
+            IntBuffer allIndices = lods.indices;
+            // Reescribe índices (de todos los LOD) para apuntar al nuevo orden de vértices
+            int unique = (int) meshopt_optimizeVertexFetch(fetched, allIndices, vertices, vertexCount, stride);
+
+            float[] bounds = mesh.getBounds();
+            boolean halfPositions = fitsHalf(bounds);
+            VertexLayout target = hasNormals
+                    ? (halfPositions ? VertexLayout.POS3H_NORMAL3_UV2_PACKED : VertexLayout.POS3_NORMAL3_UV2_PACKED)
+                    : (halfPositions ? VertexLayout.POS3H_UV2_PACKED : VertexLayout.POS3_UV2_PACKED);
+
+            packedVertices = MemoryUtil.memAlloc(unique * target.getStride());
+            packVertices(fetched, packedVertices, unique, stride, target.getStride(), hasNormals, halfPositions);
+
+            int indexType = unique <= MAX_SHORT_VERTICES ? GL_UNSIGNED_SHORT : GL_UNSIGNED_INT;
+            packedIndices = packIndices(allIndices, indexType);
+
+            MeshData result = new MeshData(mesh.getName(), target, mesh.getMaterialIndex(),
+                    packedVertices, packedIndices, indexType, bounds, true);
+            result.setLods(lods.firstIndex, lods.indexCount, lods.error);
+            record(before, result.getSizeBytes());
+            mesh.free();
+            return result;
+        } catch (RuntimeException e) {
+            MemoryUtil.memFree(packedVertices);
+            MemoryUtil.memFree(packedIndices);
+            throw e;
+        } finally {
+            MemoryUtil.memFree(reordered);
+            MemoryUtil.memFree(fetched);
+            if (lods != null) {
+                MemoryUtil.memFree(lods.indices);
+            }
+        }
+    }
+
+    // Índices de todos los LOD concatenados (memoria nativa) y sus rangos
+    private static final class Lods {
+        IntBuffer indices;
+        int[] firstIndex;
+        int[] indexCount;
+        float[] error;
+    }
+
+    private static Lods buildLods(IntBuffer lod0, FloatBuffer positions, int vertexCount, int stride, float[] lodErrors) {
+        int indexCount = lod0.remaining();
+        Lods lods = new Lods();
+        lods.indices = MemoryUtil.memAllocInt(indexCount * (1 + lodErrors.length));
+        int[] first = new int[1 + lodErrors.length];
+        int[] count = new int[1 + lodErrors.length];
+        float[] error = new float[1 + lodErrors.length];
+        MemoryUtil.memCopy(MemoryUtil.memAddress(lod0), MemoryUtil.memAddress(lods.indices), (long) indexCount * Integer.BYTES);
+        count[0] = indexCount;
+        int levels = 1;
+        int cursor = indexCount;
+
+        if (lodErrors.length > 0) {
+            // El error de meshopt_simplify es relativo; con la escala pasa a unidades del modelo
+            float scale = meshopt_simplifyScale(positions, vertexCount, stride);
+            IntBuffer simplified = MemoryUtil.memAllocInt(indexCount);
+            FloatBuffer resultError = MemoryUtil.memAllocFloat(1);
+            try {
+                for (float targetError : lodErrors) {
+                    // Objetivo 0 índices: simplifica todo lo que permita el error
+                    int produced = (int) meshopt_simplify(simplified, lod0, positions, vertexCount, stride,
+                            0, targetError, 0, resultError);
+                    if (produced == 0) {
+                        break;
+                    }
+                    if (produced > count[levels - 1] * (1f - MIN_LOD_REDUCTION)) {
+                        continue;
+                    }
+                    simplified.limit(produced);
+                    IntBuffer target = MemoryUtil.memIntBuffer(MemoryUtil.memAddress(lods.indices) + (long) cursor * Integer.BYTES, produced);
+                    meshopt_optimizeVertexCache(target, simplified, vertexCount);
+                    simplified.clear();
+                    first[levels] = cursor;
+                    count[levels] = produced;
+                    // Monótono: la selección asume que cada LOD es al menos tan burdo como el anterior
+                    error[levels] = Math.max(error[levels - 1], resultError.get(0) * scale);
+                    cursor += produced;
+                    levels++;
+                }
+            } catch (RuntimeException e) {
+                MemoryUtil.memFree(lods.indices);
+                throw e;
+            } finally {
+                MemoryUtil.memFree(simplified);
+                MemoryUtil.memFree(resultError);
+            }
+        }
+
+        lods.indices.limit(cursor);
+        lods.firstIndex = Arrays.copyOf(first, levels);
+        lods.indexCount = Arrays.copyOf(count, levels);
+        lods.error = Arrays.copyOf(error, levels);
+        return lods;
+    }
+
+    private static void packVertices(ByteBuffer src, ByteBuffer dst, int count, int srcStride, int dstStride,
+                                     boolean hasNormals, boolean halfPositions) {
+        for (int v = 0; v < count; v++) {
+            int in = v * srcStride;
+            int out = v * dstStride;
+            float x = src.getFloat(in);
+            float y = src.getFloat(in + 4);
+            float z = src.getFloat(in + 8);
+            int cursor;
+            if (halfPositions) {
+                dst.putShort(out, Float.floatToFloat16(x));
+                dst.putShort(out + 2, Float.floatToFloat16(y));
+                dst.putShort(out + 4, Float.floatToFloat16(z));
+                dst.putShort(out + 6, (short) 0);
+                cursor = out + 8;
+            } else {
+                dst.putFloat(out, x);
+                dst.putFloat(out + 4, y);
+                dst.putFloat(out + 8, z);
+                cursor = out + 12;
+            }
+            int uv = in + 12;
+            if (hasNormals) {
+                dst.putInt(cursor, packNormal(src.getFloat(in + 12), src.getFloat(in + 16), src.getFloat(in + 20)));
+                cursor += 4;
+                uv = in + 24;
+            }
+            dst.putShort(cursor, Float.floatToFloat16(src.getFloat(uv)));
+            dst.putShort(cursor + 2, Float.floatToFloat16(src.getFloat(uv + 4)));
+        }
+    }
+
+    private static ByteBuffer packIndices(IntBuffer indices, int indexType) {
+        int count = indices.remaining();
+        if (indexType == GL_UNSIGNED_INT) {
+            ByteBuffer out = MemoryUtil.memAlloc(count * Integer.BYTES);
+            MemoryUtil.memCopy(MemoryUtil.memAddress(indices), MemoryUtil.memAddress(out), (long) count * Integer.BYTES);
+            return out;
+        }
+        ByteBuffer out = MemoryUtil.memAlloc(count * Short.BYTES);
+        for (int i = 0; i < count; i++) {
+            out.putShort(i * Short.BYTES, (short) indices.get(i));
+        }
+        return out;
+    }
+
+    // GL_INT_2_10_10_10_REV: x en los bits 0-9, y en 10-19, z en 20-29 (snorm, 511 = 1.0)
+    static int packNormal(float x, float y, float z) {
+        return (snorm10(x)) | (snorm10(y) << 10) | (snorm10(z) << 20);
+    }
+
+    private static int snorm10(float value) {
+        float clamped = Math.max(-1f, Math.min(1f, value));
+        return Math.round(clamped * 511f) & 0x3FF;
+    }
+
+    static boolean fitsHalf(float[] bounds) {
+        for (float b : bounds) {
+            if (Math.abs(b) > HALF_POSITION_LIMIT) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static float[] computeBounds(float[] vertices, int floatsPerVertex) {
+        float[] bounds = {Float.MAX_VALUE, Float.MAX_VALUE, Float.MAX_VALUE,
+                -Float.MAX_VALUE, -Float.MAX_VALUE, -Float.MAX_VALUE};
+        for (int i = 0; i + 2 < vertices.length; i += floatsPerVertex) {
+            for (int c = 0; c < 3; c++) {
+                bounds[c] = Math.min(bounds[c], vertices[i + c]);
+                bounds[c + 3] = Math.max(bounds[c + 3], vertices[i + c]);
+            }
+        }
+        return bounds;
+    }
+
+    private static synchronized void record(long before, long after) {
+        bytesIn += before;
+        bytesOut += after;
+        meshesOptimized++;
+    }
+
+    // Bytes de vértices+índices antes y después de todas las mallas optimizadas
+    public static synchronized long getBytesIn() {
+        return bytesIn;
+    }
+
+    public static synchronized long getBytesOut() {
+        return bytesOut;
+    }
+
+    public static synchronized int getMeshesOptimized() {
+        return meshesOptimized;
+    }
+}
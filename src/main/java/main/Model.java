@@ -0,0 +1,150 @@
+package main;
+
+import org.lwjgl.stb.STBImage;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+
+// Resultado de Import3D: mallas, materiales, jerarquía de nodos y las texturas embebidas
+// ya decodificadas. Se construye entero en un hilo de fondo; upload() (hilo de OpenGL)
+// crea las geometrías y texturas y libera la memoria nativa intermedia.
+public class Model {
+
+    // Píxeles RGBA8 de una textura embebida (memoria de stb_image, o una vista de
+    // MeshCache que no hay que liberar)
+    static final class EmbeddedTexture {
+        ByteBuffer pixels;
+        final int width;
+        final int height;
+        final boolean owned;
+
+        EmbeddedTexture(ByteBuffer pixels, int width, int height) {
+            this(pixels, width, height, true);
+        }
+
+        EmbeddedTexture(ByteBuffer pixels, int width, int height, boolean owned) {
+            this.pixels = pixels;
+            this.width = width;
+            this.height = height;
+            this.owned = owned;
+        }
+
+        void free() {
+            if (pixels != null) {
+                if (owned) {
+                    STBImage.stbi_image_free(pixels);
+                }
+                pixels = null;
+            }
+        }
+    }
+
+    private final String path;
+    private final List<MeshData> meshes;
+    private final List<Material> materials;
+    private final List<EmbeddedTexture> embeddedTextures;
+    private final ModelNode root;
+
+    private final List<Geometry> geometries = new ArrayList<>();
+    private final List<Integer> ownedTextures = new ArrayList<>();
+    private boolean uploaded;
+
+    Model(String path, List<MeshData> meshes, List<Material> materials,
+          List<EmbeddedTexture> embeddedTextures, ModelNode root) {
+        this.path = path;
+        this.meshes = meshes;
+        this.materials = materials;
+        this.embeddedTextures = embeddedTextures;
+        this.root = root;
+    }
+
+    // Hilo de OpenGL. Las texturas externas se cargan con TextureLoader (relativas al modelo)
+    public void upload() {
+        if (uploaded) {
+            return;
+        }
+        uploaded = true;
+
+        int[] embeddedIDs = new int[embeddedTextures.size()];
+        for (int i = 0; i < embeddedIDs.length; i++) {
+            EmbeddedTexture texture = embeddedTextures.get(i);
+            embeddedIDs[i] = TextureLoader.uploadRGBA(texture.pixels, texture.width, texture.height);
+            ownedTextures.add(embeddedIDs[i]);
+            texture.free();
+        }
+
+        for (Material material : materials) {
+            if (material.getEmbeddedTexture() >= 0 && material.getEmbeddedTexture() < embeddedIDs.length) {
+                material.setTextureID(embeddedIDs[material.getEmbeddedTexture()]);
+            } else if (material.getTexturePath() != null) {
+                try {
+                    int textureID = TextureLoader.loadTexture(material.getTexturePath());
+                    material.setTextureID(textureID);
+                    ownedTextures.add(textureID);
+                } catch (RuntimeException e) {
+                    System.err.println("Textura de " + path + " no disponible: " + e.getMessage());
+                }
+            }
+        }
+
+        for (MeshData mesh : meshes) {
+            geometries.add(mesh.upload());
+            mesh.free();
+        }
+    }
+
+    public boolean isUploaded() {
+        return uploaded;
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    public List<MeshData> getMeshes() {
+        return Collections.unmodifiableList(meshes);
+    }
+
+    // Geometría subida de la malla index; solo tras upload()
+    public Geometry getGeometry(int index) {
+        return geometries.get(index);
+    }
+
+    public List<Material> getMaterials() {
+        return Collections.unmodifiableList(materials);
+    }
+
+    public Material getMaterial(MeshData mesh) {
+        int index = mesh.getMaterialIndex();
+        return index >= 0 && index < materials.size() ? materials.get(index) : null;
+    }
+
+    List<EmbeddedTexture> getEmbeddedTextures() {
+        return embeddedTextures;
+    }
+
+    public ModelNode getRoot() {
+        return root;
+    }
+
+    // También libera la memoria nativa si el modelo nunca se llegó a subir
+    public void cleanup() {
+        for (Geometry geometry : geometries) {
+            geometry.release();
+        }
+        geometries.clear();
+        for (int textureID : ownedTextures) {
+            GLState.deleteTexture(textureID);
+        }
+        ownedTextures.clear();
+        for (MeshData mesh : meshes) {
+            mesh.free();
+        }
+        for (EmbeddedTexture texture : embeddedTextures) {
+            texture.free();
+        }
+    }
+}
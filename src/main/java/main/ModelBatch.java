@@ -0,0 +1,341 @@
+package main;
+
+import org.joml.Matrix4f;
+import org.joml.Vector3f;
+import org.lwjgl.system.MemoryUtil;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.lwjgl.opengl.GL11.*;
+import static org.lwjgl.opengl.GL13.*;
+import static org.lwjgl.opengl.GL15.*;
+import static org.lwjgl.opengl.GL20.*;
+import static org.lwjgl.opengl.GL30.*;
+import static org.lwjgl.opengl.GL33.glVertexAttribDivisor;
+
+// Dibuja muchas instancias de un Model ya subido con glDrawElementsInstanced y LOD por
+// instancia. Cada frame, para cada malla del modelo (una "parte" por nodo que la usa),
+// LodSelector elige el LOD de cada instancia; las instancias se ordenan por LOD en el
+// buffer de instancias y se hace un draw instanciado por LOD con al menos una.
+// Mismo formato de instancia que WallBatch, así que usa los shaders wall_instanced_*.
+public class ModelBatch {
+
+    static final int INSTANCE_BYTES = WallBatch.INSTANCE_BYTES;
+    private static final int INITIAL_INSTANCES = 16;
+
+    private static final class Part {
+        final MeshData mesh;
+        final Geometry geometry;
+        final Material material;
+        final Matrix4f nodeTransform;
+        // Esfera envolvente en coordenadas del modelo (centro del AABB y semidiagonal)
+        final Vector3f center = new Vector3f();
+        final float radius;
+        final int vao;
+        final int vbo;
+        int gpuCapacity;
+        ByteBuffer data = MemoryUtil.memAlloc(INITIAL_INSTANCES * INSTANCE_BYTES);
+        // LOD del frame anterior por instancia (-1: ninguno todavía)
+        byte[] currentLod = new byte[INITIAL_INSTANCES];
+        final int[] bandCounts;
+
+        Part(MeshData mesh, Geometry geometry, Material material, Matrix4f nodeTransform, int vao, int vbo) {
+            this.mesh = mesh;
+            this.geometry = geometry;
+            this.material = material;
+            this.nodeTransform = nodeTransform;
+            this.vao = vao;
+            this.vbo = vbo;
+            float[] b = mesh.getBounds();
+            center.set((b[0] + b[3]) * 0.5f, (b[1] + b[4]) * 0.5f, (b[2] + b[5]) * 0.5f);
+            radius = 0.5f * (float) Math.sqrt((b[3] - b[0]) * (b[3] - b[0])
+                    + (b[4] - b[1]) * (b[4] - b[1]) + (b[5] - b[2]) * (b[5] - b[2]));
+            bandCounts = new int[mesh.getLodCount()];
+            Arrays.fill(currentLod, (byte) -1);
+        }
+    }
+
+    private final Model model;
+    private final List<Part> parts = new ArrayList<>();
+    private final List<Matrix4f> instances = new ArrayList<>();
+
+    private final Matrix4f world = new Matrix4f();
+    private final Vector3f worldCenter = new Vector3f();
+    private final Vector3f worldScale = new Vector3f();
+    // Instancias que caben en los buffers de cada parte
+    private int capacity = INITIAL_INSTANCES;
+
+    private Shader cachedShader;
+    private int uTextureSampler;
+
+    // Cola de submit() y el id del comando registrado en ella
+    private RenderQueue commandQueue;
+    private int commandId;
+    private Shader submitShader;
+
+    // Estadísticas del último render(): triángulos por banda de LOD
+    private long[] trianglesPerLod;
+    private long fullDetailTriangles;
+    private int drawCalls;
+
+    // Requiere model.upload() hecho (hilo de OpenGL)
+    public ModelBatch(Model model) {
+        if (!model.isUploaded()) {
+            throw new IllegalStateException("El modelo no está subido: " + model.getPath());
+        }
+        this.model = model;
+        int maxLods = 1;
+        collectParts(model.getRoot(), new Matrix4f());
+        for (Part part : parts) {
+            maxLods = Math.max(maxLods, part.mesh.getLodCount());
+        }
+        trianglesPerLod = new long[maxLods];
+    }
+
+    private void collectParts(ModelNode node, Matrix4f parentTransform) {
+        Matrix4f transform = new Matrix4f(parentTransform).mul(node.getLocalTransform());
+        for (int meshIndex : node.getMeshes()) {
+            MeshData mesh = model.getMeshes().get(meshIndex);
+            Geometry geometry = model.getGeometry(meshIndex);
+            parts.add(createPart(mesh, geometry, model.getMaterial(mesh), transform));
+        }
+        for (ModelNode child : node.getChildren()) {
+            collectParts(child, transform);
+        }
+    }
+
+    private Part createPart(MeshData mesh, Geometry geometry, Material material, Matrix4f transform) {
+        int vao = glGenVertexArrays();
+        int vbo = glGenBuffers();
+
+        GLState.bindVertexArray(vao);
+        GLState.bindBuffer(GL_ARRAY_BUFFER, geometry.getVbo());
+        GLState.bindBuffer(GL_ELEMENT_ARRAY_BUFFER, geometry.getEbo());
+        mesh.getLayout().apply();
+
+        GLState.bindBuffer(GL_ARRAY_BUFFER, vbo);
+        for (int location = 3; location <= 9; location++) {
+            glEnableVertexAttribArray(location);
+            glVertexAttribDivisor(location, 1);
+        }
+        pointInstances(0);
+
+        GLState.bindVertexArray(0);
+        GLState.bindBuffer(GL_ARRAY_BUFFER, 0);
+        return new Part(mesh, geometry, material, transform, vao, vbo);
+    }
+
+    // Atributos por instancia (como WallBatch) empezando en la instancia first. Sin
+    // glDrawElementsInstancedBaseInstance (GL 4.2) cada banda de LOD se apunta así.
+    // Requiere el VAO de la parte y su VBO de instancias enlazados
+    private static void pointInstances(int first) {
+        long base = (long) first * INSTANCE_BYTES;
+        for (int column = 0; column < 4; column++) {
+            glVertexAttribPointer(3 + column, 4, GL_FLOAT, false, INSTANCE_BYTES, base + column * 4L * Float.BYTES);
+        }
+        glVertexAttribPointer(7, 2, GL_FLOAT, false, INSTANCE_BYTES, base + 64);
+        glVertexAttribPointer(8, 4, GL_UNSIGNED_BYTE, true, INSTANCE_BYTES, base + 72);
+        glVertexAttribPointer(9, 4, GL_UNSIGNED_BYTE, true, INSTANCE_BYTES, base + 76);
+    }
+
+    // Devuelve el índice de la instancia
+    public int add(Matrix4f transform) {
+        instances.add(new Matrix4f(transform));
+        int count = instances.size();
+        if (count > capacity) {
+            capacity *= 2;
+            for (Part part : parts) {
+                part.data = MemoryUtil.memRealloc(part.data, capacity * INSTANCE_BYTES);
+                int old = part.currentLod.length;
+                part.currentLod = Arrays.copyOf(part.currentLod, capacity);
+                Arrays.fill(part.currentLod, old, capacity, (byte) -1);
+            }
+        }
+        return count - 1;
+    }
+
+    public void setTransform(int instance, Matrix4f transform) {
+        instances.get(instance).set(transform);
+    }
+
+    public int getInstanceCount() {
+        return instances.size();
+    }
+
+    // Requiere el shader instanciado en uso (shader.use())
+    public void render(Shader shader, Vector3f cameraPosition, LodSelector selector) {
+        resetFrameStats();
+        int count = instances.size();
+        if (count == 0) {
+            return;
+        }
+        for (Part part : parts) {
+            selectLods(part, count, cameraPosition, selector);
+            drawPart(part, shader, count);
+        }
+    }
+
+    // Como render(), pero elige los LOD ahora y envía un paquete por parte a la cola, con
+    // la distancia de la instancia más cercana. Las estadísticas quedan listas al enviar.
+    public void submit(RenderQueue queue, Shader shader, Vector3f cameraPosition, LodSelector selector, float far) {
+        if (queue != commandQueue) {
+            commandQueue = queue;
+            commandId = queue.registerCommand(this::drawPacket);
+        }
+        submitShader = shader;
+        resetFrameStats();
+        int count = instances.size();
+        if (count == 0) {
+            return;
+        }
+        int slot = queue.shaderSlot(shader);
+        for (int i = 0; i < parts.size(); i++) {
+            Part part = parts.get(i);
+            float nearest = selectLods(part, count, cameraPosition, selector);
+            int material = part.material != null ? part.material.getTextureID() : 0;
+            long key = RenderQueue.opaqueKey(RenderQueue.LAYER_OPAQUE, slot, material, RenderQueue.depthBucket(nearest, far));
+            queue.submit(key, commandId, i);
+        }
+    }
+
+    private void drawPacket(int index) {
+        drawPart(parts.get(index), submitShader, instances.size());
+    }
+
+    private void resetFrameStats() {
+        Arrays.fill(trianglesPerLod, 0);
+        fullDetailTriangles = 0;
+        drawCalls = 0;
+    }
+
+    // Requiere shader en uso y los LOD de la parte ya elegidos (selectLods)
+    private void drawPart(Part part, Shader shader, int count) {
+        if (shader != cachedShader) {
+            cachedShader = shader;
+            uTextureSampler = shader.getUniform("textureSampler");
+        }
+        shader.setInt(uTextureSampler, 0);
+        writeInstances(part, count);
+        upload(part, count);
+
+        int textureID = part.material != null ? part.material.getTextureID() : 0;
+        GLState.activeTexture(GL_TEXTURE0);
+        GLState.bindTexture(GL_TEXTURE_2D, textureID);
+        GLState.bindVertexArray(part.vao);
+        GLState.bindBuffer(GL_ARRAY_BUFFER, part.vbo);
+        int first = 0;
+        for (int lod = 0; lod < part.bandCounts.length; lod++) {
+            int band = part.bandCounts[lod];
+            if (band == 0) {
+                continue;
+            }
+            pointInstances(first);
+            part.geometry.drawRangeInstanced(part.mesh.getLodFirstIndex(lod), part.mesh.getLodIndexCount(lod), band);
+            first += band;
+        }
+    }
+
+    // Elige el LOD de cada instancia y suma las estadísticas de la parte. Devuelve la
+    // distancia de la instancia más cercana.
+    private float selectLods(Part part, int count, Vector3f cameraPosition, LodSelector selector) {
+        Arrays.fill(part.bandCounts, 0);
+        float nearest = Float.MAX_VALUE;
+        for (int i = 0; i < count; i++) {
+            world.set(instances.get(i)).mul(part.nodeTransform);
+            world.transformPosition(part.center, worldCenter);
+            world.getScale(worldScale);
+            float scale = Math.max(worldScale.x, Math.max(worldScale.y, worldScale.z));
+            float distance = Math.max(0f, worldCenter.distance(cameraPosition) - part.radius * scale);
+            int lod = selector.select(part.mesh, scale, distance, part.currentLod[i]);
+            part.currentLod[i] = (byte) lod;
+            part.bandCounts[lod]++;
+            nearest = Math.min(nearest, distance);
+        }
+        for (int lod = 0; lod < part.bandCounts.length; lod++) {
+            int band = part.bandCounts[lod];
+            if (band > 0) {
+                trianglesPerLod[lod] += (long) band * part.mesh.getLodIndexCount(lod) / 3;
+                drawCalls++;
+            }
+        }
+        fullDetailTriangles += (long) count * part.mesh.getLodIndexCount(0) / 3;
+        return nearest;
+    }
+
+    // Orden por LOD (counting sort) para que cada banda sea un rango contiguo
+    private void writeInstances(Part part, int count) {
+        int[] next = new int[part.bandCounts.length];
+        for (int lod = 1; lod < next.length; lod++) {
+            next[lod] = next[lod - 1] + part.bandCounts[lod - 1];
+        }
+        float[] color = part.material != null ? part.material.getBaseColor() : new float[]{1f, 1f, 1f, 1f};
+        int packed = TextRender.packColor(color[0], color[1], color[2], color[3]);
+        boolean textured = part.material != null && part.material.getTextureID() != 0;
+        boolean lighting = part.material != null && part.material.isLightingEnabled();
+        for (int i = 0; i < count; i++) {
+            // LOD elegido en este frame (selectLods)
+            int offset = next[part.currentLod[i]]++ * INSTANCE_BYTES;
+            world.set(instances.get(i)).mul(part.nodeTransform);
+            world.get(offset, part.data);
+            part.data.putFloat(offset + 64, 1f);
+            part.data.putFloat(offset + 68, 1f);
+            part.data.put(offset + 72, (byte) packed);
+            part.data.put(offset + 73, (byte) (packed >>> 8));
+            part.data.put(offset + 74, (byte) (packed >>> 16));
+            part.data.put(offset + 75, (byte) (packed >>> 24));
+            part.data.put(offset + 76, (byte) (textured ? 0xFF : 0));
+            part.data.put(offset + 77, (byte) (lighting ? 0xFF : 0));
+            part.data.put(offset + 78, (byte) 0);
+            part.data.put(offset + 79, (byte) 0);
+        }
+    }
+
+    private void upload(Part part, int count) {
+        GLState.bindBuffer(GL_ARRAY_BUFFER, part.vbo);
+        if (part.gpuCapacity < capacity) {
+            glBufferData(GL_ARRAY_BUFFER, (long) capacity * INSTANCE_BYTES, GL_STREAM_DRAW);
+            part.gpuCapacity = capacity;
+        }
+        nglBufferSubData(GL_ARRAY_BUFFER, 0, (long) count * INSTANCE_BYTES, MemoryUtil.memAddress(part.data));
+    }
+
+    // Número de bandas de LOD (el máximo entre las mallas del modelo)
+    public int getLodBandCount() {
+        return trianglesPerLod.length;
+    }
+
+    // Triángulos dibujados en el último render() con el LOD lod
+    public long getTriangles(int lod) {
+        return trianglesPerLod[lod];
+    }
+
+    public long getTriangles() {
+        long total = 0;
+        for (long triangles : trianglesPerLod) {
+            total += triangles;
+        }
+        return total;
+    }
+
+    // Los que se habrían dibujado con todo en LOD 0, para medir el ahorro
+    public long getFullDetailTriangles() {
+        return fullDetailTriangles;
+    }
+
+    public int getDrawCalls() {
+        return drawCalls;
+    }
+
+    public void cleanup() {
+        for (Part part : parts) {
+            GLState.deleteVertexArray(part.vao);
+            GLState.deleteBuffer(part.vbo);
+            MemoryUtil.memFree(part.data);
+        }
+        parts.clear();
+        instances.clear();
+    }
+}
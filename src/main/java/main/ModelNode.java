@@ -0,0 +1,70 @@
+package main;
+
+import org.joml.Matrix4f;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+// Nodo de la jerarquía de un modelo importado: transformación local respecto al padre
+// y los índices (en Model) de las mallas que dibuja.
+public class ModelNode {
+
+    private final String name;
+    private final Matrix4f localTransform;
+    private final int[] meshes;
+    private final ModelNode parent;
+    private final List<ModelNode> children = new ArrayList<>();
+
+    ModelNode(String name, Matrix4f localTransform, int[] meshes, ModelNode parent) {
+        this.name = name;
+        this.localTransform = localTransform;
+        this.meshes = meshes;
+        this.parent = parent;
+        if (parent != null) {
+            parent.children.add(this);
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public Matrix4f getLocalTransform() {
+        return localTransform;
+    }
+
+    // Transformación acumulada desde la raíz
+    public Matrix4f getWorldTransform(Matrix4f dest) {
+        if (parent == null) {
+            return dest.set(localTransform);
+        }
+        return parent.getWorldTransform(dest).mul(localTransform);
+    }
+
+    public int[] getMeshes() {
+        return meshes;
+    }
+
+    public ModelNode getParent() {
+        return parent;
+    }
+
+    public List<ModelNode> getChildren() {
+        return Collections.unmodifiableList(children);
+    }
+
+    // Busca en profundidad por nombre; null si no existe
+    public ModelNode find(String nodeName) {
+        if (name.equals(nodeName)) {
+            return this;
+        }
+        for (ModelNode child : children) {
+            ModelNode found = child.find(nodeName);
+            if (found != null) {
+                return found;
+            }
+        }
+        return null;
+    }
+}
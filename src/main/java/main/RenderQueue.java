@@ -0,0 +1,313 @@
+package main;
+
+import java.util.Arrays;
+
+import static org.lwjgl.opengl.GL11.*;
+
+// Cola de dibujo del frame. Paredes, modelos, texto e interfaz envían paquetes (clave de
+// 64 bits, comando y argumento) en arrays primitivos; flush() los ordena por clave con
+// radix sort y los ejecuta, así que el orden deja de depender del orden de las llamadas.
+//
+// Clave, del bit más alto al más bajo:
+//   opaco (capas < LAYER_TRANSPARENT): capa(4) | shader(12) | material(20) | profundidad(28)
+//   transparente y overlay:            capa(4) | profundidad(28) | shader(12) | material(20)
+// Los opacos se agrupan por shader y material (menos cambios de programa y textura) y
+// dentro de cada grupo van de delante a atrás (early-Z); los transparentes van de atrás a
+// delante (profundidad invertida) y el overlay en el orden que indique quien envía.
+//
+// El shader de la clave es un hueco de shaderSlot(): la cola hace use() solo cuando cambia.
+// El hueco 0 es para comandos que activan su propio programa (texto, interfaz).
+public class RenderQueue {
+
+    // Dibuja un paquete; argument es el que se pasó a submit()
+    public interface Command {
+        void draw(int argument);
+    }
+
+    public static final int LAYER_OPAQUE = 0;
+    public static final int LAYER_TRANSPARENT = 8;
+    // Interfaz y texto: sin prueba de profundidad
+    public static final int LAYER_OVERLAY = 15;
+
+    public static final int SHADER_BITS = 12;
+    public static final int MATERIAL_BITS = 20;
+    public static final int DEPTH_BITS = 28;
+    private static final int MAX_SHADERS = 1 << SHADER_BITS;
+    private static final long SHADER_MASK = MAX_SHADERS - 1;
+    private static final long MATERIAL_MASK = (1L << MATERIAL_BITS) - 1;
+    private static final long DEPTH_MASK = (1L << DEPTH_BITS) - 1;
+
+    private static final int INITIAL_PACKETS = 1024;
+    // 11 bits por pasada: 6 pasadas con histogramas de 8 KB, que caben en L1
+    private static final int RADIX_BITS = 11;
+    private static final int RADIX = 1 << RADIX_BITS;
+    private static final int PASSES = (Long.SIZE + RADIX_BITS - 1) / RADIX_BITS;
+
+    // Paquetes en orden de envío
+    private long[] keys = new long[INITIAL_PACKETS];
+    private int[] commandIds = new int[INITIAL_PACKETS];
+    private int[] arguments = new int[INITIAL_PACKETS];
+    private int count;
+
+    // Radix sort: claves e índices ordenados, más sus buffers de intercambio
+    private long[] sortedKeys = new long[INITIAL_PACKETS];
+    private int[] order = new int[INITIAL_PACKETS];
+    private long[] keyScratch = new long[INITIAL_PACKETS];
+    private int[] orderScratch = new int[INITIAL_PACKETS];
+    private final int[] histograms = new int[PASSES * RADIX];
+
+    private Command[] commands = new Command[16];
+    private int commandCount;
+    // Hueco 0 reservado: el comando activa su propio programa
+    private final Shader[] shaders = new Shader[MAX_SHADERS];
+    private int shaderCount = 1;
+
+    // Estadísticas del último flush()
+    private int lastPackets;
+    private int shaderSwitches;
+    private int materialSwitches;
+    private int radixPasses;
+    private long sortNanos;
+
+    // Devuelve el id con el que se envían paquetes de este comando (una vez, al preparar)
+    public int registerCommand(Command command) {
+        if (commandCount == commands.length) {
+            commands = Arrays.copyOf(commands, commandCount * 2);
+        }
+        commands[commandCount] = command;
+        return commandCount++;
+    }
+
+    // Hueco del shader para la clave; lo registra la primera vez. Búsqueda lineal: hay pocos
+    public int shaderSlot(Shader shader) {
+        for (int slot = 1; slot < shaderCount; slot++) {
+            if (shaders[slot] == shader) {
+                return slot;
+            }
+        }
+        if (shaderCount == MAX_SHADERS) {
+            throw new IllegalStateException("Demasiados shaders en la cola: " + MAX_SHADERS);
+        }
+        shaders[shaderCount] = shader;
+        return shaderCount++;
+    }
+
+    // Profundidad en [0, far] a cubo de DEPTH_BITS (más cerca, menor)
+    public static int depthBucket(float distance, float far) {
+        float t = Math.min(Math.max(distance / far, 0f), 1f);
+        return (int) (t * DEPTH_MASK);
+    }
+
+    public static long opaqueKey(int layer, int shaderSlot, int material, int depthBucket) {
+        return (long) layer << 60
+                | (shaderSlot & SHADER_MASK) << (MATERIAL_BITS + DEPTH_BITS)
+                | (material & MATERIAL_MASK) << DEPTH_BITS
+                | (depthBucket & DEPTH_MASK);
+    }
+
+    // De atrás a delante: la profundidad se invierte para que la más lejana ordene primero
+    public static long transparentKey(int layer, int shaderSlot, int material, int depthBucket) {
+        return sequencedKey(layer, (int) (DEPTH_MASK - (depthBucket & DEPTH_MASK)), shaderSlot, material);
+    }
+
+    // Overlay y cualquier capa en la que manda el orden dado por quien envía
+    public static long sequencedKey(int layer, int sequence, int shaderSlot, int material) {
+        return (long) layer << 60
+                | (sequence & DEPTH_MASK) << (SHADER_BITS + MATERIAL_BITS)
+                | (shaderSlot & SHADER_MASK) << MATERIAL_BITS
+                | (material & MATERIAL_MASK);
+    }
+
+    public static int layerOf(long key) {
+        return (int) (key >>> 60);
+    }
+
+    public static int shaderOf(long key) {
+        int shift = layerOf(key) < LAYER_TRANSPARENT ? MATERIAL_BITS + DEPTH_BITS : MATERIAL_BITS;
+        return (int) ((key >>> shift) & SHADER_MASK);
+    }
+
+    public static int materialOf(long key) {
+        int shift = layerOf(key) < LAYER_TRANSPARENT ? DEPTH_BITS : 0;
+        return (int) ((key >>> shift) & MATERIAL_MASK);
+    }
+
+    public void submit(long key, int commandId, int argument) {
+        if (count == keys.length) {
+            grow(count * 2);
+        }
+        keys[count] = key;
+        commandIds[count] = commandId;
+        arguments[count] = argument;
+        count++;
+    }
+
+    // Solo crece (geométricamente): en régimen estable no se reserva nada por frame
+    private void grow(int capacity) {
+        keys = Arrays.copyOf(keys, capacity);
+        commandIds = Arrays.copyOf(commandIds, capacity);
+        arguments = Arrays.copyOf(arguments, capacity);
+        sortedKeys = new long[capacity];
+        order = new int[capacity];
+        keyScratch = new long[capacity];
+        orderScratch = new int[capacity];
+    }
+
+    // Radix sort LSD estable de RADIX_BITS por pasada. Los histogramas de todas las pasadas salen
+    // de una sola lectura de las claves, y se saltan las pasadas en las que todos los
+    // paquetes comparten el dígito (lo normal en los bits de capa y shader).
+    public void sort() {
+        long start = System.nanoTime();
+        int n = count;
+        Arrays.fill(histograms, 0);
+        for (int i = 0; i < n; i++) {
+            long key = keys[i];
+            for (int pass = 0; pass < PASSES; pass++) {
+                histograms[pass * RADIX + (int) ((key >>> (pass * RADIX_BITS)) & (RADIX - 1))]++;
+            }
+        }
+
+        long[] srcKeys = keys;
+        int[] srcOrder = null;
+        long[] dstKeys = sortedKeys;
+        int[] dstOrder = order;
+        radixPasses = 0;
+        for (int pass = 0; pass < PASSES; pass++) {
+            int base = pass * RADIX;
+            if (n == 0 || histograms[base + (int) ((keys[0] >>> (pass * RADIX_BITS)) & (RADIX - 1))] == n) {
+                continue;
+            }
+            // Histograma a desplazamientos
+            int sum = 0;
+            for (int digit = 0; digit < RADIX; digit++) {
+                int c = histograms[base + digit];
+                histograms[base + digit] = sum;
+                sum += c;
+            }
+            int shift = pass * RADIX_BITS;
+            for (int i = 0; i < n; i++) {
+                long key = srcKeys[i];
+                int slot = histograms[base + (int) ((key >>> shift) & (RADIX - 1))]++;
+                dstKeys[slot] = key;
+                dstOrder[slot] = srcOrder != null ? srcOrder[i] : i;
+            }
+            radixPasses++;
+            // La salida de esta pasada es la entrada de la siguiente
+            srcKeys = dstKeys;
+            srcOrder = dstOrder;
+            dstKeys = dstKeys == sortedKeys ? keyScratch : sortedKeys;
+            dstOrder = dstOrder == order ? orderScratch : order;
+        }
+
+        if (srcOrder == null) {
+            // Ninguna pasada: ya estaba todo en orden de envío
+            System.arraycopy(keys, 0, sortedKeys, 0, n);
+            for (int i = 0; i < n; i++) {
+                order[i] = i;
+            }
+        } else if (srcOrder != order) {
+            System.arraycopy(srcKeys, 0, sortedKeys, 0, n);
+            System.arraycopy(srcOrder, 0, order, 0, n);
+        }
+        sortNanos = System.nanoTime() - start;
+    }
+
+    // Ordena y dibuja todos los paquetes del frame y vacía la cola (hilo de OpenGL).
+    // El estado de profundidad y mezcla lo pone la capa (vía GLState, así que repetirlo
+    // no cuesta llamadas); al acabar queda como en la capa opaca, con la mezcla desactivada.
+    public void flush() {
+        sort();
+        shaderSwitches = 0;
+        materialSwitches = 0;
+        int currentLayer = -1;
+        int currentShader = -1;
+        int currentMaterial = -1;
+        for (int i = 0; i < count; i++) {
+            long key = sortedKeys[i];
+            int packet = order[i];
+
+            int layer = layerOf(key);
+            if (layer != currentLayer) {
+                applyLayer(layer);
+                currentLayer = layer;
+            }
+            int shader = shaderOf(key);
+            if (shader == 0) {
+                // El comando activa su propio programa: el siguiente use() no se puede saltar
+                currentShader = -1;
+            } else if (shader != currentShader) {
+                shaders[shader].use();
+                currentShader = shader;
+                shaderSwitches++;
+            }
+            int material = materialOf(key);
+            if (material != currentMaterial) {
+                currentMaterial = material;
+                materialSwitches++;
+            }
+            commands[commandIds[packet]].draw(arguments[packet]);
+        }
+        if (currentLayer != -1) {
+            applyLayer(LAYER_OPAQUE);
+        }
+        lastPackets = count;
+        count = 0;
+    }
+
+    private static void applyLayer(int layer) {
+        if (layer < LAYER_TRANSPARENT) {
+            GLState.enable(GL_DEPTH_TEST);
+            GLState.depthMask(true);
+            GLState.disable(GL_BLEND);
+        } else if (layer < LAYER_OVERLAY) {
+            // Se prueban contra los opacos pero no escriben profundidad
+            GLState.enable(GL_DEPTH_TEST);
+            GLState.depthMask(false);
+            GLState.enable(GL_BLEND);
+            GLState.blendFunc(GL_SRC_ALPHA, GL_ONE_MINUS_SRC_ALPHA);
+        } else {
+            GLState.disable(GL_DEPTH_TEST);
+            GLState.depthMask(true);
+        }
+    }
+
+    // Paquetes enviados desde el último flush()
+    public int getPendingCount() {
+        return count;
+    }
+
+    public int getLastPacketCount() {
+        return lastPackets;
+    }
+
+    // Clave ordenada i del último sort() (para comprobar el orden)
+    public long getSortedKey(int i) {
+        return sortedKeys[i];
+    }
+
+    // Índice de envío del paquete en la posición i tras el último sort()
+    public int getSortedPacket(int i) {
+        return order[i];
+    }
+
+    public int getShaderSwitches() {
+        return shaderSwitches;
+    }
+
+    public int getMaterialSwitches() {
+        return materialSwitches;
+    }
+
+    public int getRadixPasses() {
+        return radixPasses;
+    }
+
+    public long getSortNanos() {
+        return sortNanos;
+    }
+
+    // Descarta los paquetes pendientes sin dibujarlos
+    public void clear() {
+        count = 0;
+    }
+}
@@ -0,0 +1,117 @@
+package main;
+
+import java.lang.management.ManagementFactory;
+import java.util.SplittableRandom;
+
+// Benchmark de RenderQueue sin OpenGL: envío y radix sort de 1k / 10k / 100k paquetes
+// con claves como las de una escena (pocos shaders, muchos materiales y profundidades).
+// Comprueba que el orden es correcto y estable y que en régimen estable no se reserva
+// memoria por frame. Sale con código 1 si algo falla.
+// mvn exec:java -Dexec.mainClass=main.RenderQueueBenchmark
+public class RenderQueueBenchmark {
+
+    private static final int[] COUNTS = {1_000, 10_000, 100_000};
+    private static final int WARMUP_FRAMES = 500;
+    private static final int MEASURED_FRAMES = 200;
+    private static final int SHADERS = 4;
+    private static final int MATERIALS = 64;
+    private static final float FAR = 100f;
+
+    public static void main(String[] args) {
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long thread = Thread.currentThread().threadId();
+        boolean ok = true;
+
+        System.out.printf("%8s  %12s  %12s  %8s  %14s%n", "paquetes", "envío ms", "orden ms", "pasadas", "bytes/frame");
+        for (int count : COUNTS) {
+            RenderQueue queue = new RenderQueue();
+            long[] keys = createKeys(count);
+
+            for (int f = 0; f < WARMUP_FRAMES; f++) {
+                frame(queue, keys);
+            }
+            long submitNanos = 0;
+            long sortNanos = 0;
+            // Lo que reserva la propia medida, para descontarlo
+            long baseline = threads.getThreadAllocatedBytes(thread);
+            long allocated = threads.getThreadAllocatedBytes(thread);
+            baseline = allocated - baseline;
+            for (int f = 0; f < MEASURED_FRAMES; f++) {
+                long t0 = System.nanoTime();
+                submitAll(queue, keys);
+                long t1 = System.nanoTime();
+                queue.sort();
+                sortNanos += System.nanoTime() - t1;
+                submitNanos += t1 - t0;
+                if (f < MEASURED_FRAMES - 1) {
+                    queue.clear();
+                }
+            }
+            long bytesPerFrame = (threads.getThreadAllocatedBytes(thread) - allocated - baseline) / MEASURED_FRAMES;
+
+            boolean sorted = checkOrder(queue, keys);
+            ok &= sorted && bytesPerFrame == 0;
+            System.out.printf("%8d  %12.3f  %12.3f  %8d  %14d%s%n", count,
+                    submitNanos / 1e6 / MEASURED_FRAMES, sortNanos / 1e6 / MEASURED_FRAMES,
+                    queue.getRadixPasses(), bytesPerFrame, sorted ? "" : "  ORDEN INCORRECTO");
+            queue.clear();
+        }
+
+        System.out.println(ok ? "OK" : "FALLO");
+        if (!ok) {
+            System.exit(1);
+        }
+    }
+
+    // Opacos por shader/material/profundidad, algunos transparentes y unos pocos overlays.
+    // Sin OpenGL no hay Shader: los huecos 1..SHADERS solo se usan en las claves.
+    private static long[] createKeys(int count) {
+        SplittableRandom random = new SplittableRandom(42);
+        long[] keys = new long[count];
+        for (int i = 0; i < count; i++) {
+            int shader = 1 + random.nextInt(SHADERS);
+            int material = 1 + random.nextInt(MATERIALS);
+            int depth = RenderQueue.depthBucket(random.nextFloat() * FAR, FAR);
+            int kind = random.nextInt(100);
+            if (kind < 90) {
+                keys[i] = RenderQueue.opaqueKey(RenderQueue.LAYER_OPAQUE, shader, material, depth);
+            } else if (kind < 99) {
+                keys[i] = RenderQueue.transparentKey(RenderQueue.LAYER_TRANSPARENT, shader, material, depth);
+            } else {
+                keys[i] = RenderQueue.sequencedKey(RenderQueue.LAYER_OVERLAY, i, 0, 0);
+            }
+        }
+        return keys;
+    }
+
+    private static void submitAll(RenderQueue queue, long[] keys) {
+        for (int i = 0; i < keys.length; i++) {
+            queue.submit(keys[i], 0, i);
+        }
+    }
+
+    private static void frame(RenderQueue queue, long[] keys) {
+        submitAll(queue, keys);
+        queue.sort();
+        queue.clear();
+    }
+
+    // Claves no decrecientes (sin signo), cada paquete apunta a su clave y los iguales
+    // conservan el orden de envío
+    private static boolean checkOrder(RenderQueue queue, long[] keys) {
+        for (int i = 0; i < keys.length; i++) {
+            int packet = queue.getSortedPacket(i);
+            if (keys[packet] != queue.getSortedKey(i)) {
+                return false;
+            }
+            if (i > 0) {
+                int cmp = Long.compareUnsigned(queue.getSortedKey(i - 1), queue.getSortedKey(i));
+                if (cmp > 0 || (cmp == 0 && queue.getSortedPacket(i - 1) > packet)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+}
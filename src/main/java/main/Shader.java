@@ -5,12 +5,12 @@ import org.joml.Vector3f;
 import org.lwjgl.opengl.GL33;
 import org.lwjgl.system.MemoryStack;
 
-import java.io.BufferedReader;
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.InputStreamReader;
 import java.nio.FloatBuffer;
-import java.nio.charset.StandardCharsets;
+import java.nio.IntBuffer;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
 
 import static org.lwjgl.opengl.GL20.*;
 
@@ -19,6 +19,23 @@ public class Shader {
     private int programId;
     private boolean compiled = false;
 
+    // Registro de uniforms: nombre -> handle (índice en los arrays de abajo)
+    private final Map<String, Integer> uniformHandles = new HashMap<>();
+    private int[] uniformLocations = new int[0];
+    private int[] uniformTypes = new int[0];
+
+    // Copia sombra del último valor subido de cada uniform
+    private int[] shadowOffsets = new int[0];
+    private float[] shadowFloats = new float[0];
+    private int[] shadowInts = new int[0];
+    private boolean[] shadowValid = new boolean[0];
+
+    // Estadísticas
+    private long lookupHits;
+    private long lookupMisses;
+    private long uploadsIssued;
+    private long uploadsElided;
+
     public Shader(String vertexResource, String fragmentResource) {
         try {
             String vertexSource = readShaderFromResource(vertexResource);
@@ -40,6 +57,8 @@ public class Shader {
             GL33.glDeleteShader(vertexId);
             GL33.glDeleteShader(fragmentId);
 
+            CameraUniformBuffer.bindBlock(programId);
+            introspectUniforms();
             compiled = true;
 
         } catch (IOException | RuntimeException e) {
@@ -48,20 +67,9 @@ public class Shader {
         }
     }
 
+    // Del archivo montado (assets.pak) si lo hay; si no, del classpath
     private String readShaderFromResource(String resourcePath) throws IOException {
-        InputStream input = getClass().getClassLoader().getResourceAsStream(resourcePath);
-        if (input == null) {
-            throw new IOException("Recurso no encontrado: " + resourcePath);
-        }
-
-        try (BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8))) {
-            StringBuilder builder = new StringBuilder();
-            String line;
-            while ((line = reader.readLine()) != null) {
-                builder.append(line).append('\n');
-            }
-            return builder.toString();
-        }
+        return Assets.readText(resourcePath);
     }
 
     private int compileShader(int type, String source) {
@@ -78,80 +86,331 @@ public class Shader {
         return shaderId;
     }
 
+    // Recorre los uniforms activos una sola vez tras el enlazado. Cada elemento de un array
+    // tiene su propio handle, location y copia sombra: "x" y "x[0]" son el primero, "x[1]"
+    // el segundo, etc.
+    private void introspectUniforms() {
+        int count = GL33.glGetProgrami(programId, GL33.GL_ACTIVE_UNIFORMS);
+        String[] names = new String[count];
+        int[] sizes = new int[count];
+        int[] types = new int[count];
+        boolean[] arrays = new boolean[count];
+        int handles = 0;
+        try (MemoryStack stack = MemoryStack.stackPush()) {
+            IntBuffer size = stack.mallocInt(1);
+            IntBuffer type = stack.mallocInt(1);
+            for (int i = 0; i < count; i++) {
+                String name = glGetActiveUniform(programId, i, size, type);
+                if (name.endsWith("[0]")) {
+                    name = name.substring(0, name.length() - 3);
+                    arrays[i] = true;
+                }
+                names[i] = name;
+                sizes[i] = size.get(0);
+                types[i] = type.get(0);
+                handles += sizes[i];
+            }
+        }
+
+        uniformLocations = new int[handles];
+        uniformTypes = new int[handles];
+        shadowOffsets = new int[handles];
+        shadowInts = new int[handles];
+        shadowValid = new boolean[handles];
+
+        int floats = 0;
+        int handle = 0;
+        for (int i = 0; i < count; i++) {
+            for (int element = 0; element < sizes[i]; element++, handle++) {
+                String name = arrays[i] ? names[i] + "[" + element + "]" : names[i];
+                uniformLocations[handle] = glGetUniformLocation(programId, name);
+                uniformTypes[handle] = types[i];
+                shadowOffsets[handle] = floats;
+                floats += floatComponents(types[i]);
+                // Los miembros de bloques uniform no tienen location propia
+                if (uniformLocations[handle] != -1) {
+                    uniformHandles.put(name, handle);
+                    if (arrays[i] && element == 0) {
+                        uniformHandles.put(names[i], handle);
+                    }
+                }
+            }
+        }
+        shadowFloats = new float[floats];
+    }
+
+    private static int floatComponents(int type) {
+        return switch (type) {
+            case GL_FLOAT -> 1;
+            case GL_FLOAT_VEC2 -> 2;
+            case GL_FLOAT_VEC3 -> 3;
+            case GL_FLOAT_VEC4, GL_FLOAT_MAT2 -> 4;
+            case GL_FLOAT_MAT3 -> 9;
+            case GL_FLOAT_MAT4 -> 16;
+            default -> 0;
+        };
+    }
+
+    // Un setter de otro tipo leería o escribiría la copia sombra del uniform vecino
+    private void requireType(int handle, int expected, int alternative) {
+        int type = uniformTypes[handle];
+        if (type != expected && type != alternative) {
+            throw new IllegalArgumentException("Tipo de uniform incompatible (handle " + handle
+                    + ", tipo 0x" + Integer.toHexString(type) + ")");
+        }
+    }
+
+    // Devuelve el handle de un uniform activo, o -1 si el programa no lo usa.
+    // El handle es válido para los setters tipados mientras viva el shader.
+    public int getUniform(String name) {
+        Integer handle = uniformHandles.get(name);
+        if (handle == null) {
+            lookupMisses++;
+            return -1;
+        }
+        lookupHits++;
+        return handle;
+    }
+
+    public boolean hasUniform(String name) {
+        return uniformHandles.containsKey(name);
+    }
+
+    public int getUniformType(int handle) {
+        return uniformTypes[handle];
+    }
+
+    public int getUniformCount() {
+        return uniformLocations.length;
+    }
+
+    public long getLookupHits() {
+        return lookupHits;
+    }
+
+    public long getLookupMisses() {
+        return lookupMisses;
+    }
+
+    public long getUploadsIssued() {
+        return uploadsIssued;
+    }
+
+    public long getUploadsElided() {
+        return uploadsElided;
+    }
+
+    public void resetStats() {
+        lookupHits = 0;
+        lookupMisses = 0;
+        uploadsIssued = 0;
+        uploadsElided = 0;
+    }
+
+    // Olvida los valores sombra (p.ej. si otro código toca el programa directamente)
+    public void invalidateUniformCache() {
+        Arrays.fill(shadowValid, false);
+    }
+
     public void use() {
         if (compiled) {
-            GL33.glUseProgram(programId);
+            GLState.useProgram(programId);
         }
     }
 
     public void cleanup() {
         if (compiled) {
-            GL33.glDeleteProgram(programId);
+            GLState.deleteProgram(programId);
             compiled = false;
         }
     }
 
     public void setMatrix4f(String name, Matrix4f matrix) {
+        setMat4(getUniform(name), matrix);
+    }
+
+    public void setVector3f(String name, Vector3f vector) {
+        setVector3f(getUniform(name), vector);
+    }
+
+    public void setFloat(String name, float value) {
+        setFloat(getUniform(name), value);
+    }
+
+    public void setInt(String name, int value) {
+        setInt(getUniform(name), value);
+    }
+
+    public void setBool(String name, boolean value) {
+        setInt(getUniform(name), value ? 1 : 0);
+    }
+
+    public void setVec4(String name, float x, float y, float z, float w) {
+        setVec4(getUniform(name), x, y, z, w);
+    }
+
+    public void setMat4(String name, FloatBuffer matrixBuffer) {
+        int handle = getUniform(name);
+        if (handle != -1) {
+            setMat4(handle, matrixBuffer);
+        } else {
+            System.err.println("Uniform '" + name + "' no encontrado en el shader.");
+        }
+    }
+
+    public void setMat4(String name, Matrix4f matrix) {
+        int handle = getUniform(name);
+        if (handle != -1) {
+            setMat4(handle, matrix);
+        } else {
+            System.err.println("Uniform '" + name + "' no encontrado en el shader.");
+        }
+    }
+
+    // Setters por handle: comparan con la copia sombra antes de llamar al driver
+
+    public void setMat4(int handle, Matrix4f m) {
+        if (handle < 0) {
+            return;
+        }
+        requireType(handle, GL_FLOAT_MAT4, GL_FLOAT_MAT4);
+        int o = shadowOffsets[handle];
+        float[] v = shadowFloats;
+        if (shadowValid[handle]
+                && same(v[o], m.m00()) && same(v[o + 1], m.m01()) && same(v[o + 2], m.m02()) && same(v[o + 3], m.m03())
+                && same(v[o + 4], m.m10()) && same(v[o + 5], m.m11()) && same(v[o + 6], m.m12()) && same(v[o + 7], m.m13())
+                && same(v[o + 8], m.m20()) && same(v[o + 9], m.m21()) && same(v[o + 10], m.m22()) && same(v[o + 11], m.m23())
+                && same(v[o + 12], m.m30()) && same(v[o + 13], m.m31()) && same(v[o + 14], m.m32()) && same(v[o + 15], m.m33())) {
+            uploadsElided++;
+            return;
+        }
+        m.get(v, o);
+        shadowValid[handle] = true;
         try (MemoryStack stack = MemoryStack.stackPush()) {
             FloatBuffer buffer = stack.mallocFloat(16);
-            matrix.get(buffer);
-            int location = glGetUniformLocation(programId, name);
-            if (location != -1) {
-                glUniformMatrix4fv(location, false, buffer);
-            }
+            m.get(buffer);
+            glUniformMatrix4fv(uniformLocations[handle], false, buffer);
         }
+        uploadsIssued++;
     }
 
-    public void setVector3f(String name, Vector3f vector) {
-        int location = glGetUniformLocation(programId, name);
-        if (location != -1) {
-            GL33.glUniform3f(location, vector.x, vector.y, vector.z);
+    public void setMat4(int handle, FloatBuffer matrixBuffer) {
+        if (handle < 0) {
+            return;
         }
+        requireType(handle, GL_FLOAT_MAT4, GL_FLOAT_MAT4);
+        int o = shadowOffsets[handle];
+        int p = matrixBuffer.position();
+        if (shadowValid[handle]) {
+            boolean equal = true;
+            for (int i = 0; i < 16 && equal; i++) {
+                equal = same(shadowFloats[o + i], matrixBuffer.get(p + i));
+            }
+            if (equal) {
+                uploadsElided++;
+                return;
+            }
+        }
+        matrixBuffer.get(p, shadowFloats, o, 16);
+        shadowValid[handle] = true;
+        glUniformMatrix4fv(uniformLocations[handle], false, matrixBuffer);
+        uploadsIssued++;
     }
 
-    public void setFloat(String name, float value) {
-        int location = glGetUniformLocation(programId, name);
-        if (location != -1) {
-            glUniform1f(location, value);
+    public void setVector3f(int handle, Vector3f vector) {
+        setVec3(handle, vector.x, vector.y, vector.z);
+    }
+
+    public void setVec3(int handle, float x, float y, float z) {
+        if (handle < 0) {
+            return;
+        }
+        requireType(handle, GL_FLOAT_VEC3, GL_FLOAT_VEC3);
+        int o = shadowOffsets[handle];
+        float[] v = shadowFloats;
+        if (shadowValid[handle] && same(v[o], x) && same(v[o + 1], y) && same(v[o + 2], z)) {
+            uploadsElided++;
+            return;
         }
+        v[o] = x;
+        v[o + 1] = y;
+        v[o + 2] = z;
+        shadowValid[handle] = true;
+        glUniform3f(uniformLocations[handle], x, y, z);
+        uploadsIssued++;
     }
 
-    public void setInt(String name, int value) {
-        int location = glGetUniformLocation(programId, name);
-        if (location != -1) {
-            glUniform1i(location, value);
+    public void setVec4(int handle, float x, float y, float z, float w) {
+        if (handle < 0) {
+            return;
+        }
+        requireType(handle, GL_FLOAT_VEC4, GL_FLOAT_VEC3);
+        int o = shadowOffsets[handle];
+        float[] v = shadowFloats;
+        // Un vec3 declarado en el shader recibe solo xyz
+        boolean isVec3 = uniformTypes[handle] == GL_FLOAT_VEC3;
+        if (shadowValid[handle] && same(v[o], x) && same(v[o + 1], y) && same(v[o + 2], z)
+                && (isVec3 || same(v[o + 3], w))) {
+            uploadsElided++;
+            return;
+        }
+        v[o] = x;
+        v[o + 1] = y;
+        v[o + 2] = z;
+        if (isVec3) {
+            glUniform3f(uniformLocations[handle], x, y, z);
+        } else {
+            v[o + 3] = w;
+            glUniform4f(uniformLocations[handle], x, y, z, w);
         }
+        shadowValid[handle] = true;
+        uploadsIssued++;
     }
 
-    public void setBool(String name, boolean value) {
-        int location = glGetUniformLocation(programId, name);
-        if (location != -1) {
-            glUniform1i(location, value ? 1 : 0);
+    public void setFloat(int handle, float value) {
+        if (handle < 0) {
+            return;
+        }
+        requireType(handle, GL_FLOAT, GL_FLOAT);
+        int o = shadowOffsets[handle];
+        if (shadowValid[handle] && same(shadowFloats[o], value)) {
+            uploadsElided++;
+            return;
         }
+        shadowFloats[o] = value;
+        shadowValid[handle] = true;
+        glUniform1f(uniformLocations[handle], value);
+        uploadsIssued++;
     }
 
-    public void setVec4(String name, float x, float y, float z, float w) {
-        int location = glGetUniformLocation(programId, name);
-        if (location != -1) {
-            glUniform4f(location, x, y, z, w);
+    public void setInt(int handle, int value) {
+        if (handle < 0) {
+            return;
         }
+        // Enteros, booleanos y samplers: sin hueco en shadowFloats, usan shadowInts
+        if (floatComponents(uniformTypes[handle]) != 0) {
+            requireType(handle, GL_INT, GL_BOOL);
+        }
+        if (shadowValid[handle] && shadowInts[handle] == value) {
+            uploadsElided++;
+            return;
+        }
+        shadowInts[handle] = value;
+        shadowValid[handle] = true;
+        glUniform1i(uniformLocations[handle], value);
+        uploadsIssued++;
     }
 
-public void setMat4(String name, FloatBuffer matrixBuffer) {
-    int location = glGetUniformLocation(programId, name);
-    if (location != -1) {
-        glUniformMatrix4fv(location, false, matrixBuffer);
-    } else {
-        System.err.println("Uniform '" + name + "' no encontrado en el shader.");
+    public void setBool(int handle, boolean value) {
+        setInt(handle, value ? 1 : 0);
     }
-}
 
-public void setMat4(String name, Matrix4f matrix) {
-    try (MemoryStack stack = MemoryStack.stackPush()) {
-        FloatBuffer buffer = stack.mallocFloat(16);
-        matrix.get(buffer);
-        setMat4(name, buffer); // Reutilizamos el anterior
+    // Comparación por bits: distingue -0.0 y trata NaN como igual a si mismo
+    private static boolean same(float a, float b) {
+        return Float.floatToRawIntBits(a) == Float.floatToRawIntBits(b);
     }
-}
 
+    public int getProgramId() {
+        return programId;
+    }
 }
@@ -2,9 +2,7 @@ package main;
 
 import org.lwjgl.opengl.GL20;
 import org.lwjgl.system.MemoryUtil;
-import java.io.BufferedReader;
-import java.io.InputStream;
-import java.io.InputStreamReader;
+import java.io.IOException;
 import java.nio.FloatBuffer;
 import org.joml.Matrix4f;
 import org.lwjgl.system.MemoryStack;
@@ -21,15 +19,19 @@ public class ShaderProgram {
         GL20.glAttachShader(programId, vertexId);
         GL20.glAttachShader(programId, fragmentId);
         GL20.glLinkProgram(programId);
+        CameraUniformBuffer.bindBlock(programId);
 
         GL20.glDeleteShader(vertexId);
         GL20.glDeleteShader(fragmentId);
     }
 
     private int compileShader(String path, int type) {
-        InputStream stream = getClass().getResourceAsStream("/" + path);
-        String code = new BufferedReader(new InputStreamReader(stream))
-                .lines().reduce("", (acc, line) -> acc + line + "\n");
+        String code;
+        try {
+            code = Assets.readText(path);
+        } catch (IOException e) {
+            throw new RuntimeException("No se pudo leer el shader: " + path, e);
+        }
 
         int shaderId = GL20.glCreateShader(type);
         GL20.glShaderSource(shaderId, code);
@@ -39,7 +41,7 @@ public class ShaderProgram {
     }
 
     public void use() {
-        GL20.glUseProgram(programId);
+        GLState.useProgram(programId);
     }
 
     public void setMat4(String name, Matrix4f matrix) {
@@ -1,8 +1,6 @@
 package main;
 
 import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.Paths;
 import org.joml.Matrix4f;
 import org.joml.Vector3f;
 import static org.lwjgl.opengl.GL33.*;
@@ -28,6 +26,7 @@ public class ShaderUtils {
         glAttachShader(program, fragmentShader);
         glLinkProgram(program);
         checkLink(program);
+        CameraUniformBuffer.bindBlock(program);
 
         glDeleteShader(vertexShader);
         glDeleteShader(fragmentShader);
@@ -37,7 +36,7 @@ public class ShaderUtils {
 
     private static String readFile(String path) {
         try {
-            return new String(Files.readAllBytes(Paths.get(path)));
+            return Assets.readText(path);
         } catch (IOException e) {
             throw new RuntimeException("Error al leer archivo shader: " + path);
         }
@@ -97,6 +96,7 @@ public class ShaderUtils {
         glAttachShader(shaderProgram, fragmentShader);
         glLinkProgram(shaderProgram);
         checkLink(shaderProgram);
+        CameraUniformBuffer.bindBlock(shaderProgram);
 
         glDeleteShader(vertexShader);
         glDeleteShader(fragmentShader);
@@ -120,6 +120,7 @@ public class ShaderUtils {
         glAttachShader(program, fragmentShader);
         glLinkProgram(program);
         checkProgramLink(program);
+        CameraUniformBuffer.bindBlock(program);
 
         glDeleteShader(vertexShader);
         glDeleteShader(fragmentShader);
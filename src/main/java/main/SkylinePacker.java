@@ -0,0 +1,148 @@
+package main;
+
+import java.util.Arrays;
+
+// Empaquetador de rectángulos tipo "skyline" (bottom-left) para una página de atlas
+public class SkylinePacker {
+
+    private final int width;
+    private final int height;
+    private final int padding;
+
+    // Segmentos del horizonte: empiezan en x, tienen ancho w y altura y
+    private int[] nodeX = new int[16];
+    private int[] nodeY = new int[16];
+    private int[] nodeW = new int[16];
+    private int nodeCount;
+
+    private long usedArea;
+
+    public SkylinePacker(int width, int height, int padding) {
+        this.width = width;
+        this.height = height;
+        this.padding = padding;
+        reset();
+    }
+
+    public void reset() {
+        nodeCount = 1;
+        nodeX[0] = 0;
+        nodeY[0] = 0;
+        nodeW[0] = width;
+        usedArea = 0;
+    }
+
+    // Busca sitio para un rectángulo w x h. Si cabe escribe x, y en out y devuelve true.
+    public boolean pack(int w, int h, int[] out) {
+        int pw = w + padding;
+        int ph = h + padding;
+
+        int bestIndex = -1;
+        int bestY = Integer.MAX_VALUE;
+        int bestWidth = Integer.MAX_VALUE;
+
+        for (int i = 0; i < nodeCount; i++) {
+            int y = fit(i, pw, ph);
+            if (y < 0) {
+                continue;
+            }
+            // Preferimos el sitio más bajo; a igual altura, el segmento más estrecho
+            if (y < bestY || (y == bestY && nodeW[i] < bestWidth)) {
+                bestIndex = i;
+                bestY = y;
+                bestWidth = nodeW[i];
+            }
+        }
+        if (bestIndex < 0) {
+            return false;
+        }
+
+        int x = nodeX[bestIndex];
+        insertNode(bestIndex, x, bestY + ph, pw);
+        usedArea += (long) pw * ph;
+        out[0] = x;
+        out[1] = bestY;
+        return true;
+    }
+
+    // Altura a la que quedaría el rectángulo apoyado a partir del segmento i, o -1 si no cabe
+    private int fit(int index, int w, int h) {
+        int x = nodeX[index];
+        if (x + w > width) {
+            return -1;
+        }
+        int y = 0;
+        int remaining = w;
+        int i = index;
+        while (remaining > 0) {
+            if (i >= nodeCount) {
+                return -1;
+            }
+            y = Math.max(y, nodeY[i]);
+            if (y + h > height) {
+                return -1;
+            }
+            remaining -= nodeW[i];
+            i++;
+        }
+        return y;
+    }
+
+    private void insertNode(int index, int x, int y, int w) {
+        ensureCapacity(nodeCount + 1);
+        System.arraycopy(nodeX, index, nodeX, index + 1, nodeCount - index);
+        System.arraycopy(nodeY, index, nodeY, index + 1, nodeCount - index);
+        System.arraycopy(nodeW, index, nodeW, index + 1, nodeCount - index);
+        nodeX[index] = x;
+        nodeY[index] = y;
+        nodeW[index] = w;
+        nodeCount++;
+
+        // Recortar o eliminar los segmentos que quedan bajo el nuevo
+        int i = index + 1;
+        while (i < nodeCount) {
+            int prevEnd = nodeX[i - 1] + nodeW[i - 1];
+            if (nodeX[i] >= prevEnd) {
+                break;
+            }
+            int shrink = prevEnd - nodeX[i];
+            nodeX[i] += shrink;
+            nodeW[i] -= shrink;
+            if (nodeW[i] > 0) {
+                break;
+            }
+            removeNode(i);
+        }
+
+        // Unir segmentos contiguos de la misma altura
+        for (int j = 0; j < nodeCount - 1; ) {
+            if (nodeY[j] == nodeY[j + 1]) {
+                nodeW[j] += nodeW[j + 1];
+                removeNode(j + 1);
+            } else {
+                j++;
+            }
+        }
+    }
+
+    private void removeNode(int index) {
+        System.arraycopy(nodeX, index + 1, nodeX, index, nodeCount - index - 1);
+        System.arraycopy(nodeY, index + 1, nodeY, index, nodeCount - index - 1);
+        System.arraycopy(nodeW, index + 1, nodeW, index, nodeCount - index - 1);
+        nodeCount--;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > nodeX.length) {
+            int size = Math.max(capacity, nodeX.length * 2);
+            nodeX = Arrays.copyOf(nodeX, size);
+            nodeY = Arrays.copyOf(nodeY, size);
+            nodeW = Arrays.copyOf(nodeW, size);
+        }
+    }
+
+    // Fracción de la página ocupada (incluyendo el padding)
+    public float getOccupancy() {
+        return (float) usedArea / ((long) width * height);
+    }
+}
@@ -0,0 +1,489 @@
+package main;
+
+import org.joml.FrustumIntersection;
+import org.joml.Matrix4f;
+import org.joml.Vector3f;
+import org.lwjgl.opengl.GL;
+import org.lwjgl.system.MemoryUtil;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.lwjgl.opengl.GL11.*;
+import static org.lwjgl.opengl.GL13.*;
+import static org.lwjgl.opengl.GL15.*;
+import static org.lwjgl.opengl.GL20.*;
+import static org.lwjgl.opengl.GL30.*;
+import static org.lwjgl.opengl.GL31.*;
+import static org.lwjgl.opengl.GL33.glVertexAttribDivisor;
+import static org.lwjgl.opengl.GL40.GL_DRAW_INDIRECT_BUFFER;
+import static org.lwjgl.opengl.GL43.glMultiDrawElementsIndirect;
+
+// Geometría estática dibujada con glMultiDrawElementsIndirect (GL 4.3). build() copia en
+// la GPU los vértices e índices de todas las mallas a buffers compartidos (uno por
+// formato de vértice y de índice), escribe los datos de instancia de todos los objetos
+// en un solo buffer y crea un comando indirecto por objeto. Cada frame solo se
+// reescriben los comandos de los objetos que cambian de LOD o de visibilidad, y se
+// dibuja con un multi-draw por (buffer compartido, textura): miles de objetos en unas
+// pocas llamadas. Mismo formato de instancia que WallBatch (shaders wall_instanced_*);
+// cada comando usa baseInstance para leer la suya.
+// Sin GL 4.3 (isSupported() falso) se usa ModelBatch, el camino instanciado de 3.3.
+public class StaticMeshBatch {
+
+    static final int INSTANCE_BYTES = WallBatch.INSTANCE_BYTES;
+    // DrawElementsIndirectCommand: count, instanceCount, firstIndex, baseVertex, baseInstance
+    static final int COMMAND_BYTES = 5 * Integer.BYTES;
+
+    // Vértices e índices compartidos por las mallas del mismo formato
+    private static final class Pool {
+        final VertexLayout layout;
+        final int indexType;
+        int vao;
+        int vbo;
+        int ebo;
+        long vertexBytes;
+        long indexBytes;
+        final List<MeshEntry> meshes = new ArrayList<>();
+
+        Pool(VertexLayout layout, int indexType) {
+            this.layout = layout;
+            this.indexType = indexType;
+        }
+
+        int indexSize() {
+            return indexType == GL_UNSIGNED_SHORT ? Short.BYTES : Integer.BYTES;
+        }
+    }
+
+    private static final class MeshEntry {
+        final MeshData mesh;
+        final Geometry geometry;
+        final Pool pool;
+        // Posición dentro de los buffers del pool
+        final int baseVertex;
+        final int firstIndex;
+
+        MeshEntry(MeshData mesh, Geometry geometry, Pool pool, int baseVertex, int firstIndex) {
+            this.mesh = mesh;
+            this.geometry = geometry;
+            this.pool = pool;
+            this.baseVertex = baseVertex;
+            this.firstIndex = firstIndex;
+        }
+    }
+
+    private static final class StaticObject {
+        final MeshEntry entry;
+        final Material material;
+        final Matrix4f transform;
+        // Esfera envolvente en mundo
+        final Vector3f center = new Vector3f();
+        float radius;
+        float scale;
+        // Estado escrito en el comando: LOD y visibilidad (-1: todavía nada)
+        int lod = -1;
+        boolean visible;
+
+        StaticObject(MeshEntry entry, Material material, Matrix4f transform) {
+            this.entry = entry;
+            this.material = material;
+            this.transform = transform;
+        }
+    }
+
+    // Objetos consecutivos (en el orden de build) con el mismo pool y textura: un multi-draw
+    private static final class Range {
+        final Pool pool;
+        final int textureID;
+        final int first;
+        int count;
+        float nearest;
+
+        Range(Pool pool, int textureID, int first) {
+            this.pool = pool;
+            this.textureID = textureID;
+            this.first = first;
+        }
+    }
+
+    private final List<Pool> pools = new ArrayList<>();
+    private final Map<MeshData, MeshEntry> entries = new HashMap<>();
+    private final List<StaticObject> objects = new ArrayList<>();
+    private final List<Range> ranges = new ArrayList<>();
+    private boolean built;
+
+    private int instanceVbo;
+    private int commandBuffer;
+    // Copia en CPU de los comandos; [dirtyStart, dirtyEnd) pendiente de subir
+    private ByteBuffer commands;
+    private int dirtyStart = Integer.MAX_VALUE;
+    private int dirtyEnd;
+
+    private final Vector3f worldScale = new Vector3f();
+    private Shader cachedShader;
+    private int uTextureSampler;
+
+    // Cola de submit() y el id del comando registrado en ella
+    private RenderQueue commandQueue;
+    private int commandId;
+    private Shader submitShader;
+
+    // Estadísticas del último update()
+    private long[] trianglesPerLod = new long[1];
+    private long fullDetailTriangles;
+    private int visibleObjects;
+    private int commandsPatched;
+    private int drawCalls;
+
+    // Requiere un contexto 4.3 actual
+    public static boolean isSupported() {
+        return GL.getCapabilities().OpenGL43;
+    }
+
+    // Añade una instancia de cada malla del modelo (ya subido) con la transformación dada.
+    // Solo antes de build().
+    public void add(Model model, Matrix4f transform) {
+        if (built) {
+            throw new IllegalStateException("StaticMeshBatch ya construido");
+        }
+        if (!model.isUploaded()) {
+            throw new IllegalStateException("El modelo no está subido: " + model.getPath());
+        }
+        addNode(model, model.getRoot(), new Matrix4f(transform));
+    }
+
+    private void addNode(Model model, ModelNode node, Matrix4f parentTransform) {
+        Matrix4f transform = new Matrix4f(parentTransform).mul(node.getLocalTransform());
+        for (int meshIndex : node.getMeshes()) {
+            MeshData mesh = model.getMeshes().get(meshIndex);
+            MeshEntry entry = entries.get(mesh);
+            if (entry == null) {
+                entry = createEntry(mesh, model.getGeometry(meshIndex));
+                entries.put(mesh, entry);
+            }
+            StaticObject object = new StaticObject(entry, model.getMaterial(mesh), new Matrix4f(transform));
+            trianglesPerLod = trianglesPerLod.length >= mesh.getLodCount()
+                    ? trianglesPerLod : new long[mesh.getLodCount()];
+            objects.add(object);
+        }
+        for (ModelNode child : node.getChildren()) {
+            addNode(model, child, transform);
+        }
+    }
+
+    private MeshEntry createEntry(MeshData mesh, Geometry geometry) {
+        Pool pool = null;
+        for (Pool candidate : pools) {
+            if (candidate.layout.equals(mesh.getLayout()) && candidate.indexType == mesh.getIndexType()) {
+                pool = candidate;
+                break;
+            }
+        }
+        if (pool == null) {
+            pool = new Pool(mesh.getLayout(), mesh.getIndexType());
+            pools.add(pool);
+        }
+        int stride = pool.layout.getStride();
+        MeshEntry entry = new MeshEntry(mesh, geometry, pool,
+                (int) (pool.vertexBytes / stride), (int) (pool.indexBytes / pool.indexSize()));
+        pool.vertexBytes += (long) mesh.getVertexCount() * stride;
+        pool.indexBytes += (long) mesh.getIndexCount() * pool.indexSize();
+        pool.meshes.add(entry);
+        return entry;
+    }
+
+    // Crea los buffers compartidos, los datos de instancia y los comandos (hilo de OpenGL)
+    public void build() {
+        if (built) {
+            return;
+        }
+        built = true;
+        for (Pool pool : pools) {
+            copyMeshes(pool);
+        }
+
+        // Orden por (pool, textura) para que cada multi-draw sea un rango contiguo
+        objects.sort((a, b) -> {
+            int byPool = Integer.compare(pools.indexOf(a.entry.pool), pools.indexOf(b.entry.pool));
+            return byPool != 0 ? byPool : Integer.compare(textureOf(a), textureOf(b));
+        });
+        Range range = null;
+        for (int i = 0; i < objects.size(); i++) {
+            StaticObject object = objects.get(i);
+            if (range == null || range.pool != object.entry.pool || range.textureID != textureOf(object)) {
+                range = new Range(object.entry.pool, textureOf(object), i);
+                ranges.add(range);
+            }
+            range.count++;
+        }
+
+        instanceVbo = glGenBuffers();
+        ByteBuffer instances = MemoryUtil.memAlloc(Math.max(1, objects.size()) * INSTANCE_BYTES);
+        try {
+            for (int i = 0; i < objects.size(); i++) {
+                writeInstance(objects.get(i), instances, i * INSTANCE_BYTES);
+            }
+            GLState.bindBuffer(GL_ARRAY_BUFFER, instanceVbo);
+            nglBufferData(GL_ARRAY_BUFFER, (long) objects.size() * INSTANCE_BYTES, MemoryUtil.memAddress(instances), GL_STATIC_DRAW);
+        } finally {
+            MemoryUtil.memFree(instances);
+        }
+        for (Pool pool : pools) {
+            createVao(pool);
+        }
+
+        // Comandos iniciales: todo oculto hasta el primer update()
+        commands = MemoryUtil.memCalloc(Math.max(1, objects.size()) * COMMAND_BYTES);
+        for (int i = 0; i < objects.size(); i++) {
+            writeCommand(i, objects.get(i), 0, false);
+        }
+        commandBuffer = glGenBuffers();
+        GLState.bindBuffer(GL_DRAW_INDIRECT_BUFFER, commandBuffer);
+        nglBufferData(GL_DRAW_INDIRECT_BUFFER, (long) objects.size() * COMMAND_BYTES, MemoryUtil.memAddress(commands), GL_DYNAMIC_DRAW);
+        GLState.bindBuffer(GL_DRAW_INDIRECT_BUFFER, 0);
+        GLState.bindBuffer(GL_ARRAY_BUFFER, 0);
+        dirtyStart = Integer.MAX_VALUE;
+        dirtyEnd = 0;
+    }
+
+    // Copia GPU a GPU: los MeshData de Model ya no tienen los datos en CPU tras upload()
+    private static void copyMeshes(Pool pool) {
+        pool.vbo = glGenBuffers();
+        pool.ebo = glGenBuffers();
+        GLState.bindBuffer(GL_COPY_WRITE_BUFFER, pool.vbo);
+        glBufferData(GL_COPY_WRITE_BUFFER, pool.vertexBytes, GL_STATIC_DRAW);
+        int stride = pool.layout.getStride();
+        for (MeshEntry entry : pool.meshes) {
+            GLState.bindBuffer(GL_COPY_READ_BUFFER, entry.geometry.getVbo());
+            glCopyBufferSubData(GL_COPY_READ_BUFFER, GL_COPY_WRITE_BUFFER, 0,
+                    (long) entry.baseVertex * stride, (long) entry.mesh.getVertexCount() * stride);
+        }
+        GLState.bindBuffer(GL_COPY_WRITE_BUFFER, pool.ebo);
+        glBufferData(GL_COPY_WRITE_BUFFER, pool.indexBytes, GL_STATIC_DRAW);
+        for (MeshEntry entry : pool.meshes) {
+            GLState.bindBuffer(GL_COPY_READ_BUFFER, entry.geometry.getEbo());
+            glCopyBufferSubData(GL_COPY_READ_BUFFER, GL_COPY_WRITE_BUFFER, 0,
+                    (long) entry.firstIndex * pool.indexSize(), (long) entry.mesh.getIndexCount() * pool.indexSize());
+        }
+        GLState.bindBuffer(GL_COPY_READ_BUFFER, 0);
+        GLState.bindBuffer(GL_COPY_WRITE_BUFFER, 0);
+    }
+
+    private void createVao(Pool pool) {
+        pool.vao = glGenVertexArrays();
+        GLState.bindVertexArray(pool.vao);
+        GLState.bindBuffer(GL_ARRAY_BUFFER, pool.vbo);
+        GLState.bindBuffer(GL_ELEMENT_ARRAY_BUFFER, pool.ebo);
+        pool.layout.apply();
+
+        // Por instancia, desde el principio del buffer: baseInstance elige la del objeto
+        GLState.bindBuffer(GL_ARRAY_BUFFER, instanceVbo);
+        for (int column = 0; column < 4; column++) {
+            glVertexAttribPointer(3 + column, 4, GL_FLOAT, false, INSTANCE_BYTES, column * 4L * Float.BYTES);
+        }
+        glVertexAttribPointer(7, 2, GL_FLOAT, false, INSTANCE_BYTES, 64);
+        glVertexAttribPointer(8, 4, GL_UNSIGNED_BYTE, true, INSTANCE_BYTES, 72);
+        glVertexAttribPointer(9, 4, GL_UNSIGNED_BYTE, true, INSTANCE_BYTES, 76);
+        for (int location = 3; location <= 9; location++) {
+            glEnableVertexAttribArray(location);
+            glVertexAttribDivisor(location, 1);
+        }
+        GLState.bindVertexArray(0);
+    }
+
+    private static int textureOf(StaticObject object) {
+        return object.material != null ? object.material.getTextureID() : 0;
+    }
+
+    private void writeInstance(StaticObject object, ByteBuffer data, int offset) {
+        object.transform.get(offset, data);
+        float[] b = object.entry.mesh.getBounds();
+        object.transform.transformPosition((b[0] + b[3]) * 0.5f, (b[1] + b[4]) * 0.5f, (b[2] + b[5]) * 0.5f, object.center);
+        object.transform.getScale(worldScale);
+        object.scale = Math.max(worldScale.x, Math.max(worldScale.y, worldScale.z));
+        object.radius = object.scale * 0.5f * (float) Math.sqrt((b[3] - b[0]) * (b[3] - b[0])
+                + (b[4] - b[1]) * (b[4] - b[1]) + (b[5] - b[2]) * (b[5] - b[2]));
+
+        float[] color = object.material != null ? object.material.getBaseColor() : new float[]{1f, 1f, 1f, 1f};
+        int packed = TextRender.packColor(color[0], color[1], color[2], color[3]);
+        data.putFloat(offset + 64, 1f);
+        data.putFloat(offset + 68, 1f);
+        data.put(offset + 72, (byte) packed);
+        data.put(offset + 73, (byte) (packed >>> 8));
+        data.put(offset + 74, (byte) (packed >>> 16));
+        data.put(offset + 75, (byte) (packed >>> 24));
+        data.put(offset + 76, (byte) (textureOf(object) != 0 ? 0xFF : 0));
+        data.put(offset + 77, (byte) (object.material != null && object.material.isLightingEnabled() ? 0xFF : 0));
+        data.put(offset + 78, (byte) 0);
+        data.put(offset + 79, (byte) 0);
+    }
+
+    // Un objeto oculto se queda con instanceCount 0: el driver se salta el comando
+    private void writeCommand(int index, StaticObject object, int lod, boolean visible) {
+        MeshEntry entry = object.entry;
+        int offset = index * COMMAND_BYTES;
+        commands.putInt(offset, entry.mesh.getLodIndexCount(lod));
+        commands.putInt(offset + 4, visible ? 1 : 0);
+        commands.putInt(offset + 8, entry.firstIndex + entry.mesh.getLodFirstIndex(lod));
+        commands.putInt(offset + 12, entry.baseVertex);
+        commands.putInt(offset + 16, index);
+        object.lod = lod;
+        object.visible = visible;
+        dirtyStart = Math.min(dirtyStart, index);
+        dirtyEnd = Math.max(dirtyEnd, index + 1);
+        commandsPatched++;
+    }
+
+    // Elige LOD y visibilidad de cada objeto y reescribe solo los comandos que cambian.
+    // frustum puede ser null (todo visible).
+    public void update(Vector3f cameraPosition, LodSelector selector, FrustumIntersection frustum) {
+        Arrays.fill(trianglesPerLod, 0);
+        fullDetailTriangles = 0;
+        visibleObjects = 0;
+        commandsPatched = 0;
+        for (Range range : ranges) {
+            range.nearest = Float.MAX_VALUE;
+        }
+        int rangeIndex = 0;
+        for (int i = 0; i < objects.size(); i++) {
+            while (i >= ranges.get(rangeIndex).first + ranges.get(rangeIndex).count) {
+                rangeIndex++;
+            }
+            StaticObject object = objects.get(i);
+            MeshData mesh = object.entry.mesh;
+            boolean visible = frustum == null || frustum.testSphere(object.center, object.radius);
+            int lod = object.lod < 0 ? 0 : object.lod;
+            if (visible) {
+                float distance = Math.max(0f, object.center.distance(cameraPosition) - object.radius);
+                lod = selector.select(mesh, object.scale, distance, object.lod);
+                trianglesPerLod[lod] += mesh.getLodIndexCount(lod) / 3;
+                fullDetailTriangles += mesh.getLodIndexCount(0) / 3;
+                visibleObjects++;
+                Range range = ranges.get(rangeIndex);
+                range.nearest = Math.min(range.nearest, distance);
+            }
+            if (lod != object.lod || visible != object.visible) {
+                writeCommand(i, object, lod, visible);
+            }
+        }
+        if (dirtyStart < dirtyEnd) {
+            GLState.bindBuffer(GL_DRAW_INDIRECT_BUFFER, commandBuffer);
+            long offset = (long) dirtyStart * COMMAND_BYTES;
+            nglBufferSubData(GL_DRAW_INDIRECT_BUFFER, offset, (long) (dirtyEnd - dirtyStart) * COMMAND_BYTES,
+                    MemoryUtil.memAddress(commands) + offset);
+            dirtyStart = Integer.MAX_VALUE;
+            dirtyEnd = 0;
+        }
+    }
+
+    // Requiere el shader instanciado en uso y update() hecho en este frame
+    public void render(Shader shader) {
+        drawCalls = 0;
+        for (int i = 0; i < ranges.size(); i++) {
+            Range range = ranges.get(i);
+            if (range.nearest != Float.MAX_VALUE) {
+                drawRange(range, shader);
+                drawCalls++;
+            }
+        }
+    }
+
+    // update() y un paquete por rango (pool y textura) a la cola
+    public void submit(RenderQueue queue, Shader shader, Vector3f cameraPosition, LodSelector selector,
+                       FrustumIntersection frustum, float far) {
+        if (queue != commandQueue) {
+            commandQueue = queue;
+            commandId = queue.registerCommand(this::drawPacket);
+        }
+        submitShader = shader;
+        drawCalls = 0;
+        update(cameraPosition, selector, frustum);
+        // Un multi-draw por paquete: las llamadas se conocen ya al enviar
+        int slot = queue.shaderSlot(shader);
+        for (int i = 0; i < ranges.size(); i++) {
+            Range range = ranges.get(i);
+            if (range.nearest == Float.MAX_VALUE) {
+                // Nada visible en el rango
+                continue;
+            }
+            long key = RenderQueue.opaqueKey(RenderQueue.LAYER_OPAQUE, slot, range.textureID,
+                    RenderQueue.depthBucket(range.nearest, far));
+            queue.submit(key, commandId, i);
+            drawCalls++;
+        }
+    }
+
+    private void drawPacket(int index) {
+        drawRange(ranges.get(index), submitShader);
+    }
+
+    private void drawRange(Range range, Shader shader) {
+        if (shader != cachedShader) {
+            cachedShader = shader;
+            uTextureSampler = shader.getUniform("textureSampler");
+        }
+        shader.setInt(uTextureSampler, 0);
+        GLState.activeTexture(GL_TEXTURE0);
+        GLState.bindTexture(GL_TEXTURE_2D, range.textureID);
+        GLState.bindVertexArray(range.pool.vao);
+        GLState.bindBuffer(GL_DRAW_INDIRECT_BUFFER, commandBuffer);
+        glMultiDrawElementsIndirect(GL_TRIANGLES, range.pool.indexType, (long) range.first * COMMAND_BYTES, range.count, 0);
+    }
+
+    public int getObjectCount() {
+        return objects.size();
+    }
+
+    public int getVisibleObjects() {
+        return visibleObjects;
+    }
+
+    // Comandos reescritos en el último update()
+    public int getCommandsPatched() {
+        return commandsPatched;
+    }
+
+    // Llamadas glMultiDrawElementsIndirect del último render() o submit()
+    public int getDrawCalls() {
+        return drawCalls;
+    }
+
+    public int getRangeCount() {
+        return ranges.size();
+    }
+
+    public int getLodBandCount() {
+        return trianglesPerLod.length;
+    }
+
+    public long getTriangles(int lod) {
+        return trianglesPerLod[lod];
+    }
+
+    public long getFullDetailTriangles() {
+        return fullDetailTriangles;
+    }
+
+    public void cleanup() {
+        for (Pool pool : pools) {
+            if (pool.vao != 0) {
+                GLState.deleteVertexArray(pool.vao);
+                GLState.deleteBuffer(pool.vbo);
+                GLState.deleteBuffer(pool.ebo);
+            }
+        }
+        if (built) {
+            GLState.deleteBuffer(instanceVbo);
+            GLState.deleteBuffer(commandBuffer);
+            MemoryUtil.memFree(commands);
+        }
+        pools.clear();
+        entries.clear();
+        objects.clear();
+        ranges.clear();
+    }
+}
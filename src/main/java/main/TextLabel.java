@@ -0,0 +1,142 @@
+package main;
+
+import org.lwjgl.system.MemoryUtil;
+
+import java.nio.ByteBuffer;
+
+// Texto retenido: guarda su contenido y estilo, y solo vuelve a maquetar y subir
+// sus quads cuando cambian o cuando el atlas ha descartado glifos (generación nueva).
+// Moverlo no reconstruye nada: la posición se aplica como desplazamiento en el shader.
+public class TextLabel {
+
+    private final TextRender textRenderer;
+    private final TextMesh mesh = new TextMesh();
+    private final CharFormatter text = new CharFormatter(32);
+    private ByteBuffer vertices = MemoryUtil.memAlloc(1024);
+
+    private float x, y;
+    private float r = 1f, g = 1f, b = 1f, a = 1f;
+    private float size;
+    private float outlineWidth;
+    private float outlineR, outlineG, outlineB;
+
+    private boolean dirty = true;
+    private long builtGeneration = -1;
+    private int rebuilds;
+    // Cola de submit() y el id del comando registrado en ella
+    private RenderQueue commandQueue;
+    private int commandId;
+
+    TextLabel(TextRender textRenderer) {
+        this.textRenderer = textRenderer;
+    }
+
+    // Copia el contenido; si es igual al actual no hace nada
+    public TextLabel setText(CharSequence texto) {
+        if (!text.contentEquals(texto)) {
+            text.clear().append(texto);
+            dirty = true;
+        }
+        return this;
+    }
+
+    public CharSequence getText() {
+        return text;
+    }
+
+    public TextLabel setPosition(float x, float y) {
+        this.x = x;
+        this.y = y;
+        return this;
+    }
+
+    public TextLabel setColor(float r, float g, float b, float a) {
+        if (r != this.r || g != this.g || b != this.b || a != this.a) {
+            this.r = r;
+            this.g = g;
+            this.b = b;
+            this.a = a;
+            dirty = true;
+        }
+        return this;
+    }
+
+    // Tamaño en píxeles (<= 0 usa el tamaño base de la fuente)
+    public TextLabel setSize(float size) {
+        if (size != this.size) {
+            this.size = size;
+            dirty = true;
+        }
+        return this;
+    }
+
+    public TextLabel setOutline(float width, float r, float g, float b) {
+        if (width != outlineWidth || r != outlineR || g != outlineG || b != outlineB) {
+            this.outlineWidth = width;
+            this.outlineR = r;
+            this.outlineG = g;
+            this.outlineB = b;
+            dirty = true;
+        }
+        return this;
+    }
+
+    public float getWidth() {
+        return textRenderer.getLayout(text).getWidth() * scale();
+    }
+
+    public float getHeight() {
+        return textRenderer.getLayout(text).getHeight() * scale();
+    }
+
+    private float scale() {
+        return size > 0 ? size / textRenderer.getBaseSize() : 1f;
+    }
+
+    // Dibuja en el momento, sin pasar por el batch de TextRender
+    public void draw() {
+        long generation = textRenderer.getAtlas().getGeneration();
+        if (dirty || generation != builtGeneration) {
+            rebuild();
+        }
+        textRenderer.drawMesh(mesh, x, y);
+    }
+
+    // draw() diferido: se dibuja en la capa overlay al vaciar la cola
+    public void submit(RenderQueue queue, int sequence) {
+        if (queue != commandQueue) {
+            commandQueue = queue;
+            commandId = queue.registerCommand(argument -> draw());
+        }
+        queue.submit(RenderQueue.sequencedKey(RenderQueue.LAYER_OVERLAY, sequence, 0, textRenderer.getAtlas().getTextureID()),
+                commandId, 0);
+    }
+
+    private void rebuild() {
+        GlyphAtlas atlas = textRenderer.getAtlas();
+        long before;
+        int attempts = 0;
+        do {
+            // Si colocar un glifo descartó otro de esta misma etiqueta, se maqueta otra vez
+            before = atlas.getGeneration();
+            vertices.clear();
+            vertices = textRenderer.tessellate(vertices, text, TextRender.packColor(r, g, b, a), size,
+                    outlineWidth, outlineR, outlineG, outlineB);
+            vertices.flip();
+        } while (atlas.getGeneration() != before && ++attempts < 2);
+
+        mesh.upload(vertices, textRenderer.getLastPages());
+        builtGeneration = atlas.getGeneration();
+        dirty = false;
+        rebuilds++;
+    }
+
+    public int getRebuilds() {
+        return rebuilds;
+    }
+
+    public void cleanup() {
+        mesh.cleanup();
+        MemoryUtil.memFree(vertices);
+    }
+}
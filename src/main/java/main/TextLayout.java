@@ -0,0 +1,77 @@
+package main;
+
+// Métricas y glifos de un texto ya maquetado, relativos al origen (0, 0) en la línea base.
+// Las coordenadas de textura se leen del glifo al dibujar, así el layout sigue siendo
+// válido aunque el atlas mueva o descarte glifos.
+public class TextLayout {
+
+    private float width;
+    private float height;
+    private float baseline;
+    private Glyph[] glyphs;
+    private float[] penX;
+    private int glyphCount;
+
+    public TextLayout(float width, float height, float baseline, Glyph[] glyphs, float[] penX, int glyphCount) {
+        this.width = width;
+        this.height = height;
+        this.baseline = baseline;
+        this.glyphs = glyphs;
+        this.penX = penX;
+        this.glyphCount = glyphCount;
+    }
+
+    // Layout vacío y reutilizable; TextRender lo rellena con reset/add/finish
+    TextLayout(int capacity) {
+        this.glyphs = new Glyph[capacity];
+        this.penX = new float[capacity];
+    }
+
+    void reset(int capacity) {
+        if (glyphs.length < capacity) {
+            int length = Math.max(capacity, glyphs.length * 2);
+            glyphs = new Glyph[length];
+            penX = new float[length];
+        }
+        glyphCount = 0;
+    }
+
+    void add(Glyph glyph, float pen) {
+        glyphs[glyphCount] = glyph;
+        penX[glyphCount] = pen;
+        glyphCount++;
+    }
+
+    void finish(float width, float height, float baseline) {
+        this.width = width;
+        this.height = height;
+        this.baseline = baseline;
+    }
+
+    public float getWidth() {
+        return width;
+    }
+
+    // Alto del glifo más alto del texto
+    public float getHeight() {
+        return height;
+    }
+
+    // Distancia desde el borde superior del texto hasta la línea base
+    public float getBaseline() {
+        return baseline;
+    }
+
+    public Glyph getGlyph(int index) {
+        return glyphs[index];
+    }
+
+    // Posición horizontal del lápiz al dibujar el glifo index
+    public float getPenX(int index) {
+        return penX[index];
+    }
+
+    public int getGlyphCount() {
+        return glyphCount;
+    }
+}
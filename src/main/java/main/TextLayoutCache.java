@@ -0,0 +1,65 @@
+package main;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Cache LRU de texto -> TextLayout, para no volver a maquetar etiquetas que no cambian
+public class TextLayoutCache {
+
+    private final int capacity;
+    private final LinkedHashMap<String, TextLayout> entries;
+
+    private long hits;
+    private long misses;
+
+    public TextLayoutCache(int capacity) {
+        this.capacity = capacity;
+        // accessOrder = true: cada get mueve la entrada al final (más reciente)
+        this.entries = new LinkedHashMap<>(capacity * 4 / 3 + 1, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, TextLayout> eldest) {
+                return size() > TextLayoutCache.this.capacity;
+            }
+        };
+    }
+
+    public TextLayout get(String text) {
+        TextLayout layout = entries.get(text);
+        if (layout != null) {
+            hits++;
+        } else {
+            misses++;
+        }
+        return layout;
+    }
+
+    public void put(String text, TextLayout layout) {
+        entries.put(text, layout);
+    }
+
+    public void invalidate() {
+        entries.clear();
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public long getHits() {
+        return hits;
+    }
+
+    public long getMisses() {
+        return misses;
+    }
+
+    public double getHitRate() {
+        long total = hits + misses;
+        return total == 0 ? 0.0 : (double) hits / total;
+    }
+
+    public void resetStats() {
+        hits = 0;
+        misses = 0;
+    }
+}
@@ -0,0 +1,63 @@
+package main;
+
+import java.nio.ByteBuffer;
+
+import static org.lwjgl.opengl.GL15.*;
+import static org.lwjgl.opengl.GL30.*;
+
+// Quads de un texto ya maquetado que se quedan en la GPU entre frames.
+// Usa el mismo formato de vértice que el batch de TextRender.
+public class TextMesh {
+
+    private final int vao;
+    private final int vbo;
+    private int capacity;
+    private int vertexCount;
+    private int pages;
+
+    public TextMesh() {
+        vao = glGenVertexArrays();
+        vbo = glGenBuffers();
+
+        GLState.bindVertexArray(vao);
+        GLState.bindBuffer(GL_ARRAY_BUFFER, vbo);
+        TextRender.configurarAtributos();
+        GLState.bindBuffer(GL_ARRAY_BUFFER, 0);
+        GLState.bindVertexArray(0);
+    }
+
+    // Sube los vértices entre position y limit; pages son las páginas del atlas que usan
+    public void upload(ByteBuffer vertices, int pages) {
+        int bytes = vertices.remaining();
+        GLState.bindBuffer(GL_ARRAY_BUFFER, vbo);
+        if (bytes > capacity) {
+            glBufferData(GL_ARRAY_BUFFER, vertices, GL_DYNAMIC_DRAW);
+            capacity = bytes;
+        } else if (bytes > 0) {
+            glBufferSubData(GL_ARRAY_BUFFER, 0, vertices);
+        }
+        GLState.bindBuffer(GL_ARRAY_BUFFER, 0);
+
+        vertexCount = bytes / TextRender.VERTEX_BYTES;
+        this.pages = pages;
+    }
+
+    public void draw() {
+        GLState.bindVertexArray(vao);
+        glDrawArrays(GL_TRIANGLES, 0, vertexCount);
+        GLState.bindVertexArray(0);
+    }
+
+    public int getVertexCount() {
+        return vertexCount;
+    }
+
+    public int getPages() {
+        return pages;
+    }
+
+    public void cleanup() {
+        GLState.deleteVertexArray(vao);
+        GLState.deleteBuffer(vbo);
+    }
+}
@@ -1,28 +1,42 @@
 package main;
 
 import java.io.IOException;
-import java.io.InputStream;
 import org.joml.Matrix4f;
-import org.lwjgl.BufferUtils;
+import org.joml.Vector3f;
+import org.lwjgl.PointerBuffer;
 import org.lwjgl.stb.*;
+import org.lwjgl.util.msdfgen.MSDFGenBitmap;
+import org.lwjgl.util.msdfgen.MSDFGenTransform;
 import org.lwjgl.system.MemoryStack;
+import org.lwjgl.system.MemoryUtil;
 
 import java.nio.ByteBuffer;
 import java.nio.FloatBuffer;
-import java.nio.channels.FileChannel;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.Paths;
+import java.nio.IntBuffer;
+import java.util.HashMap;
+import java.util.Map;
 
 import static org.lwjgl.opengl.GL30.*;
 import static org.lwjgl.stb.STBTruetype.*;
+import static org.lwjgl.util.msdfgen.MSDFGen.*;
+import static org.lwjgl.util.msdfgen.MSDFGenExt.*;
 
 public class TextRender {
 
-    private static final int BITMAP_W = 512;
-    private static final int BITMAP_H = 512;
-    private static final int FIRST_CHAR = 32;
-    private static final int NUM_CHARS = 96;
+    // Atlas dinámico: páginas de 512x512 en un texture array de tamaño fijo
+    private static final int PAGE_SIZE = 512;
+    private static final int PAGE_COUNT = 4;
+    // Latin-1 cubre los acentos del español sin pasar por el HashMap (ni por Integer)
+    private static final int DIRECT_LIMIT = 256;
+
+    // Margen del campo de distancia en píxeles del atlas (MSDF)
+    private static final int MSDF_RANGE = 4;
+
+    // Vértice: x, y, s, t, capa, grosor de contorno (float) + color y color de contorno RGBA8
+    static final int VERTEX_BYTES = 6 * Float.BYTES + 4 + 4;
+    private static final int GLYPH_BYTES = 6 * VERTEX_BYTES;
+    private static final int INITIAL_ARENA_BYTES = 256 * GLYPH_BYTES;
+    private static final int LAYOUT_CACHE_SIZE = 256;
 
     // Variables para tamaño ventana y posición relativa
     private int windowWidth = 800;
@@ -30,12 +44,59 @@ public class TextRender {
     private float relX = 0.02f, relY = 0.05f; //
 
     private int shaderProgram;
+    private int locTex;
+    private int locOffset;
+    private float lastOffsetX;
+    private float lastOffsetY;
     private int vao, vbo;
-    private int textureID;
-    private STBTTBakedChar.Buffer charData;
-    private Matrix4f projectionMatrix;
+    private GlyphAtlas atlas;
+
+    // Fuente: el buffer debe vivir mientras se use fontInfo
+    private ByteBuffer fontData;
+    private Asset fontAsset;
+    private STBTTFontinfo fontInfo;
+    private float fontScale;
+    private int baseSize;
+
+    // Modo MSDF: un solo atlas sirve para cualquier tamaño de texto
+    private final boolean msdf;
+    private long ftLibrary;
+    private long ftFont;
+    private final Glyph[] directGlyphs = new Glyph[DIRECT_LIMIT];
+    private final Map<Integer, Glyph> glyphs = new HashMap<>();
+    private ByteBuffer glyphBitmap;
+    private final TextLayoutCache layoutCache = new TextLayoutCache(LAYOUT_CACHE_SIZE);
+
+    // Arena de vértices fuera del heap, reutilizada entre frames
+    private ByteBuffer vertexArena;
+    private int vboCapacity;
+    private boolean batching = false;
+    private final Vector3f scratch = new Vector3f();
+
+    // Layout reutilizable para textos mutables (CharFormatter) que no pasan por la cache
+    private final TextLayout scratchLayout = new TextLayout(64);
+    // Páginas del atlas usadas por el último appendText (bit por página)
+    private int lastPages;
+
+    // Estilo por dibujo: tamaño en píxeles y contorno (solo MSDF)
+    private float drawSize;
+    private float outlineWidth;
+    private int outlineColor;
+
+    // Estadísticas del último flush
+    private int lastFlushGlyphs;
+    private int drawCalls;
+    // Cola de submit() y el id del comando registrado en ella
+    private RenderQueue commandQueue;
+    private int commandId;
 
     public TextRender(String fontPath, int fontSize) {
+        this(fontPath, fontSize, false);
+    }
+
+    // Con msdf = true fontSize es el tamaño base del atlas; setSize escala sin perder nitidez
+    public TextRender(String fontPath, int fontSize, boolean msdf) {
+        this.msdf = msdf;
         try {
             // Cargar fuente
             ByteBuffer fontBuffer = loadFont(fontPath);
@@ -49,45 +110,247 @@ public class TextRender {
     }
 
     private void crearTexturaFuente(ByteBuffer ttf, int fontSize) {
-        ByteBuffer bitmap = BufferUtils.createByteBuffer(BITMAP_W * BITMAP_H);
-        charData = STBTTBakedChar.malloc(NUM_CHARS);
-        stbtt_BakeFontBitmap(ttf, fontSize, bitmap, BITMAP_W, BITMAP_H, FIRST_CHAR, charData);
+        fontData = ttf;
+        fontInfo = STBTTFontinfo.malloc();
+        if (!stbtt_InitFont(fontInfo, fontData)) {
+            throw new RuntimeException("Fuente no válida");
+        }
+        fontScale = stbtt_ScaleForPixelHeight(fontInfo, fontSize);
+        baseSize = fontSize;
+        drawSize = fontSize;
+
+        if (msdf) {
+            // msdfgen lee los contornos con FreeType a partir de los mismos bytes
+            try (MemoryStack stack = MemoryStack.stackPush()) {
+                PointerBuffer handle = stack.mallocPointer(1);
+                checkMsdf(msdf_ft_init(handle), "msdf_ft_init");
+                ftLibrary = handle.get(0);
+                checkMsdf(msdf_ft_load_font_data(ftLibrary, fontData, handle), "msdf_ft_load_font_data");
+                ftFont = handle.get(0);
+            }
+        }
+
+        // Los glifos se rasterizan cuando aparecen por primera vez, no al arrancar
+        atlas = new GlyphAtlas(PAGE_SIZE, PAGE_COUNT, msdf ? 3 : 1);
+        atlas.setBeforePendingEviction(this::flush);
+        glyphBitmap = MemoryUtil.memAlloc(64 * 64);
+
+        // Las métricas en cache dependen de la fuente
+        layoutCache.invalidate();
+    }
+
+    // Métricas del glifo (se crean una vez por code point y se conservan aunque se expulse del atlas)
+    private Glyph getGlyph(int codepoint) {
+        if (codepoint < DIRECT_LIMIT) {
+            Glyph glyph = directGlyphs[codepoint];
+            if (glyph == null) {
+                glyph = crearGlifo(codepoint);
+                directGlyphs[codepoint] = glyph;
+            }
+            return glyph;
+        }
+        Glyph glyph = glyphs.get(codepoint);
+        if (glyph == null) {
+            glyph = crearGlifo(codepoint);
+            glyphs.put(codepoint, glyph);
+        }
+        return glyph;
+    }
+
+    private Glyph crearGlifo(int codepoint) {
+        if (stbtt_FindGlyphIndex(fontInfo, codepoint) == 0 && codepoint != ' ') {
+            // La fuente no tiene este carácter
+            return null;
+        }
+        try (MemoryStack stack = MemoryStack.stackPush()) {
+            IntBuffer advance = stack.mallocInt(1);
+            IntBuffer lsb = stack.mallocInt(1);
+            stbtt_GetCodepointHMetrics(fontInfo, codepoint, advance, lsb);
+
+            IntBuffer x0 = stack.mallocInt(1);
+            IntBuffer y0 = stack.mallocInt(1);
+            IntBuffer x1 = stack.mallocInt(1);
+            IntBuffer y1 = stack.mallocInt(1);
+            stbtt_GetCodepointBitmapBox(fontInfo, codepoint, fontScale, fontScale, x0, y0, x1, y1);
+
+            int width = x1.get(0) - x0.get(0);
+            int height = y1.get(0) - y0.get(0);
+            if (!msdf || width == 0 || height == 0) {
+                return new Glyph(codepoint, advance.get(0) * fontScale, x0.get(0), y0.get(0), width, height);
+            }
+            // El campo de distancia necesita margen alrededor del contorno
+            return new Glyph(codepoint, advance.get(0) * fontScale,
+                    x0.get(0) - MSDF_RANGE, y0.get(0) - MSDF_RANGE,
+                    width + 2 * MSDF_RANGE, height + 2 * MSDF_RANGE, MSDF_RANGE);
+        }
+    }
+
+    private static void checkMsdf(int result, String function) {
+        if (result != MSDF_SUCCESS) {
+            throw new RuntimeException(function + " falló con código " + result);
+        }
+    }
+
+    // Genera el MSDF del glifo (RGB8) en glyphBitmap
+    private void rasterizarMsdf(Glyph glyph) {
+        int w = glyph.width;
+        int h = glyph.height;
+        try (MemoryStack stack = MemoryStack.stackPush()) {
+            PointerBuffer handle = stack.mallocPointer(1);
+            checkMsdf(msdf_ft_font_load_glyph(ftFont, glyph.codepoint, MSDF_FONT_SCALING_NONE, handle),
+                    "msdf_ft_font_load_glyph");
+            long shape = handle.get(0);
+            MSDFGenBitmap bitmap = MSDFGenBitmap.calloc(stack);
+            try {
+                msdf_shape_normalize(shape);
+                msdf_shape_edge_colors_simple(shape, 3.0);
+
+                checkMsdf(msdf_bitmap_alloc(MSDF_BITMAP_TYPE_MSDF, w, h, bitmap), "msdf_bitmap_alloc");
+
+                // De unidades de fuente (y hacia arriba) a píxeles del bitmap
+                MSDFGenTransform transform = MSDFGenTransform.calloc(stack);
+                transform.scale().set(fontScale, fontScale);
+                transform.translation().set(-glyph.offsetX / fontScale, (glyph.offsetY + h) / fontScale);
+                transform.distance_mapping().set(-MSDF_RANGE / fontScale, MSDF_RANGE / fontScale);
+                checkMsdf(msdf_generate_msdf(bitmap, shape, transform), "msdf_generate_msdf");
+
+                checkMsdf(msdf_bitmap_get_pixels(bitmap, handle), "msdf_bitmap_get_pixels");
+                FloatBuffer pixels = MemoryUtil.memFloatBuffer(handle.get(0), w * h * 3);
+
+                // msdfgen guarda las filas de abajo hacia arriba
+                for (int row = 0; row < h; row++) {
+                    int src = (h - 1 - row) * w * 3;
+                    int dst = row * w * 3;
+                    for (int i = 0; i < w * 3; i++) {
+                        float v = Math.min(Math.max(pixels.get(src + i), 0f), 1f);
+                        glyphBitmap.put(dst + i, (byte) (v * 255f + 0.5f));
+                    }
+                }
+            } finally {
+                if (bitmap.handle() != 0) {
+                    msdf_bitmap_free(bitmap);
+                }
+                msdf_shape_free(shape);
+            }
+        }
+    }
+
+    // Garantiza que el glifo está en el atlas y marca su página como usada
+    private void asegurarResidente(Glyph glyph) {
+        if (!glyph.isResident()) {
+            int size = glyph.width * glyph.height * atlas.getChannels();
+            if (glyphBitmap.capacity() < size) {
+                glyphBitmap = MemoryUtil.memRealloc(glyphBitmap, size);
+            }
+            glyphBitmap.clear().limit(size);
+            if (msdf) {
+                rasterizarMsdf(glyph);
+            } else {
+                stbtt_MakeCodepointBitmap(fontInfo, glyphBitmap, glyph.width, glyph.height, glyph.width,
+                        fontScale, fontScale, glyph.codepoint);
+            }
+            atlas.place(glyph, glyphBitmap);
+        }
+        atlas.touch(glyph.page);
+    }
 
-        textureID = glGenTextures();
-        glBindTexture(GL_TEXTURE_2D, textureID);
-        glTexImage2D(GL_TEXTURE_2D, 0, GL_RED, BITMAP_W, BITMAP_H, 0,
-                GL_RED, GL_UNSIGNED_BYTE, bitmap);
-        glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_MIN_FILTER, GL_LINEAR);
+    // Todos los glifos del layout en el atlas a la vez. Si al colocar uno se vació una página,
+    // puede haberse llevado otro glifo del mismo texto: se repasa hasta que no haya vaciados.
+    private void hacerResidentes(TextLayout layout) {
+        int glyphCount = layout.getGlyphCount();
+        for (int pass = 0; pass <= atlas.getPageCount(); pass++) {
+            long generation = atlas.getGeneration();
+            for (int i = 0; i < glyphCount; i++) {
+                asegurarResidente(layout.getGlyph(i));
+            }
+            if (atlas.getGeneration() == generation) {
+                return;
+            }
+        }
+        throw new IllegalStateException("El texto necesita más glifos de los que caben en el atlas");
+    }
+
+    public GlyphAtlas getAtlas() {
+        return atlas;
     }
 
     private void inicializarShaders() {
-        String vertexShaderSource = """
-                                     #version 330 core
+        // La proyección ortográfica llega por el bloque CameraBlock
+        String vertexShaderSource = "#version 330 core\n" + CameraUniformBuffer.GLSL_BLOCK + """
                                      layout(location = 0) in vec4 vertex;
-                                    uniform mat4 proj;
-                                    uniform mat4 model;
+                                     layout(location = 1) in vec4 vertexColor;
+                                     layout(location = 2) in float vertexLayer;
+                                     layout(location = 3) in vec4 vertexOutlineColor;
+                                     layout(location = 4) in float vertexOutlineWidth;
 
-                                     out vec2 texCoords;
+                                     uniform vec2 offset;
+
+                                     out vec3 texCoords;
+                                     out vec4 color;
+                                     out vec4 outlineColor;
+                                     out float outlineWidth;
 
                                      void main() {
-                                         gl_Position = proj * model * vec4(vertex.xy, 0.0, 1.0);
-                                         texCoords = vertex.zw;
+                                         gl_Position = screenProjection * vec4(vertex.xy + offset, 0.0, 1.0);
+                                         texCoords = vec3(vertex.zw, vertexLayer);
+                                         color = vertexColor;
+                                         outlineColor = vertexOutlineColor;
+                                         outlineWidth = vertexOutlineWidth;
                                      }
             """;
 
         String fragmentShaderSource = """
                                       #version 330 core
-                                      in vec2 texCoords;
-                                      uniform sampler2D tex;
-                                      uniform vec3 color;
+                                      in vec3 texCoords;
+                                      in vec4 color;
+                                      uniform sampler2DArray tex;
                                       out vec4 FragColor;
                                       void main() {
                                          float alpha = texture(tex, texCoords).r;
-                                         FragColor = vec4(color, alpha);
+                                         FragColor = vec4(color.rgb, color.a * alpha);
                                       }""" // Canal alfa correcto
                 ;
 
-        shaderProgram = crearProgramaShader(vertexShaderSource, fragmentShaderSource);
+        // Campo de distancia multicanal: la mediana de RGB es la distancia al contorno
+        String msdfFragmentShaderSource = """
+                                      #version 330 core
+                                      in vec3 texCoords;
+                                      in vec4 color;
+                                      in vec4 outlineColor;
+                                      in float outlineWidth;
+                                      uniform sampler2DArray tex;
+                                      uniform float pxRange;
+                                      out vec4 FragColor;
+
+                                      float median(float r, float g, float b) {
+                                          return max(min(r, g), min(max(r, g), b));
+                                      }
+
+                                      void main() {
+                                         vec3 msd = texture(tex, texCoords).rgb;
+                                         float sd = median(msd.r, msd.g, msd.b);
+                                         vec2 unitRange = vec2(pxRange) / vec2(textureSize(tex, 0).xy);
+                                         vec2 screenTexSize = vec2(1.0) / fwidth(texCoords.xy);
+                                         float screenPxRange = max(0.5 * dot(unitRange, screenTexSize), 1.0);
+                                         float fill = clamp(screenPxRange * (sd - 0.5) + 0.5, 0.0, 1.0);
+                                         if (outlineWidth <= 0.0) {
+                                             FragColor = vec4(color.rgb, color.a * fill);
+                                         } else {
+                                             float outer = clamp(screenPxRange * (sd - 0.5 + outlineWidth) + 0.5, 0.0, 1.0);
+                                             vec4 base = mix(outlineColor, color, fill);
+                                             FragColor = vec4(base.rgb, base.a * outer);
+                                         }
+                                      }""";
+
+        shaderProgram = crearProgramaShader(vertexShaderSource,
+                msdf ? msdfFragmentShaderSource : fragmentShaderSource);
+        locTex = glGetUniformLocation(shaderProgram, "tex");
+        locOffset = glGetUniformLocation(shaderProgram, "offset");
+        if (msdf) {
+            GLState.useProgram(shaderProgram);
+            glUniform1f(glGetUniformLocation(shaderProgram, "pxRange"), 2 * MSDF_RANGE);
+            GLState.useProgram(0);
+        }
     }
 
     public void setPosition(float x, float y) {
@@ -107,26 +370,70 @@ public class TextRender {
         modelMatrix.identity();
     }
 
+    // Tamaño en píxeles de los siguientes textos (<= 0 vuelve al tamaño base).
+    // En modo bitmap también escala, pero el resultado se ve borroso.
+    public void setSize(float size) {
+        this.drawSize = size > 0 ? size : baseSize;
+    }
+
+    public float getSize() {
+        return drawSize;
+    }
+
+    public int getBaseSize() {
+        return baseSize;
+    }
+
+    // Contorno de los siguientes textos, en píxeles de pantalla (solo MSDF)
+    public void setOutline(float width, float r, float g, float b) {
+        this.outlineWidth = Math.max(width, 0f);
+        this.outlineColor = packColor(r, g, b, 1f);
+    }
+
+    public void clearOutline() {
+        this.outlineWidth = 0f;
+    }
+
+    public boolean isMsdf() {
+        return msdf;
+    }
+
     private Matrix4f modelMatrix = new Matrix4f().identity();
 
     private void inicializarBuffers() {
+        vertexArena = MemoryUtil.memAlloc(INITIAL_ARENA_BYTES);
+        vboCapacity = INITIAL_ARENA_BYTES;
+
         vao = glGenVertexArrays();
         vbo = glGenBuffers();
 
-        glBindVertexArray(vao);
-        glBindBuffer(GL_ARRAY_BUFFER, vbo);
+        GLState.bindVertexArray(vao);
+        GLState.bindBuffer(GL_ARRAY_BUFFER, vbo);
+        glBufferData(GL_ARRAY_BUFFER, vboCapacity, GL_STREAM_DRAW);
+        configurarAtributos();
 
-        glEnableVertexAttribArray(0);
-        glVertexAttribPointer(0, 4, GL_FLOAT, false, 4 * Float.BYTES, 0);
+        GLState.bindBuffer(GL_ARRAY_BUFFER, 0);
+        GLState.bindVertexArray(0);
+    }
 
-        glBindBuffer(GL_ARRAY_BUFFER, 0);
-        glBindVertexArray(0);
+    // Formato de vértice compartido por el batch y las TextMesh (requiere VBO enlazado)
+    static void configurarAtributos() {
+        glEnableVertexAttribArray(0);
+        glVertexAttribPointer(0, 4, GL_FLOAT, false, VERTEX_BYTES, 0);
+        glEnableVertexAttribArray(1);
+        glVertexAttribPointer(1, 4, GL_UNSIGNED_BYTE, true, VERTEX_BYTES, 6 * Float.BYTES);
+        glEnableVertexAttribArray(2);
+        glVertexAttribPointer(2, 1, GL_FLOAT, false, VERTEX_BYTES, 4 * Float.BYTES);
+        glEnableVertexAttribArray(3);
+        glVertexAttribPointer(3, 4, GL_UNSIGNED_BYTE, true, VERTEX_BYTES, 6 * Float.BYTES + 4);
+        glEnableVertexAttribArray(4);
+        glVertexAttribPointer(4, 1, GL_FLOAT, false, VERTEX_BYTES, 5 * Float.BYTES);
     }
 
     public void setProjection(int width, int height) {
         this.windowWidth = width;
         this.windowHeight = height;
-        projectionMatrix = new Matrix4f().ortho(0, width, height, 0, -1, 1);
+        layoutCache.invalidate();
     }
 
     public void setRelativePosition(float relX, float relY) {
@@ -137,74 +444,277 @@ public class TextRender {
         setPosition(x, y);
     }
 
-    public void rendererRelativo(String texto, float relX, float relY, float r, float g, float b) {
+    public void rendererRelativo(CharSequence texto, float relX, float relY, float r, float g, float b) {
         float x = relX * windowWidth;
         float y = relY * windowHeight;
         renderer(texto, x, y, r, g, b);
     }
 
-    public void renderer(String texto, float x, float y, float r, float g, float b) {
-        glEnable(GL_BLEND);
-        glBlendFunc(GL_SRC_ALPHA, GL_ONE_MINUS_SRC_ALPHA);
+    // En modo batching renderer() solo acumula quads; flush() dibuja todo de una vez.
+    // Sin batching cada llamada hace su propio flush, como antes.
+    public void setBatching(boolean batching) {
+        if (!batching) {
+            flush();
+        }
+        this.batching = batching;
+    }
 
-        FloatBuffer vertices = procesarTexto(texto, x, y);
+    public boolean isBatching() {
+        return batching;
+    }
 
-        glUseProgram(shaderProgram);
-        glBindVertexArray(vao);
-        glBindBuffer(GL_ARRAY_BUFFER, vbo);
-        glBufferData(GL_ARRAY_BUFFER, vertices, GL_DYNAMIC_DRAW);
+    public void renderer(CharSequence texto, float x, float y, float r, float g, float b) {
+        renderer(texto, x, y, r, g, b, 1f);
+    }
 
-        glUniformMatrix4fv(glGetUniformLocation(shaderProgram, "proj"),
-                false, projectionMatrix.get(new float[16]));
+    public void renderer(CharSequence texto, float x, float y, float r, float g, float b, float a) {
+        boolean identity = (modelMatrix.properties() & Matrix4f.PROPERTY_IDENTITY) != 0;
+        vertexArena = appendText(vertexArena, texto, x, y, packColor(r, g, b, a),
+                drawSize, outlineWidth, outlineColor, identity);
+        if (!batching) {
+            flush();
+        }
+    }
 
-        glUniformMatrix4fv(glGetUniformLocation(shaderProgram, "model"),
-                false, modelMatrix.get(new float[16]));
+    // Sube la arena al VBO (orphaning + sub-data) y dibuja todos los glifos pendientes
+    public void flush() {
+        int bytes = vertexArena.position();
+        if (bytes == 0) {
+            lastFlushGlyphs = 0;
+            return;
+        }
+        vertexArena.flip();
 
-        glUniform3f(glGetUniformLocation(shaderProgram, "color"), r, g, b);
+        GLState.enable(GL_BLEND);
+        GLState.blendFunc(GL_SRC_ALPHA, GL_ONE_MINUS_SRC_ALPHA);
 
-        glActiveTexture(GL_TEXTURE0);
-        glBindTexture(GL_TEXTURE_2D, textureID);
-        glUniform1i(glGetUniformLocation(shaderProgram, "tex"), 0);
+        usarPrograma(0f, 0f);
+        GLState.bindVertexArray(vao);
+        GLState.bindBuffer(GL_ARRAY_BUFFER, vbo);
+        if (bytes > vboCapacity) {
+            vboCapacity = vertexArena.capacity();
+        }
+        // Orphaning: el driver entrega memoria nueva sin esperar al frame anterior
+        glBufferData(GL_ARRAY_BUFFER, vboCapacity, GL_STREAM_DRAW);
+        glBufferSubData(GL_ARRAY_BUFFER, 0, vertexArena);
 
-        glDrawArrays(GL_TRIANGLES, 0, vertices.remaining() / 4);
+        glDrawArrays(GL_TRIANGLES, 0, bytes / VERTEX_BYTES);
+        drawCalls++;
+        lastFlushGlyphs = bytes / GLYPH_BYTES;
+        atlas.nextBatch();
 
-        glBindTexture(GL_TEXTURE_2D, 0);
-        glBindVertexArray(0);
-        glDisable(GL_BLEND);
+        vertexArena.clear();
     }
 
-    private FloatBuffer procesarTexto(String texto, float x, float y) {
-        FloatBuffer buffer = BufferUtils.createFloatBuffer(texto.length() * 6 * 4);
+    // Deja el flush() del batch como paquete de la capa overlay; sequence ordena entre overlays
+    public void submit(RenderQueue queue, int sequence) {
+        if (queue != commandQueue) {
+            commandQueue = queue;
+            commandId = queue.registerCommand(argument -> flush());
+        }
+        queue.submit(RenderQueue.sequencedKey(RenderQueue.LAYER_OVERLAY, sequence, 0, atlas.getTextureID()), commandId, 0);
+    }
 
-        try (MemoryStack stack = MemoryStack.stackPush()) {
-            FloatBuffer posX = stack.floats(x);
-            FloatBuffer posY = stack.floats(y);
+    // Programa, atlas y desplazamiento comunes al batch y a las TextMesh retenidas
+    private void usarPrograma(float offsetX, float offsetY) {
+        GLState.useProgram(shaderProgram);
+        if (offsetX != lastOffsetX || offsetY != lastOffsetY) {
+            glUniform2f(locOffset, offsetX, offsetY);
+            lastOffsetX = offsetX;
+            lastOffsetY = offsetY;
+        }
+        GLState.activeTexture(GL_TEXTURE0);
+        GLState.bindTexture(GL_TEXTURE_2D_ARRAY, atlas.getTextureID());
+        glUniform1i(locTex, 0);
+    }
 
-            STBTTAlignedQuad quad = STBTTAlignedQuad.malloc(stack);
+    // Crea un texto retenido: sus quads se quedan en la GPU hasta que cambie el contenido
+    public TextLabel createLabel(CharSequence texto) {
+        TextLabel label = new TextLabel(this);
+        label.setText(texto);
+        return label;
+    }
 
-            for (int i = 0; i < texto.length(); i++) {
-                char c = texto.charAt(i);
-                if (c < FIRST_CHAR || c >= FIRST_CHAR + NUM_CHARS) {
-                    continue;
-                }
+    // Maqueta el texto en dest (posición 0, sin transformación) para una TextMesh
+    ByteBuffer tessellate(ByteBuffer dest, CharSequence texto, int color, float size,
+                          float outline, float outlineR, float outlineG, float outlineB) {
+        return appendText(dest, texto, 0f, 0f, color, size > 0 ? size : baseSize, outline,
+                packColor(outlineR, outlineG, outlineB, 1f), true);
+    }
+
+    // Dibuja una malla retenida en (x, y); los glifos pendientes del batch no se ven afectados
+    void drawMesh(TextMesh mesh, float x, float y) {
+        if (mesh.getVertexCount() == 0) {
+            return;
+        }
+        GLState.enable(GL_BLEND);
+        GLState.blendFunc(GL_SRC_ALPHA, GL_ONE_MINUS_SRC_ALPHA);
+
+        // Desplazamiento entero para conservar el ajuste a píxel del maquetado
+        usarPrograma(Math.round(x), Math.round(y));
+        int pages = mesh.getPages();
+        for (int page = 0; pages != 0; page++, pages >>>= 1) {
+            if ((pages & 1) != 0) {
+                atlas.touch(page);
+            }
+        }
+        mesh.draw();
+        drawCalls++;
+    }
+
+    int getLastPages() {
+        return lastPages;
+    }
+
+    public int getLastFlushGlyphs() {
+        return lastFlushGlyphs;
+    }
 
-                stbtt_GetBakedQuad(charData, BITMAP_W, BITMAP_H, c - FIRST_CHAR, posX, posY, quad, true);
+    public int getDrawCalls() {
+        return drawCalls;
+    }
 
-                // Triángulo 1
-                buffer.put(quad.x0()).put(quad.y0()).put(quad.s0()).put(quad.t0());
-                buffer.put(quad.x1()).put(quad.y0()).put(quad.s1()).put(quad.t0());
-                buffer.put(quad.x1()).put(quad.y1()).put(quad.s1()).put(quad.t1());
+    public void resetStats() {
+        drawCalls = 0;
+    }
+
+    static int packColor(float r, float g, float b, float a) {
+        int ri = (int) (Math.min(Math.max(r, 0f), 1f) * 255f + 0.5f);
+        int gi = (int) (Math.min(Math.max(g, 0f), 1f) * 255f + 0.5f);
+        int bi = (int) (Math.min(Math.max(b, 0f), 1f) * 255f + 0.5f);
+        int ai = (int) (Math.min(Math.max(a, 0f), 1f) * 255f + 0.5f);
+        return ri | (gi << 8) | (bi << 16) | (ai << 24);
+    }
 
-                // Triángulo 2
-                buffer.put(quad.x1()).put(quad.y1()).put(quad.s1()).put(quad.t1());
-                buffer.put(quad.x0()).put(quad.y1()).put(quad.s0()).put(quad.t1());
-                buffer.put(quad.x0()).put(quad.y0()).put(quad.s0()).put(quad.t0());
+    // Crece el buffer off-heap si no caben extraBytes más; devuelve el buffer (quizá nuevo)
+    static ByteBuffer ensureCapacity(ByteBuffer buffer, int extraBytes) {
+        int needed = buffer.position() + extraBytes;
+        if (needed > buffer.capacity()) {
+            int capacity = buffer.capacity();
+            while (capacity < needed) {
+                capacity *= 2;
             }
+            buffer = MemoryUtil.memRealloc(buffer, capacity);
         }
-        buffer.flip();
         return buffer;
     }
 
+    // Los glifos se hacen residentes antes de escribir ningún quad: colocar uno puede vaciar
+    // una página (y hacer flush() de la arena), y los quads ya escritos apuntarían a ella.
+    // Mientras se escriben no se llama al atlas salvo touch(), así que out (que puede ser la
+    // arena, quizá realojada por ensureCapacity) no cambia por debajo.
+    private ByteBuffer appendText(ByteBuffer out, CharSequence texto, float x, float y, int color,
+                                  float size, float outlineWidth, int outlineColor, boolean identity) {
+        TextLayout layout = getLayout(texto);
+        int glyphCount = layout.getGlyphCount();
+        hacerResidentes(layout);
+        out = ensureCapacity(out, glyphCount * GLYPH_BYTES);
+
+        float scale = size / baseSize;
+        // Grosor del contorno en unidades del campo de distancia (0.5 = todo el margen)
+        float outline = msdf ? Math.min(outlineWidth / scale / (2f * MSDF_RANGE), 0.45f) : 0f;
+
+        float ox = Math.round(x);
+        float oy = Math.round(y);
+        lastPages = 0;
+        for (int i = 0; i < glyphCount; i++) {
+            Glyph glyph = layout.getGlyph(i);
+            atlas.touch(glyph.page);
+            lastPages |= 1 << glyph.page;
+
+            float x0, y0, x1, y1;
+            if (scale == 1f) {
+                // Los glifos se colocan en píxeles enteros para que el muestreo sea nítido
+                x0 = Math.round(x + layout.getPenX(i)) + glyph.offsetX;
+                y0 = oy + glyph.offsetY;
+                x1 = x0 + glyph.width;
+                y1 = y0 + glyph.height;
+            } else {
+                x0 = ox + (layout.getPenX(i) + glyph.offsetX) * scale;
+                y0 = oy + glyph.offsetY * scale;
+                x1 = x0 + glyph.width * scale;
+                y1 = y0 + glyph.height * scale;
+            }
+            appendQuad(out, x0, y0, x1, y1, glyph.u0, glyph.v0, glyph.u1, glyph.v1,
+                    glyph.page, color, outline, outlineColor, identity);
+        }
+        return out;
+    }
+
+    // Devuelve el layout del texto, maquetándolo solo si no estaba en cache.
+    // Los textos mutables se maquetan en un layout compartido que solo vale hasta la siguiente llamada.
+    public TextLayout getLayout(CharSequence texto) {
+        if (!(texto instanceof String key)) {
+            maquetarTexto(texto, scratchLayout);
+            return scratchLayout;
+        }
+        TextLayout layout = layoutCache.get(key);
+        if (layout == null) {
+            layout = new TextLayout(key.length());
+            maquetarTexto(key, layout);
+            layoutCache.put(key, layout);
+        }
+        return layout;
+    }
+
+    private void maquetarTexto(CharSequence texto, TextLayout layout) {
+        int length = texto.length();
+        layout.reset(length);
+        float pen = 0;
+        float maxHeight = 0;
+        float top = 0;
+
+        for (int i = 0; i < length; ) {
+            int codepoint = Character.codePointAt(texto, i);
+            i += Character.charCount(codepoint);
+
+            Glyph glyph = getGlyph(codepoint);
+            if (glyph == null) {
+                continue;
+            }
+            if (!glyph.isEmpty()) {
+                layout.add(glyph, pen);
+                maxHeight = Math.max(maxHeight, glyph.height - 2 * glyph.padding);
+                top = Math.min(top, glyph.offsetY + glyph.padding);
+            }
+            pen += glyph.advance;
+        }
+        layout.finish(pen, maxHeight, -top);
+    }
+
+    public TextLayoutCache getLayoutCache() {
+        return layoutCache;
+    }
+
+    private void appendQuad(ByteBuffer out, float x0, float y0, float x1, float y1,
+                            float s0, float t0, float s1, float t1,
+                            float layer, int color, float outline, int outlineColor, boolean identity) {
+        // Triángulo 1
+        putVertex(out, x0, y0, s0, t0, layer, color, outline, outlineColor, identity);
+        putVertex(out, x1, y0, s1, t0, layer, color, outline, outlineColor, identity);
+        putVertex(out, x1, y1, s1, t1, layer, color, outline, outlineColor, identity);
+
+        // Triángulo 2
+        putVertex(out, x1, y1, s1, t1, layer, color, outline, outlineColor, identity);
+        putVertex(out, x0, y1, s0, t1, layer, color, outline, outlineColor, identity);
+        putVertex(out, x0, y0, s0, t0, layer, color, outline, outlineColor, identity);
+    }
+
+    private void putVertex(ByteBuffer out, float x, float y, float s, float t, float layer, int color,
+                           float outline, int outlineColor, boolean identity) {
+        if (!identity) {
+            // La transformación del texto se aplica en CPU para poder agrupar
+            modelMatrix.transformPosition(x, y, 0f, scratch);
+            x = scratch.x;
+            y = scratch.y;
+        }
+        out.putFloat(x).putFloat(y).putFloat(s).putFloat(t).putFloat(layer).putFloat(outline)
+                .put((byte) color).put((byte) (color >>> 8))
+                .put((byte) (color >>> 16)).put((byte) (color >>> 24))
+                .put((byte) outlineColor).put((byte) (outlineColor >>> 8))
+                .put((byte) (outlineColor >>> 16)).put((byte) (outlineColor >>> 24));
+    }
+
     private int crearProgramaShader(String vertexSource, String fragmentSource) {
         int vertexShader = glCreateShader(GL_VERTEX_SHADER);
         glShaderSource(vertexShader, vertexSource);
@@ -236,12 +746,13 @@ public class TextRender {
         glAttachShader(program, vertexShader);
         glAttachShader(program, fragmentShader);
         glLinkProgram(program);
+        CameraUniformBuffer.bindBlock(program);
 
         // Verificar errores de linking
         glGetProgramiv(program, GL_LINK_STATUS, success);
         if (success[0] == GL_FALSE) {
             String log = glGetProgramInfoLog(program);
-            glDeleteProgram(program);
+            GLState.deleteProgram(program);
             glDeleteShader(vertexShader);
             glDeleteShader(fragmentShader);
             throw new RuntimeException("Error linkeando shaders:\n" + log);
@@ -256,87 +767,36 @@ public class TextRender {
         return program;
     }
 
-    private ByteBuffer loadFont(String path) throws Exception {
-        // Primero intentar cargar desde classpath
-        InputStream is = getClass().getClassLoader().getResourceAsStream(path);
-        if (is != null) {
-            try {
-                byte[] bytes = new byte[is.available()];
-                is.read(bytes);
-                ByteBuffer buffer = BufferUtils.createByteBuffer(bytes.length);
-                buffer.put(bytes).flip();
-                return buffer;
-            } finally {
-                is.close();
-            }
-        }
-
-        // Si no se encuentra en classpath, intentar filesystem
-        try {
-            Path filePath = Paths.get(path);
-            if (!Files.exists(filePath)) {
-                throw new IOException("Font not found: " + path);
-            }
-
-            ByteBuffer buffer = BufferUtils.createByteBuffer((int) Files.size(filePath));
-            try (FileChannel fc = FileChannel.open(filePath)) {
-                fc.read(buffer);
-            }
-            buffer.flip();
-            return buffer;
-        } catch (IOException e) {
-            throw new Exception("Error loading font from filesystem: " + e.getMessage());
-        }
+    // La fuente se queda en memoria mientras viva el TextRender (stb y FreeType leen de ella)
+    private ByteBuffer loadFont(String path) throws IOException {
+        fontAsset = Assets.read(path);
+        return fontAsset.data();
     }
 
-    public float getTextHeight(String texto) {
-        float maxHeight = 0;
-        try (MemoryStack stack = MemoryStack.stackPush()) {
-            FloatBuffer x = stack.floats(0f);
-            FloatBuffer y = stack.floats(0f);
-            STBTTAlignedQuad quad = STBTTAlignedQuad.malloc(stack);
-
-            for (int i = 0; i < texto.length(); i++) {
-                char c = texto.charAt(i);
-                if (c < FIRST_CHAR || c >= FIRST_CHAR + NUM_CHARS) {
-                    continue;
-                }
-
-                stbtt_GetBakedQuad(charData, BITMAP_W, BITMAP_H, c - FIRST_CHAR, x, y, quad, true);
-
-                float height = quad.y1() - quad.y0();
-                if (height > maxHeight) {
-                    maxHeight = height;
-                }
-            }
-        }
-        return maxHeight;
+    // Las métricas se devuelven al tamaño actual (setSize)
+    public float getTextHeight(CharSequence texto) {
+        return getLayout(texto).getHeight() * drawSize / baseSize;
     }
 
-    public float getTextWidth(String texto) {
-        float width;
-        try (MemoryStack stack = MemoryStack.stackPush()) {
-            FloatBuffer x = stack.floats(0f);
-            FloatBuffer y = stack.floats(0f);
-            STBTTAlignedQuad quad = STBTTAlignedQuad.malloc(stack);
-
-            for (int i = 0; i < texto.length(); i++) {
-                char c = texto.charAt(i);
-                if (c < FIRST_CHAR || c >= FIRST_CHAR + NUM_CHARS) {
-                    continue;
-                }
-                stbtt_GetBakedQuad(charData, BITMAP_W, BITMAP_H, c - FIRST_CHAR, x, y, quad, true);
-            }
-
-            width = x.get(0);
-        }
-        return width;
+    public float getTextWidth(CharSequence texto) {
+        return getLayout(texto).getWidth() * drawSize / baseSize;
     }
 
     public void cleanup() {
-        glDeleteVertexArrays(vao);
-        glDeleteBuffers(vbo);
-        glDeleteProgram(shaderProgram);
-        glDeleteTextures(textureID);
+        GLState.deleteVertexArray(vao);
+        GLState.deleteBuffer(vbo);
+        GLState.deleteProgram(shaderProgram);
+        atlas.cleanup();
+        if (msdf) {
+            msdf_ft_font_destroy(ftFont);
+            msdf_ft_deinit(ftLibrary);
+        }
+        if (fontAsset != null) {
+            fontAsset.close();
+        }
+        fontInfo.free();
+        MemoryUtil.memFree(glyphBitmap);
+        MemoryUtil.memFree(vertexArena);
+        vertexArena = null;
     }
 }
@@ -0,0 +1,318 @@
+package main;
+
+import org.lwjgl.BufferUtils;
+import org.lwjgl.opengl.GL;
+import org.lwjgl.stb.STBImage;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.lwjgl.opengl.GL11.*;
+import static org.lwjgl.opengl.GL12.*;
+import static org.lwjgl.opengl.GL13.nglCompressedTexImage3D;
+import static org.lwjgl.opengl.GL30.*;
+
+// Texturas de material guardadas como capas de GL_TEXTURE_2D_ARRAY compartidos. Las
+// imágenes con el mismo tamaño, formato interno y número de mipmaps van al mismo array
+// (hasta layersPerArray capas; lleno, se abre otro), así que los objetos con distinto
+// papel pintado pueden dibujarse con un solo bind (ver WallBatch).
+// Carga como TextureLoader: la versión .ktx2 si existe (niveles ya comprimidos) o la
+// imagen decodificada a RGBA8. add() solo decodifica y asigna capa; flush() reserva cada
+// array con las capas que tiene, ni una más, las sube y genera los mipmaps. Un array ya
+// reservado no crece: lo que se añada después va a otro. Hilo de OpenGL.
+public class TextureArrayPool {
+
+    public static final int DEFAULT_LAYERS_PER_ARRAY = 16;
+    // La capa viaja en un byte por instancia (WallBatch.INSTANCE_BYTES)
+    public static final int MAX_LAYERS_PER_ARRAY = 256;
+
+    // Capa asignada a una imagen: el array donde está y su índice dentro de él
+    public static final class Layer {
+        private final String path;
+        private final int arrayID;
+        private final int layer;
+        private final int width;
+        private final int height;
+
+        Layer(String path, int arrayID, int layer, int width, int height) {
+            this.path = path;
+            this.arrayID = arrayID;
+            this.layer = layer;
+            this.width = width;
+            this.height = height;
+        }
+
+        public String getPath() {
+            return path;
+        }
+
+        public int getArrayID() {
+            return arrayID;
+        }
+
+        public int getLayer() {
+            return layer;
+        }
+
+        public int getWidth() {
+            return width;
+        }
+
+        public int getHeight() {
+            return height;
+        }
+    }
+
+    private static final class Format {
+        final int width;
+        final int height;
+        final int internalFormat;
+        final int levels;
+
+        Format(int width, int height, int internalFormat, int levels) {
+            this.width = width;
+            this.height = height;
+            this.internalFormat = internalFormat;
+            this.levels = levels;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Format other)) {
+                return false;
+            }
+            return width == other.width && height == other.height
+                    && internalFormat == other.internalFormat && levels == other.levels;
+        }
+
+        @Override
+        public int hashCode() {
+            return ((width * 31 + height) * 31 + internalFormat) * 31 + levels;
+        }
+    }
+
+    // Imagen decodificada a la espera de flush(): niveles de KTX2 o píxeles RGBA8 de stbi
+    private static final class PendingLayer {
+        final int layer;
+        final KtxImage image;
+        final ByteBuffer pixels;
+
+        PendingLayer(int layer, KtxImage image, ByteBuffer pixels) {
+            this.layer = layer;
+            this.image = image;
+            this.pixels = pixels;
+        }
+
+        void free() {
+            if (image != null) {
+                image.free();
+            } else {
+                STBImage.stbi_image_free(pixels);
+            }
+        }
+    }
+
+    private static final class TextureArray {
+        final int arrayID;
+        final Format format;
+        final List<PendingLayer> pending = new ArrayList<>();
+        int used;
+        // 0 hasta que flush() reserva la memoria; desde entonces el array está cerrado
+        int allocatedLayers;
+        long sizeBytes;
+
+        TextureArray(int arrayID, Format format) {
+            this.arrayID = arrayID;
+            this.format = format;
+        }
+    }
+
+    private final int layersPerArray;
+    private final TextureSampler sampler;
+    private final Map<Format, List<TextureArray>> arrays = new HashMap<>();
+    private final List<TextureArray> arrayList = new ArrayList<>();
+    private final Map<String, Layer> layers = new HashMap<>();
+    private long sizeBytes;
+    // Opcional: la VRAM de los arrays cuenta para su presupuesto
+    private TextureManager textureManager;
+
+    public TextureArrayPool() {
+        this(DEFAULT_LAYERS_PER_ARRAY, TextureSampler.REPEAT_MIPMAPPED);
+    }
+
+    public TextureArrayPool(int layersPerArray, TextureSampler sampler) {
+        if (layersPerArray < 1 || layersPerArray > MAX_LAYERS_PER_ARRAY) {
+            throw new IllegalArgumentException("layersPerArray fuera de rango: " + layersPerArray);
+        }
+        this.layersPerArray = layersPerArray;
+        this.sampler = sampler;
+    }
+
+    // Antes del primer flush(): los bytes ya reservados no se le vuelven a contar
+    public void setTextureManager(TextureManager textureManager) {
+        this.textureManager = textureManager;
+    }
+
+    // Capa de la imagen; la misma ruta devuelve siempre la misma capa. Hasta el siguiente
+    // flush() la capa no tiene contenido.
+    public Layer add(String resourcePath) {
+        Layer layer = layers.get(resourcePath);
+        if (layer != null) {
+            return layer;
+        }
+        String ktxPath = TextureLoader.resolveKtx2(resourcePath);
+        layer = ktxPath != null ? addKtx2(resourcePath, ktxPath) : addImage(resourcePath);
+        layers.put(resourcePath, layer);
+        return layer;
+    }
+
+    private Layer addKtx2(String resourcePath, String ktxPath) {
+        KtxImage image;
+        try (Asset asset = Assets.read(ktxPath)) {
+            image = KtxImage.decode(asset.data(), KtxImage.chooseTranscodeFormat(GL.getCapabilities()), ktxPath);
+        } catch (IOException e) {
+            throw new RuntimeException("No se pudo leer el recurso: " + ktxPath, e);
+        }
+        Format format = new Format(image.getWidth(), image.getHeight(), image.getGlInternalFormat(), image.getLevels());
+        TextureArray array = arrayFor(format);
+        int index = array.used++;
+        array.pending.add(new PendingLayer(index, image, null));
+        return new Layer(resourcePath, array.arrayID, index, format.width, format.height);
+    }
+
+    private Layer addImage(String resourcePath) {
+        IntBuffer width = BufferUtils.createIntBuffer(1);
+        IntBuffer height = BufferUtils.createIntBuffer(1);
+        IntBuffer channels = BufferUtils.createIntBuffer(1);
+
+        ByteBuffer pixels;
+        try (Asset asset = Assets.read(resourcePath)) {
+            pixels = STBImage.stbi_load_from_memory(asset.data(), width, height, channels, 4);
+        } catch (IOException e) {
+            throw new RuntimeException("No se pudo leer el recurso: " + resourcePath, e);
+        }
+        if (pixels == null) {
+            throw new RuntimeException("No se pudo cargar la textura desde memoria: " + resourcePath + "\n" + STBImage.stbi_failure_reason());
+        }
+        int w = width.get(0);
+        int h = height.get(0);
+        int levels = sampler.usesMipmaps() ? 32 - Integer.numberOfLeadingZeros(Math.max(w, h)) : 1;
+        Format format = new Format(w, h, GL_RGBA8, levels);
+        TextureArray array = arrayFor(format);
+        int index = array.used++;
+        array.pending.add(new PendingLayer(index, null, pixels));
+        return new Layer(resourcePath, array.arrayID, index, w, h);
+    }
+
+    // Array sin reservar con hueco para el formato. Las capas no se liberan: solo se
+    // reutilizan por ruta, así que basta con mirar el último array.
+    private TextureArray arrayFor(Format format) {
+        List<TextureArray> list = arrays.computeIfAbsent(format, f -> new ArrayList<>());
+        TextureArray array = list.isEmpty() ? null : list.get(list.size() - 1);
+        if (array != null && array.allocatedLayers == 0 && array.used < layersPerArray) {
+            return array;
+        }
+        // El nombre ya sirve para las Layer; la memoria llega en flush()
+        array = new TextureArray(glGenTextures(), format);
+        list.add(array);
+        arrayList.add(array);
+        return array;
+    }
+
+    // Reserva y sube los arrays con capas nuevas. Llamar tras añadir un lote de texturas y
+    // antes de dibujar con ellas: cuantas más capas lleguen juntas, menos arrays.
+    public void flush() {
+        for (int i = 0; i < arrayList.size(); i++) {
+            TextureArray array = arrayList.get(i);
+            if (array.pending.isEmpty()) {
+                continue;
+            }
+            GLState.bindTexture(GL_TEXTURE_2D_ARRAY, array.arrayID);
+            allocate(array);
+            boolean generateMipmaps = false;
+            for (PendingLayer pending : array.pending) {
+                if (pending.image != null) {
+                    pending.image.uploadLayer(pending.layer);
+                } else {
+                    glTexSubImage3D(GL_TEXTURE_2D_ARRAY, 0, 0, 0, pending.layer, array.format.width, array.format.height, 1,
+                            GL_RGBA, GL_UNSIGNED_BYTE, pending.pixels);
+                    generateMipmaps = array.format.levels > 1;
+                }
+                pending.free();
+            }
+            array.pending.clear();
+            if (generateMipmaps) {
+                glGenerateMipmap(GL_TEXTURE_2D_ARRAY);
+            }
+        }
+        GLState.bindTexture(GL_TEXTURE_2D_ARRAY, 0);
+    }
+
+    // Memoria para exactamente las capas asignadas; el array ligado en GL_TEXTURE_2D_ARRAY
+    private void allocate(TextureArray array) {
+        Format format = array.format;
+        int layerCount = array.used;
+        KtxImage compressed = array.pending.get(0).image;
+        sampler.apply(GL_TEXTURE_2D_ARRAY);
+        glTexParameteri(GL_TEXTURE_2D_ARRAY, GL_TEXTURE_MAX_LEVEL, format.levels - 1);
+        long bytes = 0;
+        for (int level = 0; level < format.levels; level++) {
+            int w = Math.max(1, format.width >> level);
+            int h = Math.max(1, format.height >> level);
+            if (compressed != null && compressed.isCompressed()) {
+                // Reserva sin datos: cada capa llega luego con glCompressedTexSubImage3D
+                int levelBytes = compressed.getLevelSize(level) * layerCount;
+                nglCompressedTexImage3D(GL_TEXTURE_2D_ARRAY, level, format.internalFormat, w, h, layerCount, 0, levelBytes, 0L);
+                bytes += levelBytes;
+            } else {
+                glTexImage3D(GL_TEXTURE_2D_ARRAY, level, format.internalFormat, w, h, layerCount, 0,
+                        GL_RGBA, GL_UNSIGNED_BYTE, (ByteBuffer) null);
+                bytes += (long) w * h * 4 * layerCount;
+            }
+        }
+        array.allocatedLayers = layerCount;
+        array.sizeBytes = bytes;
+        sizeBytes += bytes;
+        if (textureManager != null) {
+            textureManager.addExternalBytes(bytes);
+        }
+    }
+
+    public int getLayersPerArray() {
+        return layersPerArray;
+    }
+
+    public int getArrayCount() {
+        return arrayList.size();
+    }
+
+    public int getLayerCount() {
+        return layers.size();
+    }
+
+    // VRAM reservada por todos los arrays
+    public long getSizeBytes() {
+        return sizeBytes;
+    }
+
+    public void cleanup() {
+        for (TextureArray array : arrayList) {
+            for (PendingLayer pending : array.pending) {
+                pending.free();
+            }
+            GLState.deleteTexture(array.arrayID);
+        }
+        if (textureManager != null) {
+            textureManager.addExternalBytes(-sizeBytes);
+        }
+        arrayList.clear();
+        arrays.clear();
+        layers.clear();
+        sizeBytes = 0;
+    }
+}
@@ -0,0 +1,80 @@
+package main;
+
+// Textura cargada en segundo plano. El id de OpenGL es válido desde el primer momento:
+// mientras la imagen se decodifica contiene un placeholder de 1x1 y, al terminar la
+// subida, el mismo id pasa a tener la imagen real (no hay que volver a enlazar nada).
+public class TextureHandle {
+
+    public enum State {
+        // Decodificando o esperando turno de subida; el id muestra el placeholder
+        LOADING,
+        // Imagen real subida con mipmaps
+        READY,
+        // No se pudo leer o decodificar; se queda el placeholder
+        FAILED
+    }
+
+    private final String path;
+    private final TextureSampler sampler;
+    private final int textureID;
+    private volatile State state = State.LOADING;
+    private int width = 1;
+    private int height = 1;
+    private long sizeBytes = 4;
+    private String error;
+
+    TextureHandle(String path, TextureSampler sampler, int textureID) {
+        this.path = path;
+        this.sampler = sampler;
+        this.textureID = textureID;
+    }
+
+    void ready(int width, int height, long sizeBytes) {
+        this.width = width;
+        this.height = height;
+        this.sizeBytes = sizeBytes;
+        this.state = State.READY;
+    }
+
+    void fail(String error) {
+        this.error = error;
+        this.state = State.FAILED;
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    public TextureSampler getSampler() {
+        return sampler;
+    }
+
+    public int getTextureID() {
+        return textureID;
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    public boolean isReady() {
+        return state == State.READY;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    // Bytes aproximados en VRAM (RGBA8 más un tercio si tiene mipmaps, o lo subido desde KTX2)
+    public long getSizeBytes() {
+        return sizeBytes;
+    }
+
+    public String getError() {
+        return error;
+    }
+}
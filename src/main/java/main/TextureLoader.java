@@ -1,15 +1,13 @@
 package main;
 
 import org.lwjgl.BufferUtils;
+import org.lwjgl.opengl.GL;
 import org.lwjgl.opengl.GL11;
 import org.lwjgl.stb.STBImage;
 
 import java.io.IOException;
-import java.io.InputStream;
 import java.nio.ByteBuffer;
 import java.nio.IntBuffer;
-import java.nio.channels.Channels;
-import java.nio.channels.ReadableByteChannel;
 
 import static org.lwjgl.opengl.GL11.*;
 import static org.lwjgl.opengl.GL30.glGenerateMipmap;
@@ -17,58 +15,74 @@ import static org.lwjgl.opengl.GL30.glGenerateMipmap;
 public class TextureLoader {
 
     public static int loadTexture(String resourcePath) {
-        // Leer el recurso desde classpath
-        ByteBuffer imageBuffer;
-        try {
-            imageBuffer = ioResourceToByteBuffer(resourcePath, 8 * 1024);
-        } catch (IOException e) {
-            throw new RuntimeException("No se pudo leer el recurso: " + resourcePath, e);
+        // Si existe la versión KTX2 (KtxConverter) se usa esa: sin decodificar ni generar mipmaps
+        String ktxPath = resolveKtx2(resourcePath);
+        if (ktxPath != null) {
+            return loadKtx2(ktxPath);
         }
 
         IntBuffer width = BufferUtils.createIntBuffer(1);
         IntBuffer height = BufferUtils.createIntBuffer(1);
         IntBuffer channels = BufferUtils.createIntBuffer(1);
 
-        // Cargar imagen desde memoria
-        ByteBuffer decodedImage = STBImage.stbi_load_from_memory(imageBuffer, width, height, channels, 4);
+        // Leer el recurso (archivo .pak o classpath) y cargar la imagen desde memoria
+        ByteBuffer decodedImage;
+        try (Asset asset = Assets.read(resourcePath)) {
+            decodedImage = STBImage.stbi_load_from_memory(asset.data(), width, height, channels, 4);
+        } catch (IOException e) {
+            throw new RuntimeException("No se pudo leer el recurso: " + resourcePath, e);
+        }
         if (decodedImage == null) {
             throw new RuntimeException("No se pudo cargar la textura desde memoria: " + resourcePath + "\n" + STBImage.stbi_failure_reason());
         }
 
-        int textureID = glGenTextures();
-        glBindTexture(GL_TEXTURE_2D, textureID);
+        int textureID = uploadRGBA(decodedImage, width.get(), height.get());
+        STBImage.stbi_image_free(decodedImage);
+        return textureID;
+    }
 
-        // Parámetros de textura
-        glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_WRAP_S, GL_REPEAT);
-        glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_WRAP_T, GL_REPEAT);
-        glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_MIN_FILTER, GL_LINEAR_MIPMAP_LINEAR);
-        glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_MAG_FILTER, GL_LINEAR);
+    // Crea una textura con mipmaps a partir de píxeles RGBA8 ya decodificados (hilo de OpenGL)
+    public static int uploadRGBA(ByteBuffer pixels, int width, int height) {
+        int textureID = glGenTextures();
+        GLState.bindTexture(GL_TEXTURE_2D, textureID);
+        configurarParametros();
 
         // Enviar a GPU
-        glTexImage2D(GL_TEXTURE_2D, 0, GL_RGBA, width.get(), height.get(), 0, GL_RGBA, GL_UNSIGNED_BYTE, decodedImage);
+        glTexImage2D(GL_TEXTURE_2D, 0, GL_RGBA, width, height, 0, GL_RGBA, GL_UNSIGNED_BYTE, pixels);
         glGenerateMipmap(GL_TEXTURE_2D);
-
-        STBImage.stbi_image_free(decodedImage);
         return textureID;
     }
 
-    // Método para cargar un archivo del classpath como ByteBuffer
-    private static ByteBuffer ioResourceToByteBuffer(String resource, int bufferSize) throws IOException {
-        try (InputStream source = TextureLoader.class.getClassLoader().getResourceAsStream(resource);
-             ReadableByteChannel rbc = Channels.newChannel(source)) {
-            ByteBuffer buffer = BufferUtils.createByteBuffer(bufferSize);
-            while (true) {
-                int bytes = rbc.read(buffer);
-                if (bytes == -1) break;
-                if (buffer.remaining() == 0) {
-                    ByteBuffer newBuffer = BufferUtils.createByteBuffer(buffer.capacity() * 2);
-                    buffer.flip();
-                    newBuffer.put(buffer);
-                    buffer = newBuffer;
-                }
-            }
-            buffer.flip();
-            return buffer;
+    public static int loadKtx2(String resourcePath) {
+        KtxImage image;
+        try (Asset asset = Assets.read(resourcePath)) {
+            image = KtxImage.decode(asset.data(), KtxImage.chooseTranscodeFormat(GL.getCapabilities()), resourcePath);
+        } catch (IOException e) {
+            throw new RuntimeException("No se pudo leer el recurso: " + resourcePath, e);
+        }
+        try {
+            int textureID = glGenTextures();
+            GLState.bindTexture(GL_TEXTURE_2D, textureID);
+            configurarParametros();
+            image.upload(true);
+            return textureID;
+        } finally {
+            image.free();
         }
     }
+
+    // Ruta del .ktx2 equivalente a una imagen (misma ruta, otra extensión), o null si no existe
+    static String resolveKtx2(String resourcePath) {
+        if (resourcePath.endsWith(".ktx2")) {
+            return resourcePath;
+        }
+        int dot = resourcePath.lastIndexOf('.');
+        String candidate = (dot > resourcePath.lastIndexOf('/') ? resourcePath.substring(0, dot) : resourcePath) + ".ktx2";
+        return Assets.exists(candidate) ? candidate : null;
+    }
+
+    // Parámetros de textura comunes (textura ligada en GL_TEXTURE_2D)
+    static void configurarParametros() {
+        TextureSampler.REPEAT_MIPMAPPED.apply();
+    }
 }
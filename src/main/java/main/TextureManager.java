@@ -0,0 +1,211 @@
+package main;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+
+// Caché de texturas por (ruta, sampler). Cargar dos veces la misma ruta devuelve el mismo
+// TextureHandle y suma una referencia; release() la quita. Las texturas sin referencias
+// no se borran enseguida: se quedan en caché y, cuando la VRAM estimada supera el
+// presupuesto, update() borra primero las que hace más frames que no se dibujan.
+// Los que dibujan avisan con touch(textureID) (WallBatch lo hace por grupo visible).
+public class TextureManager {
+
+    private final AsyncTextureLoader loader;
+    private long budgetBytes;
+
+    private final Map<Key, Entry> entries = new HashMap<>();
+    private final Map<Integer, Entry> byTextureID = new HashMap<>();
+    private final List<Entry> candidates = new ArrayList<>();
+
+    private long frame;
+    private long residentBytes;
+    // Parte de residentBytes que no es de la caché (no se puede desalojar)
+    private long externalBytes;
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long evictedBytes;
+
+    private static final class Key {
+        final String path;
+        final TextureSampler sampler;
+
+        Key(String path, TextureSampler sampler) {
+            this.path = path;
+            this.sampler = sampler;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key other)) {
+                return false;
+            }
+            return path.equals(other.path) && sampler.equals(other.sampler);
+        }
+
+        @Override
+        public int hashCode() {
+            return path.hashCode() * 31 + sampler.hashCode();
+        }
+    }
+
+    private static final class Entry {
+        final Key key;
+        final TextureHandle handle;
+        int refCount;
+        long lastUsedFrame;
+        // Bytes contados en residentBytes (0 hasta que la imagen real está subida)
+        long countedBytes;
+
+        Entry(Key key, TextureHandle handle) {
+            this.key = key;
+            this.handle = handle;
+        }
+    }
+
+    public TextureManager(AsyncTextureLoader loader, long budgetBytes) {
+        this.loader = loader;
+        this.budgetBytes = budgetBytes;
+    }
+
+    public TextureHandle acquire(String path) {
+        return acquire(path, TextureSampler.REPEAT_MIPMAPPED);
+    }
+
+    // Hilo de OpenGL
+    public TextureHandle acquire(String path, TextureSampler sampler) {
+        Key key = new Key(path, sampler);
+        Entry entry = entries.get(key);
+        if (entry != null) {
+            hits++;
+        } else {
+            misses++;
+            entry = new Entry(key, loader.load(path, sampler));
+            entries.put(key, entry);
+            byTextureID.put(entry.handle.getTextureID(), entry);
+        }
+        entry.refCount++;
+        entry.lastUsedFrame = frame;
+        return entry.handle;
+    }
+
+    // La textura sigue en caché hasta que el presupuesto obligue a desalojarla
+    public void release(TextureHandle handle) {
+        Entry entry = byTextureID.get(handle.getTextureID());
+        if (entry == null || entry.handle != handle) {
+            throw new IllegalArgumentException("Textura no gestionada: " + handle.getPath());
+        }
+        if (entry.refCount == 0) {
+            throw new IllegalStateException("Textura liberada más veces de las adquiridas: " + handle.getPath());
+        }
+        entry.refCount--;
+    }
+
+    // Marca la textura como dibujada en este frame (ids ajenos al gestor se ignoran)
+    public void touch(int textureID) {
+        Entry entry = byTextureID.get(textureID);
+        if (entry != null) {
+            entry.lastUsedFrame = frame;
+        }
+    }
+
+    // Una vez por frame, después de AsyncTextureLoader.update()
+    public void update() {
+        frame++;
+        for (Entry entry : entries.values()) {
+            if (entry.countedBytes == 0 && entry.handle.isReady()) {
+                entry.countedBytes = entry.handle.getSizeBytes();
+                residentBytes += entry.countedBytes;
+            }
+        }
+        if (residentBytes > budgetBytes) {
+            evict();
+        }
+    }
+
+    // LRU entre las texturas sin referencias y ya subidas (las que cargan aún están en el loader)
+    private void evict() {
+        candidates.clear();
+        for (Entry entry : entries.values()) {
+            if (entry.refCount == 0 && entry.handle.getState() != TextureHandle.State.LOADING) {
+                candidates.add(entry);
+            }
+        }
+        candidates.sort((a, b) -> Long.compare(a.lastUsedFrame, b.lastUsedFrame));
+        for (int i = 0; i < candidates.size() && residentBytes > budgetBytes; i++) {
+            Entry entry = candidates.get(i);
+            delete(entry);
+            evictions++;
+            evictedBytes += entry.countedBytes;
+        }
+        candidates.clear();
+    }
+
+    private void delete(Entry entry) {
+        entries.remove(entry.key);
+        byTextureID.remove(entry.handle.getTextureID());
+        residentBytes -= entry.countedBytes;
+        GLState.deleteTexture(entry.handle.getTextureID());
+    }
+
+    // VRAM de texturas ajenas a la caché (p. ej. los arrays de TextureArrayPool): cuenta para
+    // el presupuesto, así que hace que se desaloje antes lo que sí es de la caché.
+    // Negativo para descontarla al borrarlas.
+    public void addExternalBytes(long bytes) {
+        externalBytes += bytes;
+        residentBytes += bytes;
+    }
+
+    public long getExternalBytes() {
+        return externalBytes;
+    }
+
+    public void setBudgetBytes(long budgetBytes) {
+        this.budgetBytes = budgetBytes;
+    }
+
+    public long getBudgetBytes() {
+        return budgetBytes;
+    }
+
+    public long getResidentBytes() {
+        return residentBytes;
+    }
+
+    public int getTextureCount() {
+        return entries.size();
+    }
+
+    public long getHits() {
+        return hits;
+    }
+
+    public long getMisses() {
+        return misses;
+    }
+
+    public long getEvictions() {
+        return evictions;
+    }
+
+    public long getEvictedBytes() {
+        return evictedBytes;
+    }
+
+    public void resetStats() {
+        hits = 0;
+        misses = 0;
+        evictions = 0;
+        evictedBytes = 0;
+    }
+
+    // Borra todas las texturas, tengan referencias o no (al cerrar)
+    public void cleanup() {
+        for (Entry entry : new ArrayList<>(entries.values())) {
+            delete(entry);
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package main;
+
+import static org.lwjgl.opengl.GL11.*;
+import static org.lwjgl.opengl.GL12.GL_CLAMP_TO_EDGE;
+
+// Parámetros de muestreo de una textura. Forma parte de la clave de TextureManager:
+// la misma imagen con otro wrap/filtro es otra textura de GPU.
+public final class TextureSampler {
+
+    // Lo que usaba TextureLoader: repetir y trilineal con mipmaps
+    public static final TextureSampler REPEAT_MIPMAPPED =
+            new TextureSampler(GL_REPEAT, GL_LINEAR_MIPMAP_LINEAR, GL_LINEAR);
+    // Interfaz y atlas: sin repetir y sin mipmaps
+    public static final TextureSampler CLAMP_LINEAR =
+            new TextureSampler(GL_CLAMP_TO_EDGE, GL_LINEAR, GL_LINEAR);
+    // Pixel art
+    public static final TextureSampler REPEAT_NEAREST =
+            new TextureSampler(GL_REPEAT, GL_NEAREST, GL_NEAREST);
+
+    private final int wrap;
+    private final int minFilter;
+    private final int magFilter;
+
+    public TextureSampler(int wrap, int minFilter, int magFilter) {
+        this.wrap = wrap;
+        this.minFilter = minFilter;
+        this.magFilter = magFilter;
+    }
+
+    // Aplica los parámetros a la textura ligada en GL_TEXTURE_2D
+    public void apply() {
+        apply(GL_TEXTURE_2D);
+    }
+
+    // Igual para otro target (GL_TEXTURE_2D_ARRAY en TextureArrayPool)
+    public void apply(int target) {
+        glTexParameteri(target, GL_TEXTURE_WRAP_S, wrap);
+        glTexParameteri(target, GL_TEXTURE_WRAP_T, wrap);
+        glTexParameteri(target, GL_TEXTURE_MIN_FILTER, minFilter);
+        glTexParameteri(target, GL_TEXTURE_MAG_FILTER, magFilter);
+    }
+
+    // Solo se generan mipmaps si el filtro de minificación los usa
+    public boolean usesMipmaps() {
+        return minFilter != GL_LINEAR && minFilter != GL_NEAREST;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (!(o instanceof TextureSampler other)) {
+            return false;
+        }
+        return wrap == other.wrap && minFilter == other.minFilter && magFilter == other.magFilter;
+    }
+
+    @Override
+    public int hashCode() {
+        return (wrap * 31 + minFilter) * 31 + magFilter;
+    }
+}
@@ -0,0 +1,209 @@
+package main;
+
+import org.lwjgl.system.MemoryUtil;
+
+import java.nio.ByteBuffer;
+
+import static org.lwjgl.opengl.GL11.*;
+import static org.lwjgl.opengl.GL15.*;
+import static org.lwjgl.opengl.GL20.*;
+import static org.lwjgl.opengl.GL30.*;
+import static org.lwjgl.opengl.GL31.glDrawArraysInstanced;
+import static org.lwjgl.opengl.GL33.glVertexAttribDivisor;
+
+// Rectángulos de la UI (fondos de botones, paneles) agrupados en un solo draw instanciado.
+// Todos los botones comparten el programa; cada rectángulo es una instancia con su
+// posición, tamaño y color, y las esquinas salen de gl_VertexID.
+public class UiBatch {
+
+    // Instancia: x, y, ancho, alto (float) + color RGBA8 normalizado
+    private static final int INSTANCE_BYTES = 4 * Float.BYTES + 4;
+    private static final int INITIAL_RECTS = 256;
+
+    private final int shaderProgram;
+    private final int vao;
+    private final int vbo;
+    private int vboCapacity;
+    private ByteBuffer arena;
+
+    private boolean batching = true;
+    private int lastFlushRects;
+    private int drawCalls;
+    // Cola de submit() y el id del comando registrado en ella
+    private RenderQueue commandQueue;
+    private int commandId;
+
+    public UiBatch() {
+        shaderProgram = createShader();
+        arena = MemoryUtil.memAlloc(INITIAL_RECTS * INSTANCE_BYTES);
+        vboCapacity = arena.capacity();
+
+        vao = glGenVertexArrays();
+        vbo = glGenBuffers();
+
+        GLState.bindVertexArray(vao);
+        GLState.bindBuffer(GL_ARRAY_BUFFER, vbo);
+        glBufferData(GL_ARRAY_BUFFER, vboCapacity, GL_STREAM_DRAW);
+
+        glEnableVertexAttribArray(0);
+        glVertexAttribPointer(0, 4, GL_FLOAT, false, INSTANCE_BYTES, 0);
+        glVertexAttribDivisor(0, 1);
+        glEnableVertexAttribArray(1);
+        glVertexAttribPointer(1, 4, GL_UNSIGNED_BYTE, true, INSTANCE_BYTES, 4 * Float.BYTES);
+        glVertexAttribDivisor(1, 1);
+
+        GLState.bindBuffer(GL_ARRAY_BUFFER, 0);
+        GLState.bindVertexArray(0);
+    }
+
+    private int createShader() {
+        // Coordenadas en píxeles con el origen arriba a la izquierda; screenSize llega por CameraBlock
+        String vertexShaderSource = "#version 330 core\n" + CameraUniformBuffer.GLSL_BLOCK + """
+            layout(location = 0) in vec4 rect;
+            layout(location = 1) in vec4 rectColor;
+            out vec4 color;
+
+            const vec2 CORNERS[6] = vec2[6](
+                vec2(0.0, 0.0), vec2(1.0, 0.0), vec2(1.0, 1.0),
+                vec2(0.0, 0.0), vec2(1.0, 1.0), vec2(0.0, 1.0));
+
+            void main() {
+                vec2 p = rect.xy + CORNERS[gl_VertexID] * rect.zw;
+                float x = p.x / screenSize.x * 2.0 - 1.0;
+                float y = 1.0 - (p.y / screenSize.y * 2.0); // Invertir Y para OpenGL
+                gl_Position = vec4(x, y, 0.0, 1.0);
+                color = rectColor;
+            }
+        """;
+
+        String fragmentShaderSource = """
+            #version 330 core
+            in vec4 color;
+            out vec4 FragColor;
+            void main() {
+                FragColor = color;
+            }
+        """;
+
+        int vertexShader = glCreateShader(GL_VERTEX_SHADER);
+        glShaderSource(vertexShader, vertexShaderSource);
+        glCompileShader(vertexShader);
+        checkCompileErrors(vertexShader, "VERTEX");
+
+        int fragmentShader = glCreateShader(GL_FRAGMENT_SHADER);
+        glShaderSource(fragmentShader, fragmentShaderSource);
+        glCompileShader(fragmentShader);
+        checkCompileErrors(fragmentShader, "FRAGMENT");
+
+        int program = glCreateProgram();
+        glAttachShader(program, vertexShader);
+        glAttachShader(program, fragmentShader);
+        glLinkProgram(program);
+        checkCompileErrors(program, "PROGRAM");
+        CameraUniformBuffer.bindBlock(program);
+
+        glDeleteShader(vertexShader);
+        glDeleteShader(fragmentShader);
+        return program;
+    }
+
+    private void checkCompileErrors(int shader, String type) {
+        int success;
+        if (type.equals("PROGRAM")) {
+            success = glGetProgrami(shader, GL_LINK_STATUS);
+            if (success == 0) {
+                System.err.println("ERROR::PROGRAM_LINKING_ERROR\n" + glGetProgramInfoLog(shader));
+            }
+        } else {
+            success = glGetShaderi(shader, GL_COMPILE_STATUS);
+            if (success == 0) {
+                System.err.println("ERROR::SHADER_COMPILATION_ERROR of type: " + type + "\n" + glGetShaderInfoLog(shader));
+            }
+        }
+    }
+
+    // En modo batching rect() solo acumula; flush() dibuja todo de una vez.
+    // Sin batching cada rectángulo hace su propio flush.
+    public void setBatching(boolean batching) {
+        if (!batching) {
+            flush();
+        }
+        this.batching = batching;
+    }
+
+    public boolean isBatching() {
+        return batching;
+    }
+
+    public void rect(float x, float y, float width, float height, float r, float g, float b) {
+        rect(x, y, width, height, r, g, b, 1f);
+    }
+
+    public void rect(float x, float y, float width, float height, float r, float g, float b, float a) {
+        arena = TextRender.ensureCapacity(arena, INSTANCE_BYTES);
+        int color = TextRender.packColor(r, g, b, a);
+        arena.putFloat(x).putFloat(y).putFloat(width).putFloat(height)
+                .put((byte) color).put((byte) (color >>> 8))
+                .put((byte) (color >>> 16)).put((byte) (color >>> 24));
+        if (!batching) {
+            flush();
+        }
+    }
+
+    // Sube las instancias (orphaning + sub-data) y dibuja todos los rectángulos pendientes
+    public void flush() {
+        int bytes = arena.position();
+        if (bytes == 0) {
+            lastFlushRects = 0;
+            return;
+        }
+        arena.flip();
+
+        GLState.enable(GL_BLEND);
+        GLState.blendFunc(GL_SRC_ALPHA, GL_ONE_MINUS_SRC_ALPHA);
+
+        GLState.useProgram(shaderProgram);
+        GLState.bindVertexArray(vao);
+        GLState.bindBuffer(GL_ARRAY_BUFFER, vbo);
+        if (bytes > vboCapacity) {
+            vboCapacity = arena.capacity();
+        }
+        glBufferData(GL_ARRAY_BUFFER, vboCapacity, GL_STREAM_DRAW);
+        glBufferSubData(GL_ARRAY_BUFFER, 0, arena);
+
+        int rects = bytes / INSTANCE_BYTES;
+        glDrawArraysInstanced(GL_TRIANGLES, 0, 6, rects);
+        drawCalls++;
+        lastFlushRects = rects;
+
+        arena.clear();
+    }
+
+    // Deja el flush() como paquete de la capa overlay; sequence ordena entre overlays
+    public void submit(RenderQueue queue, int sequence) {
+        if (queue != commandQueue) {
+            commandQueue = queue;
+            commandId = queue.registerCommand(argument -> flush());
+        }
+        queue.submit(RenderQueue.sequencedKey(RenderQueue.LAYER_OVERLAY, sequence, 0, 0), commandId, 0);
+    }
+
+    public int getLastFlushRects() {
+        return lastFlushRects;
+    }
+
+    public int getDrawCalls() {
+        return drawCalls;
+    }
+
+    public void resetStats() {
+        drawCalls = 0;
+    }
+
+    public void cleanup() {
+        GLState.deleteVertexArray(vao);
+        GLState.deleteBuffer(vbo);
+        GLState.deleteProgram(shaderProgram);
+        MemoryUtil.memFree(arena);
+    }
+}
@@ -0,0 +1,127 @@
+package main;
+
+import java.util.Arrays;
+
+import static org.lwjgl.opengl.GL11.GL_FLOAT;
+import static org.lwjgl.opengl.GL30.GL_HALF_FLOAT;
+import static org.lwjgl.opengl.GL33.GL_INT_2_10_10_10_REV;
+import static org.lwjgl.opengl.GL20.glEnableVertexAttribArray;
+import static org.lwjgl.opengl.GL20.glVertexAttribPointer;
+
+// Formato de un vértice: atributos (location, componentes, tipo, offset) y stride.
+// Forma parte de la clave del GeometryRegistry: dos mallas con los mismos datos pero
+// distinto formato no se comparten.
+public final class VertexLayout {
+
+    // Wall: posición + normal + UV
+    public static final VertexLayout POS3_NORMAL3_UV2 = floats(3, 3, 2);
+    // Cube: posición + color
+    public static final VertexLayout POS3_COLOR3 = floats(3, 3);
+    // Mesh: posición + UV
+    public static final VertexLayout POS3_UV2 = floats(3, 2);
+
+    // Formatos compactos de MeshPipeline (mismas locations que sus equivalentes float):
+    // normal en 10_10_10_2 normalizado y UV en half float; con "H" también la posición
+    // va en half float (3 componentes + 2 bytes de relleno para alinear a 4)
+    public static final VertexLayout POS3_NORMAL3_UV2_PACKED = new VertexLayout(20,
+            new Attribute(0, 3, GL_FLOAT, false, 0),
+            new Attribute(1, 4, GL_INT_2_10_10_10_REV, true, 12),
+            new Attribute(2, 2, GL_HALF_FLOAT, false, 16));
+    public static final VertexLayout POS3H_NORMAL3_UV2_PACKED = new VertexLayout(16,
+            new Attribute(0, 3, GL_HALF_FLOAT, false, 0),
+            new Attribute(1, 4, GL_INT_2_10_10_10_REV, true, 8),
+            new Attribute(2, 2, GL_HALF_FLOAT, false, 12));
+    public static final VertexLayout POS3_UV2_PACKED = new VertexLayout(16,
+            new Attribute(0, 3, GL_FLOAT, false, 0),
+            new Attribute(1, 2, GL_HALF_FLOAT, false, 12));
+    public static final VertexLayout POS3H_UV2_PACKED = new VertexLayout(12,
+            new Attribute(0, 3, GL_HALF_FLOAT, false, 0),
+            new Attribute(1, 2, GL_HALF_FLOAT, false, 8));
+
+    public static final class Attribute {
+        final int location;
+        final int size;
+        final int type;
+        final boolean normalized;
+        final int offset;
+
+        public Attribute(int location, int size, int type, boolean normalized, int offset) {
+            this.location = location;
+            this.size = size;
+            this.type = type;
+            this.normalized = normalized;
+            this.offset = offset;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Attribute other)) {
+                return false;
+            }
+            return location == other.location && size == other.size && type == other.type
+                    && normalized == other.normalized && offset == other.offset;
+        }
+
+        @Override
+        public int hashCode() {
+            int h = location;
+            h = 31 * h + size;
+            h = 31 * h + type;
+            h = 31 * h + (normalized ? 1 : 0);
+            return 31 * h + offset;
+        }
+    }
+
+    private final int stride;
+    private final Attribute[] attributes;
+
+    public VertexLayout(int stride, Attribute... attributes) {
+        this.stride = stride;
+        this.attributes = attributes.clone();
+    }
+
+    // Atributos float consecutivos en las locations 0, 1, 2...
+    public static VertexLayout floats(int... sizes) {
+        Attribute[] attributes = new Attribute[sizes.length];
+        int offset = 0;
+        for (int i = 0; i < sizes.length; i++) {
+            attributes[i] = new Attribute(i, sizes[i], GL_FLOAT, false, offset);
+            offset += sizes[i] * Float.BYTES;
+        }
+        return new VertexLayout(offset, attributes);
+    }
+
+    // Configura los atributos del VAO enlazado sobre el VBO enlazado
+    public void apply() {
+        for (Attribute attribute : attributes) {
+            glVertexAttribPointer(attribute.location, attribute.size, attribute.type,
+                    attribute.normalized, stride, attribute.offset);
+            glEnableVertexAttribArray(attribute.location);
+        }
+    }
+
+    public int getStride() {
+        return stride;
+    }
+
+    public int getAttributeCount() {
+        return attributes.length;
+    }
+
+    public Attribute getAttribute(int index) {
+        return attributes[index];
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (!(o instanceof VertexLayout other)) {
+            return false;
+        }
+        return stride == other.stride && Arrays.equals(attributes, other.attributes);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * stride + Arrays.hashCode(attributes);
+    }
+}
@@ -2,37 +2,51 @@ package main;
 
 import static org.lwjgl.opengl.GL11.*;
 import static org.lwjgl.opengl.GL13.*;
-import static org.lwjgl.opengl.GL15.*;
-import static org.lwjgl.opengl.GL20.*;
-import static org.lwjgl.opengl.GL30.*;
 import org.joml.Matrix4f;
-import java.nio.FloatBuffer;
-import java.nio.IntBuffer;
-import org.lwjgl.BufferUtils;
+import org.joml.Vector3f;
 
 public class Wall {
 
-    // Buffers
-    private int vao;
-    private int vbo;
-    private int ebo;
+    private static final int[] QUAD_INDICES = {0, 1, 2, 2, 3, 0};
+
+    // Malla compartida con las demás paredes del mismo tamaño y escala UV
+    private Geometry geometry;
 
     // Propiedades
     private int textureID;
     private boolean hasTexture;
     private boolean hasLighting;
     private float[] color;
+    // Si no es null, sustituye a textura, color e iluminación propios en WallBatch
+    private Material material;
     private float width;
     private float height;
 
     // Transformaciones
     private Matrix4f modelMatrix;
-    private FloatBuffer matrixBuffer;
+
+    // Handles de uniforms del último shader usado
+    private Shader cachedShader;
+    private int uModel, uTextureSampler, uUseTexture, uObjectColor, uUseLighting;
 
     // Textura
     private float textureScaleX = 1.0f;
     private float textureScaleY = 1.0f;
 
+    // Batch instanciado al que pertenece (null si se dibuja con render())
+    WallBatch batch;
+    int batchSlot = -1;
+    // Grupo del batch: referencia directa para no buscar (ni crear un Long) por pared y frame
+    WallBatch.Group batchGroup;
+    // Último frame de culling en el que fue visible (lo usa WallBatch.cull)
+    long visibleStamp;
+
+    // Índice espacial en el que está registrada (null si no lo está)
+    private Bvh<Wall> spatialIndex;
+    private int spatialProxy = Bvh.NULL;
+    private static final Vector3f boundsMin = new Vector3f();
+    private static final Vector3f boundsMax = new Vector3f();
+
     // Constructor con textura
     public Wall(float width, float height, int textureID, boolean withLighting) {
         init(width, height, new float[]{1.0f, 1.0f, 0.0f, 1.0f}, withLighting);
@@ -58,98 +72,124 @@ public class Wall {
         this.color = color;
         this.hasLighting = withLighting;
         this.modelMatrix = new Matrix4f().identity();
-        this.matrixBuffer = BufferUtils.createFloatBuffer(16);
         setupMesh();
     }
 
     private void setupMesh() {
+        geometry = GeometryRegistry.acquire(VertexLayout.POS3_NORMAL3_UV2, buildVertices(), QUAD_INDICES);
+    }
+
+    private float[] buildVertices() {
         float w = width / 2.0f;
         float h = height / 2.0f;
 
         // Vertex data: posición, normal, coordenadas UV
-        float[] vertices = {
+        return new float[]{
             // Positions          // Normals         // Texture Coords
             -w, -h, 0.0f, 0.0f, 0.0f, 1.0f, 0.0f, 0.0f,
             w, -h, 0.0f, 0.0f, 0.0f, 1.0f, textureScaleX, 0.0f,
             w, h, 0.0f, 0.0f, 0.0f, 1.0f, textureScaleX, textureScaleY,
             -w, h, 0.0f, 0.0f, 0.0f, 1.0f, 0.0f, textureScaleY
         };
+    }
 
-        int[] indices = {0, 1, 2, 2, 3, 0};
-
-        vao = glGenVertexArrays();
-        glBindVertexArray(vao);
-
-        // VBO
-        vbo = glGenBuffers();
-        glBindBuffer(GL_ARRAY_BUFFER, vbo);
-        glBufferData(GL_ARRAY_BUFFER, vertices, GL_STATIC_DRAW);
-
-        // EBO
-        ebo = glGenBuffers();
-        IntBuffer indicesBuffer = BufferUtils.createIntBuffer(indices.length);
-        indicesBuffer.put(indices).flip();
-        glBindBuffer(GL_ELEMENT_ARRAY_BUFFER, ebo);
-        glBufferData(GL_ELEMENT_ARRAY_BUFFER, indicesBuffer, GL_STATIC_DRAW);
-
-        // Atributos
-        // Posición
-        glVertexAttribPointer(0, 3, GL_FLOAT, false, 8 * Float.BYTES, 0);
-        glEnableVertexAttribArray(0);
-
-        // Normal
-        glVertexAttribPointer(1, 3, GL_FLOAT, false, 8 * Float.BYTES, 3 * Float.BYTES);
-        glEnableVertexAttribArray(1);
-
-        // UV
-        glVertexAttribPointer(2, 2, GL_FLOAT, false, 8 * Float.BYTES, 6 * Float.BYTES);
-        glEnableVertexAttribArray(2);
-
-        glBindVertexArray(0);
+    private void resolveUniforms(Shader shader) {
+        cachedShader = shader;
+        uModel = shader.getUniform("model");
+        uTextureSampler = shader.getUniform("textureSampler");
+        uUseTexture = shader.getUniform("useTexture");
+        uObjectColor = shader.getUniform("objectColor");
+        uUseLighting = shader.getUniform("useLighting");
     }
 
     public void render(Shader shader) {
+        if (material != null && material.hasTextureLayer()) {
+            throw new IllegalStateException("Las paredes con material de TextureArrayPool se dibujan con WallBatch");
+        }
+        if (shader != cachedShader) {
+            resolveUniforms(shader);
+        }
+
         // Configurar matriz de modelo
-        modelMatrix.get(matrixBuffer);
-        shader.setMat4("model", matrixBuffer);
+        shader.setMat4(uModel, modelMatrix);
 
         // Configurar textura
         if (hasTexture) {
-            glActiveTexture(GL_TEXTURE0);
-            glBindTexture(GL_TEXTURE_2D, textureID);
-            shader.setInt("textureSampler", 0);
-            shader.setBool("useTexture", true);
+            GLState.activeTexture(GL_TEXTURE0);
+            GLState.bindTexture(GL_TEXTURE_2D, textureID);
+            shader.setInt(uTextureSampler, 0);
+            shader.setBool(uUseTexture, true);
         } else {
-            shader.setVec4("objectColor", color[0], color[1], color[2], color[3]);
-            shader.setBool("useTexture", false);
+            shader.setVec4(uObjectColor, color[0], color[1], color[2], color[3]);
+            shader.setBool(uUseTexture, false);
         }
 
         // Configurar iluminación
-        shader.setBool("useLighting", hasLighting);
+        shader.setBool(uUseLighting, hasLighting);
 
         // Dibujar
-        glBindVertexArray(vao);
-        glDrawElements(GL_TRIANGLES, 6, GL_UNSIGNED_INT, 0);
-        glBindVertexArray(0);
+        geometry.draw();
     }
 
     public void cleanup() {
-        glDeleteVertexArrays(vao);
-        glDeleteBuffers(vbo);
-        glDeleteBuffers(ebo);
+        if (batch != null) {
+            batch.remove(this);
+        }
+        setSpatialIndex(null);
+        if (geometry != null) {
+            geometry.release();
+            geometry = null;
+        }
     }
 
     // Métodos de transformación
     public void translate(float x, float y, float z) {
         modelMatrix.translate(x, y, z);
+        changed();
     }
 
     public void rotate(float angle, float x, float y, float z) {
         modelMatrix.rotate(angle, x, y, z);
+        changed();
     }
 
     public void scale(float x, float y, float z) {
         modelMatrix.scale(x, y, z);
+        changed();
+    }
+
+    // Avisa al batch para que vuelva a escribir (y subir) solo esta instancia,
+    // y al índice espacial para que ajuste la hoja si la pared salió de su AABB gorda
+    private void changed() {
+        if (batch != null) {
+            batch.update(this);
+        }
+        if (spatialIndex != null) {
+            getBounds(boundsMin, boundsMax);
+            spatialIndex.move(spatialProxy, boundsMin.x, boundsMin.y, boundsMin.z,
+                    boundsMax.x, boundsMax.y, boundsMax.z);
+        }
+    }
+
+    // Registra la pared en un BVH (o la quita con null); sus transformaciones lo mantienen al día
+    public void setSpatialIndex(Bvh<Wall> index) {
+        if (spatialIndex != null) {
+            spatialIndex.remove(spatialProxy);
+            spatialProxy = Bvh.NULL;
+        }
+        spatialIndex = index;
+        if (index != null) {
+            getBounds(boundsMin, boundsMax);
+            spatialProxy = index.insert(boundsMin.x, boundsMin.y, boundsMin.z,
+                    boundsMax.x, boundsMax.y, boundsMax.z, this);
+        }
+    }
+
+    // AABB en mundo del quad transformado por la matriz de modelo
+    public void getBounds(Vector3f min, Vector3f max) {
+        float w = width / 2.0f;
+        float h = height / 2.0f;
+        modelMatrix.transformAab(-w, -h, 0.0f, w, h, 0.0f, min, max);
     }
 
     // Getters y setters mejorados
@@ -159,44 +199,86 @@ public class Wall {
         this.textureScaleX = scaleX;
         this.textureScaleY = scaleY;
         updateTextureCoords();
+        changed();
     }
 
     public void setColor(float[] color) {
         this.color = color;
         this.hasTexture = false;
+        changed();
+    }
+
+    // null vuelve a la textura/color propios de la pared
+    public void setMaterial(Material material) {
+        this.material = material;
+        changed();
     }
 
     public void setLightingEnabled(boolean enabled) {
         this.hasLighting = enabled;
+        changed();
     }
 
     public void setTextureScale(float scaleX, float scaleY) {
         this.textureScaleX = scaleX;
         this.textureScaleY = scaleY;
         updateTextureCoords();
+        changed();
     }
 
     public void setRotation(float angle, float x, float y, float z) {
         modelMatrix.rotate(angle, x, y, z);
+        changed();
+    }
+
+    public Matrix4f getModelMatrix() {
+        return modelMatrix;
+    }
+
+    public float getWidth() {
+        return width;
+    }
+
+    public float getHeight() {
+        return height;
+    }
+
+    public Material getMaterial() {
+        return material;
+    }
+
+    public int getTextureID() {
+        return textureID;
+    }
+
+    public boolean hasTexture() {
+        return hasTexture;
+    }
+
+    public boolean isLightingEnabled() {
+        return hasLighting;
+    }
+
+    public float[] getColor() {
+        return color;
+    }
+
+    public float getTextureScaleX() {
+        return textureScaleX;
+    }
+
+    public float getTextureScaleY() {
+        return textureScaleY;
     }
 
     private void updateTextureCoords() {
-        if (!hasTexture) {
+        if (!hasTexture || geometry == null) {
             return;
         }
 
-        float w = width / 2.0f;
-        float h = height / 2.0f;
-
-        float[] uvData = {
-            0.0f, 0.0f,
-            textureScaleX, 0.0f,
-            textureScaleX, textureScaleY,
-            0.0f, textureScaleY
-        };
-
-        glBindBuffer(GL_ARRAY_BUFFER, vbo);
-        glBufferSubData(GL_ARRAY_BUFFER, 6 * Float.BYTES * 4, uvData);
-        glBindBuffer(GL_ARRAY_BUFFER, 0);
+        // La malla está compartida: en vez de escribir en el VBO se pide (o crea) la de las nuevas UV
+        Geometry previous = geometry;
+        geometry = GeometryRegistry.acquire(VertexLayout.POS3_NORMAL3_UV2, buildVertices(), QUAD_INDICES);
+        previous.release();
     }
 }
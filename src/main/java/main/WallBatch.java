@@ -0,0 +1,534 @@
+package main;
+
+import org.joml.FrustumIntersection;
+import org.joml.Matrix4f;
+import org.joml.Vector3f;
+import org.lwjgl.system.MemoryUtil;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.lwjgl.opengl.GL11.*;
+import static org.lwjgl.opengl.GL13.*;
+import static org.lwjgl.opengl.GL15.*;
+import static org.lwjgl.opengl.GL20.*;
+import static org.lwjgl.opengl.GL30.*;
+import static org.lwjgl.opengl.GL31.glDrawElementsInstanced;
+import static org.lwjgl.opengl.GL33.glVertexAttribDivisor;
+
+// Dibuja muchas paredes con glDrawElementsInstanced: un quad unitario compartido y un
+// buffer de instancias por (shader, textura) con matriz de modelo, escala UV, color y flags.
+// Las paredes con Material de TextureArrayPool se agrupan por array, no por imagen: la
+// capa va en los flags de la instancia y todas las del array comparten un bind.
+// Las paredes avisan al batch cuando cambian y solo se sube el rango modificado.
+// Usa los shaders wall_instanced_vertex.glsl / wall_instanced_fragment.glsl.
+public class WallBatch {
+
+    // Instancia: mat4 modelo (64) + vec2 escala UV (8) + color RGBA8 (4) + flags RGBA8 (4).
+    // Flags: textura, iluminación, capa del array y si la textura es un array
+    static final int INSTANCE_BYTES = 80;
+    private static final int INITIAL_INSTANCES = 64;
+
+    // Quad unitario centrado; el tamaño de cada pared va en su matriz de instancia
+    private static final float[] QUAD_VERTICES = {
+        // Positions          // Normals         // Texture Coords
+        -0.5f, -0.5f, 0.0f, 0.0f, 0.0f, 1.0f, 0.0f, 0.0f,
+        0.5f, -0.5f, 0.0f, 0.0f, 0.0f, 1.0f, 1.0f, 0.0f,
+        0.5f, 0.5f, 0.0f, 0.0f, 0.0f, 1.0f, 1.0f, 1.0f,
+        -0.5f, 0.5f, 0.0f, 0.0f, 0.0f, 1.0f, 0.0f, 1.0f
+    };
+    private static final int[] QUAD_INDICES = {0, 1, 2, 2, 3, 0};
+
+    private final Geometry quad;
+
+    // Un grupo por (shader del material, textura o array); la clave 0 agrupa las paredes
+    // de color sólido. groupList va ordenada por clave: los grupos de un shader, seguidos
+    private final Map<Long, Group> groups = new HashMap<>();
+    private final List<Group> groupList = new ArrayList<>();
+    private final Matrix4f instanceMatrix = new Matrix4f();
+
+    private Shader cachedShader;
+    private int uTextureSampler;
+    private int uTextureArray;
+
+    // Culling: paredes devueltas por el BVH en el último cull()
+    private final List<Wall> visibleWalls = new ArrayList<>();
+    private final ByteBuffer swapScratch = MemoryUtil.memAlloc(INSTANCE_BYTES);
+    private long cullStamp;
+
+    private int drawCalls;
+    private long uploadedBytes;
+    private int textureBinds;
+    // Binds que habría costado dar a cada capa visible su propia textura 2D
+    private int textureBindsSaved;
+    private final int[] layerStamp = new int[TextureArrayPool.MAX_LAYERS_PER_ARRAY];
+    private int layerFrame;
+
+    // Cola a la que se envían los paquetes (submit) y el id del comando registrado en ella
+    private RenderQueue commandQueue;
+    private int commandId;
+    private Shader submitShader;
+
+    // Opcional: se le avisa de cada textura dibujada para su LRU
+    private TextureManager textureManager;
+
+    static final class Group {
+        final long key;
+        // null: el shader pasado a render()
+        final Shader shader;
+        // GL_TEXTURE_2D o GL_TEXTURE_2D_ARRAY
+        final int textureTarget;
+        final int textureID;
+        final int vao;
+        final int vbo;
+        int gpuCapacity;
+        ByteBuffer data = MemoryUtil.memAlloc(INITIAL_INSTANCES * INSTANCE_BYTES);
+        Wall[] walls = new Wall[INITIAL_INSTANCES];
+        int count;
+        // Las instancias [0, visibleCount) son las que se dibujan (ver cull)
+        int visibleCount;
+        // Rango de instancias [dirtyStart, dirtyEnd) pendiente de subir
+        int dirtyStart = Integer.MAX_VALUE;
+        int dirtyEnd;
+
+        Group(long key, Shader shader, int textureTarget, int textureID, int vao, int vbo) {
+            this.key = key;
+            this.shader = shader;
+            this.textureTarget = textureTarget;
+            this.textureID = textureID;
+            this.vao = vao;
+            this.vbo = vbo;
+        }
+
+        void markDirty(int slot) {
+            dirtyStart = Math.min(dirtyStart, slot);
+            dirtyEnd = Math.max(dirtyEnd, slot + 1);
+        }
+    }
+
+    public WallBatch() {
+        quad = GeometryRegistry.acquire(VertexLayout.POS3_NORMAL3_UV2, QUAD_VERTICES, QUAD_INDICES);
+    }
+
+    private Group createGroup(long key, Wall wall) {
+        int vao = glGenVertexArrays();
+        int vbo = glGenBuffers();
+
+        GLState.bindVertexArray(vao);
+        GLState.bindBuffer(GL_ARRAY_BUFFER, quad.getVbo());
+        GLState.bindBuffer(GL_ELEMENT_ARRAY_BUFFER, quad.getEbo());
+
+        // Posición, normal y UV del quad compartido
+        VertexLayout.POS3_NORMAL3_UV2.apply();
+
+        // Atributos por instancia: la mat4 ocupa las locations 3..6
+        GLState.bindBuffer(GL_ARRAY_BUFFER, vbo);
+        for (int column = 0; column < 4; column++) {
+            glVertexAttribPointer(3 + column, 4, GL_FLOAT, false, INSTANCE_BYTES, column * 4L * Float.BYTES);
+            glEnableVertexAttribArray(3 + column);
+            glVertexAttribDivisor(3 + column, 1);
+        }
+        glVertexAttribPointer(7, 2, GL_FLOAT, false, INSTANCE_BYTES, 64);
+        glEnableVertexAttribArray(7);
+        glVertexAttribDivisor(7, 1);
+        glVertexAttribPointer(8, 4, GL_UNSIGNED_BYTE, true, INSTANCE_BYTES, 72);
+        glEnableVertexAttribArray(8);
+        glVertexAttribDivisor(8, 1);
+        glVertexAttribPointer(9, 4, GL_UNSIGNED_BYTE, true, INSTANCE_BYTES, 76);
+        glEnableVertexAttribArray(9);
+        glVertexAttribDivisor(9, 1);
+
+        GLState.bindVertexArray(0);
+        GLState.bindBuffer(GL_ARRAY_BUFFER, 0);
+
+        Material material = wall.getMaterial();
+        Shader shader = material != null ? material.getShader() : null;
+        int target = material != null && material.hasTextureLayer() ? GL_TEXTURE_2D_ARRAY : GL_TEXTURE_2D;
+        Group group = new Group(key, shader, target, (int) key, vao, vbo);
+        groups.put(key, group);
+        int index = 0;
+        while (index < groupList.size() && groupList.get(index).key < key) {
+            index++;
+        }
+        groupList.add(index, group);
+        return group;
+    }
+
+    // Programa del shader del material en los 32 bits altos y textura (o array) en los
+    // bajos; los nombres de texturas y arrays no se repiten, así que no se confunden
+    private static long groupKey(Wall wall) {
+        Material material = wall.getMaterial();
+        if (material == null) {
+            return wall.hasTexture() ? wall.getTextureID() : 0;
+        }
+        long program = material.getShader() != null ? material.getShader().getProgramId() : 0;
+        int texture = material.hasTextureLayer() ? material.getTextureLayer().getArrayID() : material.getTextureID();
+        return program << 32 | (texture & 0xFFFFFFFFL);
+    }
+
+    public void add(Wall wall) {
+        if (wall.batch != null) {
+            throw new IllegalStateException("La pared ya pertenece a un WallBatch");
+        }
+        long key = groupKey(wall);
+        Group group = groups.get(key);
+        if (group == null) {
+            group = createGroup(key, wall);
+        }
+        if (group.count == group.walls.length) {
+            int capacity = group.walls.length * 2;
+            Wall[] grown = new Wall[capacity];
+            System.arraycopy(group.walls, 0, grown, 0, group.count);
+            group.walls = grown;
+            group.data = MemoryUtil.memRealloc(group.data, capacity * INSTANCE_BYTES);
+        }
+        int slot = group.count++;
+        group.walls[slot] = wall;
+        wall.batch = this;
+        wall.batchSlot = slot;
+        wall.batchGroup = group;
+        writeInstance(group, slot, wall);
+        // Las paredes nuevas empiezan visibles; el siguiente cull() decide
+        swapSlots(group, slot, group.visibleCount++);
+    }
+
+    // Quita la pared moviendo la última instancia del grupo a su hueco
+    public void remove(Wall wall) {
+        if (wall.batch != this) {
+            return;
+        }
+        Group group = wall.batchGroup;
+        int slot = wall.batchSlot;
+        if (slot < group.visibleCount) {
+            // Primero al final de la parte visible, para no romper la partición
+            swapSlots(group, slot, --group.visibleCount);
+            slot = group.visibleCount;
+        }
+        int last = --group.count;
+        swapSlots(group, slot, last);
+        group.walls[last] = null;
+        if (group.dirtyEnd > group.count) {
+            group.dirtyEnd = group.count;
+        }
+        wall.batch = null;
+        wall.batchSlot = -1;
+        wall.batchGroup = null;
+        if (group.count == 0) {
+            // Con chunks que entran y salen y paredes que cambian de material, los grupos
+            // vacíos se acumularían con su VAO, su VBO y su arena
+            destroyGroup(group);
+        }
+    }
+
+    private void destroyGroup(Group group) {
+        groups.remove(group.key);
+        groupList.remove(group);
+        GLState.deleteVertexArray(group.vao);
+        GLState.deleteBuffer(group.vbo);
+        MemoryUtil.memFree(group.data);
+    }
+
+    // Intercambia dos instancias del grupo (datos y paredes)
+    private void swapSlots(Group group, int a, int b) {
+        if (a == b) {
+            return;
+        }
+        Wall wallA = group.walls[a];
+        Wall wallB = group.walls[b];
+        group.walls[a] = wallB;
+        group.walls[b] = wallA;
+        wallA.batchSlot = b;
+        wallB.batchSlot = a;
+
+        long base = MemoryUtil.memAddress(group.data);
+        long scratch = MemoryUtil.memAddress(swapScratch);
+        MemoryUtil.memCopy(base + (long) a * INSTANCE_BYTES, scratch, INSTANCE_BYTES);
+        MemoryUtil.memCopy(base + (long) b * INSTANCE_BYTES, base + (long) a * INSTANCE_BYTES, INSTANCE_BYTES);
+        MemoryUtil.memCopy(scratch, base + (long) b * INSTANCE_BYTES, INSTANCE_BYTES);
+        group.markDirty(a);
+        group.markDirty(b);
+    }
+
+    // Deja visibles solo las paredes que el BVH devuelve para el frustum. Las paredes del
+    // batch que no estén en el BVH se ocultan. El coste es proporcional a las visibles y
+    // a los cambios, no al total de paredes. Devuelve cuántas paredes se dibujarán.
+    public int cull(Bvh<Wall> index, FrustumIntersection frustum) {
+        cullStamp++;
+        visibleWalls.clear();
+        index.queryFrustum(frustum, visibleWalls);
+        for (int i = 0; i < visibleWalls.size(); i++) {
+            Wall wall = visibleWalls.get(i);
+            if (wall.batch == this) {
+                wall.visibleStamp = cullStamp;
+            }
+        }
+
+        // Ocultar las que dejaron de verse
+        for (int g = 0; g < groupList.size(); g++) {
+            Group group = groupList.get(g);
+            int i = 0;
+            while (i < group.visibleCount) {
+                if (group.walls[i].visibleStamp != cullStamp) {
+                    swapSlots(group, i, --group.visibleCount);
+                } else {
+                    i++;
+                }
+            }
+        }
+
+        // Mostrar las que entraron
+        int visible = 0;
+        for (int i = 0; i < visibleWalls.size(); i++) {
+            Wall wall = visibleWalls.get(i);
+            if (wall.batch != this) {
+                continue;
+            }
+            Group group = wall.batchGroup;
+            if (wall.batchSlot >= group.visibleCount) {
+                swapSlots(group, wall.batchSlot, group.visibleCount++);
+            }
+            visible++;
+        }
+        return visible;
+    }
+
+    // Lo llama Wall cuando cambia su transformación, textura, color o material
+    void update(Wall wall) {
+        if (groupKey(wall) != wall.batchGroup.key) {
+            // Cambió de textura o de shader: pasa a otro grupo
+            remove(wall);
+            add(wall);
+            return;
+        }
+        writeInstance(wall.batchGroup, wall.batchSlot, wall);
+    }
+
+    private void writeInstance(Group group, int slot, Wall wall) {
+        int offset = slot * INSTANCE_BYTES;
+        instanceMatrix.set(wall.getModelMatrix()).scale(wall.getWidth(), wall.getHeight(), 1.0f);
+        instanceMatrix.get(offset, group.data);
+
+        Material material = wall.getMaterial();
+        float[] color = material != null ? material.getBaseColor() : wall.getColor();
+        int packed = TextRender.packColor(color[0], color[1], color[2], color.length > 3 ? color[3] : 1f);
+        boolean textured;
+        boolean lighting;
+        int layer = 0;
+        if (material != null) {
+            textured = material.hasTextureLayer() || material.getTextureID() != 0;
+            lighting = material.isLightingEnabled();
+            if (material.hasTextureLayer()) {
+                layer = material.getTextureLayer().getLayer();
+            }
+        } else {
+            textured = wall.hasTexture();
+            lighting = wall.isLightingEnabled();
+        }
+        group.data.putFloat(offset + 64, wall.getTextureScaleX());
+        group.data.putFloat(offset + 68, wall.getTextureScaleY());
+        group.data.put(offset + 72, (byte) packed);
+        group.data.put(offset + 73, (byte) (packed >>> 8));
+        group.data.put(offset + 74, (byte) (packed >>> 16));
+        group.data.put(offset + 75, (byte) (packed >>> 24));
+        group.data.put(offset + 76, (byte) (textured ? 0xFF : 0));
+        group.data.put(offset + 77, (byte) (lighting ? 0xFF : 0));
+        group.data.put(offset + 78, (byte) layer);
+        group.data.put(offset + 79, (byte) (group.textureTarget == GL_TEXTURE_2D_ARRAY ? 0xFF : 0));
+        group.markDirty(slot);
+    }
+
+    public void setTextureManager(TextureManager textureManager) {
+        this.textureManager = textureManager;
+    }
+
+    // Requiere el shader instanciado en uso (shader.use()). Los grupos con shader propio
+    // lo activan; al terminar vuelve a quedar shader en uso
+    public void render(Shader shader) {
+        Shader current = shader;
+        for (int i = 0; i < groupList.size(); i++) {
+            Group group = groupList.get(i);
+            if (group.visibleCount == 0) {
+                continue;
+            }
+            Shader groupShader = group.shader != null ? group.shader : shader;
+            if (groupShader != current) {
+                groupShader.use();
+                current = groupShader;
+            }
+            drawGroup(group, groupShader);
+        }
+        if (current != shader) {
+            shader.use();
+        }
+    }
+
+    // Como render(), pero envía un paquete por grupo visible a la cola. La clave lleva el
+    // shader, la textura (o array) y la distancia de la pared visible más cercana. No se
+    // deben añadir ni quitar paredes entre submit() y queue.flush().
+    public void submit(RenderQueue queue, Shader shader, Vector3f cameraPosition, float far) {
+        if (queue != commandQueue) {
+            commandQueue = queue;
+            commandId = queue.registerCommand(this::drawPacket);
+        }
+        submitShader = shader;
+        for (int i = 0; i < groupList.size(); i++) {
+            Group group = groupList.get(i);
+            if (group.visibleCount == 0) {
+                continue;
+            }
+            Shader groupShader = group.shader != null ? group.shader : shader;
+            int depth = RenderQueue.depthBucket(nearestDistance(group, cameraPosition), far);
+            long key = RenderQueue.opaqueKey(RenderQueue.LAYER_OPAQUE, queue.shaderSlot(groupShader), group.textureID, depth);
+            queue.submit(key, commandId, i);
+        }
+    }
+
+    // La cola ya ha activado el shader del grupo
+    private void drawPacket(int index) {
+        Group group = groupList.get(index);
+        drawGroup(group, group.shader != null ? group.shader : submitShader);
+    }
+
+    // Distancia al centro de la instancia visible más cercana (traslación de su matriz)
+    private static float nearestDistance(Group group, Vector3f cameraPosition) {
+        float nearest = Float.MAX_VALUE;
+        for (int i = 0; i < group.visibleCount; i++) {
+            int offset = i * INSTANCE_BYTES + 48;
+            float dx = group.data.getFloat(offset) - cameraPosition.x;
+            float dy = group.data.getFloat(offset + 4) - cameraPosition.y;
+            float dz = group.data.getFloat(offset + 8) - cameraPosition.z;
+            nearest = Math.min(nearest, dx * dx + dy * dy + dz * dz);
+        }
+        return (float) Math.sqrt(nearest);
+    }
+
+    // Requiere shader en uso
+    private void drawGroup(Group group, Shader shader) {
+        upload(group);
+        if (shader != cachedShader) {
+            cachedShader = shader;
+            uTextureSampler = shader.getUniform("textureSampler");
+            uTextureArray = shader.getUniform("textureArray");
+        }
+        shader.setInt(uTextureSampler, 0);
+        shader.setInt(uTextureArray, 1);
+
+        if (group.textureTarget == GL_TEXTURE_2D_ARRAY) {
+            GLState.activeTexture(GL_TEXTURE1);
+            GLState.bindTexture(GL_TEXTURE_2D_ARRAY, group.textureID);
+            GLState.activeTexture(GL_TEXTURE0);
+            textureBindsSaved += countVisibleLayers(group) - 1;
+        } else {
+            GLState.activeTexture(GL_TEXTURE0);
+            GLState.bindTexture(GL_TEXTURE_2D, group.textureID);
+            if (textureManager != null) {
+                textureManager.touch(group.textureID);
+            }
+        }
+        textureBinds++;
+        GLState.bindVertexArray(group.vao);
+        glDrawElementsInstanced(GL_TRIANGLES, 6, GL_UNSIGNED_INT, 0, group.visibleCount);
+        drawCalls++;
+    }
+
+    // Capas distintas entre las instancias visibles del grupo (byte 78 de cada una)
+    private int countVisibleLayers(Group group) {
+        if (++layerFrame == 0) {
+            Arrays.fill(layerStamp, 0);
+            layerFrame = 1;
+        }
+        int distinct = 0;
+        for (int i = 0; i < group.visibleCount; i++) {
+            int layer = group.data.get(i * INSTANCE_BYTES + 78) & 0xFF;
+            if (layerStamp[layer] != layerFrame) {
+                layerStamp[layer] = layerFrame;
+                distinct++;
+            }
+        }
+        return distinct;
+    }
+
+    // Sube solo el rango sucio; si el grupo creció, re-especifica el buffer entero
+    private void upload(Group group) {
+        if (group.dirtyStart >= group.dirtyEnd) {
+            return;
+        }
+        GLState.bindBuffer(GL_ARRAY_BUFFER, group.vbo);
+        int capacity = group.walls.length;
+        if (group.gpuCapacity < capacity) {
+            glBufferData(GL_ARRAY_BUFFER, (long) capacity * INSTANCE_BYTES, GL_DYNAMIC_DRAW);
+            group.gpuCapacity = capacity;
+            group.dirtyStart = 0;
+            group.dirtyEnd = group.count;
+        }
+        long offset = (long) group.dirtyStart * INSTANCE_BYTES;
+        long size = (long) (group.dirtyEnd - group.dirtyStart) * INSTANCE_BYTES;
+        nglBufferSubData(GL_ARRAY_BUFFER, offset, size, MemoryUtil.memAddress(group.data) + offset);
+        uploadedBytes += size;
+
+        group.dirtyStart = Integer.MAX_VALUE;
+        group.dirtyEnd = 0;
+    }
+
+    public int getInstanceCount() {
+        int total = 0;
+        for (int i = 0; i < groupList.size(); i++) {
+            total += groupList.get(i).count;
+        }
+        return total;
+    }
+
+    public int getVisibleCount() {
+        int total = 0;
+        for (int i = 0; i < groupList.size(); i++) {
+            total += groupList.get(i).visibleCount;
+        }
+        return total;
+    }
+
+    public int getGroupCount() {
+        return groupList.size();
+    }
+
+    public int getDrawCalls() {
+        return drawCalls;
+    }
+
+    public long getUploadedBytes() {
+        return uploadedBytes;
+    }
+
+    // Texturas y arrays ligados desde el último resetStats()
+    public int getTextureBinds() {
+        return textureBinds;
+    }
+
+    // Binds ahorrados por dibujar capas de un mismo array juntas desde el último resetStats()
+    public int getTextureBindsSaved() {
+        return textureBindsSaved;
+    }
+
+    public void resetStats() {
+        drawCalls = 0;
+        uploadedBytes = 0;
+        textureBinds = 0;
+        textureBindsSaved = 0;
+    }
+
+    public void cleanup() {
+        while (!groupList.isEmpty()) {
+            Group group = groupList.get(groupList.size() - 1);
+            for (int i = 0; i < group.count; i++) {
+                group.walls[i].batch = null;
+                group.walls[i].batchGroup = null;
+            }
+            destroyGroup(group);
+        }
+        quad.release();
+        MemoryUtil.memFree(swapScratch);
+    }
+}
@@ -0,0 +1,122 @@
+package main;
+
+import org.lwjgl.opengl.GL11;
+
+import static org.lwjgl.glfw.GLFW.*;
+import static org.lwjgl.opengl.GL11.*;
+
+// Prueba de carga: 1k / 10k / 100k paredes con el camino por objeto (Wall.render)
+// frente a WallBatch. Mide el tiempo de CPU del envío y el frame completo (con glFinish).
+// Se ejecuta aparte: mvn exec:java -Dexec.mainClass=main.WallBenchmark
+public class WallBenchmark {
+
+    private static final int[] COUNTS = {1_000, 10_000, 100_000};
+    private static final int WARMUP_FRAMES = 20;
+    private static final int MEASURED_FRAMES = 100;
+    // Fracción de paredes que se mueven cada frame en la variante "dinámica"
+    private static final float MOVING_FRACTION = 0.01f;
+
+    public static void main(String[] args) {
+        Window window = new Window(1280, 720, "WallBenchmark");
+        window.init();
+        window.setVSync(false);
+
+        Camera camera = new Camera();
+        camera.setPerspective((float) Math.toRadians(60), 0.1f, 1000f);
+        CameraUniformBuffer cameraUniforms = new CameraUniformBuffer();
+        cameraUniforms.update(camera, window.getWidth(), window.getHeight(), 0f);
+
+        Shader objectShader = new Shader("shaders/wall_vertex.glsl", "shaders/wall_fragment.glsl");
+        Shader batchShader = new Shader("shaders/wall_instanced_vertex.glsl", "shaders/wall_instanced_fragment.glsl");
+        int texture = TextureLoader.loadTexture("textures/backWall.png");
+
+        GLState.enable(GL11.GL_DEPTH_TEST);
+        System.out.printf("%8s  %14s  %14s  %14s  %14s  %14s%n",
+                "paredes", "objeto cpu ms", "objeto frame", "batch cpu ms", "batch frame", "batch 1% mov.");
+
+        for (int count : COUNTS) {
+            Wall[] walls = crearParedes(count, texture);
+
+            double[] perObject = medir(window, () -> {
+                objectShader.use();
+                for (Wall wall : walls) {
+                    wall.render(objectShader);
+                }
+            });
+
+            WallBatch batch = new WallBatch();
+            for (Wall wall : walls) {
+                batch.add(wall);
+            }
+            double[] batched = medir(window, () -> {
+                batchShader.use();
+                batch.render(batchShader);
+            });
+
+            int moving = Math.max(1, (int) (count * MOVING_FRACTION));
+            double[] dynamic = medir(window, () -> {
+                for (int i = 0; i < moving; i++) {
+                    walls[i].translate(0f, 0f, 0.001f);
+                }
+                batchShader.use();
+                batch.render(batchShader);
+            });
+
+            System.out.printf("%8d  %14.3f  %14.3f  %14.3f  %14.3f  %14.3f%n",
+                    count, perObject[0], perObject[1], batched[0], batched[1], dynamic[1]);
+
+            batch.cleanup();
+            for (Wall wall : walls) {
+                wall.cleanup();
+            }
+        }
+
+        objectShader.cleanup();
+        batchShader.cleanup();
+        cameraUniforms.cleanup();
+        GLState.deleteTexture(texture);
+        window.cleanup();
+    }
+
+    // Rejilla de paredes delante de la cámara
+    private static Wall[] crearParedes(int count, int texture) {
+        Wall[] walls = new Wall[count];
+        int side = (int) Math.ceil(Math.sqrt(count));
+        for (int i = 0; i < count; i++) {
+            Wall wall = new Wall(1.0f, 1.0f, texture, false);
+            wall.translate((i % side) * 1.1f - side * 0.55f, (i / side) * 1.1f - side * 0.55f, -side * 1.2f);
+            walls[i] = wall;
+        }
+        return walls;
+    }
+
+    // Devuelve {ms de CPU por frame enviando comandos, ms por frame completo}
+    private static double[] medir(Window window, Runnable draw) {
+        long handle = window.getWindowHandle();
+        for (int i = 0; i < WARMUP_FRAMES; i++) {
+            frame(handle, draw);
+        }
+        glFinish();
+
+        long cpuNanos = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < MEASURED_FRAMES; i++) {
+            glClear(GL_COLOR_BUFFER_BIT | GL_DEPTH_BUFFER_BIT);
+            long t0 = System.nanoTime();
+            draw.run();
+            cpuNanos += System.nanoTime() - t0;
+            glfwSwapBuffers(handle);
+            glfwPollEvents();
+        }
+        glFinish();
+        long total = System.nanoTime() - start;
+        return new double[]{cpuNanos / 1e6 / MEASURED_FRAMES, total / 1e6 / MEASURED_FRAMES};
+    }
+
+    private static void frame(long handle, Runnable draw) {
+        glClear(GL_COLOR_BUFFER_BIT | GL_DEPTH_BUFFER_BIT);
+        draw.run();
+        glfwSwapBuffers(handle);
+        glfwPollEvents();
+    }
+}
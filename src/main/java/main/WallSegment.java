@@ -0,0 +1,57 @@
+package main;
+
+// Descripción de una pared generada en CPU (sin OpenGL), lista para convertirse en Wall
+// en el hilo de render. El centro está en (x, y, z); yaw es la rotación sobre Y en
+// radianes (0 = quad en el plano XY, mirando a +Z, igual que Wall).
+public final class WallSegment {
+
+    public final float x;
+    public final float y;
+    public final float z;
+    public final float width;
+    public final float height;
+    public final float yaw;
+
+    public WallSegment(float x, float y, float z, float width, float height, float yaw) {
+        this.x = x;
+        this.y = y;
+        this.z = z;
+        this.width = width;
+        this.height = height;
+        this.yaw = yaw;
+    }
+
+    // Crea la Wall con la transformación de este segmento (hilo con contexto OpenGL)
+    public Wall toWall(int textureID) {
+        Wall wall = new Wall(width, height, textureID, false);
+        wall.translate(x, y, z);
+        if (yaw != 0f) {
+            wall.rotate(yaw, 0f, 1f, 0f);
+        }
+        return wall;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (!(o instanceof WallSegment other)) {
+            return false;
+        }
+        // Comparación por bits: la generación debe ser idéntica bit a bit
+        return Float.floatToRawIntBits(x) == Float.floatToRawIntBits(other.x)
+                && Float.floatToRawIntBits(y) == Float.floatToRawIntBits(other.y)
+                && Float.floatToRawIntBits(z) == Float.floatToRawIntBits(other.z)
+                && Float.floatToRawIntBits(width) == Float.floatToRawIntBits(other.width)
+                && Float.floatToRawIntBits(height) == Float.floatToRawIntBits(other.height)
+                && Float.floatToRawIntBits(yaw) == Float.floatToRawIntBits(other.yaw);
+    }
+
+    @Override
+    public int hashCode() {
+        int h = Float.floatToRawIntBits(x);
+        h = 31 * h + Float.floatToRawIntBits(y);
+        h = 31 * h + Float.floatToRawIntBits(z);
+        h = 31 * h + Float.floatToRawIntBits(width);
+        h = 31 * h + Float.floatToRawIntBits(height);
+        return 31 * h + Float.floatToRawIntBits(yaw);
+    }
+}
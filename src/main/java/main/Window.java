@@ -29,6 +29,9 @@ public class Window {
     private GLFWKeyCallback keyCallback;
     private AtomicBoolean initialized = new AtomicBoolean(false);
 
+    // Versiones de contexto core que se piden, de la preferida a la mínima
+    private static final int[][] CONTEXT_VERSIONS = {{4, 3}, {3, 3}};
+
     public Window(int width, int height, String title) {
         this.width = width;
         this.height = height;
@@ -51,14 +54,20 @@ public class Window {
         glfwDefaultWindowHints();
         glfwWindowHint(GLFW_VISIBLE, GLFW_FALSE);
         glfwWindowHint(GLFW_RESIZABLE, GLFW_TRUE);
-        glfwWindowHint(GLFW_CONTEXT_VERSION_MAJOR, 3);
-        glfwWindowHint(GLFW_CONTEXT_VERSION_MINOR, 3);
         glfwWindowHint(GLFW_OPENGL_PROFILE, GLFW_OPENGL_CORE_PROFILE);
         glfwWindowHint(GLFW_OPENGL_FORWARD_COMPAT, GLFW_TRUE);
         glfwWindowHint(GLFW_SAMPLES, 4); // MSAA 4x
         glfwWindowHint(GLFW_TRANSPARENT_FRAMEBUFFER, GLFW_TRUE); // Soporte para transparencia
 
-        windowHandle = glfwCreateWindow(width, height, title, NULL, NULL);
+        // Primero 4.3 (multi-draw indirect, ver StaticMeshBatch); si el driver no lo da, 3.3
+        for (int[] version : CONTEXT_VERSIONS) {
+            glfwWindowHint(GLFW_CONTEXT_VERSION_MAJOR, version[0]);
+            glfwWindowHint(GLFW_CONTEXT_VERSION_MINOR, version[1]);
+            windowHandle = glfwCreateWindow(width, height, title, NULL, NULL);
+            if (windowHandle != NULL) {
+                break;
+            }
+        }
         if (windowHandle == NULL) {
             throw new RuntimeException("No se pudo crear la ventana GLFW");
         }
@@ -75,7 +84,7 @@ public class Window {
         fbSizeCallback = glfwSetFramebufferSizeCallback(windowHandle, (window, w, h) -> {
             this.width = w;
             this.height = h;
-            glViewport(0, 0, w, h);
+            GLState.viewport(0, 0, w, h);
             if (onResizeCallback != null) {
                 onResizeCallback.accept(w, h);
             }
@@ -106,13 +115,14 @@ public class Window {
         // Inicializar bindings de OpenGL
         GL.createCapabilities();
 
-        // Configurar estado de OpenGL
-        glEnable(GL_DEPTH_TEST);
-        glEnable(GL_MULTISAMPLE); // Habilitar antialiasing
-        glEnable(GL_BLEND);
-        glBlendFunc(GL_SRC_ALPHA, GL_ONE_MINUS_SRC_ALPHA);
+        // Configurar estado de OpenGL (contexto nuevo: GLState no sabe nada de él)
+        GLState.invalidate();
+        GLState.enable(GL_DEPTH_TEST);
+        GLState.enable(GL_MULTISAMPLE); // Habilitar antialiasing
+        GLState.enable(GL_BLEND);
+        GLState.blendFunc(GL_SRC_ALPHA, GL_ONE_MINUS_SRC_ALPHA);
         glClearColor(0f, 0f, 0f, 0f); // Fondo transparente
-        glViewport(0, 0, width, height);
+        GLState.viewport(0, 0, width, height);
         
         // Configurar callback de debug de OpenGL si está disponible
         if (GL.getCapabilities().GL_ARB_debug_output) {
@@ -120,8 +130,8 @@ public class Window {
                 String msg = MemoryUtil.memUTF8(message, length);
                 System.err.println("OpenGL Debug: " + msg);
             }, NULL);
-            glEnable(GL_DEBUG_OUTPUT);
-            glEnable(GL_DEBUG_OUTPUT_SYNCHRONOUS);
+            GLState.enable(GL_DEBUG_OUTPUT);
+            GLState.enable(GL_DEBUG_OUTPUT_SYNCHRONOUS);
         }
 
         initialized.set(true);
@@ -150,7 +160,7 @@ public class Window {
             glfwSetWindowMonitor(windowHandle, monitor, 0, 0, vidmode.width(), vidmode.height(), vidmode.refreshRate());
 
             // Actualizar viewport y llamar callback
-            glViewport(0, 0, vidmode.width(), vidmode.height());
+            GLState.viewport(0, 0, vidmode.width(), vidmode.height());
             if (onResizeCallback != null) {
                 onResizeCallback.accept(vidmode.width(), vidmode.height());
             }
@@ -159,7 +169,7 @@ public class Window {
             glfwSetWindowMonitor(windowHandle, NULL, windowedPosX, windowedPosY, windowedWidth, windowedHeight, 0);
 
             // Actualizar viewport y llamar callback
-            glViewport(0, 0, windowedWidth, windowedHeight);
+            GLState.viewport(0, 0, windowedWidth, windowedHeight);
             if (onResizeCallback != null) {
                 onResizeCallback.accept(windowedWidth, windowedHeight);
             }
@@ -178,6 +188,7 @@ public class Window {
                 renderCallback.run();
 
                 glfwSwapBuffers(windowHandle);
+                GLState.endFrame();
                 glfwPollEvents();
             } catch (Exception e) {
                 System.err.println("Error during rendering: " + e.getMessage());
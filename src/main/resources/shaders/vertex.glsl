@@ -3,12 +3,21 @@ layout(location = 0) in vec3 aPos;
 layout(location = 1) in vec3 aColor;
 
 uniform mat4 model;
-uniform mat4 view;
-uniform mat4 projection;
+
+// Datos por frame compartidos (ver CameraUniformBuffer)
+layout(std140) uniform CameraBlock {
+    mat4 view;
+    mat4 projection;
+    mat4 viewProjection;
+    mat4 screenProjection;
+    vec4 cameraPosition;
+    vec4 screenSize;
+    float time;
+};
 
 out vec3 vertexColor;
 
 void main() {
-    gl_Position = projection * view * model * vec4(aPos, 1.0);
+    gl_Position = viewProjection * model * vec4(aPos, 1.0);
     vertexColor = aColor;
 }
@@ -14,7 +14,17 @@ uniform vec3 objectColor;
 // Propiedades de la luz
 uniform vec3 lightPos;
 uniform vec3 lightColor;
-uniform vec3 viewPos;
+
+// Datos por frame compartidos (ver CameraUniformBuffer)
+layout(std140) uniform CameraBlock {
+    mat4 view;
+    mat4 projection;
+    mat4 viewProjection;
+    mat4 screenProjection;
+    vec4 cameraPosition;
+    vec4 screenSize;
+    float time;
+};
 
 void main()
 {
@@ -40,7 +50,7 @@ void main()
         
         // Specular
         float specularStrength = 0.5;
-        vec3 viewDir = normalize(viewPos - FragPos);
+        vec3 viewDir = normalize(cameraPosition.xyz - FragPos);
         vec3 reflectDir = reflect(-lightDir, norm);
         float spec = pow(max(dot(viewDir, reflectDir), 0.0), 32);
         vec3 specular = specularStrength * spec * lightColor;
@@ -0,0 +1,68 @@
+#version 330 core
+out vec4 FragColor;
+
+in vec3 FragPos;
+in vec3 Normal;
+in vec2 TexCoords;
+in vec4 ObjectColor;
+flat in vec4 Flags; // x = useTexture, y = useLighting, z = capa/255, w = textura en array
+
+uniform sampler2D textureSampler;
+// Texturas de material (TextureArrayPool), en la unidad 1
+uniform sampler2DArray textureArray;
+
+// Propiedades de la luz
+uniform vec3 lightPos;
+uniform vec3 lightColor;
+
+// Datos por frame compartidos (ver CameraUniformBuffer)
+layout(std140) uniform CameraBlock {
+    mat4 view;
+    mat4 projection;
+    mat4 viewProjection;
+    mat4 screenProjection;
+    vec4 cameraPosition;
+    vec4 screenSize;
+    float time;
+};
+
+void main()
+{
+    vec3 color;
+
+    // Obtener color base
+    if (Flags.w > 0.5) {
+        // Capa del array teñida con el color base del material
+        float layer = floor(Flags.z * 255.0 + 0.5);
+        color = texture(textureArray, vec3(TexCoords, layer)).rgb * ObjectColor.rgb;
+    } else if (Flags.x > 0.5) {
+        color = texture(textureSampler, TexCoords).rgb;
+    } else {
+        color = ObjectColor.rgb;
+    }
+
+    if (Flags.y > 0.5) {
+        // Ambient
+        float ambientStrength = 0.2;
+        vec3 ambient = ambientStrength * lightColor;
+
+        // Diffuse
+        vec3 norm = normalize(Normal);
+        vec3 lightDir = normalize(lightPos - FragPos);
+        float diff = max(dot(norm, lightDir), 0.0);
+        vec3 diffuse = diff * lightColor;
+
+        // Specular
+        float specularStrength = 0.5;
+        vec3 viewDir = normalize(cameraPosition.xyz - FragPos);
+        vec3 reflectDir = reflect(-lightDir, norm);
+        float spec = pow(max(dot(viewDir, reflectDir), 0.0), 32);
+        vec3 specular = specularStrength * spec * lightColor;
+
+        // Combinar resultados
+        vec3 result = (ambient + diffuse + specular) * color;
+        FragColor = vec4(result, 1.0);
+    } else {
+        FragColor = vec4(color, 1.0);
+    }
+}
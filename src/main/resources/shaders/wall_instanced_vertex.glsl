@@ -0,0 +1,39 @@
+#version 330 core
+layout (location = 0) in vec3 aPos;
+layout (location = 1) in vec3 aNormal;
+layout (location = 2) in vec2 aTexCoords;
+
+// Datos por instancia (ver WallBatch): matriz de modelo, escala UV, color y flags
+layout (location = 3) in mat4 instanceModel;
+layout (location = 7) in vec2 instanceUvScale;
+layout (location = 8) in vec4 instanceColor;
+layout (location = 9) in vec4 instanceFlags;
+
+out vec3 FragPos;
+out vec3 Normal;
+out vec2 TexCoords;
+out vec4 ObjectColor;
+flat out vec4 Flags;
+
+// Datos por frame compartidos (ver CameraUniformBuffer)
+layout(std140) uniform CameraBlock {
+    mat4 view;
+    mat4 projection;
+    mat4 viewProjection;
+    mat4 screenProjection;
+    vec4 cameraPosition;
+    vec4 screenSize;
+    float time;
+};
+
+void main()
+{
+    vec4 worldPos = instanceModel * vec4(aPos, 1.0);
+    FragPos = worldPos.xyz;
+    Normal = mat3(transpose(inverse(instanceModel))) * aNormal;
+    TexCoords = aTexCoords * instanceUvScale;
+    ObjectColor = instanceColor;
+    Flags = instanceFlags;
+
+    gl_Position = viewProjection * worldPos;
+}